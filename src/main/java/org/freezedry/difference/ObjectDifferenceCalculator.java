@@ -20,6 +20,8 @@ import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.writers.FlattenedObject;
+import org.freezedry.persistence.writers.KeyDictionary;
 import org.freezedry.persistence.writers.KeyValueMapWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -136,23 +138,28 @@ public class ObjectDifferenceCalculator {
 	 */
 	public final < T > Map< String, Difference > calculateDifference( final T modifiedObject, final T referenceObject )
 	{
-		final Map< String, Object > objectMap = flattenObject( modifiedObject );
-		final Map< String, Object > referenceObjectMap = flattenObject( referenceObject );
-
-		final Set< String > keys = new LinkedHashSet<>();
-		keys.addAll( objectMap.keySet() );
-		keys.addAll( referenceObjectMap.keySet() );
+		// the two flattened objects share their keys, and so are compared through the ids of their keys
+		final KeyDictionary keys = new KeyDictionary();
+		final FlattenedObject objectMap = flattenObject( modifiedObject, keys );
+		final FlattenedObject referenceObjectMap = flattenObject( referenceObject, keys );
 
 		final Map< String, Difference > difference = new LinkedHashMap<>();
-		for( String key : keys )
+		for( int i = 0; i < objectMap.size(); ++i )
+		{
+			final int referenceIndex = referenceObjectMap.indexOf( objectMap.getKeyId( i ) );
+			final Object modifiedValue = objectMap.getValue( i );
+			final Object referenceValue = referenceIndex < 0 ? null : referenceObjectMap.getValue( referenceIndex );
+			if( isDifferent( modifiedValue, referenceValue ) )
+			{
+				difference.put( objectMap.getKey( i ), new Difference( modifiedValue, referenceValue ) );
+			}
+		}
+		for( int i = 0; i < referenceObjectMap.size(); ++i )
 		{
-			final Object modifiedValue = objectMap.get( key );
-			final Object referenceValue = referenceObjectMap.get( key );
-			if( ( modifiedValue != null && referenceValue != null && !modifiedValue.toString().equals( referenceValue.toString() ) ) ||
-				( modifiedValue != null && referenceValue == null ) ||
-				( modifiedValue == null && referenceValue != null ) )
+			final Object referenceValue = referenceObjectMap.getValue( i );
+			if( referenceValue != null && objectMap.indexOf( referenceObjectMap.getKeyId( i ) ) < 0 )
 			{
-				difference.put( key, new Difference( modifiedValue, referenceValue ) );
+				difference.put( referenceObjectMap.getKey( i ), new Difference( null, referenceValue ) );
 			}
 		}
 
@@ -171,9 +178,30 @@ public class ObjectDifferenceCalculator {
 	 * @see KeyValueBuilder
 	 */
 	public final Map< String, Object > flattenObject( final Object object )
+	{
+		return flattenObject( object, new KeyDictionary() );
+	}
+
+	/*
+	 * Flattens the object into key-value pairs, whose keys are held in the specified dictionary
+	 */
+	private FlattenedObject flattenObject( final Object object, final KeyDictionary keys )
 	{
 		final InfoNode rootNode = persistenceEngine.createSemanticModel( object );
-		return mapWriter.createMap( rootNode );
+		return mapWriter.createMap( rootNode, keys );
+	}
+
+	/*
+	 * Returns true if the values differ; false otherwise. A missing value is null, and the values are
+	 * compared through their string representations.
+	 */
+	private static boolean isDifferent( final Object modifiedValue, final Object referenceValue )
+	{
+		if( modifiedValue == null || referenceValue == null )
+		{
+			return modifiedValue != referenceValue;
+		}
+		return !modifiedValue.toString().equals( referenceValue.toString() );
 	}
 
 	/**
@@ -16,6 +16,7 @@
 package org.freezedry.persistence;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -26,6 +27,8 @@ import java.io.Reader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.freezedry.persistence.cache.FileReadCache;
+import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
 
 /**
@@ -35,7 +38,10 @@ import org.freezedry.persistence.utils.Constants;
  * 
  * This class converts the file names into a {@link PrintWriter} and {@link InputStreamReader}
  * an forwards the calls to the {@link #write(Object, java.io.Writer)} and {@link #read(Class, Reader)}
- * methods implemented by the subclasses, respectively.
+ * methods implemented by the subclasses, respectively.<p>
+ * 
+ * Optionally, a {@link FileReadCache} can be set so that repeated reads of an unchanged file
+ * don't re-parse the file (see {@link #setReadCache(FileReadCache)}).
  *   
  * @author Robert Philipp
  */
@@ -43,6 +49,26 @@ public abstract class AbstractFileBasedPersistence extends AbstractPersistence {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( AbstractFileBasedPersistence.class );
 
+	private volatile FileReadCache readCache;
+
+	/**
+	 * Sets the cache used by the {@link #read(Class, String)} method. When the cache is null
+	 * (the default), every read parses the file.
+	 * @param cache The {@link FileReadCache} for the objects read from files; may be null
+	 */
+	public void setReadCache( final FileReadCache cache )
+	{
+		this.readCache = cache;
+	}
+
+	/**
+	 * @return The cache used by the {@link #read(Class, String)} method, or null if reads aren't cached
+	 */
+	public FileReadCache getReadCache()
+	{
+		return readCache;
+	}
+
 	/**
 	 * Writes the specified object into the file using the persistence mechanism implemented in
 	 * the concrete subclasses. 
@@ -75,21 +101,84 @@ public abstract class AbstractFileBasedPersistence extends AbstractPersistence {
 	 */
 	public < T > T read( final Class< ? extends T > clazz, final String fileName )
 	{
-		Object object;
+		final FileReadCache cache = readCache;
+		if( cache == null )
+		{
+			return clazz.cast( readFile( clazz, fileName, false ) );
+		}
+
+		// grab the file attributes before reading the file, so that if the file changes while
+		// we're reading it, the next read sees a different size or time and doesn't use this entry
+		final File file = new File( fileName );
+		final String path = file.getAbsolutePath();
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+
+		final boolean isShared = cache.getMode() == FileReadCache.Mode.SHARED;
+		final Object cached = cache.get( path, size, lastModified, clazz );
+		if( cached != null )
+		{
+			// in copy mode, the cache holds the semantic model, which must not be modified
+			return clazz.cast( isShared ? cached : buildObject( clazz, ((InfoNode)cached).getCopy() ) );
+		}
+
+		if( isShared )
+		{
+			final Object object = readFile( clazz, fileName, false );
+			cache.put( path, size, lastModified, clazz, object, Math.max( 1, size ) );
+			return clazz.cast( object );
+		}
+		else
+		{
+			final InfoNode rootNode = (InfoNode)readFile( clazz, fileName, true );
+			cache.put( path, size, lastModified, clazz, rootNode.getCopy(), Math.max( 1, size ) );
+			return clazz.cast( buildObject( clazz, rootNode ) );
+		}
+	}
+
+	/*
+	 * Reads the file, returning either the root node of the semantic model, or the object built from it
+	 */
+	private Object readFile( final Class< ? > clazz, final String fileName, final boolean isModelOnly )
+	{
+		final InfoNode rootNode = readSemanticModel( clazz, fileName );
+		return isModelOnly ? rootNode : buildObject( clazz, rootNode );
+	}
+
+	/**
+	 * Reads the persisted form of the object from the file with the specified name into the semantic
+	 * model, without building the object. Subclasses may override this to read the file in some other
+	 * way, for example, in parallel.
+	 * @param clazz The {@link Class} from which to create the object from its persisted form
+	 * @param fileName The name of the file holding the persisted object
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	protected InfoNode readSemanticModel( final Class< ? > clazz, final String fileName )
+	{
 		try( final InputStream inputStream = new BufferedInputStream( new FileInputStream( fileName ) ) )
 		{
-			final Reader input = new InputStreamReader( inputStream );
-			object = read( clazz, input );
+			return readSemanticModel( clazz, new InputStreamReader( inputStream ) );
 		}
 		catch( IOException e )
 		{
-			final StringBuilder message = new StringBuilder();
-			message.append( "Unable to open the file for reading" ).append( Constants.NEW_LINE );
-			message.append( "  File Name: " ).append( fileName ).append( Constants.NEW_LINE );
-			message.append( "  Class: " ).append( clazz.getName() );
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString(), e );
+			throw readFailed( clazz, fileName, e );
 		}
-		return clazz.cast( object );
+	}
+
+	/**
+	 * Creates the exception thrown when the file can't be read
+	 * @param clazz The {@link Class} being read
+	 * @param fileName The name of the file
+	 * @param cause The exception that caused the failure
+	 * @return The {@link IllegalArgumentException} to throw
+	 */
+	protected static IllegalArgumentException readFailed( final Class< ? > clazz, final String fileName, final IOException cause )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( "Unable to open the file for reading" ).append( Constants.NEW_LINE );
+		message.append( "  File Name: " ).append( fileName ).append( Constants.NEW_LINE );
+		message.append( "  Class: " ).append( clazz.getName() );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString(), cause );
 	}
 }
@@ -17,16 +17,25 @@ package org.freezedry.persistence;
 
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.readers.JsonReader;
 import org.freezedry.persistence.readers.PersistenceReader;
+import org.freezedry.persistence.readers.ProjectingPersistenceReader;
+import org.freezedry.persistence.readers.RecordPersistenceReader;
+import org.freezedry.persistence.readers.RecordReader;
 import org.freezedry.persistence.readers.XmlReader;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
+import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.utils.ReflectionUtils;
 import org.freezedry.persistence.writers.JsonWriter;
 import org.freezedry.persistence.writers.PersistenceWriter;
+import org.freezedry.persistence.writers.RecordPersistenceWriter;
+import org.freezedry.persistence.writers.RecordWriter;
 import org.freezedry.persistence.writers.XmlWriter;
 
 /**
@@ -97,13 +106,155 @@ public abstract class AbstractPersistence implements Persistence {
 	 */
 	@Override
 	public < T > T read( final Class< ? extends T > clazz, final Reader reader )
+	{
+		return buildObject( clazz, readSemanticModel( clazz, reader ) );
+	}
+
+	/**
+	 * Reads the parts of the persisted form of an object, selected by the specified {@link Projection}, from
+	 * the {@link Reader} into an object of the specified {@link Class}. The parts that aren't selected are skipped
+	 * by the reader, and the fields they represent are left at the values given to them by the object's constructor.
+	 * @param clazz The {@link Class} of the object represented by the persisted form.
+	 * @param reader The {@link Reader} from which to read the persisted form of the object
+	 * @param projection The {@link Projection} that selects the persist-name paths to read
+	 * @return the partially reconstituted object
+	 * @throws UnsupportedOperationException if the {@link PersistenceReader} isn't a {@link ProjectingPersistenceReader}
+	 */
+	public < T > T read( final Class< ? extends T > clazz, final Reader reader, final Projection projection )
+	{
+		final PersistenceReader persistenceReader = getPersistenceReader();
+		if( !(persistenceReader instanceof ProjectingPersistenceReader) )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The persistence reader can't read the parts of an object selected by a projection." ).append( Constants.NEW_LINE );
+			message.append( "  Persistence Reader: " ).append( persistenceReader.getClass().getName() ).append( Constants.NEW_LINE );
+			message.append( "  Required Interface: " ).append( ProjectingPersistenceReader.class.getName() );
+			LOGGER.error( message.toString() );
+			throw new UnsupportedOperationException( message.toString() );
+		}
+		final InfoNode rootNode = ((ProjectingPersistenceReader)persistenceReader).read( clazz, reader, projection );
+		if( LOGGER.isInfoEnabled() )
+		{
+			LOGGER.info( rootNode.simpleTreeToString() );
+		}
+		return buildObject( clazz, rootNode );
+	}
+	
+	/**
+	 * Writes the persisted form of each of the specified objects, as a stream of records, to the specified
+	 * {@link Writer}. The subclass implementations determine the format of the stream. For example, JSON Lines,
+	 * XML elements wrapped in a root element, or groups of key-value pairs separated by empty lines.
+	 * @param objects The objects to convert to their persisted form and write to the specified {@link Writer}.
+	 * @param writer The {@link Writer} used to which to write the persisted forms.
+	 * @throws UnsupportedOperationException if the {@link PersistenceWriter} isn't a {@link RecordPersistenceWriter}
+	 */
+	public void writeAll( final Iterable< ? > objects, final Writer writer )
+	{
+		final PersistenceWriter persistenceWriter = getPersistenceWriter();
+		if( !(persistenceWriter instanceof RecordPersistenceWriter) )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The persistence writer can't write a stream of records." ).append( Constants.NEW_LINE );
+			message.append( "  Persistence Writer: " ).append( persistenceWriter.getClass().getName() ).append( Constants.NEW_LINE );
+			message.append( "  Required Interface: " ).append( RecordPersistenceWriter.class.getName() );
+			LOGGER.error( message.toString() );
+			throw new UnsupportedOperationException( message.toString() );
+		}
+
+		// the record writer, the engine, and the engine's node builders are shared by all the records
+		final RecordWriter records = ((RecordPersistenceWriter)persistenceWriter).createRecordWriter( writer );
+		for( final Object object : objects )
+		{
+			records.write( getPersistenceEngine().createSemanticModel( object ) );
+		}
+		records.finish();
+	}
+	
+	/**
+	 * Returns an {@link Iterator} over the objects of the specified {@link Class}, whose persisted forms were
+	 * written to the {@link Reader} as a stream of records by {@link #writeAll(Iterable, Writer)}. The records
+	 * are read lazily, one record for each call to the iterator's {@link Iterator#next()} method.
+	 * @param clazz The {@link Class} of the objects represented by the persisted forms.
+	 * @param reader The {@link Reader} from which to read the persisted forms of the objects
+	 * @return An {@link Iterator} over the reconstituted objects
+	 * @throws UnsupportedOperationException if the {@link PersistenceReader} isn't a {@link RecordPersistenceReader}
+	 */
+	public < T > Iterator< T > readAll( final Class< ? extends T > clazz, final Reader reader )
+	{
+		final PersistenceReader persistenceReader = getPersistenceReader();
+		if( !(persistenceReader instanceof RecordPersistenceReader) )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The persistence reader can't read a stream of records." ).append( Constants.NEW_LINE );
+			message.append( "  Persistence Reader: " ).append( persistenceReader.getClass().getName() ).append( Constants.NEW_LINE );
+			message.append( "  Required Interface: " ).append( RecordPersistenceReader.class.getName() );
+			LOGGER.error( message.toString() );
+			throw new UnsupportedOperationException( message.toString() );
+		}
+		final RecordReader records = ((RecordPersistenceReader)persistenceReader).createRecordReader( clazz, reader );
+		return new Iterator< T >() {
+			
+			// the semantic model of the next record, read ahead by hasNext()
+			private InfoNode nextNode;
+			private boolean isEnd;
+			
+			@Override
+			public boolean hasNext()
+			{
+				if( nextNode == null && !isEnd )
+				{
+					nextNode = records.read();
+					isEnd = nextNode == null;
+				}
+				return !isEnd;
+			}
+			
+			@Override
+			public T next()
+			{
+				if( !hasNext() )
+				{
+					throw new NoSuchElementException();
+				}
+				final InfoNode rootNode = nextNode;
+				nextNode = null;
+				return buildObject( clazz, rootNode );
+			}
+			
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException( "Records can't be removed from the input stream" );
+			}
+		};
+	}
+	
+	/**
+	 * Reads the persisted form of the object from the specified {@link Reader} into the semantic
+	 * model, without building the object
+	 * @param clazz The {@link Class} from which to create the object from its persisted form
+	 * @param reader The {@link Reader} holding the persisted object
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	protected InfoNode readSemanticModel( final Class< ? > clazz, final Reader reader )
 	{
 		final InfoNode rootNode = getPersistenceReader().read( clazz, reader );
 		if( LOGGER.isInfoEnabled() )
 		{
 			LOGGER.info( rootNode.simpleTreeToString() );
 		}
-		
+		return rootNode;
+	}
+	
+	/**
+	 * Builds the object from the specified semantic model. Note that building the object may
+	 * modify the semantic model.
+	 * @param clazz The {@link Class} from which to create the object from its semantic model
+	 * @param rootNode The root {@link InfoNode} of the semantic model
+	 * @return The reconstituted object
+	 */
+	protected < T > T buildObject( final Class< ? extends T > clazz, final InfoNode rootNode )
+	{
 		// grab the deserialized object and attempt to cast it to the specified class.
 		// if the cast fails, check to see if we need to convert between wrapped types and
 		// their primitives
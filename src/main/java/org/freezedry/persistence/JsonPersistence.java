@@ -22,6 +22,26 @@ public class JsonPersistence extends AbstractFileBasedPersistence {
 
 	private JsonWriter jsonWriter;
 	private JsonReader jsonReader;
+	private boolean isTypeDirected = false;
+
+	/**
+	 * Sets whether the reader uses the field types of the target class to decode the JSON values
+	 * @param isTypeDirected set to true to decode the JSON values into the types of the fields they are read for
+	 * @see JsonReader#setTypeDirected(boolean)
+	 */
+	public void setTypeDirected( final boolean isTypeDirected )
+	{
+		this.isTypeDirected = isTypeDirected;
+		getPersistenceReader().setTypeDirected( isTypeDirected );
+	}
+
+	/**
+	 * @return true if the reader uses the field types of the target class to decode the JSON values
+	 */
+	public boolean isTypeDirected()
+	{
+		return isTypeDirected;
+	}
 	
 	/*
 	 * Creates the {@link JsonWriter} if it hasn't yet been instantiated, and returns it
@@ -45,6 +65,7 @@ public class JsonPersistence extends AbstractFileBasedPersistence {
 		if( jsonReader == null )
 		{
 			jsonReader = new JsonReader();
+			jsonReader.setTypeDirected( isTypeDirected );
 		}
 		return jsonReader;
 	}
@@ -15,14 +15,33 @@
  */
 package org.freezedry.persistence;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueIndex;
 import org.freezedry.persistence.readers.KeyValueReader;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.writers.KeyValueWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class KeyValuePersistence extends AbstractFileBasedPersistence {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValuePersistence.class );
+
 	private KeyValueReader keyValueReader;
 	private KeyValueWriter keyValueWriter;
+
+	private boolean isIndexed = false;
+	private int indexBlockSize = KeyValueIndex.DEFAULT_BLOCK_SIZE;
+	private ForkJoinPool readPool;
 	
 	/**
 	 * Sets the {@link KeyValueBuilder} that is used by the writer and reader to create 
@@ -92,6 +111,226 @@ public class KeyValuePersistence extends AbstractFileBasedPersistence {
 		return getPersistenceWriter().getKeyValueSeparator();
 	}
 	
+	/**
+	 * When set to true, the keys are written, and read, front coded, which makes the files much smaller, since
+	 * the flattened keys of neighboring lines share most of their elements. In the indexed files written when
+	 * {@link #setIndexed(boolean)} is true, each block of the index starts with a full key.
+	 * @param isFrontCoded true if the keys are front coded; false (the default) otherwise
+	 * @see KeyValueWriter#setFrontCoded(boolean)
+	 */
+	public void setFrontCoded( final boolean isFrontCoded )
+	{
+		getPersistenceWriter().setFrontCoded( isFrontCoded );
+		getPersistenceReader().setFrontCoded( isFrontCoded );
+	}
+
+	/**
+	 * @return true if the keys are written, and read, front coded; false otherwise
+	 */
+	public boolean isFrontCoded()
+	{
+		return getPersistenceWriter().isFrontCoded();
+	}
+
+	/**
+	 * Sets whether the reader uses the field types of the target class to decode the values
+	 * @param isTypeDirected set to true to decode the values into the types of the fields they are read for
+	 * @see KeyValueReader#setTypeDirected(boolean)
+	 */
+	public void setTypeDirected( final boolean isTypeDirected )
+	{
+		getPersistenceReader().setTypeDirected( isTypeDirected );
+	}
+
+	/**
+	 * @return true if the reader uses the field types of the target class to decode the values
+	 */
+	public boolean isTypeDirected()
+	{
+		return getPersistenceReader().isTypeDirected();
+	}
+
+	/**
+	 * When set to true, the {@link #write(Object, String)} method writes the key-value pairs sorted by their
+	 * keys, and writes a sparse index of the file to an index file next to it, so that the {@link #lookup(String, String)}
+	 * and {@link #scanPrefix(String, String)} methods can find keys without reading the whole file. The sorted file
+	 * can still be read by the {@link #read(Class, String)} method. Because the keys of the entries of a map hold
+	 * the keys of the map, the entries are read back in the order of their keys, and not in the order in which
+	 * they were written, so that an ordered map, such as a {@link java.util.LinkedHashMap}, loses its order. The
+	 * elements of lists and arrays keep their order.
+	 * @param isIndexed true to write sorted and indexed key-value files; false (the default) otherwise
+	 * @see KeyValueIndex
+	 */
+	public void setIndexed( final boolean isIndexed )
+	{
+		this.isIndexed = isIndexed;
+	}
+
+	/**
+	 * @return true if the {@link #write(Object, String)} method writes sorted and indexed key-value files;
+	 * false otherwise
+	 */
+	public boolean isIndexed()
+	{
+		return isIndexed;
+	}
+
+	/**
+	 * @param blockSize The approximate size, in bytes, of the blocks of lines referenced by the index of an
+	 * indexed key-value file. Smaller blocks make lookups read less of the file, and the index larger. The
+	 * default is {@link KeyValueIndex#DEFAULT_BLOCK_SIZE}.
+	 */
+	public void setIndexBlockSize( final int blockSize )
+	{
+		this.indexBlockSize = blockSize;
+	}
+
+	/**
+	 * @return The approximate size, in bytes, of the blocks of lines referenced by the index of an
+	 * indexed key-value file
+	 */
+	public int getIndexBlockSize()
+	{
+		return indexBlockSize;
+	}
+
+	/**
+	 * Sets the {@link ForkJoinPool} on which the {@link #read(Class, String)} method reads files in parallel.
+	 * The file is cut into chunks at line boundaries, whose key-value pairs are read on the pool's threads,
+	 * and then joined in their order in the file to build the semantic model.
+	 * @param pool The {@link ForkJoinPool} on which to read files; or null (the default) to read files on
+	 * the calling thread
+	 * @see KeyValueReader#readParallel(Class, java.nio.file.Path, Charset, ForkJoinPool)
+	 */
+	public void setParallelReadPool( final ForkJoinPool pool )
+	{
+		this.readPool = pool;
+	}
+
+	/**
+	 * @return The {@link ForkJoinPool} on which files are read in parallel; or null if they are read on the
+	 * calling thread
+	 */
+	public ForkJoinPool getParallelReadPool()
+	{
+		return readPool;
+	}
+
+	/**
+	 * @param chunkSize The size, in bytes, of the chunks into which files are cut when they are read in parallel.
+	 * The default is {@link KeyValueReader#DEFAULT_CHUNK_SIZE}.
+	 * @see #setParallelReadPool(ForkJoinPool)
+	 */
+	public void setParallelReadChunkSize( final int chunkSize )
+	{
+		getPersistenceReader().setChunkSize( chunkSize );
+	}
+
+	/**
+	 * @return The size, in bytes, of the chunks into which files are cut when they are read in parallel
+	 */
+	public int getParallelReadChunkSize()
+	{
+		return getPersistenceReader().getChunkSize();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.AbstractFileBasedPersistence#readSemanticModel(java.lang.Class, java.lang.String)
+	 */
+	@Override
+	protected InfoNode readSemanticModel( final Class< ? > clazz, final String fileName )
+	{
+		final ForkJoinPool pool = readPool;
+		if( pool == null )
+		{
+			return super.readSemanticModel( clazz, fileName );
+		}
+
+		// the files are written in the platform's default charset
+		try
+		{
+			final InfoNode rootNode = getPersistenceReader().readParallel( clazz, Paths.get( fileName ), Charset.defaultCharset(), pool );
+			if( LOGGER.isInfoEnabled() )
+			{
+				LOGGER.info( rootNode.simpleTreeToString() );
+			}
+			return rootNode;
+		}
+		catch( IOException e )
+		{
+			throw readFailed( clazz, fileName, e );
+		}
+	}
+
+	/**
+	 * Writes the specified object into the file. When the persistence is indexed (see {@link #setIndexed(boolean)}),
+	 * the key-value pairs are sorted by their keys, and the index is written to the index file. Otherwise, an index
+	 * file left by an earlier indexed write is deleted, because it no longer describes the file.
+	 * @param object The object to be persisted
+	 * @param fileName The name of the file into which to persist the object
+	 */
+	@Override
+	public void write( final Object object, final String fileName )
+	{
+		if( isIndexed )
+		{
+			final InfoNode rootNode = getPersistenceEngine().createSemanticModel( object );
+			final List< Pair< String, Object > > keyValues = getPersistenceWriter().getBuilder().buildKeyValuePairs( rootNode );
+			final int restartInterval = isFrontCoded() ? getPersistenceWriter().getRestartInterval() : 0;
+			KeyValueIndex.write( keyValues, fileName, getKeyValueSeparator(), indexBlockSize, restartInterval );
+		}
+		else
+		{
+			super.write( object, fileName );
+			final File indexFile = new File( KeyValueIndex.getIndexFileName( fileName ) );
+			if( indexFile.exists() && !indexFile.delete() )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Unable to delete the stale key-value index" ).append( Constants.NEW_LINE );
+				message.append( "  Index File Name: " ).append( indexFile.getPath() ).append( Constants.NEW_LINE );
+				LOGGER.error( message.toString() );
+				throw new IllegalStateException( message.toString() );
+			}
+		}
+	}
+
+	/**
+	 * Opens the index of the indexed key-value file with the specified name. Use the returned {@link KeyValueIndex}
+	 * for repeated lookups in the same file, so that the index is read only once.
+	 * @param fileName The name of the key-value file written by an indexed persistence
+	 * @return The {@link KeyValueIndex} of the file
+	 */
+	public KeyValueIndex openIndex( final String fileName )
+	{
+		return KeyValueIndex.open( fileName );
+	}
+
+	/**
+	 * Returns the value of the specified key in the indexed key-value file, reading only the part of the file
+	 * that may hold the key
+	 * @param fileName The name of the key-value file written by an indexed persistence
+	 * @param key The key, for example, {@code Division:people[0]:Person:givenName}
+	 * @return The value as it appears in the file, for example, {@code "Johnny"}, or null if the file
+	 * doesn't hold the key
+	 */
+	public String lookup( final String fileName, final String key )
+	{
+		return openIndex( fileName ).lookup( key );
+	}
+
+	/**
+	 * Returns the key-value pairs whose keys start with the specified prefix, reading only the part of the
+	 * indexed key-value file that may hold the keys
+	 * @param fileName The name of the key-value file written by an indexed persistence
+	 * @param prefix The prefix of the keys, for example, {@code Division:people[0]}
+	 * @return The key-value pairs, in the order of their keys, with their values as they appear in the file
+	 */
+	public List< Pair< String, String > > scanPrefix( final String fileName, final String prefix )
+	{
+		return openIndex( fileName ).scanPrefix( prefix );
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.AbstractPersistence#getImplementationSpecificWriter()
@@ -16,7 +16,9 @@
 package org.freezedry.persistence;
 
 import org.freezedry.persistence.annotations.Persist;
+import org.freezedry.persistence.annotations.PersistImmutable;
 import org.freezedry.persistence.builders.*;
+import org.freezedry.persistence.cache.SemanticModelCache;
 import org.freezedry.persistence.readers.PersistenceReader;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
@@ -27,6 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
@@ -68,6 +72,11 @@ import java.util.regex.Pattern;
  * {@link Field#set(Object, Object)} method. This means that if the constructor performs checks against null, you will have 
  * a problem. (TODO allow passing default values to the constructor so that the instantiation passes its checks).
  * 
+ * Classes whose instances never change can be marked as immutable, either with the {@link PersistImmutable} annotation
+ * or through the {@link #addImmutableClass(Class)} method. The engine caches the semantic model it builds for each
+ * instance of an immutable class, and when the same instance is persisted again, it uses a copy of the cached
+ * semantic model instead of rebuilding it (see {@link SemanticModelCache}).
+ * 
  * @see InfoNode
  * @see NodeBuilder
  * @see PersistenceWriter
@@ -95,6 +104,10 @@ public class PersistenceEngine {
 	private final Map< Class< ? >, Object > defaultInstances;
 
 	private String genericTypeSeparator = GENERIC_TYPE_SEPARATOR;
+
+	private final Set< Class< ? > > immutableClasses = Collections.newSetFromMap( new ConcurrentHashMap< Class< ? >, Boolean >() );
+	private final ConcurrentMap< Class< ? >, Boolean > annotatedImmutableClasses = new ConcurrentHashMap<>();
+	private final SemanticModelCache semanticModelCache = new SemanticModelCache();
 	
 	/**
 	 * Constructs a {@link PersistenceEngine} with the default {@link InfoNode} info node builders
@@ -171,7 +184,8 @@ public class PersistenceEngine {
 	 */
 	private static Set< Class< ? > > nonRootObjects()
 	{
-		return new HashSet<>();
+		// the engines add the classes they resolve, from any thread
+		return Collections.newSetFromMap( new ConcurrentHashMap< Class< ? >, Boolean >() );
 	}
 	
 	/**
@@ -255,6 +269,61 @@ public class PersistenceEngine {
 		return genericTypeSeparator;
 	}
 
+	/**
+	 * Marks the specified {@link Class} as immutable, so that the semantic models built for its instances
+	 * are cached and reused. This has the same effect as annotating the class with {@link PersistImmutable}.
+	 * Note that subclasses of the specified class are not marked as immutable.
+	 * @param clazz The {@link Class} whose instances never change
+	 * @return This {@link org.freezedry.persistence.PersistenceEngine} for chaining
+	 */
+	public PersistenceEngine addImmutableClass( final Class< ? > clazz )
+	{
+		immutableClasses.add( clazz );
+		return this;
+	}
+
+	/**
+	 * Removes the specified {@link Class} from the classes marked as immutable through the 
+	 * {@link #addImmutableClass(Class)} method, and clears the cached semantic models.
+	 * @param clazz The {@link Class} to remove
+	 * @return true if the class had been marked as immutable; false otherwise
+	 */
+	public boolean removeImmutableClass( final Class< ? > clazz )
+	{
+		semanticModelCache.clear();
+		return immutableClasses.remove( clazz );
+	}
+
+	/**
+	 * Returns true if the instances of the specified {@link Class} never change, either because the class has
+	 * been added through {@link #addImmutableClass(Class)} or because it is annotated with {@link PersistImmutable}.
+	 * This is called for every node of the semantic model, and so the annotation is only looked up once per class.
+	 * @param clazz The {@link Class} to check
+	 * @return true if the specified class is immutable; false otherwise
+	 */
+	public boolean isImmutableClass( final Class< ? > clazz )
+	{
+		if( immutableClasses.contains( clazz ) )
+		{
+			return true;
+		}
+		Boolean isAnnotated = annotatedImmutableClasses.get( clazz );
+		if( isAnnotated == null )
+		{
+			isAnnotated = clazz.isAnnotationPresent( PersistImmutable.class );
+			annotatedImmutableClasses.put( clazz, isAnnotated );
+		}
+		return isAnnotated;
+	}
+
+	/**
+	 * @return The cache holding the semantic models built for instances of immutable classes
+	 */
+	public SemanticModelCache getSemanticModelCache()
+	{
+		return semanticModelCache;
+	}
+
 	/**
 	 * Adds a {@link NodeBuilder} to be used for generating {@link InfoNode}s for the specified {@link Class}
 	 * @param clazz The {@link Class} of the object to persist and, therefore, for which to generate a node
@@ -264,7 +333,10 @@ public class PersistenceEngine {
 	 */
 	public NodeBuilder addNodeBuilder( final Class< ? > clazz, final NodeBuilder builder )
 	{
-		return nodeBuilders.put( clazz, builder );
+		synchronized( nodeBuilders )
+		{
+			return nodeBuilders.put( clazz, builder );
+		}
 	}
 	
 	/**
@@ -315,7 +387,12 @@ public class PersistenceEngine {
 	 */
 	public NodeBuilder getNodeBuilder( final Class< ? > clazz )
 	{
-		return ReflectionUtils.getItemOrAncestorCopyable( clazz, nodeBuilders );
+		// the look-up adds the entries for the classes it resolves to an ancestor, and the lazy
+		// collections and maps build their elements through this engine from any thread
+		synchronized( nodeBuilders )
+		{
+			return ReflectionUtils.getItemOrAncestorCopyable( clazz, nodeBuilders );
+		}
 	}
 	
 	/**
@@ -369,7 +446,10 @@ public class PersistenceEngine {
 	 */
 	private Object getDefaultInstance( final Class< ? > clazz )
 	{
-		return ReflectionUtils.getItemOrAncestor( clazz, defaultInstances );
+		synchronized( defaultInstances )
+		{
+			return ReflectionUtils.getItemOrAncestor( clazz, defaultInstances );
+		}
 	}
 
 	/**
@@ -381,7 +461,10 @@ public class PersistenceEngine {
 	 */
 	public NodeBuilder removeNodeBuilder( final Class< ? > clazz )
 	{
-		return nodeBuilders.remove( clazz );
+		synchronized( nodeBuilders )
+		{
+			return nodeBuilders.remove( clazz );
+		}
 	}
 	
 	/**
@@ -429,12 +512,15 @@ public class PersistenceEngine {
 		// first we check to see if the node builder has already been constructed, in which case
 		// we use it.
 		NodeBuilder nodeBuilder = null;
-		for( Map.Entry< Class< ? >, NodeBuilder > entry : nodeBuilders.entrySet() )
+		synchronized( nodeBuilders )
 		{
-			if( entry.getValue().getClass().equals( nodeBuilderClass ) )
+			for( Map.Entry< Class< ? >, NodeBuilder > entry : nodeBuilders.entrySet() )
 			{
-				nodeBuilder = entry.getValue();
-				break;
+				if( entry.getValue().getClass().equals( nodeBuilderClass ) )
+				{
+					nodeBuilder = entry.getValue();
+					break;
+				}
 			}
 		}
 		
@@ -473,6 +559,17 @@ public class PersistenceEngine {
 		// object we are being asked to persist.
 		final Class< ? > clazz = object.getClass();
 		
+		// immutable objects that have already been persisted have their semantic model cached
+		final boolean isImmutable = isImmutableClass( clazz );
+		if( isImmutable )
+		{
+			final InfoNode cachedNode = semanticModelCache.get( object, null, null );
+			if( cachedNode != null )
+			{
+				return cachedNode;
+			}
+		}
+
 		InfoNode rootNode;
 		
 		// if the object is an array of one or more dimensions, then we need to replace the
@@ -524,6 +621,11 @@ public class PersistenceEngine {
 			// is a complete set of information needed to persist and reconstruct an object
 			addNodes( rootNode, object );
 		}
+
+		if( isImmutable )
+		{
+			semanticModelCache.put( object, null, null, rootNode );
+		}
 		
 		// return the root node of the tree
 		return rootNode;
@@ -602,6 +704,17 @@ public class PersistenceEngine {
 		// factories for registered node info node builders for the Class< ? > of the object)
 		final Class< ? > clazz = object.getClass();
 		
+		// immutable objects that have already been persisted have their subtree cached
+		final boolean isImmutable = isImmutableClass( clazz );
+		if( isImmutable )
+		{
+			final InfoNode cachedNode = semanticModelCache.get( object, containingClass, fieldName );
+			if( cachedNode != null )
+			{
+				return cachedNode;
+			}
+		}
+
 		// construct the node. There are several cases to consider:
 		// 0. the field is annotated with a specified node builder in mind
 		// 1. the object is intended to be a leaf node: create a leaf InfoNode object
@@ -711,6 +824,11 @@ public class PersistenceEngine {
 			final InfoNode compoundNode = InfoNode.createCompoundNode( fieldName, persistName, clazz );
 			node = addNodes( compoundNode, object );
 		}
+
+		if( isImmutable )
+		{
+			semanticModelCache.put( object, containingClass, fieldName, node );
+		}
 		
 		// then call addNodes(...) with the newly created node
 		return node;
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose instances never change once constructed. The {@link org.freezedry.persistence.PersistenceEngine}
+ * remembers the semantic model it builds for each instance of such a class, and reuses it (as a copy) the next
+ * time the same instance is persisted, rather than building it again through reflection. Classes can also be
+ * marked as immutable through {@link org.freezedry.persistence.PersistenceEngine#addImmutableClass(Class)}.
+ *
+ * @author Robert Philipp
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( ElementType.TYPE )
+public @interface PersistImmutable {
+}
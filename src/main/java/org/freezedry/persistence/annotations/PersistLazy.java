@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation that marks a {@link List}, {@link Set}, {@link Map}, or other collection field, as one whose
+ * elements are built lazily when the object is read. Instead of building every element up front, the
+ * collection and map node builders set the field to a read-only collection or map that holds on to the
+ * semantic model of the elements, and builds each element the first time it is accessed. The keys of a
+ * map are built up front, so that they can be looked up, and the elements of a {@link Set} are all built
+ * the first time the set is queried, since its membership depends on all of them.<p>
+ * 
+ * The lazy collections and maps can be shared between threads once published: each element is built once,
+ * by the first thread that accesses it. The field must be declared as an interface that the lazy collection
+ * or map implements (for example, {@link List}, {@link java.util.Collection}, {@link Set}, or {@link Map}),
+ * otherwise the elements are built up front.
+ * 
+ * @author Robert Philipp
+ */
+@Retention( RetentionPolicy.RUNTIME )
+@Target( ElementType.FIELD )
+public @interface PersistLazy {
+}
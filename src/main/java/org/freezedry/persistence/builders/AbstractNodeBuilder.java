@@ -15,6 +15,7 @@
  */
 package org.freezedry.persistence.builders;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Arrays;
@@ -25,6 +26,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.annotations.PersistLazy;
 import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
@@ -252,6 +254,59 @@ public abstract class AbstractNodeBuilder implements NodeBuilder {
 		return key;
 	}
 	
+	/**
+	 * Returns the field of the containing class that the specified node represents. The node's persistence
+	 * name is first taken as the field's name, and then as the persistence name given to the field by its
+	 * annotation.
+	 * @param containingClass The class containing the field, which may be null
+	 * @param node The {@link InfoNode} representing the field
+	 * @return The field the node represents, or null if the containing class has no such field
+	 */
+	protected static Field getField( final Class< ? > containingClass, final InfoNode node )
+	{
+		if( containingClass == null )
+		{
+			return null;
+		}
+		try
+		{
+			return ReflectionUtils.getDeclaredField( containingClass, node.getPersistName() );
+		}
+		catch( NoSuchFieldException e )
+		{
+			return ReflectionUtils.getFieldForPersistenceName( containingClass, node.getPersistName() );
+		}
+	}
+	
+	/**
+	 * Returns true if the field the specified node represents is annotated with {@link PersistLazy},
+	 * and its declared type can hold the specified lazy collection or map class. Logs a warning when
+	 * the field is annotated, but its declared type can't hold the lazy class.
+	 * @param containingClass The class containing the field, which may be null
+	 * @param node The {@link InfoNode} representing the field
+	 * @param lazyClass The class of the lazy collection or map that would be assigned to the field
+	 * @return true if the elements of the field are to be built lazily; false otherwise
+	 */
+	protected static boolean isLazy( final Class< ? > containingClass, final InfoNode node, final Class< ? > lazyClass )
+	{
+		final Field field = getField( containingClass, node );
+		if( field == null || !field.isAnnotationPresent( PersistLazy.class ) )
+		{
+			return false;
+		}
+		if( !field.getType().isAssignableFrom( lazyClass ) )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The field is annotated as lazy, but its type can't hold a lazy collection. Building its elements now." ).append( Constants.NEW_LINE );
+			message.append( "  Containing Class: " ).append( containingClass.getName() ).append( Constants.NEW_LINE );
+			message.append( "  Field Name: " ).append( field.getName() ).append( Constants.NEW_LINE );
+			message.append( "  Field Type: " ).append( field.getType().getName() );
+			LOGGER.warn( message.toString() );
+			return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Updates the specified node with information that will be need for downstream processing. This is
 	 * mostly needed when the {@link Map} contains other classes that have generic types. For example, when
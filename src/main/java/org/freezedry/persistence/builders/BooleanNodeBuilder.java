@@ -55,6 +55,10 @@ public class BooleanNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Boolean createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Boolean )
+		{
+			return (Boolean)valueString;
+		}
 		return Boolean.parseBoolean( valueString.toString() );
 	}
 
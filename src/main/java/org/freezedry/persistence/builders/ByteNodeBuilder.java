@@ -40,6 +40,10 @@ public class ByteNodeBuilder  extends AbstractPrimitiveLeafNodeBuilder {
 	public Byte createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Byte )
+		{
+			return (Byte)valueString;
+		}
 		return Byte.parseByte( valueString.toString() );
 	}
 
@@ -60,7 +64,7 @@ public class ByteNodeBuilder  extends AbstractPrimitiveLeafNodeBuilder {
 		{
 			value = (Byte)nodeValue;
 		}
-		if( nodeValue instanceof Integer )
+		else if( nodeValue instanceof Integer )
 		{
 			value = (byte)(int)nodeValue;
 		}
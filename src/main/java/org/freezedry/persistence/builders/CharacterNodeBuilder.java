@@ -40,6 +40,12 @@ public class CharacterNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	@Override
 	public Character createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
+		// the node's value may already be a character (for example, when the reader knows the field types)
+		if( node.getValue() instanceof Character )
+		{
+			return (Character)node.getValue();
+		}
+
 		// grab the node's value, which should be a string
 		final String value = (String)node.getValue();
 		
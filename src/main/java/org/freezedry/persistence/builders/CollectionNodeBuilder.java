@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -104,7 +105,7 @@ public class CollectionNodeBuilder extends AbstractNodeBuilder {
 	{
 		// create the InfoNode object (we first have to determine the node type, down the road, we'll check the
 		// factories for registered node generators for the Class< ? > of the object)
-		final Class< ? > clazz = object.getClass();
+		final Class< ? > clazz = getPersistedClass( object );
 
 		// find the persistence name and the persistence name of the collection elements
 		String persistName = null;
@@ -171,7 +172,7 @@ public class CollectionNodeBuilder extends AbstractNodeBuilder {
 	{
 		// create the InfoNode object (we first have to determine the node type, down the road, we'll check the
 		// factories for registered node generators for the Class< ? > of the object)
-		final Class< ? > clazz = object.getClass();
+		final Class< ? > clazz = getPersistedClass( object );
 
 		// create the root node
 		final InfoNode node = InfoNode.createRootNode( persistName, clazz );
@@ -193,9 +194,6 @@ public class CollectionNodeBuilder extends AbstractNodeBuilder {
 	@Override
 	public Object createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node ) throws ReflectiveOperationException
 	{
-		// creates the collection...
-		final Collection< ? super Object > collection = createCollection( clazz );
-
 		// grab the generic type parameters from the info node, and make sure there is only one
 		// (i.e. List< Double > should have java.lang.Double as the generic type)
 		// and pull out that type (this should have come from the previous recursion)
@@ -226,6 +224,25 @@ public class CollectionNodeBuilder extends AbstractNodeBuilder {
 		final Class< ? > elementClass = elementInfo.getFirst();
 		final List< Type > elementTypes = elementInfo.getSecond();
 		
+		// when the field is annotated as lazy, we hand back a read-only collection that holds on to
+		// the element nodes, and builds each element the first time it is accessed
+		final Class< ? > lazyClass = Set.class.isAssignableFrom( clazz ) ? LazySet.class : LazyList.class;
+		if( isLazy( containingClass, node, lazyClass ) )
+		{
+			final LazyElements elements = new LazyElements( node.getChildren(), new LazyElements.Factory() {
+				
+				@Override
+				public Object build( final InfoNode element ) throws ReflectiveOperationException
+				{
+					return buildObject( containingClass, elementClass, elementTypes, element, node );
+				}
+			} );
+			return lazyClass == LazySet.class ? new LazySet<>( elements ) : new LazyList<>( elements );
+		}
+		
+		// creates the collection...
+		final Collection< ? super Object > collection = createCollection( clazz );
+
 		// run through the nodes, calling the persistence engine to create the element objects
 		// and add them to the newly created collection.
 		for( InfoNode element : node.getChildren() ) 
@@ -290,6 +307,26 @@ public class CollectionNodeBuilder extends AbstractNodeBuilder {
 		return collection;
 	}
 	
+	/*
+	 * Returns the class of the collection to record in the semantic model. The lazy collections are
+	 * recorded as the eager collections that would have been built in their place, since they can't be
+	 * instantiated by name.
+	 * @param object The collection
+	 * @return The class of the collection to record in the semantic model
+	 */
+	private static Class< ? > getPersistedClass( final Object object )
+	{
+		if( object instanceof LazyList )
+		{
+			return ArrayList.class;
+		}
+		if( object instanceof LazySet )
+		{
+			return LinkedHashSet.class;
+		}
+		return object.getClass();
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see com.synapse.copyable.Copyable#getCopy()
@@ -55,6 +55,10 @@ public class DoubleNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Double createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Double )
+		{
+			return (Double)valueString;
+		}
 		return Double.parseDouble( valueString.toString() );
 	}
 
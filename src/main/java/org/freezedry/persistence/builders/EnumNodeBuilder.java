@@ -101,6 +101,12 @@ public class EnumNodeBuilder extends AbstractLeafNodeBuilder
 	@Override
 	public Enum createObject( final Class<?> containingClass, final Class<?> clazz, final InfoNode node )
 	{
+		// the node's value may already be the enum constant (for example, when the reader knows the field types)
+		if( clazz.isInstance( node.getValue() ) )
+		{
+			return (Enum)node.getValue();
+		}
+
 		Enum enumObject = null;
 		for( Object constant : clazz.getEnumConstants() )
 		{
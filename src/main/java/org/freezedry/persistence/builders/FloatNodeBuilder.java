@@ -55,6 +55,10 @@ public class FloatNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Float createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Float )
+		{
+			return (Float)valueString;
+		}
 		return Float.parseFloat( valueString.toString() );
 	}
 
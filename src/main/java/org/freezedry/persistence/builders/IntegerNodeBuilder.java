@@ -55,6 +55,10 @@ public class IntegerNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Integer createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Integer )
+		{
+			return (Integer)valueString;
+		}
 		return Integer.parseInt( valueString.toString() );
 	}
 
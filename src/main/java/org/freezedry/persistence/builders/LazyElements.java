@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.builders;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the {@link InfoNode}s of the elements of a lazy collection or map, and builds the object for
+ * each element the first time it is requested. The objects are published through an atomic array, and
+ * each element is built while holding the lock of its {@link InfoNode}, so that it is built only once,
+ * even when several threads request it at the same time, and so that the node, which building may
+ * modify, is never used by two threads at once. The node lock doesn't guard the {@link org.freezedry.persistence.PersistenceEngine}
+ * that builds the object, and which may be building other elements or other objects at the same time. The
+ * engine synchronizes its own look-ups instead, so that elements may be built from any thread.
+ * 
+ * @author Robert Philipp
+ */
+final class LazyElements {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( LazyElements.class );
+
+	// stands in for elements that were built as null, so that null means "not yet built"
+	private static final Object NULL = new Object();
+
+	/**
+	 * Builds the object for an element's {@link InfoNode}
+	 */
+	interface Factory {
+
+		/**
+		 * @param node The {@link InfoNode} of the element
+		 * @return The object for the element
+		 * @throws ReflectiveOperationException
+		 */
+		Object build( final InfoNode node ) throws ReflectiveOperationException;
+	}
+
+	private final InfoNode[] nodes;
+	private final AtomicReferenceArray< Object > objects;
+	private final Factory factory;
+
+	/**
+	 * @param nodes The {@link InfoNode}s of the elements, which may hold null for elements that are null
+	 * @param factory The {@link Factory} that builds the objects from the nodes
+	 */
+	LazyElements( final List< InfoNode > nodes, final Factory factory )
+	{
+		this.nodes = nodes.toArray( new InfoNode[ nodes.size() ] );
+		this.objects = new AtomicReferenceArray<>( this.nodes.length );
+		this.factory = factory;
+	}
+
+	/**
+	 * @return The number of elements
+	 */
+	int size()
+	{
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the object for the element at the specified index, building it if this is the first request
+	 * @param index The index of the element
+	 * @return The object for the element
+	 * @throws IllegalStateException if the object can't be built
+	 */
+	Object get( final int index )
+	{
+		Object object = objects.get( index );
+		if( object == null )
+		{
+			final InfoNode node = nodes[ index ];
+			if( node == null )
+			{
+				return null;
+			}
+			synchronized( node )
+			{
+				object = objects.get( index );
+				if( object == null )
+				{
+					object = build( node );
+					objects.set( index, object == null ? NULL : object );
+				}
+			}
+		}
+		return object == NULL ? null : object;
+	}
+
+	/*
+	 * Builds the object for the node, converting the reflection errors to runtime exceptions, since the
+	 * elements are built by the methods of the collection interfaces
+	 */
+	private Object build( final InfoNode node )
+	{
+		try
+		{
+			return factory.build( node );
+		}
+		catch( ReflectiveOperationException e )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to build the element of the lazy collection" ).append( Constants.NEW_LINE );
+			message.append( "  Persist Name: " ).append( node.getPersistName() ).append( Constants.NEW_LINE );
+			message.append( "  Class: " ).append( node.getClazz() == null ? "[null]" : node.getClazz().getName() );
+			LOGGER.error( message.toString(), e );
+			throw new IllegalStateException( message.toString(), e );
+		}
+	}
+}
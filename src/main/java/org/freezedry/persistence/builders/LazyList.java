@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.builders;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.freezedry.persistence.annotations.PersistLazy;
+
+/**
+ * Read-only {@link java.util.List} whose elements are built from their semantic model the first time
+ * they are accessed. Created by the {@link CollectionNodeBuilder} for fields annotated with {@link PersistLazy}.
+ * The list is thread safe once published, and its elements may be built from any thread.
+ * 
+ * @author Robert Philipp
+ */
+final class LazyList< E > extends AbstractList< E > implements RandomAccess {
+
+	private final LazyElements elements;
+
+	/**
+	 * @param elements The elements of the list
+	 */
+	LazyList( final LazyElements elements )
+	{
+		this.elements = elements;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public E get( final int index )
+	{
+		if( index < 0 || index >= elements.size() )
+		{
+			throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + elements.size() );
+		}
+		return (E)elements.get( index );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size()
+	{
+		return elements.size();
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.builders;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.freezedry.persistence.annotations.PersistLazy;
+
+/**
+ * Read-only {@link Map} whose keys are built up front, so that they can be looked up, and whose values are
+ * built from their semantic model the first time they are accessed. Created by the {@link MapNodeBuilder}
+ * for fields annotated with {@link PersistLazy}. The map is thread safe once published,
+ * and its values may be built from any thread.
+ * 
+ * @author Robert Philipp
+ */
+final class LazyMap< K, V > extends AbstractMap< K, V > {
+
+	// the index of each key's value in the lazy values
+	private final Map< K, Integer > indexes;
+	private final LazyElements values;
+	private final Set< Map.Entry< K, V > > entrySet;
+
+	/**
+	 * @param keys The keys of the map, in the order of their values
+	 * @param values The values of the map
+	 */
+	LazyMap( final List< K > keys, final LazyElements values )
+	{
+		final Map< K, Integer > map = new LinkedHashMap<>( keys.size() * 4 / 3 + 1 );
+		for( int i = 0; i < keys.size(); ++i )
+		{
+			map.put( keys.get( i ), i );
+		}
+		this.indexes = Collections.unmodifiableMap( map );
+		this.values = values;
+		this.entrySet = new EntrySet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public V get( final Object key )
+	{
+		final Integer index = indexes.get( key );
+		return index == null ? null : (V)values.get( index );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey( final Object key )
+	{
+		return indexes.containsKey( key );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size()
+	{
+		return indexes.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#keySet()
+	 */
+	@Override
+	public Set< K > keySet()
+	{
+		return indexes.keySet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set< Map.Entry< K, V > > entrySet()
+	{
+		return entrySet;
+	}
+
+	/*
+	 * The entries of the map, whose values are built when they are first requested from the entry
+	 */
+	private final class EntrySet extends AbstractSet< Map.Entry< K, V > > {
+
+		@Override
+		public Iterator< Map.Entry< K, V > > iterator()
+		{
+			final Iterator< Map.Entry< K, Integer > > iterator = indexes.entrySet().iterator();
+			return new Iterator< Map.Entry< K, V > >() {
+
+				@Override
+				public boolean hasNext()
+				{
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Map.Entry< K, V > next()
+				{
+					return new Entry( iterator.next() );
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException( "Lazy maps are read-only" );
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return indexes.size();
+		}
+	}
+
+	/*
+	 * An entry of the map, whose value is built when it is first requested
+	 */
+	private final class Entry implements Map.Entry< K, V > {
+
+		private final Map.Entry< K, Integer > index;
+
+		Entry( final Map.Entry< K, Integer > index )
+		{
+			this.index = index;
+		}
+
+		@Override
+		public K getKey()
+		{
+			return index.getKey();
+		}
+
+		@Override
+		@SuppressWarnings( "unchecked" )
+		public V getValue()
+		{
+			return (V)values.get( index.getValue() );
+		}
+
+		@Override
+		public V setValue( final V value )
+		{
+			throw new UnsupportedOperationException( "Lazy maps are read-only" );
+		}
+
+		@Override
+		public boolean equals( final Object object )
+		{
+			if( !( object instanceof Map.Entry ) )
+			{
+				return false;
+			}
+			final Map.Entry< ?, ? > entry = (Map.Entry< ?, ? >)object;
+			return equal( getKey(), entry.getKey() ) && equal( getValue(), entry.getValue() );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final Object key = getKey();
+			final Object value = getValue();
+			return ( key == null ? 0 : key.hashCode() ) ^ ( value == null ? 0 : value.hashCode() );
+		}
+
+		@Override
+		public String toString()
+		{
+			return getKey() + "=" + getValue();
+		}
+
+		private boolean equal( final Object first, final Object second )
+		{
+			return first == null ? second == null : first.equals( second );
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.builders;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.freezedry.persistence.annotations.PersistLazy;
+
+/**
+ * Read-only {@link Set} whose elements are built from their semantic model when the set is first
+ * queried. Because the membership of a set depends on all of its elements, all the elements are built
+ * at once. Only the size is known before then. Created by the {@link CollectionNodeBuilder} for fields
+ * annotated with {@link PersistLazy}. The set is thread safe once published,
+ * and its elements may be built from any thread.
+ * 
+ * @author Robert Philipp
+ */
+final class LazySet< E > extends AbstractSet< E > {
+
+	private final LazyElements elements;
+	private volatile Set< E > set;
+
+	/**
+	 * @param elements The elements of the set
+	 */
+	LazySet( final LazyElements elements )
+	{
+		this.elements = elements;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	@Override
+	public Iterator< E > iterator()
+	{
+		return Collections.unmodifiableSet( getSet() ).iterator();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#contains(java.lang.Object)
+	 */
+	@Override
+	public boolean contains( final Object object )
+	{
+		return getSet().contains( object );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size()
+	{
+		// the persisted set holds no duplicates, so the size is known before its elements are built
+		return set == null ? elements.size() : set.size();
+	}
+
+	/*
+	 * @return The set of all the elements, building them on the first call
+	 */
+	@SuppressWarnings( "unchecked" )
+	private Set< E > getSet()
+	{
+		Set< E > current = set;
+		if( current == null )
+		{
+			synchronized( this )
+			{
+				current = set;
+				if( current == null )
+				{
+					current = new LinkedHashSet<>( elements.size() * 4 / 3 + 1 );
+					for( int i = 0; i < elements.size(); ++i )
+					{
+						current.add( (E)elements.get( i ) );
+					}
+					set = current;
+				}
+			}
+		}
+		return current;
+	}
+}
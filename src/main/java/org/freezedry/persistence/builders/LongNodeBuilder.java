@@ -55,6 +55,10 @@ public class LongNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Long createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Long )
+		{
+			return (Long)valueString;
+		}
 		return Long.parseLong( valueString.toString() );
 	}
 
@@ -75,7 +79,7 @@ public class LongNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 		{
 			value = (Long)nodeValue;
 		}
-		if( nodeValue instanceof Integer )
+		else if( nodeValue instanceof Integer )
 		{
 			value = (long)(int)nodeValue;
 		}
@@ -17,6 +17,7 @@ package org.freezedry.persistence.builders;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -97,7 +98,7 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 	{
 		// create the InfoNode object (we first have to determine the node type, down the road, we'll check the
 		// factories for registered node generators for the Class< ? > of the object)
-		final Class< ? > clazz = object.getClass();
+		final Class< ? > clazz = getPersistedClass( object );
 
 		// create a compound node that holds the child nodes that form
 		// the element of the List. For each child element, call this
@@ -189,7 +190,7 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 	{
 		// create the InfoNode object (we first have to determine the node type, down the road, we'll check the
 		// factories for registered node generators for the Class< ? > of the object)
-		final Class< ? > clazz = object.getClass();
+		final Class< ? > clazz = getPersistedClass( object );
 
 		// create the root node
 		final InfoNode node = InfoNode.createRootNode( clazz.getName(), clazz );
@@ -223,9 +224,6 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 	@Override
 	public Object createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node ) throws ReflectiveOperationException
 	{
-		// creates the map...
-		final Map< ? super Object, ? super Object > map = createMap( clazz );
-
 		// grab the generic type parameters from the info node, and make sure there is only one
 		// (i.e. List< Double > should have java.lang.Double as the generic type) and pull out that type
 		final List< Type > types = node.getGenericParameterTypes();
@@ -269,6 +267,15 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 		String keyPersistenceName = keyValueNames.getFirst();
 		String valuePersistenceName = keyValueNames.getSecond();
 		
+		// when the field is annotated as lazy, we build the keys now, and hand back a read-only map
+		// that holds on to the value nodes, and builds each value the first time it is accessed
+		final boolean isLazy = isLazy( containingClass, node, LazyMap.class );
+		final List< Object > keys = new ArrayList<>();
+		final List< InfoNode > valueNodes = new ArrayList<>();
+		
+		// creates the map...
+		final Map< ? super Object, ? super Object > map = isLazy ? null : createMap( clazz );
+
 		// run through the nodes, calling the persistence engine to create the element objects
 		// and add them to the newly created map. each info node should have an entry node, and
 		// each entry node should have a key node and a value node.
@@ -292,24 +299,45 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 			// the order of the elements can be reversed. For example, the key could be the second
 			// element (instead of the first) and the value could be the first. We check both possibilities
 			Object key = null;
-			Object value = null;
+			InfoNode valueNode = null;
 			final InfoNode firstNode = keyValue.get( 0 );
 			final InfoNode secondNode = keyValue.get( 1 );
 			if( keyPersistenceName.equals( firstNode.getPersistName() ) &&
 				valuePersistenceName.equals( secondNode.getPersistName() )	)
 			{
 				key = buildObject( containingClass, keyClass, keyTypes, firstNode, node );
-				value = buildObject( containingClass, valueClass, valueTypes, secondNode, node );
+				valueNode = secondNode;
 			}
 			else if( keyPersistenceName.equals( secondNode.getPersistName() ) &&
 					 valuePersistenceName.equals( firstNode.getPersistName() ) )
 			{
 				key = buildObject( containingClass, keyClass, keyTypes, secondNode, node );
-				value = buildObject( containingClass, valueClass, valueTypes, firstNode, node );
+				valueNode = firstNode;
 			}
 			
-			// add the new objects to the map
-			map.put( key, value );
+			// add the new objects to the map, or hold on to the value node for the lazy map
+			if( isLazy )
+			{
+				keys.add( key );
+				valueNodes.add( valueNode );
+			}
+			else
+			{
+				final Object value = valueNode == null ? null : buildObject( containingClass, valueClass, valueTypes, valueNode, node );
+				map.put( key, value );
+			}
+		}
+		
+		if( isLazy )
+		{
+			return new LazyMap<>( keys, new LazyElements( valueNodes, new LazyElements.Factory() {
+				
+				@Override
+				public Object build( final InfoNode value ) throws ReflectiveOperationException
+				{
+					return buildObject( containingClass, valueClass, valueTypes, value, node );
+				}
+			} ) );
 		}
 		
 		// return the newly created and populated collection
@@ -436,16 +464,7 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 		
 		// attempt to grab the field with the node's persistence name (in this case this would be the
 		// field name)
-		final String persistName = node.getPersistName();
-		Field field = null;
-		try
-		{
-			field = ReflectionUtils.getDeclaredField( containingClass, persistName );
-		}
-		catch( NoSuchFieldException e )
-		{
-			field = ReflectionUtils.getFieldForPersistenceName( containingClass, node.getPersistName() );
-		}
+		final Field field = getField( containingClass, node );
 		
 		// if a field was found, then see if that field has an annotation, and if that annotation overrides
 		// the key name and/or the value name
@@ -471,6 +490,17 @@ public class MapNodeBuilder extends AbstractNodeBuilder {
 		return keyValue;
 	}
 	
+	/*
+	 * Returns the class of the map to record in the semantic model. The lazy maps are recorded as the
+	 * eager maps that would have been built in their place, since they can't be instantiated by name.
+	 * @param object The map
+	 * @return The class of the map to record in the semantic model
+	 */
+	private static Class< ? > getPersistedClass( final Object object )
+	{
+		return object instanceof LazyMap ? LinkedHashMap.class : object.getClass();
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see com.synapse.copyable.Copyable#getCopy()
@@ -55,6 +55,10 @@ public class ShortNodeBuilder extends AbstractPrimitiveLeafNodeBuilder {
 	public Short createObject( final Class< ? > containingClass, final Class< ? > clazz, final InfoNode node )
 	{
 		final Object valueString = node.getValue();
+		if( valueString instanceof Short )
+		{
+			return (Short)valueString;
+		}
 		return Short.parseShort( valueString.toString() );
 	}
 
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.freezedry.persistence.AbstractFileBasedPersistence;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the results of reading persisted objects from files, used by the
+ * {@link AbstractFileBasedPersistence#read(Class, String)} method. Entries are keyed by the
+ * file's path and the target {@link Class}, and are only valid as long as the file's size and
+ * last-modified time match those recorded when the entry was stored. A stale entry is dropped
+ * the next time it is requested.<p>
+ *
+ * Each entry has a weight (the file size, in bytes, when used by the {@link AbstractFileBasedPersistence}).
+ * When the total weight of the cached entries exceeds the maximum weight, the least-recently used
+ * entries are evicted until the total weight falls back under the maximum.<p>
+ *
+ * The cache operates in one of two {@link Mode}s:
+ * <ul>
+ * 	<li>{@link Mode#SHARED} stores the reconstituted object and hands the same instance to every
+ * 		caller. Use this only when the objects read from the files are treated as immutable.</li>
+ * 	<li>{@link Mode#COPY} stores the semantic model ({@link InfoNode} tree) parsed from the file and
+ * 		builds a new object from a copy of it for every caller. This avoids re-reading and re-parsing
+ * 		the file, but still returns an independent object.</li>
+ * </ul>
+ *
+ * The cache is thread safe.
+ *
+ * @author Robert Philipp
+ */
+public class FileReadCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( FileReadCache.class );
+
+	/**
+	 * The form in which the cache stores, and returns, the objects read from the files
+	 */
+	public enum Mode {
+		SHARED,
+		COPY
+	}
+
+	private final long maxWeight;
+	private final Mode mode;
+
+	private final LinkedHashMap< Key, Entry > entries;
+	private long weight;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructs a cache whose entries may have a total weight no larger than the specified
+	 * maximum weight.
+	 * @param maxWeight The maximum total weight of the entries held by the cache
+	 * @param mode Whether the cache returns shared instances or copies
+	 */
+	public FileReadCache( final long maxWeight, final Mode mode )
+	{
+		if( maxWeight < 0 )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The maximum weight of the read cache cannot be negative." ).append( Constants.NEW_LINE );
+			message.append( "  Maximum Weight: " ).append( maxWeight );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+
+		this.maxWeight = maxWeight;
+		this.mode = mode;
+		this.entries = new LinkedHashMap<>( 16, 0.75f, true );
+	}
+
+	/**
+	 * @return The form in which the cache stores, and returns, the objects read from the files
+	 */
+	public Mode getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * @return The maximum total weight of the entries held by the cache
+	 */
+	public long getMaxWeight()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * Returns the cached value for the specified file and class, if the file's size and last-modified
+	 * time match those recorded when the value was stored. In {@link Mode#SHARED} the value is the
+	 * reconstituted object, and in {@link Mode#COPY} it is the root {@link InfoNode} of the semantic
+	 * model, which must not be modified by the caller.
+	 * @param path The absolute path to the file
+	 * @param size The current size of the file
+	 * @param lastModified The current last-modified time of the file
+	 * @param clazz The {@link Class} of the object read from the file
+	 * @return The cached value, or null if there is no valid entry
+	 */
+	public synchronized Object get( final String path, final long size, final long lastModified, final Class< ? > clazz )
+	{
+		final Key key = new Key( path, clazz );
+		final Entry entry = entries.get( key );
+		if( entry == null )
+		{
+			++misses;
+			return null;
+		}
+
+		// the file has changed since the value was cached, so drop the stale entry
+		if( entry.size != size || entry.lastModified != lastModified )
+		{
+			entries.remove( key );
+			weight -= entry.weight;
+			++misses;
+			return null;
+		}
+
+		++hits;
+		return entry.value;
+	}
+
+	/**
+	 * Adds the value read from the specified file to the cache, and evicts the least-recently used
+	 * entries if the total weight exceeds the maximum weight. Values whose weight, by itself, exceeds
+	 * the maximum weight are not cached.
+	 * @param path The absolute path to the file
+	 * @param size The size of the file when it was read
+	 * @param lastModified The last-modified time of the file when it was read
+	 * @param clazz The {@link Class} of the object read from the file
+	 * @param value The object, or the root {@link InfoNode} in {@link Mode#COPY}, to cache
+	 * @param entryWeight The weight of the entry
+	 */
+	public synchronized void put( final String path,
+								  final long size,
+								  final long lastModified,
+								  final Class< ? > clazz,
+								  final Object value,
+								  final long entryWeight )
+	{
+		if( entryWeight > maxWeight )
+		{
+			return;
+		}
+
+		final Entry previous = entries.put( new Key( path, clazz ), new Entry( value, size, lastModified, entryWeight ) );
+		if( previous != null )
+		{
+			weight -= previous.weight;
+		}
+		weight += entryWeight;
+
+		// evict the least-recently used entries until we're back under the maximum weight
+		final Iterator< Map.Entry< Key, Entry > > iter = entries.entrySet().iterator();
+		while( weight > maxWeight && iter.hasNext() )
+		{
+			weight -= iter.next().getValue().weight;
+			iter.remove();
+			++evictions;
+		}
+	}
+
+	/**
+	 * Removes all the entries from the cache. The hit, miss, and eviction counts are not reset.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * @return The number of entries in the cache
+	 */
+	public synchronized int getSize()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return The total weight of the entries in the cache
+	 */
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * @return The number of requests for which the cache held a valid entry
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return The number of requests for which the cache held no entry, or only a stale one
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return The number of entries evicted to keep the total weight under the maximum weight
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		final StringBuilder builder = new StringBuilder();
+		builder.append( "Mode: " ).append( mode.name() ).append( Constants.NEW_LINE );
+		builder.append( "  Entries: " ).append( entries.size() ).append( Constants.NEW_LINE );
+		builder.append( "  Weight: " ).append( weight ).append( " of " ).append( maxWeight ).append( Constants.NEW_LINE );
+		builder.append( "  Hits: " ).append( hits ).append( Constants.NEW_LINE );
+		builder.append( "  Misses: " ).append( misses ).append( Constants.NEW_LINE );
+		builder.append( "  Evictions: " ).append( evictions );
+		return builder.toString();
+	}
+
+	/*
+	 * The cache key: the file's path and the class of the object read from the file
+	 */
+	private static final class Key {
+
+		private final String path;
+		private final Class< ? > clazz;
+
+		Key( final String path, final Class< ? > clazz )
+		{
+			this.path = path;
+			this.clazz = clazz;
+		}
+
+		@Override
+		public boolean equals( final Object object )
+		{
+			if( !(object instanceof Key) )
+			{
+				return false;
+			}
+			final Key key = (Key)object;
+			return path.equals( key.path ) && clazz.equals( key.clazz );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * path.hashCode() + clazz.hashCode();
+		}
+	}
+
+	/*
+	 * The cached value along with the file attributes used to validate it
+	 */
+	private static final class Entry {
+
+		private final Object value;
+		private final long size;
+		private final long lastModified;
+		private final long weight;
+
+		Entry( final Object value, final long size, final long lastModified, final long weight )
+		{
+			this.value = value;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.weight = weight;
+		}
+	}
+}
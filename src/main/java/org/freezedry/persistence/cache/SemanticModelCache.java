@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.tree.InfoNode;
+
+/**
+ * Cache of the semantic-model subtrees that the {@link PersistenceEngine} has built for immutable
+ * objects. The objects are held weakly and compared by identity, so an entry disappears once its object
+ * has been garbage collected, and two equal, but distinct, objects have separate entries.<p>
+ *
+ * Because the same object may be held by fields with different names (and therefore different persist
+ * names), each object maps to a set of subtrees keyed by the containing class and the field name.<p>
+ *
+ * The cached subtrees are never handed out. The {@link #get(Object, Class, String)} method returns a
+ * copy of the cached subtree, and the {@link #put(Object, Class, String, InfoNode)} method stores a copy
+ * of the specified subtree. This protects the cached subtrees from the node builders and callers that modify
+ * the nodes they are handed, for example by setting their class, or by attaching them to another tree.<p>
+ *
+ * The cache is thread safe.
+ *
+ * @author Robert Philipp
+ */
+public class SemanticModelCache {
+
+	private final Map< IdentityWeakReference, Map< String, InfoNode > > subtrees = new HashMap<>();
+	private final ReferenceQueue< Object > collected = new ReferenceQueue<>();
+
+	/**
+	 * Returns a copy of the subtree cached for the specified object, held in the specified field
+	 * of the specified containing class.
+	 * @param object The immutable object
+	 * @param containingClass The {@link Class} holding the field whose value is the object; may be null for root objects
+	 * @param fieldName The name of the field whose value is the object
+	 * @return A copy of the cached subtree, or null if no subtree has been cached
+	 */
+	public synchronized InfoNode get( final Object object, final Class< ? > containingClass, final String fieldName )
+	{
+		expungeCollected();
+		final Map< String, InfoNode > nodes = subtrees.get( new IdentityWeakReference( object, null ) );
+		if( nodes == null )
+		{
+			return null;
+		}
+		final InfoNode node = nodes.get( createKey( containingClass, fieldName ) );
+		return node == null ? null : node.getCopy();
+	}
+
+	/**
+	 * Caches a copy of the specified subtree for the specified object, held in the specified field
+	 * of the specified containing class.
+	 * @param object The immutable object
+	 * @param containingClass The {@link Class} holding the field whose value is the object; may be null for root objects
+	 * @param fieldName The name of the field whose value is the object
+	 * @param node The root of the subtree built for the object
+	 */
+	public synchronized void put( final Object object, final Class< ? > containingClass, final String fieldName, final InfoNode node )
+	{
+		expungeCollected();
+		final IdentityWeakReference reference = new IdentityWeakReference( object, collected );
+		Map< String, InfoNode > nodes = subtrees.get( reference );
+		if( nodes == null )
+		{
+			nodes = new HashMap<>();
+			subtrees.put( reference, nodes );
+		}
+		nodes.put( createKey( containingClass, fieldName ), node.getCopy() );
+	}
+
+	/**
+	 * Removes all the cached subtrees
+	 */
+	public synchronized void clear()
+	{
+		subtrees.clear();
+		expungeCollected();
+	}
+
+	/**
+	 * @return The number of objects for which subtrees are cached
+	 */
+	public synchronized int getSize()
+	{
+		expungeCollected();
+		return subtrees.size();
+	}
+
+	/*
+	 * @return The key of the subtree within the subtrees of an object
+	 */
+	private static String createKey( final Class< ? > containingClass, final String fieldName )
+	{
+		return (containingClass == null ? "" : containingClass.getName()) + "#" + fieldName;
+	}
+
+	/*
+	 * Removes the entries whose objects have been garbage collected
+	 */
+	private void expungeCollected()
+	{
+		Object reference;
+		while( (reference = collected.poll()) != null )
+		{
+			subtrees.remove( reference );
+		}
+	}
+
+	/*
+	 * Weak reference whose equality is the identity of the referent, and whose hash code is
+	 * computed when the reference is created, so that it still works after the referent is collected
+	 */
+	private static final class IdentityWeakReference extends WeakReference< Object > {
+
+		private final int hashCode;
+
+		IdentityWeakReference( final Object referent, final ReferenceQueue< Object > queue )
+		{
+			super( referent, queue );
+			this.hashCode = System.identityHashCode( referent );
+		}
+
+		@Override
+		public boolean equals( final Object object )
+		{
+			if( this == object )
+			{
+				return true;
+			}
+			if( !(object instanceof IdentityWeakReference) )
+			{
+				return false;
+			}
+			final Object referent = get();
+			return referent != null && referent == ((IdentityWeakReference)object).get();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+}
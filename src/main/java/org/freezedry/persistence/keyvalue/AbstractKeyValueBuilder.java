@@ -15,17 +15,21 @@
  */
 package org.freezedry.persistence.keyvalue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.freezedry.persistence.keyvalue.renderers.decorators.StringDecorator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.renderers.CollectionRenderer;
 import org.freezedry.persistence.keyvalue.renderers.LeafNodeRenderer;
 import org.freezedry.persistence.keyvalue.renderers.MapRenderer;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
+import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.utils.ReflectionUtils;
@@ -45,6 +49,7 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 
 	private Map< Class< ? >, PersistenceRenderer > renderers;
 	private PersistenceRenderer arrayRenderer;
+	private volatile RendererDispatcher dispatcher;
 	
 	private String separator;
 
@@ -165,6 +170,7 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 	public void setRenderers( final Map< Class< ? >, PersistenceRenderer > renderers )
 	{
 		this.renderers = renderers;
+		dispatcher = null;
 	}
 	
 	/*
@@ -174,6 +180,7 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 	@Override
 	public PersistenceRenderer putRenderer( final Class< ? > clazz, final PersistenceRenderer renderer )
 	{
+		dispatcher = null;
 		return renderers.put( clazz, renderer );
 	}
 	
@@ -184,6 +191,7 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 	@Override
 	public PersistenceRenderer removeRenderer( final Class< ? > clazz )
 	{
+		dispatcher = null;
 		return renderers.remove( clazz );
 	}
 	
@@ -219,23 +227,31 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 	
 	/**
 	 * Finds the {@link PersistenceRenderer} for which the specified key matches its regular expression for keys;
-	 * null if no {@link PersistenceRenderer} is found.
+	 * null if no {@link PersistenceRenderer} is found. The renderers are tested through a {@link RendererDispatcher}
+	 * that is created from the renderers when they are first needed, and again after they change. Replacing a
+	 * renderer directly in the map passed to {@link #setRenderers(Map)} isn't seen by the dispatcher, so use
+	 * {@link #putRenderer(Class, PersistenceRenderer)} instead.
 	 * @param key The key to test
 	 * @return the {@link PersistenceRenderer} for which the specified key matches its regular expression for keys; 
 	 * null if no {@link PersistenceRenderer} is found.
 	 */
 	public PersistenceRenderer getRenderer( final String key )
 	{
-		for( PersistenceRenderer renderer : renderers.values() )
+		RendererDispatcher current = dispatcher;
+		if( current == null || !current.isCurrent( renderers ) )
+		{
+			current = new RendererDispatcher( renderers );
+			dispatcher = current;
+		}
+
+		final PersistenceRenderer renderer = current.getRenderer( key );
+		if( renderer != null )
 		{
-			if( renderer.isRenderer( key ) )
+			if( LOGGER.isDebugEnabled() )
 			{
-				if( LOGGER.isDebugEnabled() )
-				{
-					LOGGER.debug( "Selected renderer, " + renderer.getClass().getName() + ", for key, " + key );
-				}
-				return renderer;
+				LOGGER.debug( "Selected renderer, " + renderer.getClass().getName() + ", for key, " + key );
 			}
+			return renderer;
 		}
 
 		// log the fact that no renderer was found
@@ -243,9 +259,9 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 		{
 			final StringBuilder message = new StringBuilder();
 			message.append( "Unable to select renderer for key, " ).append( key ).append( ", tried:" );
-			for( PersistenceRenderer renderer : renderers.values() )
+			for( PersistenceRenderer tried : renderers.values() )
 			{
-				message.append( Constants.NEW_LINE ).append( "  " ).append( renderer.getClass().getName() );
+				message.append( Constants.NEW_LINE ).append( "  " ).append( tried.getClass().getName() );
 			}
 //			message.append( Constants.NEW_LINE ).append( "Using " ).append( renderers.get( String.class ).getClass().getName() )
 //					.append( ", which is the default for a string" );
@@ -269,5 +285,75 @@ public abstract class AbstractKeyValueBuilder implements KeyValueBuilder {
 	{
 		return ( getRenderer( clazz ) != null );
 	}
-	
+
+	/**
+	 * Flattens the semantic model into key-value pairs, handing each pair to the specified {@link KeyValueSink},
+	 * in order. By default, the semantic model is flattened into a list by the {@link #buildKeyValuePairs(InfoNode)}
+	 * method, whose pairs are then handed to the sink.
+	 * @param rootInfoNode The root {@link InfoNode} of the semantic model
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 */
+	public void buildKeyValuePairs( final InfoNode rootInfoNode, final KeyValueSink sink )
+	{
+		KeyValueListSink.addAll( buildKeyValuePairs( rootInfoNode ), sink );
+	}
+
+	/**
+	 * Creates the key-value pairs of the specified node, and hands them to the specified {@link KeyValueSink}.
+	 * The key elements of the node are appended to the key buffer, and are removed again before this method
+	 * returns. By default, the key-value pairs are created in a list by the
+	 * {@link #createKeyValuePairs(InfoNode, String, List, boolean)} method, and are then handed to the sink.
+	 * @param infoNode The current node in the semantic model ({@link InfoNode}) for processing.
+	 * @param key The key buffer, which holds the key accumulated from the parents' persistence names
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isWithholdPersitName true if the current persistence name should not be added to the key; false otherwise.
+	 */
+	public void createKeyValuePairs( final InfoNode infoNode, final StringBuilder key, final KeyValueSink sink, final boolean isWithholdPersitName )
+	{
+		final List< Pair< String, Object > > keyValues = new ArrayList<>();
+		createKeyValuePairs( infoNode, key.toString(), keyValues, isWithholdPersitName );
+		KeyValueListSink.addAll( keyValues, sink );
+	}
+
+	/**
+	 * Builds the semantic model from a list of key-value pairs whose values are either the decorated
+	 * {@link String}s of the persisted form, or typed values, which are used as they are. By default,
+	 * the values must all be {@link String}s, and the semantic model is built by the
+	 * {@link #buildInfoNode(Class, List)} method.
+	 * @param clazz The target class for the building of the semantic model
+	 * @param keyValues The key-value pairs
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	public InfoNode buildTypedInfoNode( final Class< ? > clazz, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		return buildInfoNode( clazz, KeyValueUtils.asStringValues( keyValues ) );
+	}
+
+	/**
+	 * Recursively builds the semantic model from key-value pairs whose values are either the decorated
+	 * {@link String}s of the persisted form, or typed values. By default, the values must all be
+	 * {@link String}s, and the nodes are built by the {@link #buildInfoNode(InfoNode, List)} method.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param keyValues The list of key-value pairs. The first key element of every key should match
+	 * the persistence name of the parent node.
+	 */
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		buildInfoNode( parentNode, KeyValueUtils.asStringValues( keyValues ) );
+	}
+
+	/**
+	 * Creates an {@link InfoNode} based on the group name and the specified key-value pairs, whose values
+	 * are either the decorated {@link String}s of the persisted form, or typed values. By default, the values
+	 * must all be {@link String}s, and the node is created by the {@link #createInfoNode(InfoNode, String, List)}
+	 * method.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param groupName The name of the group that will appear as the persistence name
+	 * @param keyValues The list of key-value pairs. The first key element of every key should match
+	 * the persistence name of the parent node.
+	 */
+	public void createTypedInfoNode( final InfoNode parentNode, final String groupName, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		createInfoNode( parentNode, groupName, KeyValueUtils.asStringValues( keyValues ) );
+	}
 }
@@ -16,6 +16,7 @@
 package org.freezedry.persistence.keyvalue;
 
 import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
 import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
 import org.freezedry.persistence.tree.InfoNode;
@@ -84,16 +85,32 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 		// create the map for holding the key-value pairs.
 		final List< Pair< String, Object > > keyValuePairs = new ArrayList<>();
 
-		// make a deep copy of the semantic model (since there are parts of the code that change the model)
-		final InfoNode rootNode = rootInfoNode.getCopy();
-
-		// recursively build the key-value pairs from the info-node tree
-		buildKeyValuePairs( rootNode, rootNode.getPersistName(), keyValuePairs );
+		// recursively build the key-value pairs from the info-node tree. the flattening doesn't modify
+		// the semantic model, so there is no need to copy it, and the same model can be flattened concurrently
+		buildKeyValuePairs( rootInfoNode, rootInfoNode.getPersistName(), keyValuePairs );
 		
 		// once complete, then return the list of key-value pairs
 		return keyValuePairs;
 	}
 
+	/**
+	 * Flattens the semantic model into key-value pairs, handing each pair to the specified {@link KeyValueSink},
+	 * in order, rather than returning them in a list. The key elements are appended to one key buffer as the
+	 * flattening descends into the semantic model, and are removed from it as the flattening returns, and the
+	 * sink receives a view of that buffer, so that no key {@link String}s or {@link Pair}s are created.
+	 * @param rootInfoNode The root {@link InfoNode} of the semantic model
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 */
+	@Override
+	public void buildKeyValuePairs( final InfoNode rootInfoNode, final KeyValueSink sink )
+	{
+		final StringBuilder key = createKeyBuffer( rootInfoNode.getPersistName() );
+		for( InfoNode child : rootInfoNode.getChildren() )
+		{
+			createKeyValuePairs( child, key, sink, false );
+		}
+	}
+
 	/**
 	 * The recursive algorithm for flattening the semantic model into a {@link List} of key-value pairs.
 	 * @param infoNode The current node in the semantic model ({@link InfoNode}) for processing.
@@ -105,20 +122,12 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	{
 		// run through the node's children, and for each one create and add the key-value pairs
 		// to the list of key-value pairs
+		// the traversal reaches each node only through its parent, so each node is processed exactly once
+		final StringBuilder keyBuffer = createKeyBuffer( key );
+		final KeyValueSink sink = new KeyValueListSink( keyValues );
 		for( InfoNode child : infoNode.getChildren() )
 		{
-			// if a child has been processed already, and marked processed, then we don't process
-			// it again. this can occur if the node is, for example, a collection or map, in which
-			// case the subnodes are processed outside of this loop, and this method may be called
-			// recursively, and we want to ensure that the node is only processed once.
-			if( !child.isProcessed() )
-			{
-				// create the new key value pairs
-				createKeyValuePairs( child, key, keyValues, false );
-				
-				// mark the node as being processed
-				child.setIsProcessed( true );
-			}
+			createKeyValuePairs( child, keyBuffer, sink, false );
 		}
 	}
 
@@ -134,6 +143,21 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	 */
 	@Override
 	public void createKeyValuePairs( final InfoNode infoNode, final String key, final List< Pair< String, Object > > keyValues, final boolean isWithholdPersitName )
+	{
+		createKeyValuePairs( infoNode, createKeyBuffer( key ), new KeyValueListSink( keyValues ), isWithholdPersitName );
+	}
+
+	/**
+	 * Creates the key-value pairs of the specified node, and hands them to the sink. For compound nodes, it
+	 * recurses into the child nodes, and for nodes that have a renderer, it asks the renderer to create the pairs.
+	 * The key elements of the node are appended to the key buffer, and are removed again before this method returns.
+	 * @param infoNode The current node in the semantic model ({@link InfoNode}) for processing.
+	 * @param key The key buffer, which has accumulated the parents persistence names as part of the flattening
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isWithholdPersitName true if the current persistence name should not be added to the key; false otherwise.
+	 */
+	@Override
+	public void createKeyValuePairs( final InfoNode infoNode, final StringBuilder key, final KeyValueSink sink, final boolean isWithholdPersitName )
 	{
 		// determine whether to show the persistence name. the isShowFullKey is top dog.
 		final boolean isHidePersistName = (!isShowFullKey() && isWithholdPersitName);
@@ -143,64 +167,96 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 		final Class< ? > clazz = infoNode.getClazz();
 		if( containsRenderer( clazz ) )
 		{
-			getRenderer( clazz ).buildKeyValuePair( infoNode, key, keyValues, isHidePersistName );
+			buildKeyValuePair( getRenderer( clazz ), infoNode, key, sink, isHidePersistName );
 		}
 		else if( clazz.isArray() )
 		{
-			getArrayRenderer().buildKeyValuePair( infoNode, key, keyValues, isHidePersistName );
+			buildKeyValuePair( getArrayRenderer(), infoNode, key, sink, isHidePersistName );
 		}
 		else
 		{
-			// create the new key based on the specified key and the persistence name
-			final String newKey = createKey( infoNode, key, isHidePersistName );
-			final Pair< String, Object > keyValuePair = new Pair<>( newKey, null );
+			// append the persistence name to the key, which is removed again once the pairs are handed to the sink
+			final int keyLength = key.length();
+			appendKey( infoNode, key, isHidePersistName );
 			
 			// if the node is a leaf node, then it has a value, and we need to create a key-value pair
-			// otherwise we need to recurse back to the calling method to build out the key-value pairs
-			// for a compound node
+			// otherwise we need to recurse to build out the key-value pairs for a compound node
 			if( infoNode.isLeafNode() )
 			{
-				// create the key-value pair and add it to the list of key-values
-				keyValuePair.setSecond( infoNode.getValue() );
-				keyValues.add( keyValuePair );
+				sink.add( key, infoNode.getValue() );
 			}
 			else
 			{
-				buildKeyValuePairs( infoNode, newKey, keyValues );
+				for( InfoNode child : infoNode.getChildren() )
+				{
+					createKeyValuePairs( child, key, sink, false );
+				}
 			}
+			key.setLength( keyLength );
+		}
+	}
+
+	/*
+	 * Asks the renderer to build the key-value pairs of the node, keeping the key in the key buffer when the
+	 * renderer is an {@link AbstractPersistenceRenderer}.
+	 * @param renderer The renderer that builds the key-value pairs
+	 * @param infoNode The current info node
+	 * @param key The key buffer
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isHidePersistName true if the persistence name is to be withheld from the key; false otherwise.
+	 */
+	private static void buildKeyValuePair( final PersistenceRenderer renderer,
+										   final InfoNode infoNode,
+										   final StringBuilder key,
+										   final KeyValueSink sink,
+										   final boolean isHidePersistName )
+	{
+		if( renderer instanceof AbstractPersistenceRenderer )
+		{
+			( (AbstractPersistenceRenderer)renderer ).buildKeyValuePair( infoNode, key, sink, isHidePersistName );
+		}
+		else
+		{
+			final List< Pair< String, Object > > keyValues = new ArrayList<>();
+			renderer.buildKeyValuePair( infoNode, key.toString(), keyValues, isHidePersistName );
+			KeyValueListSink.addAll( keyValues, sink );
 		}
 	}
 	
+	/*
+	 * @param key The current key, which may be null
+	 * @return a key buffer that holds the current key
+	 */
+	private static StringBuilder createKeyBuffer( final String key )
+	{
+		final StringBuilder keyBuffer = new StringBuilder( 128 );
+		if( key != null )
+		{
+			keyBuffer.append( key );
+		}
+		return keyBuffer;
+	}
+
 	/**
-	 * Creates a key based on the specified information. In particular, it deals with the suppression
-	 * of the leading separators when the specified key is null or empty. Also withholds the persistence name
+	 * Appends a key element based on the specified information. In particular, it deals with the suppression
+	 * of the leading separators when the specified key is empty. Also withholds the persistence name
 	 * from the key if it is intended to be withheld.
 	 * @param infoNode The current info node.
-	 * @param key The current key
+	 * @param key The key buffer to which to append
 	 * @param isWithholdPersitName true if the persistence name is to be withheld from the key; false otherwise.
-	 * @return The newly minted key
 	 */
-	private String createKey( final InfoNode infoNode, final String key, final boolean isWithholdPersitName )
+	private void appendKey( final InfoNode infoNode, final StringBuilder key, final boolean isWithholdPersitName )
 	{
-		final StringBuilder newKey = new StringBuilder();
-		
-		// if the key is empty then don't add anything
-		if( key != null && !key.isEmpty() )
+		// if we're not withholding the persistence name, then add it to the key, after a separator
+		// unless the key is empty
+		if( !isWithholdPersitName )
 		{
-			newKey.append( key );
-			if( !isWithholdPersitName )
+			if( key.length() > 0 )
 			{
-				newKey.append( getSeparator() );
+				key.append( getSeparator() );
 			}
+			key.append( infoNode.getPersistName() );
 		}
-		
-		// if we're not withholding the persistence name, then add it to the key
-		if( !isWithholdPersitName )
-		{
-			newKey.append( infoNode.getPersistName() );
-		}
-		
-		return newKey.toString();
 	}
 
 	/**
@@ -211,15 +267,28 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	 */
 	@Override
 	public InfoNode buildInfoNode( final Class< ? > clazz, final List< Pair< String, String > > keyValues )
+	{
+		return buildTypedInfoNode( clazz, keyValues );
+	}
+
+	/**
+	 * Main entry point for building the semantic model from a list of key-value pairs and the target class.
+	 * @param clazz The target class for the building of the semantic model
+	 * @param keyValues The key-value pairs. The values are either the decorated {@link String}s of the persisted
+	 * form, or typed values, which are used as they are.
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	@Override
+	public InfoNode buildTypedInfoNode( final Class< ? > clazz, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		// grab the root key from all the values and use it to create the root info node.
 		// recall that the root key should have the same name as the clazz we're using as
 		// a template.
-		final String rootKey = getRootKey( keyValues, clazz );
+		final String rootKey = findRootKey( keyValues, clazz );
 		final InfoNode rootNode = InfoNode.createRootNode( rootKey, clazz );
 		
 		// build the semantic model
-		buildInfoNode( rootNode, keyValues );
+		buildTypedInfoNode( rootNode, keyValues );
 		
 		return rootNode;
 	}
@@ -234,22 +303,98 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	@Override
 	public void buildInfoNode( final InfoNode parentNode, final List< Pair< String, String > > keyValues )
 	{
-		// grab the persistence name from the parent node. Validate that the first elements of each 
-		// key equal this the persistence name 
-		final String rootKey = parentNode.getPersistName();
-		validiateRootKey( keyValues, getSeparator(), rootKey );
-		
-		// strip the root key element from all the keys. For example, suppose the keys all start with
-		// "Division.". And suppose further that the rootKey = "Division". The "Division." will be
-		// stripped from each key in the list. So, "Division.people.Person[1]" would become "people.Person[1]".
-		final List< Pair< String, String > > strippedKeyValues = KeyValueUtils.stripFirstKeyElement( keyValues, getSeparator() );
-
-		// find the groups in the newly string list, and then create a new info node for each group
-		final Map< String, List< Pair< String, String > > > groups = getGroups( strippedKeyValues, getSeparator() );
-		for( Map.Entry< String, List< Pair< String, String > > > entry : groups.entrySet() )
+		buildTypedInfoNode( parentNode, keyValues );
+	}
+
+	/**
+	 * Recursively builds the semantic model from key-value pairs whose values are either the decorated
+	 * {@link String}s of the persisted form, or typed values. The keys in the key-value list should all have
+	 * as their first element, the name found in the parentNode's persistence name.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param keyValues The list of key-value pairs. The first key element of every key should match
+	 * the persistence name of the parent node.
+	 */
+	@Override
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		// split each key into its elements, once, and arrange the elements into a prefix tree. the
+		// children of the tree's root are the first key elements, which must all be in the group named
+		// by the parent's persistence name. For example, suppose the keys all start with "Division.", and
+		// suppose further that the rootKey = "Division". Then the root has one child, "Division", whose
+		// children are the next key elements, such as "people[0]" for "Division.people[0].Person.age".
+		final KeyElementTrie keys = KeyElementTrie.create( keyValues, getSeparator() );
+		final Collection< KeyElementTrie > rootElements = keys.getChildren();
+		final Set< String > rootNames = new LinkedHashSet<>();
+		for( KeyElementTrie rootElement : rootElements )
+		{
+			rootNames.add( rootElement.getElement() );
+		}
+		validiateRootKey( rootNames, parentNode.getPersistName() );
+
+		// build the child nodes from the key elements that follow the root key element
+		buildInfoNode( parentNode, rootElements );
+	}
+
+	/*
+	 * Builds the child nodes of the parent node from the children of the specified prefix-tree nodes, in a
+	 * single walk down the tree. The key elements are grouped by their group name, and the groups that hold
+	 * a single, undecorated, key element are built directly from the tree. The groups whose key elements are
+	 * decorated (for example, the elements of a collection, "people[0]", "people[1]", or the entries of a map)
+	 * are handed, as key-value pairs relative to the parent node, to the renderer that understands their
+	 * decorations, through the {@link #createInfoNode(InfoNode, String, List)} method.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param elements The prefix-tree nodes of the key elements that represent the parent node
+	 */
+	private void buildInfoNode( final InfoNode parentNode, final Collection< KeyElementTrie > elements )
+	{
+		// group the key elements that follow the parent's key elements by their group name
+		final Map< String, List< KeyElementTrie > > groups = new LinkedHashMap<>();
+		for( KeyElementTrie element : elements )
 		{
-			// create the info node
-			createInfoNode( parentNode, entry.getKey(), entry.getValue() );
+			for( KeyElementTrie child : element.getChildren() )
+			{
+				final String groupName = getGroupName( child.getElement() );
+				List< KeyElementTrie > group = groups.get( groupName );
+				if( group == null )
+				{
+					group = new ArrayList<>();
+					groups.put( groupName, group );
+				}
+				group.add( child );
+			}
+		}
+
+		for( Map.Entry< String, List< KeyElementTrie > > entry : groups.entrySet() )
+		{
+			final String groupName = entry.getKey();
+			final List< KeyElementTrie > group = entry.getValue();
+			final KeyElementTrie element = group.get( 0 );
+			final int values = element.getValues().size();
+			if( group.size() == 1 && element.getElement().equals( groupName ) && values == 1 && !element.hasChildren() )
+			{
+				// leaf node
+				final List< Pair< String, ? > > keyValue = new ArrayList<>( 1 );
+				keyValue.add( new Pair<>( groupName, element.getValues().get( 0 ) ) );
+				createTypedInfoNode( parentNode, groupName, keyValue );
+			}
+			else if( group.size() == 1 && element.getElement().equals( groupName ) && values == 0 )
+			{
+				// compound node that has no renderer, so we build its child nodes from the tree
+				final InfoNode node = InfoNode.createCompoundNode( null, groupName, null );
+				parentNode.addChild( node );
+				buildInfoNode( node, group );
+			}
+			else
+			{
+				// decorated key elements, so we reassemble the keys and hand them to the renderer
+				final List< Pair< String, ? > > keyValues = new ArrayList<>();
+				final StringBuilder key = new StringBuilder();
+				for( KeyElementTrie groupElement : group )
+				{
+					groupElement.collectKeyValues( key, getSeparator(), keyValues );
+				}
+				createTypedInfoNode( parentNode, groupName, keyValues );
+			}
 		}
 	}
 
@@ -264,13 +409,29 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	 */
 	@Override
 	public void createInfoNode( final InfoNode parentNode, final String groupName, final List< Pair< String, String > > keyValues )
+	{
+		createTypedInfoNode( parentNode, groupName, keyValues );
+	}
+
+	/**
+	 * Creates an {@link InfoNode} based on the group name and the specified key-value pairs, whose values
+	 * are either the decorated {@link String}s of the persisted form, or typed values. Part of the
+	 * recursive algorithm to build the semantic model.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param groupName The name of the group that will appear as the persistence name
+	 * @param keyValues The list of key-value pairs. The first key element of every key should match
+	 * the persistence name of the parent node.
+	 * @see #buildTypedInfoNode(InfoNode, List)
+	 */
+	@Override
+	public void createTypedInfoNode( final InfoNode parentNode, final String groupName, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		if( LOGGER.isDebugEnabled() )
 		{
 			final StringBuilder message = new StringBuilder( "Creating InfoNode; " )
 					.append( "parent node: " ).append( parentNode.getPersistName() )
 					.append( "group name: " ).append( groupName );
-			for( Pair< String, String > pair : keyValues )
+			for( Pair< String, ? > pair : keyValues )
 			{
 				message.append( Constants.NEW_LINE ).append( pair );
 			}
@@ -313,32 +474,60 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 			{
 				renderer = getRenderer( String.class );
 			}
-			renderer.buildInfoNode( parentNode, keyValues );
+			buildInfoNode( renderer, parentNode, keyValues );
 		}
 		// for compound nodes, we need to call the appropriate renderer's buildInfoNode(...) method. and
 		// let the recursion begin.
 		else
 		{
-			// grab the key from the first key value, and since all keys have the same group
-			// all we need is to grab the first key and use it as a pattern for the remaining
-			// key-value pairs in this group
-			final String rootKey = keyValues.get( 0 ).getFirst();
+			// grab the first element of the key from the first key value, and since all keys have the
+			// same group all we need is to grab the first key and use it as a pattern for the remaining
+			// key-value pairs in this group. only the first element determines the renderer, because the
+			// later elements belong to the child nodes. for example, a person whose first key, in sorted
+			// order, is Person:Mood[0] isn't a collection. and an element without decorations, which is
+			// its own group name, such as Person, is a plain compound node.
+			final String rootKey = KeyValueUtils.getFirstKeyElement( keyValues.get( 0 ).getFirst(), getSeparator() );
 			
 			// get the appropriate renderer and ask it to build the info node from that type
-			final PersistenceRenderer renderer = getRenderer( rootKey );
+			PersistenceRenderer renderer = getRenderer( rootKey );
+			if( renderer != null && rootKey.equals( renderer.getGroupName( rootKey ) ) )
+			{
+				renderer = null;
+			}
 			if( renderer != null )
 			{
-				renderer.buildInfoNode( parentNode, keyValues );
+				buildInfoNode( renderer, parentNode, keyValues );
 			}
 			else
 			{
 				final InfoNode node = InfoNode.createCompoundNode( null, groupName, null );
 				parentNode.addChild( node );
-				buildInfoNode( node, keyValues );
+				buildTypedInfoNode( node, keyValues );
 			}
 		}
 	}
 
+	/*
+	 * Asks the renderer to build the info node from the key-value pairs, keeping the typed values when the
+	 * renderer is an {@link AbstractPersistenceRenderer}.
+	 * @param renderer The renderer that builds the info node
+	 * @param parentNode The node to which to add the child nodes
+	 * @param keyValues The list of key-value pairs
+	 */
+	private static void buildInfoNode( final PersistenceRenderer renderer,
+									   final InfoNode parentNode,
+									   final List< ? extends Pair< String, ? > > keyValues )
+	{
+		if( renderer instanceof AbstractPersistenceRenderer )
+		{
+			( (AbstractPersistenceRenderer)renderer ).buildTypedInfoNode( parentNode, keyValues );
+		}
+		else
+		{
+			renderer.buildInfoNode( parentNode, KeyValueUtils.asStringValues( keyValues ) );
+		}
+	}
+
 	/**
 	 * In cases where the key-value pairs don't ALL begin with the SAME root key, this method
 	 * allows you to tell the reader to use the target class name as the root key. This will cause 
@@ -356,6 +545,18 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	 */
 	@Override
 	public String getRootKey( final List< Pair< String, String > > keyValues, final Class< ? > clazz )
+	{
+		return findRootKey( keyValues, clazz );
+	}
+
+	/*
+	 * Returns the root key for the key-value pairs, whose values may be typed
+	 * @param keyValues The list of key-value pairs
+	 * @param clazz The target class
+	 * @return the root key.
+	 * @see #getRootKey(List, Class)
+	 */
+	private String findRootKey( final List< ? extends Pair< String, ? > > keyValues, final Class< ? > clazz )
 	{
 		String key;
 		if( useClassAsRootKey )
@@ -364,7 +565,7 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 		}
 		else
 		{
-			key = validiateRootKey( keyValues, getSeparator(), clazz.getSimpleName() );
+			key = validiateRootKey( getFirstKeyElements( keyValues, getSeparator() ), clazz.getSimpleName() );
 		}
 		return key;
 	}
@@ -392,11 +593,37 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 	 * @see #validiateRootKey(List, String)
 	 */
 	public String validiateRootKey( final List< Pair< String, String > > keyValues, final String keyElementSeparator, final String desiredName )
+	{
+		return validiateRootKey( getFirstKeyElements( keyValues, keyElementSeparator ), desiredName );
+	}
+
+	/*
+	 * @param keyValues The list of key-value pairs
+	 * @param keyElementSeparator The separator between the key elements
+	 * @return the distinct first key elements of the keys, in the order in which they first appear
+	 */
+	private static Set< String > getFirstKeyElements( final List< ? extends Pair< String, ? > > keyValues, final String keyElementSeparator )
+	{
+		final Set< String > firstElements = new LinkedHashSet<>();
+		for( Pair< String, ? > pair : keyValues )
+		{
+			firstElements.add( KeyValueUtils.getFirstKeyElement( pair.getFirst(), keyElementSeparator ) );
+		}
+		return firstElements;
+	}
+
+	/*
+	 * Ensures that the first key elements are all in the same group, and returns the name of that group.
+	 * @param firstElements The distinct first key elements of the keys
+	 * @param desiredName The name the root key should end up being, or null if it shouldn't be validated
+	 * @return the root key.
+	 */
+	private String validiateRootKey( final Set< String > firstElements, final String desiredName )
 	{
 		final Set< String > keySet = new LinkedHashSet<>();
-		for( Pair< String, String > pair : keyValues )
+		for( String element : firstElements )
 		{
-			keySet.add( getGroupName( KeyValueUtils.getFirstKeyElement( pair.getFirst(), keyElementSeparator ) ) );
+			keySet.add( getGroupName( element ) );
 		}
 		
 		// the first key must all be in the same group. that is the case if the set only
@@ -429,49 +656,6 @@ public class BasicKeyValueBuilder extends AbstractKeyValueBuilder {
 		return rootKey;
 	}
 	
-	/*
-	 * Organizes the key values into groups based on the first key element of each key. Returns
-	 * a {@code Map< String, List< Pair< String, String > > >} where the map's key is the group
-	 * name. The group name is first key element from each key. The {@code List< Pair< String, String > >}
-	 * holds all the keys that start with the group name.
-	 * @param keyValues The list of key values 
-	 * @param separator The key element separator
-	 * @return a {@code Map< String, List< Pair< String, String > > >} where the map's key is the group
-	 * name. The group name is first key element from each key. The {@code List< Pair< String, String > >}
-	 * holds all the keys that start with the group name.
-	 */
-	private Map< String, List< Pair< String, String > > > getGroups( final List< Pair< String, String > > keyValues, final String separator )
-	{
-		final Map< String, List< Pair< String, String > > > groups = new LinkedHashMap<>();
-		for( Pair< String, String > pair : keyValues )
-		{
-			// get the first key element.
-			final String group = KeyValueUtils.getFirstKeyElement( pair.getFirst(), separator );
-			
-			// the thing is, though, that this could be decorated or formatted for a map or list 
-			// or something else. so we need to pull the group name off, and then we'll have to 
-			// figure out what the key represents, and how to deal with it. the good thing is that
-			// the key name can only be part of [a-zA-Z_0-9], and so we can find the first character
-			// that isn't that, and pull the key name out as the group
-			final String groupName = getGroupName( group );
-			
-			// either add the pair to the list of key-value pairs of an existing group, or create 
-			// a new group that contains the key-value pair
-			if( groups.containsKey( groupName ) )
-			{
-				groups.get( groupName ).add( new Pair<>( pair ) );
-			}
-			else
-			{
-				final List< Pair< String, String > > pairs = new ArrayList<>();
-				pairs.add( new Pair<>( pair ) );
-				groups.put( groupName, pairs );
-			}
-		}
-		
-		return groups;
-	}
-
 	/**
 	 * Returns the group name by finding the renderer for which the specified key
 	 * matches its regular expression, and then uses that renderer to parse the
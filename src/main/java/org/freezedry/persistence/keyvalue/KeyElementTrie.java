@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prefix tree of the key elements of a list of key-value pairs. Each key is split into its elements
+ * once, when it is inserted, and the pairs that share a leading key element share the node for that
+ * element. For example, the keys
+ * <pre>
+ * Division.people[0].Person.givenName
+ * Division.people[0].Person.age
+ * Division.carNames[0]
+ * </pre>
+ * produce a node for {@code Division}, with the children {@code people[0]} and {@code carNames[0]}.
+ * The children of each node, and the values held by a node, are kept in the order in which they were
+ * first inserted, which is the order in which the key-value builder creates the nodes of the semantic model.
+ * 
+ * @author Robert Philipp
+ */
+final class KeyElementTrie {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyElementTrie.class );
+
+	private final String element;
+	private Map< String, KeyElementTrie > children;
+	private List< Object > values;
+
+	/*
+	 * @param element The key element that this node represents (null for the root)
+	 */
+	private KeyElementTrie( final String element )
+	{
+		this.element = element;
+	}
+
+	/**
+	 * Creates the prefix tree of the keys of the specified key-value pairs. The root node doesn't represent
+	 * a key element, and its children are the first key elements of the keys.
+	 * @param keyValues The key-value pairs
+	 * @param separator The separator between the key elements
+	 * @return The root of the prefix tree
+	 */
+	static KeyElementTrie create( final List< ? extends Pair< String, ? > > keyValues, final String separator )
+	{
+		if( separator == null || separator.isEmpty() )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The separator between the key elements cannot be empty." ).append( Constants.NEW_LINE );
+			message.append( "  Separator: " ).append( separator );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+
+		final KeyElementTrie root = new KeyElementTrie( null );
+		for( Pair< String, ? > pair : keyValues )
+		{
+			root.insert( pair.getFirst(), pair.getSecond(), separator );
+		}
+		return root;
+	}
+
+	/*
+	 * Splits the key into its elements, and adds the value to the node of its last element,
+	 * creating the nodes along the way that don't yet exist
+	 */
+	private void insert( final String key, final Object value, final String separator )
+	{
+		KeyElementTrie node = this;
+		int start = 0;
+		int end = key.indexOf( separator );
+		while( end >= 0 )
+		{
+			node = node.getOrAddChild( key.substring( start, end ) );
+			start = end + separator.length();
+			end = key.indexOf( separator, start );
+		}
+		node = node.getOrAddChild( key.substring( start ) );
+
+		if( node.values == null )
+		{
+			node.values = new ArrayList<>( 1 );
+		}
+		node.values.add( value );
+	}
+
+	/*
+	 * Returns the child node for the specified key element, adding it if it doesn't yet exist
+	 */
+	private KeyElementTrie getOrAddChild( final String childElement )
+	{
+		if( children == null )
+		{
+			children = new LinkedHashMap<>();
+		}
+		KeyElementTrie child = children.get( childElement );
+		if( child == null )
+		{
+			child = new KeyElementTrie( childElement );
+			children.put( childElement, child );
+		}
+		return child;
+	}
+
+	/**
+	 * @return The key element that this node represents, or null for the root node
+	 */
+	String getElement()
+	{
+		return element;
+	}
+
+	/**
+	 * @return The nodes of the key elements that follow this one, in the order they were first inserted
+	 */
+	Collection< KeyElementTrie > getChildren()
+	{
+		return children == null ? Collections.< KeyElementTrie >emptyList() : children.values();
+	}
+
+	/**
+	 * @return true if at least one key continues past this node's key element; false otherwise
+	 */
+	boolean hasChildren()
+	{
+		return children != null;
+	}
+
+	/**
+	 * @return The values of the keys that end at this node's key element, in the order they were inserted
+	 */
+	List< Object > getValues()
+	{
+		return values == null ? Collections.< Object >emptyList() : values;
+	}
+
+	/**
+	 * Adds the key-value pairs of the subtree rooted at this node to the specified list, with keys that start
+	 * at this node's key element. The keys are reassembled from their elements, so that they can be handed to
+	 * the renderers that parse the decorations of the key elements, for example, the index of a collection element.
+	 * @param key The buffer used to assemble the keys, which is left as it was found
+	 * @param separator The separator between the key elements
+	 * @param keyValues The list to which to add the key-value pairs
+	 */
+	void collectKeyValues( final StringBuilder key, final String separator, final List< Pair< String, ? > > keyValues )
+	{
+		final int length = key.length();
+		key.append( element );
+		for( Object value : getValues() )
+		{
+			keyValues.add( new Pair<>( key.toString(), value ) );
+		}
+
+		final int elementLength = key.length();
+		for( KeyElementTrie child : getChildren() )
+		{
+			key.append( separator );
+			child.collectKeyValues( key, separator, keyValues );
+			key.setLength( elementLength );
+		}
+		key.setLength( length );
+	}
+}
@@ -0,0 +1,599 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.readers.KeyValueScanner;
+import org.freezedry.persistence.utils.Constants;
+import org.freezedry.persistence.writers.KeyValueLineWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sparse index over a key-value file whose lines are sorted by key, so that the value of a single key,
+ * or the key-value pairs whose keys start with a prefix, can be found without reading the whole file.<p>
+ *
+ * The {@link #write(List, String, String, int, int)} method writes the key-value pairs to the file, one per line
+ * in the form written by the {@link org.freezedry.persistence.writers.KeyValueWriter}, sorted by the
+ * {@link #KEY_ORDER}, and splits the lines into blocks of about the specified size. It then writes the offset
+ * and first key of each block to an index file next to the key-value file (see {@link #getIndexFileName(String)}).
+ * The key-value file remains a plain key-value file that the {@link org.freezedry.persistence.readers.KeyValueReader}
+ * can read. The keys may be front coded (see {@link org.freezedry.persistence.writers.KeyValueWriter#setFrontCoded(boolean)}),
+ * in which case each block starts at a restart point, so that it can be decoded on its own.<p>
+ *
+ * The {@link #open(String)} method reads the index file. A lookup then binary searches the first keys of the
+ * blocks, and memory maps and decodes only the block (or blocks, for a prefix) that may hold the keys.<p>
+ *
+ * A {@link KeyValueIndex} is immutable, and therefore thread safe. Open it once and use it for any number of
+ * lookups.
+ *
+ * @author Robert Philipp
+ */
+public final class KeyValueIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueIndex.class );
+
+	/**
+	 * The default size, in bytes, of the blocks of lines referenced by the index
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	/**
+	 * The extension appended to the name of the key-value file to give the name of its index file
+	 */
+	public static final String INDEX_FILE_EXTENSION = ".index";
+
+	/**
+	 * The order of the keys in an indexed key-value file. Characters are compared by their value, except that
+	 * runs of decimal digits are compared by their numeric value, so that {@code people[2]} comes before
+	 * {@code people[10]}. This keeps the elements of collections in the order of their indexes, which is the
+	 * order in which the {@link org.freezedry.persistence.readers.KeyValueReader} adds them to the collections.
+	 * The entries of maps, whose keys hold the keys of the map, are ordered by those keys instead.
+	 */
+	public static final Comparator< String > KEY_ORDER = new Comparator< String >() {
+
+		@Override
+		public int compare( final String first, final String second )
+		{
+			int i = 0;
+			int j = 0;
+			while( i < first.length() && j < second.length() )
+			{
+				final char firstChar = first.charAt( i );
+				final char secondChar = second.charAt( j );
+				if( isDigit( firstChar ) && isDigit( secondChar ) )
+				{
+					final int firstEnd = endOfDigits( first, i );
+					final int secondEnd = endOfDigits( second, j );
+					final int comparison = compareNumbers( first, i, firstEnd, second, j, secondEnd );
+					if( comparison != 0 )
+					{
+						return comparison;
+					}
+					i = firstEnd;
+					j = secondEnd;
+				}
+				else if( firstChar != secondChar )
+				{
+					return firstChar - secondChar;
+				}
+				else
+				{
+					++i;
+					++j;
+				}
+			}
+			return (first.length() - i) - (second.length() - j);
+		}
+	};
+
+	private static final int MAGIC = 0x46444b49;
+	private static final int VERSION = 1;
+
+	private final File dataFile;
+	private final String keyValueSeparator;
+	private final Charset charset;
+	private final boolean isFrontCoded;
+	private final long dataLength;
+	private final String[] firstKeys;
+	private final long[] offsets;
+
+	/*
+	 * @param dataFile The indexed key-value file
+	 * @param keyValueSeparator The separator between the keys and the values in the key-value file
+	 * @param charset The character set in which the key-value file is encoded
+	 * @param isFrontCoded true if the keys in the key-value file are front coded
+	 * @param dataLength The length, in bytes, of the key-value file when it was indexed
+	 * @param firstKeys The first key of each block
+	 * @param offsets The offset, in bytes, of each block in the key-value file
+	 */
+	private KeyValueIndex( final File dataFile,
+						   final String keyValueSeparator,
+						   final Charset charset,
+						   final boolean isFrontCoded,
+						   final long dataLength,
+						   final String[] firstKeys,
+						   final long[] offsets )
+	{
+		this.dataFile = dataFile;
+		this.keyValueSeparator = keyValueSeparator;
+		this.charset = charset;
+		this.isFrontCoded = isFrontCoded;
+		this.dataLength = dataLength;
+		this.firstKeys = firstKeys;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * @param fileName The name of the key-value file
+	 * @return The name of the index file for the key-value file with the specified name
+	 */
+	public static String getIndexFileName( final String fileName )
+	{
+		return fileName + INDEX_FILE_EXTENSION;
+	}
+
+	/**
+	 * Writes the key-value pairs, sorted by their keys, to the file with the specified name, and writes the
+	 * index of the file to its index file. The key-value file is encoded in the platform's default character
+	 * set, as the files written by the {@link org.freezedry.persistence.AbstractFileBasedPersistence} are.
+	 * @param keyValues The key-value pairs to write. The list is sorted by this method.
+	 * @param fileName The name of the key-value file
+	 * @param keyValueSeparator The separator between the key and the value
+	 * @param blockSize The approximate size, in bytes, of the blocks of lines referenced by the index
+	 * @param restartInterval The number of lines between the restart points of front-coded keys, or 0 if the
+	 * keys aren't front coded. Each block also starts at a restart point.
+	 * @return The index of the written file
+	 */
+	public static KeyValueIndex write( final List< Pair< String, Object > > keyValues,
+									   final String fileName,
+									   final String keyValueSeparator,
+									   final int blockSize,
+									   final int restartInterval )
+	{
+		if( blockSize < 1 )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The block size of a key-value index must be positive" ).append( Constants.NEW_LINE );
+			message.append( "  Block Size: " ).append( blockSize ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+
+		Collections.sort( keyValues, new Comparator< Pair< String, Object > >() {
+
+			@Override
+			public int compare( final Pair< String, Object > first, final Pair< String, Object > second )
+			{
+				return KEY_ORDER.compare( first.getFirst(), second.getFirst() );
+			}
+		} );
+
+		// write the lines, starting a new block, at a restart point, at the first line that follows a full block.
+		// the encoder is flushed after each line, so that the count of the bytes written is the offset of the next line
+		final Charset charset = Charset.defaultCharset();
+		final List< String > firstKeys = new ArrayList<>();
+		final List< Long > offsets = new ArrayList<>();
+		final long dataLength;
+		try( final ByteCountingOutputStream bytes = new ByteCountingOutputStream( new BufferedOutputStream( new FileOutputStream( fileName ) ) );
+			 final Writer output = new OutputStreamWriter( bytes, charset ) )
+		{
+			final KeyValueLineWriter lines = new KeyValueLineWriter( output, " " + keyValueSeparator + " ", restartInterval, null );
+			long blockStart = 0;
+			for( final Pair< String, Object > keyValue : keyValues )
+			{
+				final long offset = bytes.getCount();
+				if( offsets.isEmpty() || offset - blockStart >= blockSize )
+				{
+					firstKeys.add( keyValue.getFirst() );
+					offsets.add( offset );
+					blockStart = offset;
+					lines.restart();
+				}
+				lines.add( keyValue.getFirst(), keyValue.getSecond() );
+				output.flush();
+			}
+			dataLength = bytes.getCount();
+		}
+		catch( IOException e )
+		{
+			throw fileError( "Unable to write the key-value file", fileName, e );
+		}
+
+		final long[] blockOffsets = new long[ offsets.size() ];
+		for( int i = 0; i < blockOffsets.length; ++i )
+		{
+			blockOffsets[ i ] = offsets.get( i );
+		}
+		final KeyValueIndex index = new KeyValueIndex( new File( fileName ), keyValueSeparator, charset, restartInterval > 0, dataLength,
+													   firstKeys.toArray( new String[ firstKeys.size() ] ), blockOffsets );
+		index.writeIndexFile( getIndexFileName( fileName ) );
+		return index;
+	}
+
+	/**
+	 * Opens the index of the key-value file with the specified name, by reading its index file
+	 * @param fileName The name of the key-value file (not the name of its index file)
+	 * @return The index of the key-value file
+	 * @throws IllegalArgumentException if the index file can't be read, or isn't a key-value index
+	 * @throws IllegalStateException if the key-value file has changed since it was indexed
+	 */
+	public static KeyValueIndex open( final String fileName )
+	{
+		final String indexFileName = getIndexFileName( fileName );
+		final KeyValueIndex index;
+		try( final DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( indexFileName ) ) ) )
+		{
+			if( input.readInt() != MAGIC || input.readInt() != VERSION )
+			{
+				throw fileError( "The file isn't a key-value index", indexFileName, null );
+			}
+			final String keyValueSeparator = readString( input );
+			final Charset charset = Charset.forName( readString( input ) );
+			final boolean isFrontCoded = input.readBoolean();
+			final long dataLength = input.readLong();
+			final int blocks = input.readInt();
+			final String[] firstKeys = new String[ blocks ];
+			final long[] offsets = new long[ blocks ];
+			for( int i = 0; i < blocks; ++i )
+			{
+				offsets[ i ] = input.readLong();
+				firstKeys[ i ] = readString( input );
+			}
+			index = new KeyValueIndex( new File( fileName ), keyValueSeparator, charset, isFrontCoded, dataLength, firstKeys, offsets );
+		}
+		catch( IOException e )
+		{
+			throw fileError( "Unable to read the key-value index", indexFileName, e );
+		}
+
+		index.ensureCurrent();
+		return index;
+	}
+
+	/**
+	 * @return The number of blocks in the index
+	 */
+	public int getBlockCount()
+	{
+		return offsets.length;
+	}
+
+	/**
+	 * Returns the value of the specified key, as it appears in the key-value file. The value is decorated as
+	 * the key-value renderers decorate it, so, for example, a string value is in quotes.
+	 * @param key The key
+	 * @return The value of the key, or null if the file doesn't hold the key
+	 * @throws IllegalStateException if the key-value file has changed since it was indexed
+	 */
+	public String lookup( final String key )
+	{
+		ensureCurrent();
+		final int block = findBlock( key );
+		if( block < 0 )
+		{
+			return null;
+		}
+		for( final Pair< String, String > keyValue : readBlock( block ) )
+		{
+			if( keyValue.getFirst().equals( key ) )
+			{
+				return keyValue.getSecond();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the key-value pairs whose keys start with the specified prefix, in the order of their keys
+	 * @param prefix The prefix of the keys
+	 * @return The key-value pairs whose keys start with the specified prefix, and whose values are as they
+	 * appear in the key-value file
+	 * @throws IllegalStateException if the key-value file has changed since it was indexed
+	 */
+	public List< Pair< String, String > > scanPrefix( final String prefix )
+	{
+		ensureCurrent();
+
+		// the keys that start with a prefix that ends in the middle of a number, for example "people[1", aren't
+		// contiguous ("people[2]" sorts between "people[1]" and "people[10]"), so the scan covers the keys that
+		// start with the prefix up to its trailing digits, and keeps the ones that start with the whole prefix
+		int rangeEnd = prefix.length();
+		while( rangeEnd > 0 && isDigit( prefix.charAt( rangeEnd - 1 ) ) )
+		{
+			--rangeEnd;
+		}
+		final String range = prefix.substring( 0, rangeEnd );
+
+		final List< Pair< String, String > > keyValues = new ArrayList<>();
+		for( int block = Math.max( 0, findBlock( range ) ); block < offsets.length; ++block )
+		{
+			for( final Pair< String, String > keyValue : readBlock( block ) )
+			{
+				final String key = keyValue.getFirst();
+				if( key.startsWith( range ) )
+				{
+					if( key.startsWith( prefix ) )
+					{
+						keyValues.add( keyValue );
+					}
+				}
+				else if( KEY_ORDER.compare( key, range ) > 0 )
+				{
+					return keyValues;
+				}
+			}
+		}
+		return keyValues;
+	}
+
+	/*
+	 * Writes the index to the index file
+	 */
+	private void writeIndexFile( final String indexFileName )
+	{
+		try( final DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( indexFileName ) ) ) )
+		{
+			output.writeInt( MAGIC );
+			output.writeInt( VERSION );
+			writeString( output, keyValueSeparator );
+			writeString( output, charset.name() );
+			output.writeBoolean( isFrontCoded );
+			output.writeLong( dataLength );
+			output.writeInt( offsets.length );
+			for( int i = 0; i < offsets.length; ++i )
+			{
+				output.writeLong( offsets[ i ] );
+				writeString( output, firstKeys[ i ] );
+			}
+		}
+		catch( IOException e )
+		{
+			throw fileError( "Unable to write the key-value index", indexFileName, e );
+		}
+	}
+
+	/*
+	 * Returns the index of the last block whose first key isn't greater than the specified key, or -1
+	 * if the key comes before the first key of the first block
+	 */
+	private int findBlock( final String key )
+	{
+		int low = 0;
+		int high = firstKeys.length - 1;
+		while( low <= high )
+		{
+			final int middle = (low + high) >>> 1;
+			if( KEY_ORDER.compare( firstKeys[ middle ], key ) <= 0 )
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	/*
+	 * Memory maps the block of lines, and scans its lines into their keys and values. The block starts at a
+	 * restart point, so its front-coded keys are decoded without the lines that precede it.
+	 */
+	private List< Pair< String, String > > readBlock( final int block )
+	{
+		final long start = offsets[ block ];
+		final long end = block + 1 < offsets.length ? offsets[ block + 1 ] : dataLength;
+		final String lines;
+		try( final FileChannel channel = FileChannel.open( dataFile.toPath(), StandardOpenOption.READ ) )
+		{
+			lines = charset.decode( channel.map( FileChannel.MapMode.READ_ONLY, start, end - start ) ).toString();
+		}
+		catch( IOException e )
+		{
+			throw fileError( "Unable to read the key-value file", dataFile.getPath(), e );
+		}
+
+		final List< Pair< String, String > > keyValues = new ArrayList<>();
+		final KeyValueScanner scanner = new KeyValueScanner( new StringReader( lines ), keyValueSeparator, isFrontCoded );
+		try
+		{
+			while( !scanner.isEnd() )
+			{
+				final Pair< String, String > keyValue = scanner.next();
+				if( keyValue != null )
+				{
+					keyValues.add( keyValue );
+				}
+			}
+		}
+		catch( IOException e )
+		{
+			throw fileError( "Unable to read the key-value file", dataFile.getPath(), e );
+		}
+		return keyValues;
+	}
+
+	/*
+	 * Ensures that the key-value file has the length it had when it was indexed
+	 */
+	private void ensureCurrent()
+	{
+		if( dataFile.length() != dataLength )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The key-value file has changed since it was indexed" ).append( Constants.NEW_LINE );
+			message.append( "  File Name: " ).append( dataFile.getPath() ).append( Constants.NEW_LINE );
+			message.append( "  Indexed Length: " ).append( dataLength ).append( Constants.NEW_LINE );
+			message.append( "  Current Length: " ).append( dataFile.length() ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalStateException( message.toString() );
+		}
+	}
+
+	/*
+	 * Writes the string as its length followed by its UTF-8 bytes, so that keys aren't limited in length
+	 */
+	private static void writeString( final DataOutputStream output, final String string ) throws IOException
+	{
+		final byte[] bytes = string.getBytes( StandardCharsets.UTF_8 );
+		output.writeInt( bytes.length );
+		output.write( bytes );
+	}
+
+	/*
+	 * Reads a string written by the writeString(...) method
+	 */
+	private static String readString( final DataInputStream input ) throws IOException
+	{
+		final byte[] bytes = new byte[ input.readInt() ];
+		input.readFully( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/*
+	 * Creates the exception for a file that can't be read or written
+	 */
+	private static IllegalArgumentException fileError( final String error, final String fileName, final Exception cause )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( error ).append( Constants.NEW_LINE );
+		message.append( "  File Name: " ).append( fileName ).append( Constants.NEW_LINE );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString(), cause );
+	}
+
+	private static boolean isDigit( final char character )
+	{
+		return character >= '0' && character <= '9';
+	}
+
+	private static int endOfDigits( final String string, final int start )
+	{
+		int end = start;
+		while( end < string.length() && isDigit( string.charAt( end ) ) )
+		{
+			++end;
+		}
+		return end;
+	}
+
+	/*
+	 * Compares the two runs of digits by their numeric values, and runs with the same value by their
+	 * lengths, so that the order is consistent with equals
+	 */
+	private static int compareNumbers( final String first, final int firstStart, final int firstEnd,
+									   final String second, final int secondStart, final int secondEnd )
+	{
+		int i = firstStart;
+		while( i < firstEnd - 1 && first.charAt( i ) == '0' )
+		{
+			++i;
+		}
+		int j = secondStart;
+		while( j < secondEnd - 1 && second.charAt( j ) == '0' )
+		{
+			++j;
+		}
+		if( firstEnd - i != secondEnd - j )
+		{
+			return (firstEnd - i) - (secondEnd - j);
+		}
+		for( ; i < firstEnd; ++i, ++j )
+		{
+			if( first.charAt( i ) != second.charAt( j ) )
+			{
+				return first.charAt( i ) - second.charAt( j );
+			}
+		}
+		return (firstEnd - firstStart) - (secondEnd - secondStart);
+	}
+
+	/*
+	 * Counts the bytes written through it. A flush isn't passed on, so that flushing the encoder after each
+	 * line doesn't also flush the buffered file; the buffer is flushed when the stream is closed.
+	 */
+	private static final class ByteCountingOutputStream extends FilterOutputStream {
+
+		private long count = 0;
+
+		ByteCountingOutputStream( final OutputStream output )
+		{
+			super( output );
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterOutputStream#write(int)
+		 */
+		@Override
+		public void write( final int b ) throws IOException
+		{
+			out.write( b );
+			++count;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write( final byte[] b, final int off, final int len ) throws IOException
+		{
+			out.write( b, off, len );
+			count += len;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterOutputStream#flush()
+		 */
+		@Override
+		public void flush()
+		{
+		}
+
+		/*
+		 * @return The number of bytes written
+		 */
+		long getCount()
+		{
+			return count;
+		}
+	}
+}
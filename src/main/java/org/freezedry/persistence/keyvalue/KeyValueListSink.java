@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import java.util.List;
+
+import org.freezedry.persistence.containers.Pair;
+
+/**
+ * {@link KeyValueSink} that adds the key-value pairs it receives to a list, for the builders and renderers
+ * that flatten the semantic model into a {@link List} of key-value pairs.
+ *
+ * @author Robert Philipp
+ */
+public class KeyValueListSink implements KeyValueSink {
+
+	private final List< Pair< String, Object > > keyValues;
+
+	/**
+	 * Constructs a sink that adds the key-value pairs to the specified list
+	 * @param keyValues The list to which to add the key-value pairs
+	 */
+	public KeyValueListSink( final List< Pair< String, Object > > keyValues )
+	{
+		this.keyValues = keyValues;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.KeyValueSink#add(java.lang.CharSequence, java.lang.Object)
+	 */
+	@Override
+	public void add( final CharSequence key, final Object value )
+	{
+		keyValues.add( new Pair< String, Object >( key.toString(), value ) );
+	}
+
+	/**
+	 * Hands the key-value pairs in the specified list to the sink, in order
+	 * @param keyValues The list of key-value pairs
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 */
+	public static void addAll( final List< Pair< String, Object > > keyValues, final KeyValueSink sink )
+	{
+		for( Pair< String, Object > keyValue : keyValues )
+		{
+			sink.add( keyValue.getFirst(), keyValue.getSecond() );
+		}
+	}
+}
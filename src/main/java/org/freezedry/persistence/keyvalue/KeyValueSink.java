@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+/**
+ * Receives the key-value pairs of a semantic model, in order, as the {@link BasicKeyValueBuilder} flattens
+ * the model, so that the pairs can be written out, or otherwise consumed, without being collected into a list.
+ * The keys are handed over as views of the builder's key buffer, to which the key elements are appended as the
+ * builder descends into the model, and from which they are removed as it returns, so that neither a key nor a
+ * pair is created for each key-value pair.
+ *
+ * @author Robert Philipp
+ */
+public interface KeyValueSink {
+
+	/**
+	 * Receives the next key-value pair of the flattened semantic model. The key is a view of the builder's key
+	 * buffer, which changes once this method returns, and so a sink that holds on to the key must copy it.
+	 * @param key The key of the key-value pair
+	 * @param value The value of the key-value pair
+	 */
+	void add( final CharSequence key, final Object value );
+}
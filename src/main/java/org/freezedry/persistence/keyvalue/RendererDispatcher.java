@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer;
+import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
+
+/**
+ * Finds the {@link PersistenceRenderer} that claims a key element, from a snapshot of the builder's renderers,
+ * taken when the dispatcher is created. The renderers are tested in the order of the snapshot, and the first one
+ * that claims the key element is returned, just as if the renderers were tested directly. However, renderers that
+ * claim the same key elements as one that precedes them are dropped from the snapshot, because they would never be
+ * selected. For example, the default builder holds a {@link org.freezedry.persistence.keyvalue.renderers.LeafNodeRenderer}
+ * for each of the primitive types and their wrappers, and all of them claim the same key elements, so only the
+ * first is tested. Two renderers claim the same key elements when they are of the same class and have the same
+ * {@link AbstractPersistenceRenderer#getKeyElementRegex() key-element regular expression}.<p>
+ * 
+ * The dispatcher is immutable, and so can be shared by threads.
+ * 
+ * @author Robert Philipp
+ */
+final class RendererDispatcher {
+
+	private final Map< Class< ? >, PersistenceRenderer > source;
+	private final int sourceSize;
+	private final PersistenceRenderer[] renderers;
+
+	/**
+	 * Creates the dispatcher from a snapshot of the specified renderers
+	 * @param renderers The mapping between the classes and their renderers
+	 */
+	RendererDispatcher( final Map< Class< ? >, PersistenceRenderer > renderers )
+	{
+		this.source = renderers;
+		this.sourceSize = renderers.size();
+
+		final List< PersistenceRenderer > distinct = new ArrayList<>();
+		for( PersistenceRenderer renderer : renderers.values() )
+		{
+			if( !isClaimedByAny( renderer, distinct ) )
+			{
+				distinct.add( renderer );
+			}
+		}
+		this.renderers = distinct.toArray( new PersistenceRenderer[ distinct.size() ] );
+	}
+
+	/*
+	 * Returns true if the renderer claims the same key elements as one of the specified renderers
+	 */
+	private static boolean isClaimedByAny( final PersistenceRenderer renderer, final List< PersistenceRenderer > renderers )
+	{
+		final String regex = getKeyElementRegex( renderer );
+		for( PersistenceRenderer other : renderers )
+		{
+			if( other == renderer ||
+				( regex != null && other.getClass() == renderer.getClass() && regex.equals( getKeyElementRegex( other ) ) ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * @return the renderer's key-element regular expression, or null if it doesn't have one
+	 */
+	private static String getKeyElementRegex( final PersistenceRenderer renderer )
+	{
+		return renderer instanceof AbstractPersistenceRenderer ? ( (AbstractPersistenceRenderer)renderer ).getKeyElementRegex() : null;
+	}
+
+	/**
+	 * Returns true if the dispatcher was created from the specified renderers, and they haven't been added to or
+	 * removed from since. The builder replaces its dispatcher whenever it changes its renderers, and it also adds
+	 * renderers to the map when it looks up the renderer for a subclass, which this check detects.
+	 * @param renderers The builder's current renderers
+	 * @return true if the dispatcher was created from the specified renderers; false otherwise
+	 */
+	boolean isCurrent( final Map< Class< ? >, PersistenceRenderer > renderers )
+	{
+		return source == renderers && sourceSize == renderers.size();
+	}
+
+	/**
+	 * Returns the first renderer that claims the specified key element
+	 * @param keyElement The key element
+	 * @return the first renderer that claims the specified key element; or null if no renderer claims it
+	 */
+	PersistenceRenderer getRenderer( final String keyElement )
+	{
+		for( PersistenceRenderer renderer : renderers )
+		{
+			if( renderer.isRenderer( keyElement ) )
+			{
+				return renderer;
+			}
+		}
+		return null;
+	}
+}
@@ -15,16 +15,23 @@
  */
 package org.freezedry.persistence.keyvalue.renderers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.AbstractKeyValueBuilder;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueListSink;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.decorators.BooleanDecorator;
 import org.freezedry.persistence.keyvalue.renderers.decorators.Decorator;
 import org.freezedry.persistence.keyvalue.renderers.decorators.DoubleDecorator;
 import org.freezedry.persistence.keyvalue.renderers.decorators.IntegerDecorator;
 import org.freezedry.persistence.keyvalue.renderers.decorators.StringDecorator;
 import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
+import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.ReflectionUtils;
 import org.freezedry.persistence.utils.Require;
 import org.freezedry.persistence.writers.PersistenceWriter;
@@ -37,6 +44,9 @@ import org.freezedry.persistence.writers.PersistenceWriter;
  */
 public abstract class AbstractPersistenceRenderer implements PersistenceRenderer {
 
+	// leaves the values that no decorator claims, such as dates, as they are
+	private static final Decorator UNDECORATED = new StringDecorator( "", "" );
+
 	private final KeyValueBuilder builder;
 	private final Map< Class< ? >, Decorator > decorators;
 
@@ -169,6 +179,50 @@ public abstract class AbstractPersistenceRenderer implements PersistenceRenderer
 		return foundDecorator;
 	}
 
+	/**
+	 * Returns the {@link Decorator} that was used to decorate the specified value, or if no such
+	 * {@link Decorator} was found, a {@link Decorator} that leaves the value as it is and represents
+	 * it as a {@link String}. Values that aren't decorated, such as dates, are converted by their
+	 * node builders.
+	 * @param value The decorated value
+	 * @return the {@link Decorator} that was used to decorate the specified value, or the one that
+	 * leaves the value as it is
+	 */
+	protected Decorator getValueDecorator( final String value )
+	{
+		final Decorator decorator = getDecorator( value );
+		return decorator == null ? UNDECORATED : decorator;
+	}
+
+	/**
+	 * Returns the value of the leaf node for the specified value of a key-value pair. A {@link String} is the
+	 * persisted form of the value, from which the decoration is removed (see {@link #getValueDecorator(String)}).
+	 * Any other value is already typed, for example, a value from the map read by the
+	 * {@link org.freezedry.persistence.readers.KeyValueMapReader}, and is used as it is.
+	 * @param value The value of the key-value pair
+	 * @return the value of the leaf node
+	 */
+	protected Object undecorateValue( final Object value )
+	{
+		return value instanceof String ? getValueDecorator( (String)value ).undecorate( (String)value ) : value;
+	}
+
+	/**
+	 * Returns the persist name of the leaf node, such as the element of a collection, that holds the specified
+	 * value of a key-value pair. For a {@link String} this is the name of the class represented by the value's
+	 * decorator, and for a typed value, the name of its class.
+	 * @param value The value of the key-value pair
+	 * @return the persist name of the leaf node that holds the value
+	 */
+	protected String getValuePersistName( final Object value )
+	{
+		if( value instanceof String )
+		{
+			return getValueDecorator( (String)value ).representedClass().getSimpleName();
+		}
+		return ( value == null ? String.class : value.getClass() ).getSimpleName();
+	}
+
 	/**
 	 * Finds the {@link PersistenceRenderer} associated with the class. If the specified class
 	 * doesn't have a renderer, then it searches for the closest parent class (inheritance)
@@ -190,7 +244,100 @@ public abstract class AbstractPersistenceRenderer implements PersistenceRenderer
 	{
 		return builder;
 	}
+
+	/**
+	 * Builds the key-value pairs of the specified node, and hands them to the specified {@link KeyValueSink}. The
+	 * key elements of the node are appended to the key buffer, and are removed again before this method returns,
+	 * so that the keys of the pairs aren't created as strings. By default, the key-value pairs are built in a list
+	 * by the {@link #buildKeyValuePair(InfoNode, String, List, boolean)} method, and are then handed to the sink.
+	 * @param infoNode The current {@link InfoNode} in the semantic model.
+	 * @param key The key buffer, which holds the key accumulated from the parents' persistence names
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isWithholdPersistName true if the renderer implementation should not append the
+	 * {@link InfoNode}'s persistence name to the key.
+	 */
+	public void buildKeyValuePair( final InfoNode infoNode,
+								   final StringBuilder key,
+								   final KeyValueSink sink,
+								   final boolean isWithholdPersistName )
+	{
+		final List< Pair< String, Object > > keyValues = new ArrayList<>();
+		buildKeyValuePair( infoNode, key.toString(), keyValues, isWithholdPersistName );
+		KeyValueListSink.addAll( keyValues, sink );
+	}
+
+	/**
+	 * Asks the persistence builder to create the key-value pairs of the specified node, and to hand them to the
+	 * sink, which keeps the key in the key buffer when the builder is an {@link AbstractKeyValueBuilder}.
+	 * @param infoNode The current {@link InfoNode} in the semantic model.
+	 * @param key The key buffer, which holds the key accumulated from the parents' persistence names
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isWithholdPersistName true if the persistence name should not be added to the key; false otherwise
+	 * @see KeyValueBuilder#createKeyValuePairs(InfoNode, String, List, boolean)
+	 */
+	protected void createKeyValuePairs( final InfoNode infoNode,
+										final StringBuilder key,
+										final KeyValueSink sink,
+										final boolean isWithholdPersistName )
+	{
+		if( builder instanceof AbstractKeyValueBuilder )
+		{
+			( (AbstractKeyValueBuilder)builder ).createKeyValuePairs( infoNode, key, sink, isWithholdPersistName );
+		}
+		else
+		{
+			final List< Pair< String, Object > > keyValues = new ArrayList<>();
+			builder.createKeyValuePairs( infoNode, key.toString(), keyValues, isWithholdPersistName );
+			KeyValueListSink.addAll( keyValues, sink );
+		}
+	}
+
+	/**
+	 * Builds an {@link InfoNode} and adds it to the parent node, using the specified list of key-value pairs,
+	 * whose values are either the decorated {@link String}s of the persisted form, or typed values, which are
+	 * used as they are. By default, the values must all be {@link String}s, and the node is built by the
+	 * {@link #buildInfoNode(InfoNode, List)} method.
+	 * @param parentNode The parent {@link InfoNode} to which to add the newly created child(ren).
+	 * @param keyValues The associated list of key value pairs. Each key in the list of key-value pairs
+	 * should have its first key-element's group name equal to the persistence name in the parent node.
+	 */
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		buildInfoNode( parentNode, KeyValueUtils.asStringValues( keyValues ) );
+	}
+
+	/**
+	 * Asks the persistence builder to create the {@link InfoNode} for the group of key-value pairs, which keeps
+	 * the typed values when the builder is an {@link AbstractKeyValueBuilder}.
+	 * @param parentNode The node to which to add the child nodes
+	 * @param groupName The name of the group that will appear as the persistence name
+	 * @param keyValues The list of key-value pairs
+	 * @see KeyValueBuilder#createInfoNode(InfoNode, String, List)
+	 */
+	protected void createInfoNode( final InfoNode parentNode, final String groupName, final List< ? extends Pair< String, ? > > keyValues )
+	{
+		if( builder instanceof AbstractKeyValueBuilder )
+		{
+			( (AbstractKeyValueBuilder)builder ).createTypedInfoNode( parentNode, groupName, keyValues );
+		}
+		else
+		{
+			builder.createInfoNode( parentNode, groupName, KeyValueUtils.asStringValues( keyValues ) );
+		}
+	}
 	
+	/**
+	 * Returns the regular expression that {@link #isRenderer(String)} searches for in a key element, or null if the
+	 * renderer decides in some other way. Two renderers of the same class that return the same regular expression
+	 * claim the same key elements and parse the same group names from them, and so the builder only needs to
+	 * test one of them when it looks up the renderer for a key element.
+	 * @return the regular expression that {@link #isRenderer(String)} searches for; or null
+	 */
+	public String getKeyElementRegex()
+	{
+		return null;
+	}
+
 	/**
 	 * 
 	 * @param key
@@ -28,6 +28,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueListSink;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.decorators.Decorator;
 import org.freezedry.persistence.keyvalue.renderers.decorators.StringDecorator;
 import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
@@ -196,43 +198,55 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 	 */
 	@Override
 	public void buildKeyValuePair( final InfoNode infoNode, final String key, final List< Pair< String, Object > > keyValues, final boolean isWithholdPersistName )
+	{
+		buildKeyValuePair( infoNode, new StringBuilder( key ), new KeyValueListSink( keyValues ), isWithholdPersistName );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#buildKeyValuePair(org.freezedry.persistence.tree.InfoNode, java.lang.StringBuilder, org.freezedry.persistence.keyvalue.KeyValueSink, boolean)
+	 */
+	@Override
+	public void buildKeyValuePair( final InfoNode infoNode, final StringBuilder key, final KeyValueSink sink, final boolean isWithholdPersistName )
 	{
 		int index = 0;
 		for( InfoNode node : infoNode.getChildren() )
 		{
+			// append the persistence name and the decorated index to the key, which are removed again once
+			// the key-value pairs of the element are handed to the sink
+			final int keyLength = key.length();
+			appendNodeKey( key, infoNode, index, isWithholdPersistName );
 			if( node.isLeafNode() )
 			{
 				// create the key-value pair and return it
-				final String newKey = createNodeKey( key, infoNode, index, isWithholdPersistName );
-				getPersistenceBuilder().createKeyValuePairs( node, newKey, keyValues, true );
+				createKeyValuePairs( node, key, sink, true );
 			}
 			else
 			{
 				// create the key-value pair and return it
-				final String newKey = createNodeKey( key, infoNode, index, isWithholdPersistName );
+				InfoNode element = node;
 				boolean hidePersistName = false;
 				
 				// next we need to check whether the group name for the key is empty. for example,
 				// when we have a List< Map< String, String > > called listOfMaps, then for each
 				// list element, we have a map, and so we would want to render it as listOfMap[i]{key}.
 				// similarly, if we have a List< List< Double > > called matrix, we would want to 
-				// render it as matrix[i][j].
+				// render it as matrix[i][j]. the empty persist name is carried by a view of the node, so
+				// that the semantic model isn't modified.
 				if( isZeroOutPersistName( node ) )
 				{
-					node.setPersistName( "" );
+					element = node.getRenamedView( "" );
 					hidePersistName = true;
 				}
 				
 				// have the key-value builder that called this method create a new node. back
 				// into the recursive algorithm.
-				getPersistenceBuilder().createKeyValuePairs( node, newKey, keyValues, hidePersistName );
+				createKeyValuePairs( element, key, sink, hidePersistName );
 			}
+			key.setLength( keyLength );
 
 			// increment the index count
 			++index;
-			
-			// mark the node as processed so that it doesn't get processed again
-			node.setIsProcessed( true );
 		}
 	}
 
@@ -289,22 +303,31 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 	 */
 	protected final String createNodeKey( final String key, final InfoNode parentNode, final int index, final boolean isHidePersistName )
 	{
-		// grab the key-element separator
-		final String separator = getPersistenceBuilder().getSeparator();
+		final StringBuilder newKey = new StringBuilder().append( key );
+		appendNodeKey( newKey, parentNode, index, isHidePersistName );
+		return newKey.toString();
+	}
 
+	/**
+	 * Appends the persisted name and the decorated index of a node of the collection to the key.
+	 * @param key The key buffer to which to append the persisted name and decorated index
+	 * @param parentNode The parent node, which holds the name of the field (in this example, "{@code people}")
+	 * @param index The index of the element in the {@link List}
+	 * @param isHidePersistName set to {@code true} if the persistence name should be hidded; {@code false} to show it
+	 * @see #createNodeKey(String, InfoNode, int, boolean)
+	 */
+	protected final void appendNodeKey( final StringBuilder key, final InfoNode parentNode, final int index, final boolean isHidePersistName )
+	{
 		// if the parent node has a persistence name then add it
-		String newKey = key;
 		if( parentNode.getPersistName() != null &&
 			!parentNode.getPersistName().isEmpty() &&
 			!isHidePersistName )
 		{
-			newKey += separator + parentNode.getPersistName();
+			key.append( getPersistenceBuilder().getSeparator() ).append( parentNode.getPersistName() );
 		}
 		
 		// decorate the index. for example prepend a "[" and append a "]"
-		newKey += indexDecorator.decorate( index );
-
-		return newKey;
+		key.append( indexDecorator.decorate( index ) );
 	}
 	
 	/*
@@ -313,6 +336,16 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 	 */
 	@Override
 	public void buildInfoNode( final InfoNode parentNode, final List< Pair< String, String > > keyValues )
+	{
+		buildTypedInfoNode( parentNode, keyValues );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#buildTypedInfoNode(org.freezedry.persistence.tree.InfoNode, java.util.List)
+	 */
+	@Override
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		// nothing to do
 		if( keyValues == null || keyValues.isEmpty() )
@@ -327,18 +360,9 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 		final InfoNode collectionNode = InfoNode.createCompoundNode( null, group, null );
 		parentNode.addChild( collectionNode );
 		
-		// construct the patterns to determine if the node should be a compound node,
-		// in which case we recurse back to the builder, or a leaf node, in which case
-		// we simply create it here and add it to the collection node
-		final String compoundRegex = "^" + group + decorationRegex;
-		final Pattern compoundPattern = Pattern.compile( compoundRegex );
-		
-		final String leafRegex = compoundRegex + "$";
-		final Pattern leafPattern = Pattern.compile( leafRegex );
-		
 		// run through the list of key-values creating the child nodes for the collection node
-		final List< Pair< String, String > > copiedKeyValues = new ArrayList<>( keyValues );
-		for( Pair< String, String > keyValue : keyValues )
+		final List< Pair< String, ? > > copiedKeyValues = new ArrayList<>( keyValues );
+		for( Pair< String, ? > keyValue : keyValues )
 		{
 			// check to see if any items have been removed from the list. this could happen
 			// when there is a compound node that we have combined, and removed all the entries
@@ -351,32 +375,32 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 			// grab the key
 			final String key = keyValue.getFirst();
 			
-			// then we must figure out whether this is a compound node or a leaf node
-			final Matcher compoundMatcher = compoundPattern.matcher( key );
-			final Matcher leafMatcher = leafPattern.matcher( key );
-			if( leafMatcher.find() )
+			// then we must figure out whether this is a compound node or a leaf node. the key of a leaf
+			// node ends with the decorated index that follows the group name, and the key of a compound
+			// node continues past it, in which case we recurse back to the builder
+			final Matcher matcher = matchElementIndex( group, key );
+			if( matcher != null && matcher.end() == key.length() )
 			{
 				// its a leaf, so now we need to figure out what the value is. we know that
-				// it must be a number (integer, double) or a string.
-				final String value = keyValue.getSecond();
-				final Decorator decorator = getDecorator( value ); 
-				final String rawValue = decorator.undecorate( value );
-				final String persistName = decorator.representedClass().getSimpleName();
+				// it must be a number (integer, double) or a string, unless it is already typed.
+				final Object value = keyValue.getSecond();
+				final Object rawValue = undecorateValue( value );
+				final String persistName = getValuePersistName( value );
 				
 				// create the leaf info node and add it to the collection node
 				final InfoNode elementNode = InfoNode.createLeafNode( null, rawValue, persistName, null );
 				collectionNode.addChild( elementNode );
 			}
-			else if( compoundMatcher.find() )
+			else if( matcher != null )
 			{
 				// in this case, we'll have several entries that have the same index, so
 				// we'll need to pull those out and put them into a new key-value list
 				final String separator = getPersistenceBuilder().getSeparator();
-				final List< Pair< String, String > > elementKeyValues = new ArrayList<>();
-				for( Pair< String, String > copiedKeyValue : keyValues )
+				final String keyFirstElement = extractElementKeyPart( KeyValueUtils.getFirstKeyElement( key, separator ) );
+				final List< Pair< String, ? > > elementKeyValues = new ArrayList<>();
+				for( Pair< String, ? > copiedKeyValue : keyValues )
 				{
 					final String copiedKey = copiedKeyValue.getFirst();
-					final String keyFirstElement = extractElementKeyPart( key.split( Pattern.quote( separator ) )[ 0 ] ); 
 					if( copiedKey.startsWith( keyFirstElement ) )
 					{
 						// strip the first element off the key. this could mean one of three things:
@@ -397,7 +421,7 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 				final String persistName = KeyValueUtils.getFirstKeyElement( elementKeyValues.get( 0 ).getFirst(), separator );
 				
 				// call the builder (which called this method) to build the compound node
-				getPersistenceBuilder().createInfoNode( collectionNode, persistName, elementKeyValues );
+				createInfoNode( collectionNode, persistName, elementKeyValues );
 			}
 			else
 			{
@@ -412,6 +436,24 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 		}
 	}
 	
+	/*
+	 * Matches the decorated index that directly follows the group name at the start of the key. For example,
+	 * for the group name <code>people</code>, matches the <code>[0]</code> in <code>people[0].Person.age</code>.
+	 * @param group The group name of the collection
+	 * @param key The key of the element
+	 * @return the matcher positioned on the decorated index; or null if the key doesn't start with the group
+	 * name followed by a decorated index
+	 */
+	private Matcher matchElementIndex( final String group, final String key )
+	{
+		if( group == null || !key.startsWith( group ) )
+		{
+			return null;
+		}
+		final Matcher matcher = decorationPattern.matcher( key ).region( group.length(), key.length() );
+		return matcher.lookingAt() ? matcher : null;
+	}
+
 	/*
 	 * Extracts the map key part from the key. For example, if the key is <code>months{"January"}[0]</code>
 	 * this method will return <code>months{"January"}</code>.
@@ -466,6 +508,16 @@ public class CollectionRenderer extends AbstractPersistenceRenderer {
 		return validationPattern.matcher( keyElement ).find();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#getKeyElementRegex()
+	 */
+	@Override
+	public String getKeyElementRegex()
+	{
+		return validationRegex;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer#getGroupName(java.lang.String)
@@ -15,7 +15,6 @@
  */
 package org.freezedry.persistence.keyvalue.renderers;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -24,8 +23,12 @@ import java.util.regex.Pattern;
 
 import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.decorators.Decorator;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * {@link PersistenceRenderer} that is used to renderer simple collections that can be flattened,
@@ -87,6 +90,10 @@ import org.freezedry.persistence.tree.InfoNode;
  * .
  * collection[N-1][M_3-1] = elementNM_N
  * </pre></code><p>
+ * The {@link String} elements of a flattened list are always surrounded by quotes, and any quotes or
+ * back-slashes within them are escaped with a back-slash, so that strings may hold list separators
+ * and brackets. The other elements are written by their {@link Decorator}s. The lists are written,
+ * and read, in a single pass over their characters.
  *  
  * @see CollectionRenderer
  * 
@@ -94,7 +101,10 @@ import org.freezedry.persistence.tree.InfoNode;
  */
 public class FlatteningCollectionRenderer extends CollectionRenderer {
 
-//	private static final Logger LOGGER = LoggerFactory.getLogger( FlatteningCollectionRenderer.class );
+	private static final Logger LOGGER = LoggerFactory.getLogger( FlatteningCollectionRenderer.class );
+
+	private static final char QUOTE = '"';
+	private static final char ESCAPE = '\\';
 
 	private final String decorationRegex;
 	private final Pattern decorationPattern;
@@ -104,8 +114,6 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 	private final String listBegin = "[";
 	private final String listEnd= "]";
 	private final String listSeparator = ",";
-	private final String listRegex;
-	private final Pattern listPattern;
 
 	/**
 	 * Constructs a {@link FlatteningCollectionRenderer} that is used to render {@link InfoNode} representing
@@ -126,28 +134,9 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 		// create and compile the regex pattern for validating the complete key
 		// we allow \w+ and [0-9] and {"key"} before the ending "[]". For example, the following
 		// keys would be allowed: collection[]; collection[0][]; collection{3}[]; collection{"test"}[]
-		// The regular expression is ^\w*(\[[0-9]\])?((\{"\w+"\})|(\{\w+\}))?\[\]$
-		validationRegex = "^\\w*(\\[[0-9]\\])?(\\{(\\w+)|(\"\\w+\")\\})?" + decorationRegex;
+		// The regular expression is ^\w*(\[[0-9]+\])?((\{"\w+"\})|(\{\w+\}))?\[\]$
+		validationRegex = "^\\w*(\\[[0-9]+\\])?(\\{(\\w+)|(\"\\w+\")\\})?" + decorationRegex;
 		validationPattern = Pattern.compile( validationRegex );
-
-		// create and compile the regex pattern for validating the list value 
-		// i.e [ element1, element2, ..., elementN ]
-		// the regex expression below describes the allowable lists
-		// (^\[(\s*"\w+"\s*,\s*)*(\s*"\w+"\s*)\]$)|(^\[(\s*\w+\s*,\s*)*(\s*\w+\s*)\]$)
-		// (^\[(\s*"\w+"\s*,\s*)*(\s*"\w+"\s*)\]$)|(^\[(\s*\w+(\.\w+)?\s*,\s*)*(\s*-?\w+(\.\w+)?\s*)\]$)
-		final StringBuffer listRegexBuffer = new StringBuffer();
-		// number lists
-		listRegexBuffer.append( "(^" + Pattern.quote( listBegin ) );
-		listRegexBuffer.append( "(\\s*-?\\w+(\\.\\w+)?\\s*" + Pattern.quote( listSeparator ) + "\\s*)*(\\s*-?\\w+(\\.\\w+)?\\s*)" );
-		listRegexBuffer.append( Pattern.quote( listEnd ) + ")$" );
-		// or
-		listRegexBuffer.append( "|" );
-		// string list
-		listRegexBuffer.append( "(^" + Pattern.quote( listBegin ) );
-		listRegexBuffer.append( "(\\s*\"\\w+\"\\s*" + Pattern.quote( listSeparator ) + "\\s*)*(\\s*\"\\w+\"\\s*)" );
-		listRegexBuffer.append( Pattern.quote( listEnd ) + ")$" );
-		listRegex = listRegexBuffer.toString();
-		listPattern = Pattern.compile( listRegex );
 	}
 
 	/**
@@ -174,59 +163,92 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 		this.decorationPattern = renderer.decorationPattern;
 		this.validationRegex = renderer.validationRegex;
 		this.validationPattern = renderer.validationPattern;
-		this.listRegex = renderer.listRegex;
-		this.listPattern = renderer.listPattern;
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * @see org.freezedry.persistence.keyvalue.renderers.CollectionRenderer#buildKeyValuePair(org.freezedry.persistence.tree.InfoNode, java.lang.String, java.util.List, boolean)
+	 * @see org.freezedry.persistence.keyvalue.renderers.CollectionRenderer#buildKeyValuePair(org.freezedry.persistence.tree.InfoNode, java.lang.StringBuilder, org.freezedry.persistence.keyvalue.KeyValueSink, boolean)
 	 */
 	@Override
 	public void buildKeyValuePair( final InfoNode infoNode, 
-								   final String key, 
-								   final List< Pair< String, Object > > keyValues,
+								   final StringBuilder key, 
+								   final KeyValueSink sink,
 								   final boolean isWithholdPersistName )
 	{
 		if( !areAllNodesLeafs( infoNode ) )
 		{
-			super.buildKeyValuePair( infoNode, key, keyValues, isWithholdPersistName );
+			super.buildKeyValuePair( infoNode, key, sink, isWithholdPersistName );
 		}
 		else
 		{
 			// at this point we know that all the nodes are children, since we just checked
-			// so we create the from the previous key and the persistence name of the field
-			final StringBuffer keyBuffer = new StringBuffer( key );
+			// so we create the from the previous key and the persistence name of the field,
+			// which are removed from the key again once the pair is handed to the sink
+			final int keyLength = key.length();
 			if( !isWithholdPersistName )
 			{
-				keyBuffer.append( getPersistenceBuilder().getSeparator() );
+				key.append( getPersistenceBuilder().getSeparator() );
 			}
-			keyBuffer.append( infoNode.getPersistName() ).append( getOpenIndex() ).append( getCloseIndex() );
+			key.append( infoNode.getPersistName() ).append( getOpenIndex() ).append( getCloseIndex() );
 			
-			// now we construct the value in the form of "[ element1, element2, ..., elementN ]"
-			final StringBuffer value = new StringBuffer( listBegin );
-			int index = 0;
+			// now we construct the value in the form of "[ element1, element2, ..., elementN ]". the
+			// elements of a collection usually share their class, and so share their decorator
+			final StringBuilder value = new StringBuilder( listBegin );
+			Class< ? > decoratedClass = null;
+			Decorator decorator = null;
 			final int numChildren = infoNode.getChildCount();
-			for( InfoNode node : infoNode.getChildren() )
+			for( int i = 0; i < numChildren; ++i )
 			{
-				// add the decorated value
-				final Decorator decorator = getDecorator( node.getClazz() );
-				value.append( decorator.decorate( node.getValue() ) );
-				
-				// add a comma between the values if it isn't the last value
-				if( index < numChildren-1 )
+				// add a comma between the values
+				if( i > 0 )
 				{
-					value.append( listSeparator + " " );
+					value.append( listSeparator ).append( ' ' );
+				}
+
+				// add the quoted string, or the decorated value
+				final InfoNode node = infoNode.getChild( i );
+				final Object element = node.getValue();
+				if( element instanceof String || element instanceof Character )
+				{
+					appendQuoted( value, element.toString() );
+				}
+				else
+				{
+					if( decorator == null || node.getClazz() != decoratedClass )
+					{
+						decoratedClass = node.getClazz();
+						decorator = getDecorator( decoratedClass );
+					}
+					value.append( decorator.decorate( element ) );
 				}
-				
-				// increment the counter
-				index++;
 			}
 			value.append( listEnd );
-			keyValues.add( new Pair< String, Object >( keyBuffer.toString(), value.toString() ) );
+			sink.add( key, value.toString() );
+			key.setLength( keyLength );
 		}
 	}
 	
+	/*
+	 * Appends the string, surrounded by quotes, to the value, escaping the quotes and back-slashes in the string
+	 * @param value The value to which to append the quoted string
+	 * @param string The string to quote
+	 */
+	private static void appendQuoted( final StringBuilder value, final String string )
+	{
+		value.append( QUOTE );
+		int start = 0;
+		for( int i = 0; i < string.length(); ++i )
+		{
+			final char c = string.charAt( i );
+			if( c == QUOTE || c == ESCAPE )
+			{
+				value.append( string, start, i ).append( ESCAPE );
+				start = i;
+			}
+		}
+		value.append( string, start, string.length() ).append( QUOTE );
+	}
+
 	/*
 	 * Returns true if all the specified parentNode's (direct) children are leaf nodes; false otherwise.
 	 * @param parentNode The parent node whose children to check
@@ -250,10 +272,10 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 
 	/*
 	 * (non-Javadoc)
-	 * @see org.freezedry.persistence.keyvalue.renderers.CollectionRenderer#buildInfoNode(org.freezedry.persistence.tree.InfoNode, java.util.List)
+	 * @see org.freezedry.persistence.keyvalue.renderers.CollectionRenderer#buildTypedInfoNode(org.freezedry.persistence.tree.InfoNode, java.util.List)
 	 */
 	@Override
-	public void buildInfoNode( final InfoNode parentNode, final List< Pair< String, String > > keyValues )
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		// nothing to do
 		if( keyValues == null || keyValues.isEmpty() )
@@ -265,7 +287,7 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 		// parent collection renderer 
 		if( !areAllFlattenedCollections( keyValues ) )
 		{
-			super.buildInfoNode( parentNode, keyValues );
+			super.buildTypedInfoNode( parentNode, keyValues );
 		}
 		else
 		{
@@ -277,7 +299,7 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 			parentNode.addChild( collectionNode );
 			
 			// run through the list of key-values creating the child nodes for the collection node
-			for( Pair< String, String > keyValue : keyValues )
+			for( Pair< String, ? > keyValue : keyValues )
 			{
 				// grab the key
 				final String key = keyValue.getFirst();
@@ -288,28 +310,29 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 				final Matcher leafMatcher = validationPattern.matcher( key );
 				if( leafMatcher.find() )
 				{
+					// the key of a list that is an element of the collection, such as "collection[1][]", holds
+					// the element's index before the decoration, and its elements belong to their own node
+					InfoNode listNode = collectionNode;
+					if( key.length() - getOpenIndex().length() - getCloseIndex().length() > group.length() )
+					{
+						listNode = InfoNode.createCompoundNode( null, group, null );
+						collectionNode.addChild( listNode );
+					}
+
 					// we should have list represented by "[ element1, element2, ..., elementN ]". We need to
-					// pull apart the elements.
-					final String valueList = keyValue.getSecond();
-					final Matcher listMatcher = listPattern.matcher( valueList );
-					if( listMatcher.find() )
+					// pull apart the elements. a typed list already holds its elements.
+					final Object value = keyValue.getSecond();
+					if( value instanceof Collection )
 					{
-						// create the list of values
-						final List< String > values = parseValueList( valueList );
-						
-						for( String value : values )
+						for( Object element : (Collection< ? >)value )
 						{
-							// its a leaf, so now we need to figure out what the value is. we know that
-							// it must be a number (integer, double) or a string.
-							final Decorator decorator = getDecorator( value); 
-							final String rawValue = decorator.undecorate( value );
-							final String persistName = decorator.representedClass().getSimpleName();
-							
-							// create the leaf info node and add it to the collection node
-							final InfoNode elementNode = InfoNode.createLeafNode( null, rawValue, persistName, null );
-							collectionNode.addChild( elementNode );
+							listNode.addChild( InfoNode.createLeafNode( null, element, getValuePersistName( element ), null ) );
 						}
 					}
+					else
+					{
+						parseValueList( key, String.valueOf( value ), listNode );
+					}
 				}
 			}
 		}
@@ -320,10 +343,10 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 	 * @param keyValues The list of key-value pairs of which to check the keys
 	 * @return true if all the keys have the form of a flattened list; false otherwise
 	 */
-	private boolean areAllFlattenedCollections( final List< Pair< String, String > > keyValues )
+	private boolean areAllFlattenedCollections( final List< ? extends Pair< String, ? > > keyValues )
 	{
 		boolean allFlattened = true;
-		for( Pair< String, String > keyValue : keyValues )
+		for( Pair< String, ? > keyValue : keyValues )
 		{
 			// grab the key
 			final String key = keyValue.getFirst();
@@ -341,33 +364,145 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 	}
 	
 	/*
-	 * Takes a string of the form "[element1, element2, ...., elementN]" and parses it into
-	 * a list of trimmed strings. A list can contain elements that either all strings, or all
-	 * numbers. Strings are represented by surrounding quotes. For example a list of numbers
-	 * could be "[ 1, 3, 4, 7, 9, 11]", and a list of strings "[ "house", "car", "dog", "cat" ]"
-	 * @param valueList The string representation of a list of numbers or a list of strings
-	 * @return A {@link List} of {@link String} that has been tokenized based on the list separator.
+	 * Takes a string of the form "[element1, element2, ...., elementN]" and, in a single pass over its
+	 * characters, adds a leaf node for each element to the collection node. Quoted elements are strings,
+	 * whose escaped quotes and back-slashes are unescaped. The other elements are numbers or booleans, whose
+	 * decorators are found from their text. For example a list of numbers could be "[ 1, 3, 4, 7, 9, 11]",
+	 * and a list of strings "[ "house", "car", "dog", "cat" ]"
+	 * @param key The key of the list, for error messages
+	 * @param valueList The string representation of the list
+	 * @param collectionNode The node to which to add the elements of the list
+	 * @throws IllegalArgumentException if the value isn't a list
 	 */
-	private List< String > parseValueList( final String valueList )
+	private void parseValueList( final String key, final String valueList, final InfoNode collectionNode )
 	{
-		// make a copy of the string
-		String list = new String( valueList );
-		
-		// pull the list begin (default value is "[") and end (default value is "]") string out
-		list = list.replaceAll( "^" + Pattern.quote( listBegin ), "" );
-		list = list.replaceAll( Pattern.quote( listEnd ) + "$", "" );
+		int index = skipWhitespace( valueList, 0 );
+		if( !valueList.startsWith( listBegin, index ) )
+		{
+			throw invalidList( key, valueList, index, "Expected \"" + listBegin + "\"" );
+		}
+		index = skipWhitespace( valueList, index + listBegin.length() );
 
-		// tokenize by the list separator
-		final String[] valueArray = list.split( Pattern.quote( listSeparator ) );
-		
-		// trim each string and add it to the array list
-		final List< String > values = new ArrayList<>();
-		for( String value : valueArray )
+		// an empty list has no elements
+		boolean isEnd = valueList.startsWith( listEnd, index );
+		if( isEnd )
 		{
-			values.add( value.trim() );
+			index += listEnd.length();
 		}
-		
-		return values;
+		while( !isEnd )
+		{
+			index = skipWhitespace( valueList, index );
+			final int start = index;
+			if( index < valueList.length() && valueList.charAt( index ) == QUOTE )
+			{
+				index = parseQuoted( key, valueList, index, collectionNode );
+			}
+			else
+			{
+				// numbers and booleans end at the separator, the end of the list, or white space
+				while( index < valueList.length() && !valueList.startsWith( listSeparator, index ) &&
+					   !valueList.startsWith( listEnd, index ) && !Character.isWhitespace( valueList.charAt( index ) ) )
+				{
+					++index;
+				}
+				if( index == start )
+				{
+					throw invalidList( key, valueList, index, "Missing element" );
+				}
+
+				final String value = valueList.substring( start, index );
+				final Decorator decorator = getValueDecorator( value );
+				final String persistName = decorator.representedClass().getSimpleName();
+				collectionNode.addChild( InfoNode.createLeafNode( null, decorator.undecorate( value ), persistName, null ) );
+			}
+
+			// the element must be followed by a separator or the end of the list
+			index = skipWhitespace( valueList, index );
+			if( valueList.startsWith( listSeparator, index ) )
+			{
+				index += listSeparator.length();
+			}
+			else if( valueList.startsWith( listEnd, index ) )
+			{
+				index += listEnd.length();
+				isEnd = true;
+			}
+			else
+			{
+				throw invalidList( key, valueList, index, "Expected \"" + listSeparator + "\" or \"" + listEnd + "\"" );
+			}
+		}
+
+		if( skipWhitespace( valueList, index ) != valueList.length() )
+		{
+			throw invalidList( key, valueList, index, "Unexpected text after the list" );
+		}
+	}
+
+	/*
+	 * Parses the quoted string that starts at the specified index, and adds its leaf node to the collection node.
+	 * The string is copied out of the list once, and only built up when it holds escaped characters.
+	 * @param key The key of the list, for error messages
+	 * @param valueList The string representation of the list
+	 * @param index The index of the opening quote
+	 * @param collectionNode The node to which to add the string
+	 * @return The index following the closing quote
+	 */
+	private static int parseQuoted( final String key, final String valueList, final int index, final InfoNode collectionNode )
+	{
+		StringBuilder unescaped = null;
+		int start = index + 1;
+		int end = start;
+		while( end < valueList.length() && valueList.charAt( end ) != QUOTE )
+		{
+			if( valueList.charAt( end ) == ESCAPE && end + 1 < valueList.length() )
+			{
+				if( unescaped == null )
+				{
+					unescaped = new StringBuilder();
+				}
+				unescaped.append( valueList, start, end );
+				start = end + 1;
+				++end;
+			}
+			++end;
+		}
+		if( end == valueList.length() )
+		{
+			throw invalidList( key, valueList, index, "Missing closing quote" );
+		}
+
+		final String value = unescaped == null ? valueList.substring( start, end ) : unescaped.append( valueList, start, end ).toString();
+		collectionNode.addChild( InfoNode.createLeafNode( null, value, String.class.getSimpleName(), null ) );
+		return end + 1;
+	}
+
+	/*
+	 * @return The index of the first character, at or after the specified index, that isn't white space
+	 */
+	private static int skipWhitespace( final String value, final int index )
+	{
+		int i = index;
+		while( i < value.length() && Character.isWhitespace( value.charAt( i ) ) )
+		{
+			++i;
+		}
+		return i;
+	}
+
+	/*
+	 * Creates the exception for a value that isn't a flattened list
+	 */
+	private static IllegalArgumentException invalidList( final String key, final String valueList, final int index, final String error )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( "The value of a flattened collection isn't a valid list." ).append( Constants.NEW_LINE );
+		message.append( "  Key: " ).append( key ).append( Constants.NEW_LINE );
+		message.append( "  Value: " ).append( valueList ).append( Constants.NEW_LINE );
+		message.append( "  Position: " ).append( index ).append( Constants.NEW_LINE );
+		message.append( "  Error: " ).append( error );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString() );
 	}
 
 	/*
@@ -384,6 +519,17 @@ public class FlatteningCollectionRenderer extends CollectionRenderer {
 		return isThisRenderer || isParentRenderer;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.CollectionRenderer#getKeyElementRegex()
+	 */
+	@Override
+	public String getKeyElementRegex()
+	{
+		// claims the key elements claimed by either this renderer's or the parent's expression
+		return "(?:" + validationRegex + ")|(?:" + super.getKeyElementRegex() + ")";
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer#getGroupName(java.lang.String)
@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueListSink;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.decorators.Decorator;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
@@ -31,6 +33,10 @@ import org.freezedry.persistence.utils.Constants;
 public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger( LeafNodeRenderer.class );
+
+	// leaf key elements are undecorated persistence names
+	private static final String KEY_ELEMENT_REGEX = "^[\\w\\_]+$";
+	private static final Pattern KEY_ELEMENT_PATTERN = Pattern.compile( KEY_ELEMENT_REGEX );
 	
 	/**
 	 * Constructs a {@link LeafNodeRenderer} that is used to render {@link InfoNode} representing
@@ -73,6 +79,16 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 	 */
 	@Override
 	public void buildKeyValuePair( final InfoNode infoNode, final String key, final List< Pair< String, Object > > keyValues, final boolean isWithholdPersistName )
+	{
+		buildKeyValuePair( infoNode, new StringBuilder( key ), new KeyValueListSink( keyValues ), isWithholdPersistName );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#buildKeyValuePair(org.freezedry.persistence.tree.InfoNode, java.lang.StringBuilder, org.freezedry.persistence.keyvalue.KeyValueSink, boolean)
+	 */
+	@Override
+	public void buildKeyValuePair( final InfoNode infoNode, final StringBuilder key, final KeyValueSink sink, final boolean isWithholdPersistName )
 	{
 		// ensure that the info node is a leaf
 		if( !infoNode.isLeafNode() )
@@ -89,11 +105,11 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 			throw new IllegalArgumentException( message.toString() );
 		}
 		
-		// create the front part of the key
-		String newKey = key;
+		// append the persistence name to the key, which is removed again once the pair is handed to the sink
+		final int keyLength = key.length();
 		if( !isWithholdPersistName && infoNode.getPersistName() != null && !infoNode.getPersistName().isEmpty() )
 		{
-			newKey += getPersistenceBuilder().getSeparator() + infoNode.getPersistName();
+			key.append( getPersistenceBuilder().getSeparator() ).append( infoNode.getPersistName() );
 		}
 		
 		// find the decorator, if one exists, that is associated with the class
@@ -108,7 +124,8 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 		{
 			value = object.toString();
 		}
-		keyValues.add( new Pair< String, Object >( newKey, value ) );
+		sink.add( key, value );
+		key.setLength( keyLength );
 	}
 
 	/*
@@ -117,6 +134,16 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 	 */
 	@Override
 	public void buildInfoNode( final InfoNode parentNode, final List< Pair< String, String > > keyValues )
+	{
+		buildTypedInfoNode( parentNode, keyValues );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#buildTypedInfoNode(org.freezedry.persistence.tree.InfoNode, java.util.List)
+	 */
+	@Override
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		// make sure there is one and ONLY one key-value pair
 		if( keyValues.size() != 1 )
@@ -132,7 +159,7 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 			else
 			{
 				message.append( keyValues.size() ).append( Constants.NEW_LINE );
-				for( Pair<String, String> keyValue : keyValues )
+				for( Pair< String, ? > keyValue : keyValues )
 				{
 					message.append( "    " ).append( keyValue ).append( Constants.NEW_LINE );
 				}
@@ -142,20 +169,11 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 		}
 		
 		final String key = keyValues.get( 0 ).getFirst();
-		final String value = keyValues.get( 0 ).getSecond();
+		final Object value = keyValues.get( 0 ).getSecond();
 
 		// grab the decorator for the value. if no decorator is found, then use the raw value as is, which
-		// means that it'll be treated as a string value
-		final Decorator decorator = getDecorator( value );
-		String rawValue;
-		if( decorator == null )
-		{
-			rawValue = value;
-		}
-		else
-		{
-			rawValue = decorator.undecorate( value );
-		}
+		// means that it'll be treated as a string value. typed values are used as they are.
+		final Object rawValue = undecorateValue( value );
 		final InfoNode node = InfoNode.createLeafNode( null, rawValue, key, null );
 		parentNode.addChild( node );
 	}
@@ -167,7 +185,17 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 	@Override
 	public boolean isRenderer( String keyElement )
 	{
-		return Pattern.matches( "^[\\w\\_]+$", keyElement );
+		return KEY_ELEMENT_PATTERN.matcher( keyElement ).matches();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#getKeyElementRegex()
+	 */
+	@Override
+	public String getKeyElementRegex()
+	{
+		return KEY_ELEMENT_REGEX;
 	}
 
 	/*
@@ -177,8 +205,7 @@ public class LeafNodeRenderer extends AbstractPersistenceRenderer {
 	@Override
 	public String getGroupName( final String key )
 	{
-		final Pattern decorationPattern = Pattern.compile( "^[\\w\\_]+$" );
-		final Matcher matcher = decorationPattern.matcher( key );
+		final Matcher matcher = KEY_ELEMENT_PATTERN.matcher( key );
 		String group = null;
 		if( matcher.find() )
 		{
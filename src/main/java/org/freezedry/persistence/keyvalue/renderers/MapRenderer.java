@@ -27,7 +27,10 @@ import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.annotations.PersistMap;
 import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueListSink;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.decorators.StringDecorator;
+import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.utils.ReflectionUtils;
@@ -57,6 +60,10 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 
 	public static final String OPEN = "{";
 	public static final String CLOSE = "}";
+
+	// the closing quote of one map key followed by the opening quote of the next, ignoring spaces,
+	// for example, the "}{" in groups{"numbers"}{"one"}
+	private static final Pattern MAP_OF_MAPS_PATTERN = Pattern.compile( "\" *\\} *\\{ *\"" );
 	
 	private String mapEntryName = PersistMap.ENTRY_PERSIST_NAME;
 	private String mapKeyName = PersistMap.KEY_PERSIST_NAME;
@@ -92,8 +99,9 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		final String open = Pattern.quote( openKey );
 		final String close = Pattern.quote( closeKey );
 
-		// create and compile the regex pattern for the decoration
-		decorationRegex = open + "[\\p{Graph}\\p{Space}]+" + close;
+		// create and compile the regex pattern for the decoration (the POSIX classes only cover ASCII,
+		// so the key's non-ASCII characters, including the surrogates of supplementary characters, are added)
+		decorationRegex = open + "[\\p{Graph}\\p{Space}[^\\p{ASCII}]]+" + close;
 		decorationPattern = Pattern.compile( decorationRegex );
 
 		// create and compile the regex pattern for validating the complete key
@@ -195,6 +203,25 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 								   final String key, 
 								   final List< Pair< String, Object > > keyValues, 
 								   final boolean isWithholdPersistName )
+	{
+		buildKeyValuePair( infoNode, new StringBuilder( key ), new KeyValueListSink( keyValues ), isWithholdPersistName );
+	}
+
+	/**
+	 * Builds the key-value pairs and hands them to the sink. If the {@link InfoNode} is compound, then the
+	 * {@link PersistenceRenderer} may refer back to the {@link KeyValueBuilder} to build out the compound node.
+	 * @param infoNode The current {@link InfoNode} in the semantic model.
+	 * @param key The key buffer. The persistence names, which may or may not be decorated, are appended to the
+	 * key, and are removed again once the key-value pairs are handed to the sink.
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 * @param isWithholdPersistName true if the renderer implementation should not append the
+	 * {@link InfoNode}'s persistence name to the key.
+	 */
+	@Override
+	public void buildKeyValuePair( final InfoNode infoNode, 
+								   final StringBuilder key, 
+								   final KeyValueSink sink, 
+								   final boolean isWithholdPersistName )
 	{
 		// [Division:months{January}[0], 1]
 		// [Division:months{January}[1], 2]
@@ -249,8 +276,10 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 					throw new IllegalStateException( message );
 				}
 				
-				// no we can continue to parse the nodes.
-				String newKey = createNodeKey( key, infoNode, isWithholdPersistName );
+				// no we can continue to parse the nodes. the persistence name and the decorated map key are
+				// appended to the key, and are removed again once the pairs of the entry are handed to the sink
+				final int keyLength = key.length();
+				appendNodeKey( key, infoNode, isWithholdPersistName );
 				if( keyNode.isLeafNode() )
 				{
 					final Object object = keyNode.getValue();
@@ -265,25 +294,23 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 					{
 						value = object.toString();
 					}
-					newKey += keyDecorator.decorate( value );
+					key.append( keyDecorator.decorate( value ) );
 
 					// create the key-value pair and return it. we know that we have value node, and that
 					// the persistence name of the value is "Value" or something else set by the user. we
 					// don't want to write that out, so we simply remove the value from the node.
-					getPersistenceBuilder().createKeyValuePairs( valueNode, newKey, keyValues, true );
+					createKeyValuePairs( valueNode, key, sink, true );
+					key.setLength( keyLength );
 				}
 				else
 				{
 					// TODO currently we have a slight problem here for compound keys.
 					final StringBuilder message = new StringBuilder();
 					message.append( "The MapRenderer doesn't allow compound (composite) keys at this point." ).append( Constants.NEW_LINE );
-					message.append( "  Current Key: " ).append( newKey ).append( Constants.NEW_LINE );
+					message.append( "  Current Key: " ).append( key ).append( Constants.NEW_LINE );
 					LOGGER.error( message.toString() );
 					throw new IllegalStateException( message.toString() );
 				}
-				
-				// mark the node as processed so that it doesn't get processed again
-				node.setIsProcessed( true );
 			}
 			else
 			{
@@ -298,20 +325,17 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 	}
 
 	/**
-	 * Creates a new key based on the specified key and the persistence name found in the info node
-	 * @param key The current key
+	 * Appends the persistence name found in the info node to the key
+	 * @param key The key buffer to which to append the persistence name
 	 * @param node The {@link InfoNode}
 	 * @param isHidePersistName set to {@code true} if the persistence name should be hidded; {@code false} to show it
-	 * @return a new key based on the specified key and the persistence name found in the info node
 	 */
-	private String createNodeKey( final String key, final InfoNode node, final boolean isHidePersistName )
+	private void appendNodeKey( final StringBuilder key, final InfoNode node, final boolean isHidePersistName )
 	{
-		String newKey = key;
 		if( node.getPersistName() != null && !node.getPersistName().isEmpty() && !isHidePersistName )
 		{
-			newKey += getPersistenceBuilder().getSeparator() + node.getPersistName();
+			key.append( getPersistenceBuilder().getSeparator() ).append( node.getPersistName() );
 		}
-		return newKey;
 	}
 
 	/*
@@ -320,6 +344,16 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 	 */
 	@Override
 	public void buildInfoNode( final InfoNode parentNode, final List< Pair< String, String > > keyValues )
+	{
+		buildTypedInfoNode( parentNode, keyValues );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#buildTypedInfoNode(org.freezedry.persistence.tree.InfoNode, java.util.List)
+	 */
+	@Override
+	public void buildTypedInfoNode( final InfoNode parentNode, final List< ? extends Pair< String, ? > > keyValues )
 	{
 		// nothing to do
 		if( keyValues == null || keyValues.isEmpty() )
@@ -334,20 +368,11 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		final InfoNode mapNode = InfoNode.createCompoundNode( null, group, null );
 		parentNode.addChild( mapNode );
 		
-		// construct the patterns to determine if the node should be a compound node,
-		// in which case we recurse back to the builder, or a leaf node, in which case
-		// we simply create it here and add it to the collection node
-		final String compoundRegex = "^" + group + decorationRegex;
-		final Pattern compoundPattern = Pattern.compile( compoundRegex );
-
-		final String leafRegex = compoundRegex + "$";
-		final Pattern leafPattern = Pattern.compile( leafRegex );
-		
 		// we want to have groups by the map key. the map key is the map key in the key-value pair that.
 		// for example, in friends{"Polly"}, the map key is "Polly" (including the quotes). then we
 		// can parse each group into its proper node.
-		final Map< String, List< Pair< String, String > > > mapKeyGroups = getMapKeyGroups( keyValues );
-		for( Map.Entry< String, List< Pair< String, String > > > entry : mapKeyGroups.entrySet() )
+		final Map< String, List< Pair< String, ? > > > mapKeyGroups = getMapKeyGroups( keyValues );
+		for( Map.Entry< String, List< Pair< String, ? > > > entry : mapKeyGroups.entrySet() )
 		{
 			// for each group, i.e. each key, we need a map entry node attached to the map node.
 			final InfoNode mapEntryNode = InfoNode.createCompoundNode( null, mapEntryName, null );
@@ -357,9 +382,9 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 			final String mapKey = entry.getKey();
 			
 			// run through the list of key-values creating the child nodes for the map-entry node
-			final List< Pair< String, String > > keyValueGroup = entry.getValue();
-			final List< Pair< String, String > > copiedKeyValues = new ArrayList<>( keyValueGroup );
-			for( Pair< String, String > keyValue : keyValueGroup )
+			final List< Pair< String, ? > > keyValueGroup = entry.getValue();
+			final List< Pair< String, ? > > copiedKeyValues = new ArrayList<>( keyValueGroup );
+			for( Pair< String, ? > keyValue : keyValueGroup )
 			{
 				// check to see if any items have been removed from the list. this could happen
 				// when there is a compound node that we have combined, and removed all the entries
@@ -372,41 +397,40 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 				// grab the key
 				final String key = keyValue.getFirst();
 				
-				// we must figure out whether this is a compound node or a leaf node
-				final Matcher compoundMatcher = compoundPattern.matcher( key );
-				final Matcher leafMatcher = leafPattern.matcher( key );
-				final String trimmedKey = key.replaceAll( " ", "" );
-				if( leafMatcher.find() && !trimmedKey.contains( "\"}{\"" ) )
+				// we must figure out whether this is a compound node or a leaf node. the key of a leaf node
+				// ends with the decorated map key that follows the group name, and the key of a compound node
+				// continues past it, in which case we recurse back to the builder
+				final Matcher matcher = matchMapKey( group, key );
+				if( matcher != null && matcher.end() == key.length() && !isMapOfMapsKey( key ) )
 				{
 					// its a leaf, create the key node
-					final String rawMapKey = getDecorator( mapKey ).undecorate( mapKey );
+					final String rawMapKey = getValueDecorator( mapKey ).undecorate( mapKey );
 					final InfoNode keyNode = InfoNode.createLeafNode( null, rawMapKey, mapKeyName, null );
 					mapEntryNode.addChild( keyNode );
 					
 					// so now we need to figure out what the value is. we know that
 					// it must be a number (integer, double) or a string.
-					final String value = keyValue.getSecond();
-					final String rawValue = getDecorator( value ).undecorate( value );
+					final Object rawValue = undecorateValue( keyValue.getSecond() );
 					
 					// create the leaf info node and add it to the collection node
 					final InfoNode valueNode = InfoNode.createLeafNode( null, rawValue, mapValueName, null );
 					mapEntryNode.addChild( valueNode );
 				}
-				else if( compoundMatcher.find() )
+				else if( matcher != null )
 				{
 					// its a compound node, create the key node
-					final String rawMapKey = getDecorator( mapKey ).undecorate( mapKey );
+					final String rawMapKey = getValueDecorator( mapKey ).undecorate( mapKey );
 					final InfoNode keyNode = InfoNode.createLeafNode( null, rawMapKey, mapKeyName, null );
 					mapEntryNode.addChild( keyNode );
 					
 					// in this case, we'll have several entries that have the same index, so
 					// we'll need to pull those out and put them into a new key-value list
 					final String separator = getPersistenceBuilder().getSeparator();
-					final List< Pair< String, String > > mapValueKeyValues = new ArrayList<>();
-					for( Pair< String, String > copiedKeyValue : keyValues )
+					final String keyFirstElement = extractMapKeyPart( KeyValueUtils.getFirstKeyElement( key, separator ) );
+					final List< Pair< String, ? > > mapValueKeyValues = new ArrayList<>();
+					for( Pair< String, ? > copiedKeyValue : keyValues )
 					{
 						final String copiedKey = copiedKeyValue.getFirst();
-						final String keyFirstElement = extractMapKeyPart( key.split( Pattern.quote( separator ) )[ 0 ] ); 
 						if( copiedKey.startsWith( keyFirstElement ) )
 						{
 							// strip the first element off the key. this could mean one of three things:
@@ -432,7 +456,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 					}
 					
 					// call the builder (which called this method) to build the compound node
-					getPersistenceBuilder().createInfoNode( mapEntryNode, mapValueName, mapValueKeyValues );
+					createInfoNode( mapEntryNode, mapValueName, mapValueKeyValues );
 				}
 				else
 				{
@@ -448,6 +472,33 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		}
 	}
 	
+	/*
+	 * Matches the decorated map key that directly follows the group name at the start of the key. For example,
+	 * for the group name <code>friends</code>, matches the <code>{"Polly"}</code> in <code>friends{"Polly"}</code>.
+	 * @param group The group name of the map
+	 * @param key The key of the map entry
+	 * @return the matcher positioned on the decorated map key; or null if the key doesn't start with the group
+	 * name followed by a decorated map key
+	 */
+	private Matcher matchMapKey( final String group, final String key )
+	{
+		if( group == null || !key.startsWith( group ) )
+		{
+			return null;
+		}
+		final Matcher matcher = decorationPattern.matcher( key ).region( group.length(), key.length() );
+		return matcher.lookingAt() ? matcher : null;
+	}
+
+	/*
+	 * Returns true if the key is the key of an entry of a map whose values are maps, for example,
+	 * <code>groups{"numbers"}{"one"}</code>; false otherwise
+	 */
+	private static boolean isMapOfMapsKey( final String key )
+	{
+		return MAP_OF_MAPS_PATTERN.matcher( key ).find();
+	}
+
 	/**
 	 * Extracts the map keys and creates a {@link Map} that has as its keys these map keys. The values are the
 	 * key-value pairs associated with each of these map keys. For leaf nodes, the list of key-value pairs will
@@ -455,10 +506,10 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 	 * @param keyValues The list of key values for the group.
 	 * @return a {@link Map} whose keys are the map keys in the list of key-value pairs
 	 */
-	private Map< String, List< Pair< String, String > > > getMapKeyGroups( final List< Pair< String, String > > keyValues )
+	private Map< String, List< Pair< String, ? > > > getMapKeyGroups( final List< ? extends Pair< String, ? > > keyValues )
 	{
-		final Map< String, List< Pair< String, String > > > keyGroups = new LinkedHashMap<>();
-		for( Pair< String, String > keyValue : keyValues )
+		final Map< String, List< Pair< String, ? > > > keyGroups = new LinkedHashMap<>();
+		for( Pair< String, ? > keyValue : keyValues )
 		{
 			final String mapKey = extractGroupMapKey( keyValue.getFirst() );
 			if( keyGroups.containsKey( mapKey ) )
@@ -467,7 +518,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 			}
 			else
 			{
-				final List< Pair< String, String > > keyValueList = new ArrayList<>();
+				final List< Pair< String, ? > > keyValueList = new ArrayList<>();
 				keyValueList.add( keyValue );
 				keyGroups.put( mapKey, keyValueList );
 			}
@@ -489,7 +540,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		if( matcher.find() )
 		{
 			int end = matcher.end();
-			if( key.replaceAll( " ", "" ).contains( "\"}{\"" ) )
+			if( isMapOfMapsKey( key ) )
 			{
 				end = key.indexOf( "}" ) + 1;
 			}
@@ -511,7 +562,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		if( matcher.find() )
 		{
 			int end = matcher.end();
-			if( key.replaceAll( " ", "" ).contains( "\"}{\"" ) )
+			if( isMapOfMapsKey( key ) )
 			{
 				end = key.indexOf( "}" ) + 1;
 			}
@@ -533,7 +584,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		if( matcher.find() )
 		{
 			int end = matcher.end();
-			if( key.replaceAll( " ", "" ).contains( "\"}{\"" ) )
+			if( isMapOfMapsKey( key ) )
 			{
 				end = key.indexOf( "}" ) + 1;
 			}
@@ -554,7 +605,7 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 		String remainder = removeMapKeyPart( key );
 		if( remainder.startsWith( separator ) )
 		{
-			remainder = remainder.replaceAll( "^" + Pattern.quote( separator ), "" );
+			remainder = remainder.substring( separator.length() );
 		}
 		return remainder;
 	}
@@ -568,6 +619,16 @@ public class MapRenderer extends AbstractPersistenceRenderer {
 	{
 		return validationPattern.matcher( keyElement ).find();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.renderers.AbstractPersistenceRenderer#getKeyElementRegex()
+	 */
+	@Override
+	public String getKeyElementRegex()
+	{
+		return validationRegex;
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -18,7 +18,8 @@ package org.freezedry.persistence.keyvalue.renderers.decorators;
 /**
  * Decorator that converts a boolean into a String. The default behavior is to convert
  * a boolean value of {@code true} into a {@link String} "{@code true}"; and a boolean 
- * value of {@code false} into a {@link String} "{@code false}". 
+ * value of {@code false} into a {@link String} "{@code false}". The decorator is immutable, and
+ * therefore thread safe.
  * 
  * @author Robert Philipp
  */
@@ -27,8 +28,8 @@ public class BooleanDecorator implements Decorator {
 	private final static String TRUE = "true";
 	private final static String FALSE = "false";
 	
-	private String trueString;
-	private String falseString;
+	private final String trueString;
+	private final String falseString;
 	
 	/**
 	 * Constructs a {@link BooleanDecorator} that sets converts a boolean into a {@link String}.
@@ -113,7 +114,8 @@ public class BooleanDecorator implements Decorator {
 	@Override
 	public BooleanDecorator getCopy()
 	{
-		return new BooleanDecorator( this );
+		// immutable, and so can be shared
+		return this;
 	}
 
 }
@@ -16,21 +16,27 @@
 package org.freezedry.persistence.keyvalue.renderers.decorators;
 
 import java.text.DecimalFormat;
-import java.text.ParseException;
+import java.text.ParsePosition;
+
+import org.freezedry.persistence.utils.NumberUtils;
 
 /**
- * {@link Decorator} that formats an {@link Double}. The default format is to format
- * the {@link Integer} with a decimal point and must have at least one digit to the right
- * of the decimal point, and has exactly three digits to the left of the decimal point. 
- * However, a different format may be specified.
+ * {@link Decorator} that formats an {@link Double}. The default format is the one written by
+ * {@link Double#toString()}, and recognizes any decimal number that has a fractional part or an
+ * exponent, so that integers are left to the {@link IntegerDecorator}. However, a different format
+ * may be specified.<p>
+ * 
+ * In the default format, values are recognized by scanning their characters, without parsing them
+ * and without exceptions. The decorator is thread safe; a specified format is copied, and its (not
+ * thread safe) {@link DecimalFormat} is used by one thread at a time. Only the deprecated
+ * {@link #setFormatter(DecimalFormat)} changes the decorator, and so it doesn't share itself as a copy.
  * 
  * @author Robert Philipp
  */
 public class DoubleDecorator implements Decorator {
 
-	private static DecimalFormat FORMATTER = new DecimalFormat( "#0.000" );
-	
-	private DecimalFormat formatter;
+	// null for the default format
+	private volatile DecimalFormat formatter;
 	
 	/**
 	 * Constructs a {@link Decorator} that formats an {@link Double}.
@@ -38,17 +44,16 @@ public class DoubleDecorator implements Decorator {
 	 */
 	public DoubleDecorator( final DecimalFormat formatter )
 	{
-		this.formatter = formatter;
+		this.formatter = (DecimalFormat)formatter.clone();
 	}
 	
 	/**
-	 * Constructs a {@link Decorator} that formats an {@link Integer} with the default
-	 * format, which is a decimal point and must have at least one digit to the right
-	 * of the decimal point, and has exactly three digits to the left of the decimal point.
+	 * Constructs a {@link Decorator} that formats an {@link Double} with the default
+	 * format, which is the one written by {@link Double#toString()}.
 	 */
 	public DoubleDecorator()
 	{
-		this( FORMATTER );
+		this.formatter = null;
 	}
 	
 	/**
@@ -62,13 +67,16 @@ public class DoubleDecorator implements Decorator {
 
 	/**
 	 * Sets the formatter for the {@link Double}. Overwrites the default formatter
-	 * @param formatter The {@link DecimalFormat} for formatting the decimal
+	 * @param formatter The {@link DecimalFormat} for formatting the decimal, which is copied
+	 * @deprecated Use the {@link #DoubleDecorator(DecimalFormat)} constructor instead. A decorator that is
+	 * already held by a renderer may be in use by other threads while its format changes.
 	 */
+	@Deprecated
 	public void setFormatter( final DecimalFormat formatter )
 	{
-		this.formatter = formatter;
+		this.formatter = (DecimalFormat)formatter.clone();
 	}
-	
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.keyvalue.renderers.decorators.Decorator#decorate(java.lang.Object)
@@ -76,7 +84,15 @@ public class DoubleDecorator implements Decorator {
 	@Override
 	public String decorate( final Object object )
 	{
-		return object.toString();
+		final DecimalFormat formatter = this.formatter;
+		if( formatter == null )
+		{
+			return object.toString();
+		}
+		synchronized( formatter )
+		{
+			return formatter.format( (Number)object );
+		}
 	}
 
 	/*
@@ -101,15 +117,19 @@ public class DoubleDecorator implements Decorator {
 	@Override
 	public boolean isDecorated( final String value )
 	{
-		boolean isDecorated = false;
-		try
+		final DecimalFormat formatter = this.formatter;
+		if( formatter == null )
+		{
+			return NumberUtils.isDecimal( value ) && !NumberUtils.isInteger( value, Long.MIN_VALUE, Long.MAX_VALUE );
+		}
+
+		// the whole value must be parsed, not just a leading number
+		final ParsePosition position = new ParsePosition( 0 );
+		synchronized( formatter )
 		{
-			formatter.parse( value );
-			isDecorated = true;
+			formatter.parse( value, position );
 		}
-		catch( ParseException e ) {}
-		
-		return isDecorated;
+		return !value.isEmpty() && position.getIndex() == value.length();
 	}
 
 	/*
@@ -16,20 +16,25 @@
 package org.freezedry.persistence.keyvalue.renderers.decorators;
 
 import java.text.DecimalFormat;
-import java.text.ParseException;
+import java.text.ParsePosition;
+
+import org.freezedry.persistence.utils.NumberUtils;
 
 /**
  * {@link Decorator} that formats an {@link Integer}. The default format is to format
  * the {@link Integer} with no decimal point and must have at least one digit. However,
- * a different format may be specified.
+ * a different format may be specified.<p>
+ * 
+ * In the default format, values are recognized by scanning their characters, without parsing them
+ * and without exceptions. The decorator is immutable, and therefore thread safe; a specified format
+ * is copied, and its (not thread safe) {@link DecimalFormat} is used by one thread at a time.
  * 
  * @author Robert Philipp
  */
 public class IntegerDecorator implements Decorator {
 
-	private static DecimalFormat FORMATTER = new DecimalFormat( "#0" );
-	
-	private DecimalFormat formatter;
+	// null for the default format
+	private final DecimalFormat formatter;
 	
 	/**
 	 * Constructs a {@link Decorator} that formats an {@link Integer}.
@@ -37,7 +42,7 @@ public class IntegerDecorator implements Decorator {
 	 */
 	public IntegerDecorator( final DecimalFormat formatter )
 	{
-		this.formatter = formatter;
+		this.formatter = (DecimalFormat)formatter.clone();
 	}
 	
 	/**
@@ -46,7 +51,7 @@ public class IntegerDecorator implements Decorator {
 	 */
 	public IntegerDecorator()
 	{
-		this( FORMATTER );
+		this.formatter = null;
 	}
 	
 	/**
@@ -63,9 +68,16 @@ public class IntegerDecorator implements Decorator {
 	 * @see org.freezedry.persistence.keyvalue.renderers.decorators.Decorator#decorate(java.lang.Object)
 	 */
 	@Override
-	public String decorate( Object object )
+	public String decorate( final Object object )
 	{
-		return formatter.format( (Number)object );
+		if( formatter == null )
+		{
+			return object.toString();
+		}
+		synchronized( formatter )
+		{
+			return formatter.format( (Number)object );
+		}
 	}
 
 	/*
@@ -90,15 +102,18 @@ public class IntegerDecorator implements Decorator {
 	@Override
 	public boolean isDecorated( final String value )
 	{
-		boolean isDecorated = false;
-		try
+		if( formatter == null )
+		{
+			return NumberUtils.isInteger( value, Long.MIN_VALUE, Long.MAX_VALUE );
+		}
+
+		// the whole value must be parsed, not just a leading number
+		final ParsePosition position = new ParsePosition( 0 );
+		synchronized( formatter )
 		{
-			formatter.parse( value );
-			isDecorated = true;
+			formatter.parse( value, position );
 		}
-		catch( ParseException e ) {}
-		
-		return isDecorated;
+		return !value.isEmpty() && position.getIndex() == value.length();
 	}
 
 	/*
@@ -118,7 +133,8 @@ public class IntegerDecorator implements Decorator {
 	@Override
 	public IntegerDecorator getCopy()
 	{
-		return new IntegerDecorator( this );
+		// immutable, and so can be shared
+		return this;
 	}
 
 }
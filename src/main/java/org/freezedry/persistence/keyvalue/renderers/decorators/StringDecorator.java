@@ -15,15 +15,13 @@
  */
 package org.freezedry.persistence.keyvalue.renderers.decorators;
 
-import java.util.regex.Pattern;
-
-
 /**
  * A {@link Decorator} that surrounds a {@link String} with quotes. For example,
  * if the value of the {@link String} was {@code house} this method would return {@code "house"}.
  * The default decoration is to prepend the {@link String} with a quote ({@code "}) and append
  * a quote to the {@link String}. However, the prepended and appended {@link String} can be set
  * to other values. For example, one could surround the {@link String} with parantheses or curly-braces.
+ * The decorator is immutable, and therefore thread safe.
  * 
  * @author Robert Philipp
  */
@@ -31,8 +29,8 @@ public class StringDecorator implements Decorator {
 
 	private final static String QUOTE = "\"";
 	
-	private String open;
-	private String close;
+	private final String open;
+	private final String close;
 	
 	/**
 	 * Constructs a {@link StringDecorator} that sets the prepending and appending {@link String}
@@ -86,7 +84,7 @@ public class StringDecorator implements Decorator {
 	@Override
 	public boolean isDecorated( final String value )
 	{
-		return value.startsWith( open ) && value.endsWith( close ) && value.length() > 1;
+		return value.length() >= open.length() + close.length() && value.startsWith( open ) && value.endsWith( close );
 	}
 	
 	/*
@@ -99,7 +97,8 @@ public class StringDecorator implements Decorator {
 		String undecorated = null;
 		if( isDecorated( value ) )
 		{
-			undecorated = value.replaceAll( Pattern.quote( open ) + "*" + Pattern.quote( close ) + "*", "" );
+			// only the outer decoration is removed, so that quotes within the string survive
+			undecorated = value.substring( open.length(), value.length() - close.length() );
 		}
 		return undecorated;
 	}
@@ -121,7 +120,8 @@ public class StringDecorator implements Decorator {
 	@Override
 	public StringDecorator getCopy()
 	{
-		return new StringDecorator( this );
+		// immutable, and so can be shared
+		return this;
 	}
 
 }
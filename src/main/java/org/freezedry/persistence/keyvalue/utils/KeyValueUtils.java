@@ -2,12 +2,16 @@ package org.freezedry.persistence.keyvalue.utils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class KeyValueUtils {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueUtils.class );
+
 	/**
 	 * Strips the first key-element from each key in the specified {@link List} of key-value pairs. Returns
 	 * a new list that contains the key-value pairs for which the keys have been stripped of their first element.
@@ -24,7 +28,7 @@ public class KeyValueUtils {
 			final String strippedKey = stripFirstKeyElement( pair.getFirst(), keyElementSeparator );
 			
 			// add the new key and the old value to the list of stripped keys
-			strippedKeyValues.add( new Pair< String, String >( strippedKey, pair.getSecond() ) );
+			strippedKeyValues.add( new Pair<>( strippedKey, pair.getSecond() ) );
 		}
 		
 		return strippedKeyValues;
@@ -38,21 +42,19 @@ public class KeyValueUtils {
 	 */
 	public static String stripFirstKeyElement( final String key, final String separator )
 	{
-		// grab the elements of the key
-		final String[] elements = key.split( Pattern.quote( separator ) );
-		
-		// create a key that has the first key element stripped off
-		final StringBuffer strippedKey = new StringBuffer();
-		for( int i = 1; i < elements.length; ++i )
+		// the stripped key starts after the first separator, and as when splitting the key into its
+		// elements, trailing empty elements are dropped
+		final int start = key.indexOf( separator );
+		if( start < 0 )
 		{
-			strippedKey.append( elements[ i ] );
-			if( i < elements.length-1 )
-			{
-				strippedKey.append( separator );
-			}
+			return "";
 		}
-		
-		return strippedKey.toString();
+		int end = key.length();
+		while( end > start + separator.length() && key.startsWith( separator, end - separator.length() ) )
+		{
+			end -= separator.length();
+		}
+		return key.substring( start + separator.length(), end );
 	}
 	
 	/**
@@ -63,8 +65,34 @@ public class KeyValueUtils {
 	 */
 	public static String getFirstKeyElement( final String key, final String separator )
 	{
-		return key.split( Pattern.quote( separator ) )[ 0 ];
+		final int end = key.indexOf( separator );
+		return end < 0 ? key : key.substring( 0, end );
 	}
 	
-
+	/**
+	 * Returns the specified key-value pairs as pairs whose values are {@link String}s, for the builders and
+	 * renderers that only read the decorated {@link String}s of the persisted form. The pairs aren't copied,
+	 * and so each value must be a {@link String}, or null.
+	 * @param keyValues The list of key-value pairs
+	 * @return the specified list of key-value pairs
+	 * @throws IllegalArgumentException if one of the values isn't a {@link String}
+	 */
+	@SuppressWarnings( "unchecked" )
+	public static List< Pair< String, String > > asStringValues( final List< ? extends Pair< String, ? > > keyValues )
+	{
+		for( Pair< String, ? > pair : keyValues )
+		{
+			if( pair.getSecond() != null && !( pair.getSecond() instanceof String ) )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "The values of the key-value pairs must be strings." ).append( Constants.NEW_LINE );
+				message.append( "  Key: " ).append( pair.getFirst() ).append( Constants.NEW_LINE );
+				message.append( "  Value: " ).append( pair.getSecond() ).append( Constants.NEW_LINE );
+				message.append( "  Value Class: " ).append( pair.getSecond().getClass().getName() );
+				LOGGER.error( message.toString() );
+				throw new IllegalArgumentException( message.toString() );
+			}
+		}
+		return (List< Pair< String, String > >)keyValues;
+	}
 }
@@ -17,19 +17,18 @@ package org.freezedry.persistence.readers;
 
 import org.freezedry.persistence.PersistenceEngine;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
 import org.freezedry.persistence.utils.Constants;
-import org.freezedry.persistence.utils.JsonUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.freezedry.persistence.writers.JsonWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Reads the JSON string from the specifed {@link InputStream} and converts it to the semantic model.
@@ -62,16 +61,46 @@ import java.util.Scanner;
  *    true
  *    false
  *    null
- * </pre> 
+ * </pre>
+ * The JSON is read incrementally by a {@link JsonTokenizer}, and the {@link InfoNode}s are built in a single
+ * pass, in the order in which the keys appear in the document. The full JSON text is never held in memory.<p>
+ *
+ * By default, the JSON scalars are converted to the {@link Integer}, {@link Long}, {@link Double}, {@link Boolean},
+ * or {@link String} that best fits their text, and the node builders convert them to the field types. In the
+ * type-directed mode (see {@link #setTypeDirected(boolean)}), the reader uses the types of the target class' fields,
+ * their {@code @Persist( instantiateAs = ... )} annotations, and their generic parameter types, to decode each scalar
+ * directly into the type of the field it is read for, and reports a value that doesn't fit the field's type as soon
+ * as it is read. Values whose type can't be determined, such as those of fields with custom node builders, are read
+ * as in the default mode. Dates are left as strings, because their formats belong to the engine's date node builder.
  * @see PersistenceReader
  * @see XmlReader
  * 
  * @author rob
  */
-public class JsonReader implements PersistenceReader {
+public class JsonReader implements RecordPersistenceReader, ProjectingPersistenceReader {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( JsonReader.class );
 
+	private boolean isTypeDirected = false;
+	private final ConcurrentMap< Class< ? >, JsonSchema > schemas = new ConcurrentHashMap<>();
+
+	/**
+	 * Sets whether the reader uses the field types of the target class to decode the JSON scalars
+	 * @param isTypeDirected set to true to decode the scalars into the types of the fields they are read for
+	 */
+	public void setTypeDirected( final boolean isTypeDirected )
+	{
+		this.isTypeDirected = isTypeDirected;
+	}
+
+	/**
+	 * @return true if the reader uses the field types of the target class to decode the JSON scalars
+	 */
+	public boolean isTypeDirected()
+	{
+		return isTypeDirected;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.readers.PersistenceReader#read(java.lang.Class, java.io.InputStream)
@@ -79,261 +108,357 @@ public class JsonReader implements PersistenceReader {
 	@Override
 	public InfoNode read( final Class< ? > clazz, final Reader input )
 	{
-		// load the json string from the input stream into a json object
-		final JSONObject jsonObject = createRootJsonObject( clazz, input );
-			
-		// the first/top of the json string must be the class name, so there should only be one key,
-		// and one value associated with that key { "root_key" : { members } }, where members is
-		// defined by { pair, members } and pair is defined by "key", "value" (see class documentation).
-		// we still have to add the value as a node.
-		final InfoNode rootNode = createRootNode( jsonObject, clazz );
-		
+		return read( clazz, input, Projection.ALL );
+	}
+
+	/**
+	 * Reads the parts of the JSON selected by the projection into the semantic model. The values of the keys that
+	 * aren't selected are skipped by the tokenizer, without unescaping their strings or converting their numbers.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param input The input stream from which to read the persisted object.
+	 * @param projection The {@link Projection} that selects the parts of the persisted object to read
+	 * @return The root {@link InfoNode} representing the selected parts of the semantic model.
+	 */
+	@Override
+	public InfoNode read( final Class< ? > clazz, final Reader input, final Projection projection )
+	{
+		final JsonTokenizer tokenizer = new JsonTokenizer( input );
+		final InfoNode rootNode = readRecord( clazz, tokenizer, projection.resolve( clazz ) );
+		if( rootNode == null )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to load the JSON from the input stream" ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		return rootNode;
+	}
+
+	/**
+	 * Creates a {@link RecordReader} that reads a stream of JSON objects, such as the JSON Lines written by the
+	 * {@link JsonWriter#createRecordWriter(java.io.Writer)}, one object at a time. The objects only need to be
+	 * separated by white space. The records share the tokenizer's buffer, and the schema of the class.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model of each record.
+	 * @param input The input stream from which to read the persisted objects.
+	 * @return The {@link RecordReader} for the input stream
+	 */
+	@Override
+	public RecordReader createRecordReader( final Class< ? > clazz, final Reader input )
+	{
+		final JsonTokenizer tokenizer = new JsonTokenizer( input );
+		return new RecordReader() {
+
+			@Override
+			public InfoNode read()
+			{
+				return readRecord( clazz, tokenizer, Projection.ALL );
+			}
+		};
+	}
+
+	/*
+	 * Reads the next JSON object from the tokenizer into the semantic model
+	 * @param clazz The {@link Class} of the object to ultimately build.
+	 * @param tokenizer The {@link JsonTokenizer} positioned before the next JSON object
+	 * @param projection The {@link Projection} that selects the parts of the JSON object to read
+	 * @return The root {@link InfoNode}, or null if there are no more JSON objects
+	 */
+	private InfoNode readRecord( final Class< ? > clazz, final JsonTokenizer tokenizer, final Projection projection )
+	{
+		try
+		{
+			if( tokenizer.peek() == -1 )
+			{
+				return null;
+			}
+			return readRootNode( clazz, isTypeDirected ? getSchema( clazz ) : null, projection, tokenizer );
+		}
+		catch( ParseException e )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to parse JSON string into a JSON object for further processing" ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+			message.append( "  Error: " ).append( e.getMessage() ).append( Constants.NEW_LINE );
+			message.append( "  Source JSON String (near the error): " ).append( Constants.NEW_LINE );
+			message.append( tokenizer.getRegion() );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString(), e );
+		}
+		catch( IOException e )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to load the JSON from the input stream" ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString(), e );
+		}
+	}
+
+	/*
+	 * Reads the root JSON object and creates the root {@link InfoNode}. The first/top of the json string
+	 * must be the class name, so there should only be one key, and one value associated with that key
+	 * { "root_key" : { members } }, where members is defined by { pair, members } and pair is defined by
+	 * "key", "value" (see class documentation).
+	 * @param clazz The {@link Class} of the object to ultimately build.
+	 * @param schema The {@link JsonSchema} of the root value, or null when the reader isn't type directed
+	 * @param projection The {@link Projection} of the root node
+	 * @param tokenizer The {@link JsonTokenizer} positioned at the start of the document
+	 * @return The root {@link InfoNode}
+	 */
+	private static InfoNode readRootNode( final Class< ? > clazz,
+										  final JsonSchema schema,
+										  final Projection projection,
+										  final JsonTokenizer tokenizer ) throws IOException, ParseException
+	{
+		tokenizer.expect( '{' );
+		final int quote = tokenizer.next();
+		if( quote != '"' && quote != '\'' )
+		{
+			throw rootElementError( clazz, 0, null );
+		}
+		final String rootName = tokenizer.nextString( (char)quote );
+		tokenizer.expect( ':' );
+		final InfoNode rootNode = InfoNode.createRootNode( rootName, clazz );
+
 		// grab the value and deal with one of the three possibilities:
 		// 1. the value is a json object and therefore has name-value pairs
 		// 2. the value is a json array and therefore has elements
-		// 3. the value is neither, and therefore is a simple value
-		// In the first two cases, we build out the remainder of the nodes recursively. In
-		// the third case, we set in the value and class in root node and we're done.
-		final Object value = JsonUtils.getValue( jsonObject, rootNode.getPersistName() );
-		if( value instanceof JSONObject )
+		// 3. the value is neither, and therefore is a simple value, which isn't allowed
+		// In the first two cases, we build out the remainder of the nodes recursively.
+		final int c = tokenizer.peek();
+		if( c == '{' )
 		{
-			buildInfoNode( (JSONObject)value, rootNode );
+			tokenizer.next();
+			readObject( tokenizer, rootNode, schema, projection );
 		}
-		else if( value instanceof JSONArray )
+		else if( c == '[' )
 		{
-			buildInfoNode( (JSONArray)value, clazz.getSimpleName(), rootNode );
+			final String name = clazz.getSimpleName();
+			final Projection elementProjection = projection.select( name );
+			if( elementProjection == null )
+			{
+				tokenizer.skipValue();
+			}
+			else
+			{
+				tokenizer.next();
+				readArray( tokenizer, name, rootNode, schema == null ? null : schema.getMember( name ), elementProjection );
+			}
 		}
 		else
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Invalid JSON representation of a class. Root node must have at least one named element." + Constants.NEW_LINE );
-			message.append( "  JSON String: " + Constants.NEW_LINE );
-			try{ message.append( jsonObject.toString( 2 ) ); } catch( JSONException e ) {}
+			final StringBuilder message = new StringBuilder();
+			message.append( "Invalid JSON representation of a class. Root node must have at least one named element." ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+			message.append( "  Root Name: " ).append( rootName );
 			LOGGER.error( message.toString() );
 			throw new IllegalArgumentException( message.toString() );
 		}
+
+		// the root object must not have any other elements
+		if( tokenizer.next() != '}' )
+		{
+			throw rootElementError( clazz, 2, rootName );
+		}
 		return rootNode;
 	}
-	
+
 	/*
-	 * Creates the {@link InfoNode} for each of the key-value pairs found in {@link JSONObject} and
-	 * adds them to the specified parent {@link InfoNode}, recursively.
-	 * @param jsonObject The {@link JSONObject} from which to create the new {@link InfoNode}s and add
-	 * them to the specified parent {@link InfoNode}.
+	 * Reads the key-value pairs of the JSON object whose opening brace has been consumed, creating an
+	 * {@link InfoNode} for each of them, recursively, and adding them to the specified parent {@link InfoNode}.
+	 * @param tokenizer The {@link JsonTokenizer} positioned after the opening brace of the object
 	 * @param infoNode The parent {@link InfoNode} to which to add the new {@link InfoNode}s.
-	 * @see #buildInfoNode(JSONArray, String, InfoNode)
+	 * @param schema The {@link JsonSchema} of the object, or null if the object's type isn't known
+	 * @param projection The {@link Projection} of the parent {@link InfoNode}, which selects the keys to read
+	 * @see #readArray(JsonTokenizer, String, InfoNode, JsonSchema, Projection)
 	 */
-	private static void buildInfoNode( final JSONObject jsonObject, final InfoNode infoNode )
+	private static void readObject( final JsonTokenizer tokenizer,
+									final InfoNode infoNode,
+									final JsonSchema schema,
+									final Projection projection ) throws IOException, ParseException
 	{
-		// grab a list of the element names held in the json object, and then grab the
-		// json object for each name
-		final List< String > names = getJsonNames( jsonObject );
-		for( String name : names )
+		if( tokenizer.peek() == '}' )
 		{
-			final Object object = JsonUtils.getValue( jsonObject, name );
-			
-			// build the info node and add it to its parent
-			final InfoNode newInfoNode = createInfoNode( name, object, infoNode );
-			if( newInfoNode != null )
+			tokenizer.next();
+			return;
+		}
+		while( true )
+		{
+			final String name = tokenizer.nextQuotedString();
+			tokenizer.expect( ':' );
+			final Projection valueProjection = projection.select( name );
+			if( valueProjection == null )
+			{
+				tokenizer.skipValue();
+			}
+			else
 			{
-				infoNode.addChild( newInfoNode );
+				readValue( tokenizer, name, infoNode, schema == null ? null : schema.getMember( name ), valueProjection );
+			}
+
+			final int c = tokenizer.peek();
+			if( c != ',' && c != '}' )
+			{
+				throw tokenizer.syntaxError( "Expected ',' or '}' in object" );
+			}
+			tokenizer.next();
+			if( c == '}' )
+			{
+				return;
 			}
 		}
 	}
 
 	/*
-	 * Creates the {@link InfoNode} for each element in the {@link JSONArray} and adds it to the specified
-	 * parent {@link InfoNode} recursively.
-	 * @param jsonArray The {@link JSONArray} containing the elements from which to create {@link InfoNode}s and
-	 * add them to the parent {@link InfoNode}.
+	 * Reads the elements of the JSON array whose opening bracket has been consumed, creating an {@link InfoNode}
+	 * for each element and adding it to the specified parent {@link InfoNode}, recursively.
+	 * @param tokenizer The {@link JsonTokenizer} positioned after the opening bracket of the array
 	 * @param nodeName The name to assign to the new nodes. This is the name of the list in the JSON document.
 	 * @param infoNode The parent {@link InfoNode} to which to add the new {@link InfoNode}s.
-	 * @see #buildInfoNode(JSONObject, InfoNode)
+	 * @param schema The {@link JsonSchema} of the elements, or null if their type isn't known
+	 * @param projection The {@link Projection} of the new nodes
+	 * @see #readObject(JsonTokenizer, InfoNode, JsonSchema, Projection)
 	 */
-	private static void buildInfoNode( final JSONArray jsonArray, final String nodeName, final InfoNode infoNode )
+	private static void readArray( final JsonTokenizer tokenizer,
+								   final String nodeName,
+								   final InfoNode infoNode,
+								   final JsonSchema schema,
+								   final Projection projection ) throws IOException, ParseException
 	{
-		// run through the elements of the json array (recursively) building info nodes
-		for( int i = 0; i < jsonArray.length(); ++i )
+		if( tokenizer.peek() == ']' )
+		{
+			tokenizer.next();
+			return;
+		}
+		while( true )
 		{
-			final Object object = JsonUtils.getElement( jsonArray, i );
-			
-			// build the info node and add it to its parent info node
-			final InfoNode newInfoNode = createInfoNode( nodeName, object, infoNode );
-			infoNode.addChild( newInfoNode );
+			readValue( tokenizer, nodeName, infoNode, schema, projection );
+
+			final int c = tokenizer.peek();
+			if( c != ',' && c != ']' )
+			{
+				throw tokenizer.syntaxError( "Expected ',' or ']' in array" );
+			}
+			tokenizer.next();
+			if( c == ']' )
+			{
+				return;
+			}
 		}
 	}
 
 	/*
-	 * Part of the recursive algorithm that creates {@link InfoNode}s. If the specified {@code value} represents a leaf
-	 * node, then we create it and return. However, if the {@code value} represents a compound node, such as a {@link JSONObject}
-	 * or a {@link JSONArray}, then we recurse, calling the appropriate {@code buildInfoNode(...)} method. These methods will
-	 * in turn call back to this method. It all ends when the specified {@code value} is a leaf node.
+	 * Part of the recursive algorithm that creates {@link InfoNode}s. There are three possibilities:
+	 * 1. the value is a json object, in which case the info node is compound
+	 * 2. the value is a json array, in which case its elements are added to the parent node
+	 * 3. the value is one of the remaining types (boolean, string, int, double, long, null)
+	 *    in which case the info node is a leaf
+	 * @param tokenizer The {@link JsonTokenizer} positioned at the value
 	 * @param nodeName The persistence name to assign to the new {@link InfoNode}
-	 * @param value The {@code value} of the node which could be a {@link JSONObject}, a {@link JSONArray}, or a plain object
-	 * which represents a leaf node.
-	 * @param parentNode The parent {@link InfoNode} to which the new node would be added. This is only used when the
-	 * {@code value} is a {@link JSONArray}, in which case the elements are added to this parent node and no new node
-	 * is created.
-	 * @return The newly created {@link InfoNode}
-	 * @see #buildInfoNode(JSONObject, InfoNode)
-	 * @see #buildInfoNode(JSONArray, String, InfoNode)
+	 * @param parentNode The parent {@link InfoNode} to which the new node, or the array's elements, are added
+	 * @param schema The {@link JsonSchema} of the value, or null if its type isn't known
+	 * @param projection The {@link Projection} of the new node, or of the array's elements
+	 * @see #readObject(JsonTokenizer, InfoNode, JsonSchema, Projection)
+	 * @see #readArray(JsonTokenizer, String, InfoNode, JsonSchema, Projection)
 	 */
-	private static InfoNode createInfoNode( final String nodeName, final Object value, final InfoNode parentNode )
+	private static void readValue( final JsonTokenizer tokenizer,
+								   final String nodeName,
+								   final InfoNode parentNode,
+								   final JsonSchema schema,
+								   final Projection projection ) throws IOException, ParseException
 	{
-		// there are three possibilities:
-		// 1. the value is a json object, in which case the info node is compound
-		// 2. the value is a json array, in which case the info node is compound
-		// 3. the value is one of the remaining types (boolean, string, int, double, long, etc)
-		//    in which case the info node is a leaf
-		InfoNode node = null;
-		if( value instanceof JSONObject )
+		final int c = tokenizer.peek();
+		if( c == '{' )
 		{
-			node = InfoNode.createCompoundNode( null, nodeName, null );
-			buildInfoNode( (JSONObject)value, node );
+			tokenizer.next();
+			final InfoNode node = InfoNode.createCompoundNode( null, nodeName, null );
+			readObject( tokenizer, node, schema, projection );
+			parentNode.addChild( node );
 		}
-		else if( value instanceof JSONArray )
+		else if( c == '[' )
 		{
-			buildInfoNode( (JSONArray)value, nodeName, parentNode );
+			tokenizer.next();
+			readArray( tokenizer, nodeName, parentNode, schema, projection );
 		}
 		else
 		{
-			node = InfoNode.createLeafNode( null, value, nodeName, null );
+			parentNode.addChild( InfoNode.createLeafNode( null, readScalar( tokenizer, nodeName, schema ), nodeName, null ) );
 		}
-		return node;
 	}
-	
+
 	/*
-	 * Returns a list of names from the {@link JSONArray} of element names
-	 * @param names the {@link JSONArray} of element names
-	 * @return The list of element names 
+	 * Reads the string, number, boolean, or null at the tokenizer's position. When the value's schema is a leaf,
+	 * then the value is decoded directly into the schema's leaf class.
+	 * @param tokenizer The {@link JsonTokenizer} positioned at the value
+	 * @param nodeName The persistence name of the value, for error messages
+	 * @param schema The {@link JsonSchema} of the value, or null if its type isn't known
+	 * @return The value
+	 * @throws ParseException if the value doesn't fit the schema's leaf class
 	 */
-	private static List< String > getJsonNames( final JSONObject jsonObject )
+	private static Object readScalar( final JsonTokenizer tokenizer, final String nodeName, final JsonSchema schema ) throws IOException, ParseException
 	{
-		// grab the names of the elements
-		final JSONArray names = jsonObject.names();
-		
-		// create the list of names
-		final List< String > jsonNames = new ArrayList<>();
-		for( int i = 0; names != null && i < names.length(); ++i )
+		final int quote = tokenizer.peek();
+		final boolean isString = quote == '"' || quote == '\'';
+		if( isString )
 		{
-			try
-			{
-				jsonNames.add( names.getString( i ) );
-			}
-			catch( JSONException e )
-			{
-				final StringBuffer message = new StringBuffer();
-				message.append( "Unable to get the key name from the JSON array." + Constants.NEW_LINE );
-				message.append( "  Number Elements: " + names.length() + Constants.NEW_LINE );
-				message.append( "  Names: " + Constants.NEW_LINE );
-				for( int j = 0; j < names.length(); ++j )
-				{
-					try
-					{
-						message.append( "    " + names.getString( j ) + Constants.NEW_LINE );
-					}
-					catch( JSONException e2 )
-					{
-						message.append( "    ** missed name **" + Constants.NEW_LINE );
-					}
-				}
-				LOGGER.error( message.toString() );
-				throw new IllegalArgumentException( message.toString() );
-			}
+			tokenizer.next();
 		}
-		return jsonNames;
-	}
-	
-	/*
-	 * Reads the source JSON string from the {@link InputStream} and create the root JSON object
-	 * @param clazz the {@link Class} to reconstitute
-	 * @param input The {@link InputStream} from which to read the JSON source
-	 * @return A string representation of the JSON source
-	 */
-	private static JSONObject createRootJsonObject( final Class< ? > clazz, final Reader input )
-	{
-		// parse the source json string into a json object
-		String source = null;
-		JSONObject jsonObject = null;
-		try( final Scanner scanner = new Scanner( input ) )
+		final String text = isString ? tokenizer.nextString( (char)quote ) : tokenizer.nextLiteral();
+		if( schema == null || schema.getLeafClass() == null || ( !isString && text.equals( "null" ) ) )
 		{
-			source = scanner.useDelimiter( "\\A" ).next();
-		
-			jsonObject = new JSONObject( source );
+			return isString ? text : tokenizer.toScalar( text );
 		}
-		catch( NoSuchElementException e ) 
+
+		try
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to load the JSON from the input stream" + Constants.NEW_LINE );
-			message.append( "  Class Name: " + clazz.getName() + Constants.NEW_LINE );
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString(), e );
+			return isString ? schema.decodeString( text ) : schema.decodeLiteral( text );
 		}
-		catch( JSONException e )
+		catch( IllegalArgumentException e )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to parse JSON string into a JSON object for further processing" + Constants.NEW_LINE );
-			message.append( "  Class Name: " + clazz.getName() + Constants.NEW_LINE );
-			message.append( "  Source JSON String: " + Constants.NEW_LINE );
-			message.append( source );
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString(), e );
+			throw tokenizer.syntaxError( e.getMessage() + " for \"" + nodeName + "\"" );
 		}
-	
-		return jsonObject;
 	}
 
 	/*
-	 * Creates the root {@link InfoNode} from the root element of the JSON object
-	 * @param jsonObject The {@link JSONObject} to be converted into the semantic model
+	 * Returns the {@link JsonSchema} for the specified root {@link Class}, creating it if needed
 	 * @param clazz The {@link Class} of the object to ultimately build.
-	 * @return The root {@link InfoNode}
+	 * @return The {@link JsonSchema} of the root value
 	 */
-	private static InfoNode createRootNode( final JSONObject jsonObject, final Class< ? > clazz )
+	private JsonSchema getSchema( final Class< ? > clazz )
 	{
-		// the first/top of the json string must be the class name, so there should only be one key
-		final JSONArray names = jsonObject.names();
-		if( names.length() != 1 )
+		JsonSchema schema = schemas.get( clazz );
+		if( schema == null )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Root element of the JSON string must have exactly one element representing" + Constants.NEW_LINE );
-			message.append( "the class into which the semantic model will be converted." + Constants.NEW_LINE );
-			message.append( "  Class Name: " + clazz.getName() + Constants.NEW_LINE );
-			message.append( "  Number Elements: " + names.length() + Constants.NEW_LINE );
-			message.append( "  Names: " + Constants.NEW_LINE );
-			for( int i = 0; i < names.length(); ++i )
+			schema = JsonSchema.forClass( clazz );
+			final JsonSchema previous = schemas.putIfAbsent( clazz, schema );
+			if( previous != null )
 			{
-				try
-				{
-					message.append( "    " + names.getString( i ) + Constants.NEW_LINE );
-				}
-				catch( JSONException e )
-				{
-					message.append( "    ** missed name **" + Constants.NEW_LINE );
-				}
+				schema = previous;
 			}
-			message.append( "  Source JSON Object: " + Constants.NEW_LINE );
-			message.append( jsonObject.toString() );
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString() );
 		}
-		
-		// grab the root name, now that we've confirmed only one element
-		String rootName = null;
-		try
-		{
-			rootName = names.getString( 0 );
-		}
-		catch( JSONException e )
+		return schema;
+	}
+
+	/*
+	 * Creates the exception thrown when the root JSON object doesn't have exactly one element
+	 * @param clazz The {@link Class} of the object to ultimately build.
+	 * @param numElements The number of elements found, or at least found
+	 * @param rootName The name of the first element, or null if the root object has no elements
+	 * @return The exception to throw
+	 */
+	private static IllegalArgumentException rootElementError( final Class< ? > clazz, final int numElements, final String rootName )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( "Root element of the JSON string must have exactly one element representing" ).append( Constants.NEW_LINE );
+		message.append( "the class into which the semantic model will be converted." ).append( Constants.NEW_LINE );
+		message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+		message.append( "  Number Elements: " ).append( numElements == 0 ? "0" : "at least " + numElements ).append( Constants.NEW_LINE );
+		if( rootName != null )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Couldn't get the root name from the JSON object." + Constants.NEW_LINE );
-			message.append( jsonObject.toString() );
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString() );
+			message.append( "  First Name: " ).append( rootName );
 		}
-		
-		// create and return the root info node
-		return InfoNode.createRootNode( rootName, clazz );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString() );
 	}
 }
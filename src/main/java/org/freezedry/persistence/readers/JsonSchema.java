@@ -0,0 +1,383 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.freezedry.persistence.annotations.Persist;
+import org.freezedry.persistence.annotations.PersistDateAs;
+import org.freezedry.persistence.annotations.PersistEnum;
+import org.freezedry.persistence.annotations.PersistMap;
+import org.freezedry.persistence.utils.NumberUtils;
+import org.freezedry.persistence.utils.ReflectionUtils;
+
+/**
+ * Describes the type of a JSON value, as derived from the fields of the target {@link Class}, so that the
+ * {@link JsonReader} can decode the JSON scalars directly into the types that the leaf node builders need.
+ * The {@link KeyValueReader} uses the same schemas, whose members are the persist names of the semantic model,
+ * to decode the values of its leaf nodes.
+ * The schema of an object's members is resolved lazily, the first time a member's name is seen, and then
+ * remembered, so that schemas can be shared by any number of reads, and recursive types are no problem.<p>
+ *
+ * A schema is one of the following:
+ * <ul>
+ * 	<li>a leaf, whose value is decoded into its (boxed) leaf class. The members of an object with a leaf schema,
+ * 		such as the {@code "value"} wrapper of root leaf objects, share the same leaf schema.</li>
+ * 	<li>the fields of a class, whose members are the class' fields, found by their persistence or field name.</li>
+ * 	<li>the elements of a {@link Collection} or an array, whose members are all of the element type.</li>
+ * 	<li>a {@link Map}, whose members are entries, whose key and value members have the map's key and value types.</li>
+ * </ul>
+ * Members whose type can't be determined, or whose fields carry annotations that change how their values are
+ * decoded (a node builder, {@link PersistEnum}, or {@link PersistDateAs}), have no schema (null), and so their
+ * values are read as they would be without a schema.<p>
+ *
+ * Schemas are thread safe.
+ *
+ * @author Robert Philipp
+ */
+final class JsonSchema {
+
+	private static final Map< Class< ? >, Class< ? > > LEAF_CLASSES = createLeafClasses();
+
+	// marks the members that have no schema, because the concurrent map doesn't hold nulls
+	private static final JsonSchema NONE = new JsonSchema( Kind.LEAF, Object.class, null, null, null, null );
+
+	private enum Kind { LEAF, FIELDS, ELEMENTS, MAP, ENTRY }
+
+	private final Kind kind;
+	private final Class< ? > clazz;
+	private final Type elementType;
+	private final Type valueType;
+	private final String keyName;
+	private final String valueName;
+
+	private final ConcurrentMap< String, JsonSchema > members = new ConcurrentHashMap<>();
+
+	private JsonSchema( final Kind kind,
+						final Class< ? > clazz,
+						final Type elementType,
+						final Type valueType,
+						final String keyName,
+						final String valueName )
+	{
+		this.kind = kind;
+		this.clazz = clazz;
+		this.elementType = elementType;
+		this.valueType = valueType;
+		this.keyName = keyName;
+		this.valueName = valueName;
+	}
+
+	/**
+	 * Creates the schema for a value of the specified {@link Class}.
+	 * @param clazz The {@link Class} of the value
+	 * @return The schema for the value, or null if the type of the value can't be determined
+	 */
+	static JsonSchema forClass( final Class< ? > clazz )
+	{
+		return forType( clazz, null );
+	}
+
+	/**
+	 * @return The boxed {@link Class} into which the value is decoded, or null if the value isn't a leaf
+	 */
+	Class< ? > getLeafClass()
+	{
+		return kind == Kind.LEAF ? clazz : null;
+	}
+
+	/**
+	 * Returns the schema of the member of the specified name, for JSON objects described by this schema
+	 * @param name The name of the member
+	 * @return The schema of the member, or null if it can't be determined
+	 */
+	JsonSchema getMember( final String name )
+	{
+		if( kind == Kind.LEAF )
+		{
+			return this;
+		}
+
+		JsonSchema member = members.get( name );
+		if( member == null )
+		{
+			member = createMember( name );
+			final JsonSchema previous = members.putIfAbsent( name, member == null ? NONE : member );
+			if( previous != null )
+			{
+				member = previous;
+			}
+		}
+		return member == NONE ? null : member;
+	}
+
+	/**
+	 * Decodes a JSON string into the leaf class of this schema
+	 * @param value The (unescaped) JSON string
+	 * @return The value as an instance of the leaf class
+	 * @throws IllegalArgumentException if the string can't be converted to the leaf class
+	 */
+	Object decodeString( final String value )
+	{
+		if( clazz == String.class )
+		{
+			return value;
+		}
+		if( clazz == Character.class )
+		{
+			// an empty string represents a space (see the CharacterNodeBuilder)
+			if( value.length() > 1 )
+			{
+				throw new IllegalArgumentException( "Expected a single character but found \"" + value + "\"" );
+			}
+			return value.isEmpty() ? ' ' : value.charAt( 0 );
+		}
+		if( clazz.isEnum() )
+		{
+			for( Object constant : clazz.getEnumConstants() )
+			{
+				if( ((Enum< ? >)constant).name().equals( value ) )
+				{
+					return constant;
+				}
+			}
+			throw new IllegalArgumentException( "Expected a constant of " + clazz.getName() + " but found \"" + value + "\"" );
+		}
+		return decodeLiteral( value );
+	}
+
+	/**
+	 * Decodes a JSON number, {@code true}, or {@code false} into the leaf class of this schema
+	 * @param token The text of the number, or boolean
+	 * @return The value as an instance of the leaf class
+	 * @throws IllegalArgumentException if the token can't be converted to the leaf class
+	 */
+	Object decodeLiteral( final String token )
+	{
+		// the literals are checked before they are parsed, so that the parsing doesn't throw
+		if( clazz == Integer.class && NumberUtils.isInteger( token, Integer.MIN_VALUE, Integer.MAX_VALUE ) )
+		{
+			return Integer.valueOf( token );
+		}
+		if( clazz == Long.class && NumberUtils.isInteger( token, Long.MIN_VALUE, Long.MAX_VALUE ) )
+		{
+			return Long.valueOf( token );
+		}
+		if( clazz == Double.class && NumberUtils.isDecimal( token ) )
+		{
+			return Double.valueOf( token );
+		}
+		if( clazz == Float.class && NumberUtils.isDecimal( token ) )
+		{
+			return Float.valueOf( token );
+		}
+		if( clazz == Short.class && NumberUtils.isInteger( token, Short.MIN_VALUE, Short.MAX_VALUE ) )
+		{
+			return Short.valueOf( token );
+		}
+		if( clazz == Byte.class && NumberUtils.isInteger( token, Byte.MIN_VALUE, Byte.MAX_VALUE ) )
+		{
+			return Byte.valueOf( token );
+		}
+		if( clazz == Boolean.class && ( token.equals( "true" ) || token.equals( "false" ) ) )
+		{
+			return Boolean.valueOf( token );
+		}
+		throw new IllegalArgumentException( "Expected a value of type " + clazz.getSimpleName() + " but found " + token );
+	}
+
+	/*
+	 * Creates the schema of the member with the specified name
+	 */
+	private JsonSchema createMember( final String name )
+	{
+		switch( kind )
+		{
+			case ELEMENTS:
+				return forType( elementType, null );
+
+			case MAP:
+				return new JsonSchema( Kind.ENTRY, null, elementType, valueType, keyName, valueName );
+
+			case ENTRY:
+				if( name.equals( keyName ) )
+				{
+					return forType( elementType, null );
+				}
+				return name.equals( valueName ) ? forType( valueType, null ) : null;
+
+			default:
+				return createFieldMember( name );
+		}
+	}
+
+	/*
+	 * Creates the schema of the field whose persistence name is the specified name
+	 */
+	private JsonSchema createFieldMember( final String name )
+	{
+		// the name is the field's persistence name, or when it doesn't have one, the field's name
+		Field field = ReflectionUtils.getFieldForPersistenceName( clazz, name );
+		if( field == null )
+		{
+			try
+			{
+				field = ReflectionUtils.getDeclaredField( clazz, name );
+			}
+			catch( NoSuchFieldException e )
+			{
+				return null;
+			}
+		}
+		if( field.isAnnotationPresent( PersistEnum.class ) || field.isAnnotationPresent( PersistDateAs.class ) )
+		{
+			return null;
+		}
+
+		// see if the field has a @Persist( instantiateAs = XXXX.class ) annotation, or a node builder
+		final Persist annotation = field.getAnnotation( Persist.class );
+		if( annotation != null )
+		{
+			if( !annotation.useNodeBuilder().equals( Persist.Null.class ) )
+			{
+				return null;
+			}
+
+			// the element types of collections and maps come from the field's generic type
+			final Class< ? > instantiateType = annotation.instantiateAs();
+			if( !instantiateType.equals( Persist.Null.class ) &&
+				!Collection.class.isAssignableFrom( instantiateType ) && !Map.class.isAssignableFrom( instantiateType ) )
+			{
+				return forType( instantiateType, field );
+			}
+		}
+		return forType( field.getGenericType(), field );
+	}
+
+	/*
+	 * Creates the schema for a value of the specified type, held by the specified field (which may be null)
+	 */
+	private static JsonSchema forType( final Type type, final Field field )
+	{
+		if( type instanceof GenericArrayType )
+		{
+			return new JsonSchema( Kind.ELEMENTS, null, ((GenericArrayType)type).getGenericComponentType(), null, null, null );
+		}
+
+		Type[] arguments = null;
+		Class< ? > clazz = null;
+		if( type instanceof Class )
+		{
+			clazz = (Class< ? >)type;
+		}
+		else if( type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() instanceof Class )
+		{
+			clazz = (Class< ? >)((ParameterizedType)type).getRawType();
+			arguments = ((ParameterizedType)type).getActualTypeArguments();
+		}
+		if( clazz == null )
+		{
+			// type variables and wildcards
+			return null;
+		}
+
+		final Class< ? > leafClass = LEAF_CLASSES.get( clazz );
+		if( leafClass != null || clazz.isEnum() )
+		{
+			return new JsonSchema( Kind.LEAF, leafClass == null ? clazz : leafClass, null, null, null, null );
+		}
+		if( clazz.isArray() )
+		{
+			return new JsonSchema( Kind.ELEMENTS, null, clazz.getComponentType(), null, null, null );
+		}
+		if( Collection.class.isAssignableFrom( clazz ) )
+		{
+			return new JsonSchema( Kind.ELEMENTS, null, arguments == null ? null : arguments[ 0 ], null, null, null );
+		}
+		if( Map.class.isAssignableFrom( clazz ) )
+		{
+			return createMapSchema( arguments, field );
+		}
+		return new JsonSchema( Kind.FIELDS, clazz, null, null, null, null );
+	}
+
+	/*
+	 * Creates the schema for a map, using the key and value types and names in the field's @PersistMap annotation
+	 */
+	private static JsonSchema createMapSchema( final Type[] arguments, final Field field )
+	{
+		Type keyType = arguments == null ? null : arguments[ 0 ];
+		Type valueType = arguments == null ? null : arguments[ 1 ];
+		String keyName = PersistMap.KEY_PERSIST_NAME;
+		String valueName = PersistMap.VALUE_PERSIST_NAME;
+
+		final PersistMap annotation = field == null ? null : field.getAnnotation( PersistMap.class );
+		if( annotation != null )
+		{
+			if( !annotation.keyPersistName().isEmpty() )
+			{
+				keyName = annotation.keyPersistName();
+			}
+			if( !annotation.valuePersistName().isEmpty() )
+			{
+				valueName = annotation.valuePersistName();
+			}
+			if( !annotation.keyType().equals( PersistMap.Null.class ) )
+			{
+				keyType = annotation.keyType();
+			}
+			if( !annotation.valueType().equals( PersistMap.Null.class ) )
+			{
+				valueType = annotation.valueType();
+			}
+		}
+		return new JsonSchema( Kind.MAP, null, keyType, valueType, keyName, valueName );
+	}
+
+	/*
+	 * @return The leaf classes, mapped to the boxed class into which their values are decoded
+	 */
+	private static Map< Class< ? >, Class< ? > > createLeafClasses()
+	{
+		final Map< Class< ? >, Class< ? > > classes = new HashMap<>();
+		classes.put( String.class, String.class );
+		classes.put( Character.class, Character.class );
+		classes.put( char.class, Character.class );
+		classes.put( Boolean.class, Boolean.class );
+		classes.put( boolean.class, Boolean.class );
+		classes.put( Byte.class, Byte.class );
+		classes.put( byte.class, Byte.class );
+		classes.put( Short.class, Short.class );
+		classes.put( short.class, Short.class );
+		classes.put( Integer.class, Integer.class );
+		classes.put( int.class, Integer.class );
+		classes.put( Long.class, Long.class );
+		classes.put( long.class, Long.class );
+		classes.put( Float.class, Float.class );
+		classes.put( float.class, Float.class );
+		classes.put( Double.class, Double.class );
+		classes.put( double.class, Double.class );
+		return classes;
+	}
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+
+/**
+ * Incremental tokenizer for JSON text, used by the {@link JsonReader}. The tokenizer reads the
+ * {@link Reader} in chunks, so that the whole document is never held in memory. It keeps the last
+ * few characters of the previous chunk when it reads the next one, so that the region of the text
+ * around a syntax error can be reported.<p>
+ *
+ * Scalar values are converted the same way that {@code org.json} converts them: numbers without a
+ * fraction or exponent become {@link Integer}s, or {@link Long}s when they don't fit into an int, and
+ * the remaining numbers become {@link Double}s. Integers too large for a long are returned as their
+ * {@link String}. JSON's {@code null} is returned as {@code null}.<p>
+ *
+ * The tokenizer is not thread safe.
+ *
+ * @author Robert Philipp
+ */
+final class JsonTokenizer {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int CONTEXT_SIZE = 64;
+
+	private final Reader input;
+	private final char[] buffer = new char[ BUFFER_SIZE ];
+	private int position;
+	private int limit;
+
+	// the offset, in the document, of the first character in the buffer
+	private long bufferOffset;
+
+	private final StringBuilder text = new StringBuilder();
+
+	/**
+	 * Constructs a tokenizer that reads the JSON text from the specified {@link Reader}
+	 * @param input The {@link Reader} holding the JSON text
+	 */
+	JsonTokenizer( final Reader input )
+	{
+		this.input = input;
+	}
+
+	/**
+	 * Skips the white space and returns the next character without consuming it.
+	 * @return The next character that isn't white space, or -1 at the end of the input
+	 * @throws IOException
+	 */
+	int peek() throws IOException
+	{
+		while( true )
+		{
+			if( position == limit && !fill() )
+			{
+				return -1;
+			}
+			final char c = buffer[ position ];
+			if( c != ' ' && c != '\n' && c != '\r' && c != '\t' )
+			{
+				return c;
+			}
+			++position;
+		}
+	}
+
+	/**
+	 * Skips the white space and consumes the next character
+	 * @return The next character that isn't white space, or -1 at the end of the input
+	 * @throws IOException
+	 */
+	int next() throws IOException
+	{
+		final int c = peek();
+		if( c != -1 )
+		{
+			++position;
+		}
+		return c;
+	}
+
+	/**
+	 * Skips the white space and consumes the next character, which must be the specified character
+	 * @param expected The expected character
+	 * @throws IOException
+	 * @throws ParseException if the next character isn't the expected character
+	 */
+	void expect( final char expected ) throws IOException, ParseException
+	{
+		final int c = peek();
+		if( c != expected )
+		{
+			throw syntaxError( "Expected '" + expected + "' but found " + describe( c ) );
+		}
+		++position;
+	}
+
+	/**
+	 * Skips the white space and reads the next string, which must be quoted with double or, as org.json
+	 * allows, single quotes
+	 * @return The unescaped string
+	 * @throws IOException
+	 * @throws ParseException if the next character doesn't start a string, or the string is malformed
+	 */
+	String nextQuotedString() throws IOException, ParseException
+	{
+		final int c = peek();
+		if( c != '"' && c != '\'' )
+		{
+			throw syntaxError( "Expected a string but found " + describe( c ) );
+		}
+		++position;
+		return nextString( (char)c );
+	}
+
+	/**
+	 * Reads the string whose opening quote has just been consumed, up to and including its closing quote.
+	 * @param quote The character that opened the string, and must close it
+	 * @return The unescaped string
+	 * @throws IOException
+	 * @throws ParseException if the string is unterminated or has an invalid escape sequence
+	 */
+	String nextString( final char quote ) throws IOException, ParseException
+	{
+		text.setLength( 0 );
+		while( true )
+		{
+			// copy the run of plain characters in one go
+			final int start = position;
+			while( position < limit )
+			{
+				final char c = buffer[ position ];
+				if( c == quote || c == '\\' || c == '\n' || c == '\r' )
+				{
+					break;
+				}
+				++position;
+			}
+			text.append( buffer, start, position - start );
+			if( position == limit )
+			{
+				if( !fill() )
+				{
+					throw syntaxError( "Unterminated string" );
+				}
+				continue;
+			}
+
+			final char c = buffer[ position++ ];
+			if( c == quote )
+			{
+				return text.toString();
+			}
+			if( c != '\\' )
+			{
+				throw syntaxError( "Unterminated string" );
+			}
+			text.append( nextEscaped() );
+		}
+	}
+
+	/**
+	 * Reads the number, {@code true}, {@code false}, or {@code null} that starts at the next character
+	 * @return The value as an {@link Integer}, {@link Long}, {@link Double}, {@link Boolean}, {@link String}, or null
+	 * @throws IOException
+	 * @throws ParseException if the next token isn't a scalar value
+	 */
+	Object nextScalar() throws IOException, ParseException
+	{
+		return toScalar( nextLiteral() );
+	}
+
+	/**
+	 * Converts the text of a number, {@code true}, {@code false}, or {@code null} into its value
+	 * @param token The text of the scalar value
+	 * @return The value as an {@link Integer}, {@link Long}, {@link Double}, {@link Boolean}, {@link String}, or null
+	 * @throws ParseException if the token isn't a scalar value
+	 */
+	Object toScalar( final String token ) throws ParseException
+	{
+		switch( token )
+		{
+			case "true":
+				return Boolean.TRUE;
+
+			case "false":
+				return Boolean.FALSE;
+
+			case "null":
+				return null;
+
+			default:
+				return toNumber( token );
+		}
+	}
+
+	/**
+	 * Skips the next value, including all the members or elements of an object or array, without unescaping
+	 * its strings or converting its scalars. The value's structure isn't validated beyond the nesting of its
+	 * brackets and the termination of its strings.
+	 * @throws IOException
+	 * @throws ParseException if the value is missing, or the input ends before the value does
+	 */
+	void skipValue() throws IOException, ParseException
+	{
+		int depth = 0;
+		do
+		{
+			final int c = peek();
+			switch( c )
+			{
+				case -1:
+					throw syntaxError( "Unexpected end of input" );
+
+				case '{':
+				case '[':
+					++depth;
+					++position;
+					break;
+
+				case '}':
+				case ']':
+					if( depth == 0 )
+					{
+						throw syntaxError( "Missing value" );
+					}
+					--depth;
+					++position;
+					break;
+
+				case ',':
+				case ':':
+					if( depth == 0 )
+					{
+						throw syntaxError( "Missing value" );
+					}
+					++position;
+					break;
+
+				case '"':
+				case '\'':
+					++position;
+					skipString( (char)c );
+					break;
+
+				default:
+					skipLiteral();
+					break;
+			}
+		}
+		while( depth > 0 );
+	}
+
+	/**
+	 * Creates the exception for a syntax error at the current position
+	 * @param description The description of the error
+	 * @return The {@link ParseException} whose error offset is the current position in the document
+	 */
+	ParseException syntaxError( final String description )
+	{
+		return new ParseException( description + " at character " + getOffset(), (int)Math.min( getOffset(), Integer.MAX_VALUE ) );
+	}
+
+	/**
+	 * @return The offset, in the document, of the next character
+	 */
+	long getOffset()
+	{
+		return bufferOffset + position;
+	}
+
+	/**
+	 * Returns the text surrounding the current position, meant for error messages. The text after the
+	 * current position is read from the input, so the tokenizer shouldn't be used after calling this.
+	 * @return The text surrounding the current position, with the current position marked by {@code >>}
+	 */
+	String getRegion()
+	{
+		final StringBuilder region = new StringBuilder();
+		final int start = Math.max( 0, position - CONTEXT_SIZE );
+		region.append( buffer, start, position - start ).append( " >> " );
+
+		// the text following the current position, reading past the buffer if needed
+		final int available = Math.min( CONTEXT_SIZE, limit - position );
+		region.append( buffer, position, available );
+		try
+		{
+			int c;
+			for( int i = available; i < CONTEXT_SIZE && ( c = input.read() ) != -1; ++i )
+			{
+				region.append( (char)c );
+			}
+		}
+		catch( IOException e )
+		{
+			region.append( "..." );
+		}
+		return region.toString();
+	}
+
+	/*
+	 * Refills the buffer, keeping the last few characters of the current buffer for error messages.
+	 * @return true if at least one character was read; false at the end of the input
+	 */
+	private boolean fill() throws IOException
+	{
+		final int kept = Math.min( CONTEXT_SIZE, limit );
+		System.arraycopy( buffer, limit - kept, buffer, 0, kept );
+		bufferOffset += limit - kept;
+		position = kept;
+		limit = kept;
+
+		int read;
+		do
+		{
+			read = input.read( buffer, limit, buffer.length - limit );
+		}
+		while( read == 0 );
+
+		if( read < 0 )
+		{
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	/*
+	 * Reads the rest of the escape sequence whose backslash has just been consumed
+	 */
+	private char nextEscaped() throws IOException, ParseException
+	{
+		final char c = nextRaw();
+		switch( c )
+		{
+			case 'b': return '\b';
+			case 't': return '\t';
+			case 'n': return '\n';
+			case 'f': return '\f';
+			case 'r': return '\r';
+			case '"':
+			case '\'':
+			case '\\':
+			case '/':
+				return c;
+
+			case 'u':
+				int code = 0;
+				for( int i = 0; i < 4; ++i )
+				{
+					final int digit = Character.digit( nextRaw(), 16 );
+					if( digit < 0 )
+					{
+						throw syntaxError( "Illegal unicode escape" );
+					}
+					code = ( code << 4 ) | digit;
+				}
+				return (char)code;
+
+			default:
+				throw syntaxError( "Illegal escape" );
+		}
+	}
+
+	/*
+	 * Consumes the next character, white space or not
+	 */
+	private char nextRaw() throws IOException, ParseException
+	{
+		if( position == limit && !fill() )
+		{
+			throw syntaxError( "Unexpected end of input" );
+		}
+		return buffer[ position++ ];
+	}
+
+	/**
+	 * Reads the text of the number, {@code true}, {@code false}, or {@code null} that starts at the next
+	 * character, up to the next white space, structural character, or the end of the input
+	 * @return The text of the scalar value
+	 * @throws IOException
+	 * @throws ParseException if there is no value at the next character
+	 */
+	String nextLiteral() throws IOException, ParseException
+	{
+		if( peek() == -1 )
+		{
+			throw syntaxError( "Unexpected end of input" );
+		}
+
+		text.setLength( 0 );
+		while( true )
+		{
+			final int start = position;
+			while( position < limit && !isDelimiter( buffer[ position ] ) )
+			{
+				++position;
+			}
+			text.append( buffer, start, position - start );
+			if( position < limit || !fill() )
+			{
+				break;
+			}
+		}
+		if( text.length() == 0 )
+		{
+			throw syntaxError( "Missing value" );
+		}
+		return text.toString();
+	}
+
+	/*
+	 * Skips the string whose opening quote has just been consumed, up to and including its closing quote
+	 * @param quote The character that opened the string, and must close it
+	 */
+	private void skipString( final char quote ) throws IOException, ParseException
+	{
+		while( true )
+		{
+			if( position == limit && !fill() )
+			{
+				throw syntaxError( "Unterminated string" );
+			}
+			final char c = buffer[ position++ ];
+			if( c == quote )
+			{
+				return;
+			}
+			if( c == '\\' )
+			{
+				nextRaw();
+			}
+		}
+	}
+
+	/*
+	 * Skips the unquoted token that starts at the current position
+	 */
+	private void skipLiteral() throws IOException
+	{
+		while( ( position < limit || fill() ) && !isDelimiter( buffer[ position ] ) )
+		{
+			++position;
+		}
+	}
+
+	/*
+	 * @return true if the character ends an unquoted token
+	 */
+	private static boolean isDelimiter( final char c )
+	{
+		switch( c )
+		{
+			case ' ':
+			case '\n':
+			case '\r':
+			case '\t':
+			case ',':
+			case ':':
+			case ']':
+			case '}':
+			case '[':
+			case '{':
+			case '"':
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	/*
+	 * Converts the token to a number the way org.json does: integers become Integers, or Longs when
+	 * they don't fit, integers that don't fit into a Long stay Strings, and all the rest become Doubles
+	 */
+	private Object toNumber( final String token ) throws ParseException
+	{
+		final char first = token.charAt( 0 );
+		if( ( first < '0' || first > '9' ) && first != '-' )
+		{
+			throw syntaxError( "Unexpected value '" + token + "'" );
+		}
+
+		try
+		{
+			if( token.indexOf( '.' ) >= 0 || token.indexOf( 'e' ) >= 0 || token.indexOf( 'E' ) >= 0 )
+			{
+				return Double.valueOf( token );
+			}
+			final long value = Long.parseLong( token );
+			if( value == (int)value )
+			{
+				return (int)value;
+			}
+			return value;
+		}
+		catch( NumberFormatException e )
+		{
+			if( isInteger( token ) )
+			{
+				return token;
+			}
+			throw syntaxError( "Invalid number '" + token + "'" );
+		}
+	}
+
+	/*
+	 * @return true if the token is an optional minus sign followed by digits
+	 */
+	private static boolean isInteger( final String token )
+	{
+		final int start = token.charAt( 0 ) == '-' ? 1 : 0;
+		if( start == token.length() )
+		{
+			return false;
+		}
+		for( int i = start; i < token.length(); ++i )
+		{
+			final char c = token.charAt( i );
+			if( c < '0' || c > '9' )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * @return A description of the character for error messages
+	 */
+	private static String describe( final int c )
+	{
+		return c == -1 ? "the end of the input" : "'" + (char)c + "'";
+	}
+}
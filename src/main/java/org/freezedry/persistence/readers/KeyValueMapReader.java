@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.AbstractKeyValueBuilder;
+import org.freezedry.persistence.keyvalue.BasicKeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
+import org.freezedry.persistence.keyvalue.utils.KeyValueUtils;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
+import org.freezedry.persistence.utils.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the flattened object held in a {@link Map}, such as the one created by the
+ * {@link org.freezedry.persistence.writers.KeyValueMapWriter}, back into its semantic model, and from there into
+ * the object. The keys are the flattened keys, and the values are either the decorated {@link String}s that the
+ * writer creates, which are undecorated as they are when reading a key-value file, or typed values, such as an
+ * {@link Integer} or a {@link java.util.List} of the elements of a flattened collection, which are handed to the
+ * node builders as they are. So a map that holds typed values is read without rendering its values to text and
+ * parsing them again.
+ *
+ * @author Robert Philipp
+ */
+public class KeyValueMapReader {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueMapReader.class );
+
+	private final KeyValueBuilder builder;
+	private PersistenceEngine engine;
+
+	/**
+	 * Constructs a key-value map reader that uses the specified renderers and separator.
+	 * @param renderers The mapping between the {@link Class} represented by an {@link InfoNode} and
+	 * the {@link PersistenceRenderer} used to parse the key-value pair.
+	 * @param arrayRenderer The {@link PersistenceRenderer} used to parse the key-value pairs of
+	 * {@link InfoNode}s that represent an array.
+	 * @param keySeparator The separator between the flattened elements of the key
+	 */
+	public KeyValueMapReader( final Map< Class< ? >, PersistenceRenderer > renderers,
+							  final PersistenceRenderer arrayRenderer,
+							  final String keySeparator )
+	{
+		builder = new BasicKeyValueBuilder( renderers, arrayRenderer, keySeparator );
+	}
+
+	/**
+	 * Constructs a key-value map reader that uses the default renderers and specified separator.
+	 * @param keySeparator The separator between the flattened elements of the key
+	 */
+	public KeyValueMapReader( final String keySeparator )
+	{
+		builder = new BasicKeyValueBuilder( keySeparator );
+	}
+
+	/**
+	 * Constructs a key-value map reader that uses the default renderers and separator.
+	 */
+	public KeyValueMapReader()
+	{
+		builder = new BasicKeyValueBuilder();
+	}
+
+	/**
+	 * Constructs a key-value map reader using the specified key-value list builder
+	 * @param builder The {@link KeyValueBuilder} used to build the semantic model from the key-value pairs
+	 */
+	public KeyValueMapReader( final KeyValueBuilder builder )
+	{
+		this.builder = builder;
+	}
+
+	/**
+	 * @return the {@link KeyValueBuilder} responsible for creating the key-value pairs
+	 * from the semantic model, and that is responsible for parsing the key-value pairs into
+	 * a semantic model.
+	 */
+	public KeyValueBuilder getBuilder()
+	{
+		return builder;
+	}
+
+	/**
+	 * The separator between the flattened key elements. For example, the key for a person's first name may be
+	 * of the form {@code Division.people.Person[2].firstName}, or {@code Division:people:Person[2]:firstName}.
+	 * The "{@code .}" and the "{@code :}" are separators.
+	 * @param separator The separator
+	 */
+	public void setKeyElementSeparator( final String separator )
+	{
+		builder.setSeparator( separator );
+	}
+
+	/**
+	 * @return The separator between the flattened key elements
+	 */
+	public String getKeyElementSeparator()
+	{
+		return builder.getSeparator();
+	}
+
+	/**
+	 * Sets the engine used by the {@code read(...)} methods to build the objects from their semantic models
+	 * @param engine The {@link PersistenceEngine}
+	 */
+	public void setPersistenceEngine( final PersistenceEngine engine )
+	{
+		this.engine = engine;
+	}
+
+	/**
+	 * @return The engine used by the {@code read(...)} methods to build the objects from their semantic models.
+	 * Unless one was set, a {@link PersistenceEngine} with the default node builders is created on first use.
+	 */
+	public PersistenceEngine getPersistenceEngine()
+	{
+		if( engine == null )
+		{
+			engine = new PersistenceEngine();
+		}
+		return engine;
+	}
+
+	/**
+	 * Builds the semantic model of the flattened object held in the specified map
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param flattenedObject The map of the flattened keys to their decorated or typed values
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	public InfoNode readSemanticModel( final Class< ? > clazz, final Map< String, ? > flattenedObject )
+	{
+		final List< Pair< String, ? > > keyValues = new ArrayList<>( flattenedObject.size() );
+		for( final Map.Entry< String, ? > entry : flattenedObject.entrySet() )
+		{
+			keyValues.add( new Pair<>( entry.getKey(), entry.getValue() ) );
+		}
+		return buildInfoNode( clazz, keyValues );
+	}
+
+	/**
+	 * Builds the semantic model of the flattened object from the specified key-value pairs
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param keyValues The pairs of flattened keys and their decorated or typed values
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	public InfoNode readSemanticModel( final Class< ? > clazz, final Iterable< ? extends Pair< String, ? > > keyValues )
+	{
+		final List< Pair< String, ? > > pairs = new ArrayList<>();
+		for( final Pair< String, ? > pair : keyValues )
+		{
+			pairs.add( pair );
+		}
+		return buildInfoNode( clazz, pairs );
+	}
+
+	/**
+	 * Reads the flattened object held in the specified map into an object of the specified class
+	 * @param clazz The {@link Class} of the object
+	 * @param flattenedObject The map of the flattened keys to their decorated or typed values
+	 * @return The reconstituted object
+	 */
+	public < T > T read( final Class< T > clazz, final Map< String, ? > flattenedObject )
+	{
+		return buildObject( clazz, readSemanticModel( clazz, flattenedObject ) );
+	}
+
+	/**
+	 * Reads the flattened object from the specified key-value pairs into an object of the specified class
+	 * @param clazz The {@link Class} of the object
+	 * @param keyValues The pairs of flattened keys and their decorated or typed values
+	 * @return The reconstituted object
+	 */
+	public < T > T read( final Class< T > clazz, final Iterable< ? extends Pair< String, ? > > keyValues )
+	{
+		return buildObject( clazz, readSemanticModel( clazz, keyValues ) );
+	}
+
+	/*
+	 * Builds the semantic model from the key-value pairs
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param keyValues The key-value pairs
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	private InfoNode buildInfoNode( final Class< ? > clazz, final List< Pair< String, ? > > keyValues )
+	{
+		if( keyValues.isEmpty() )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Cannot read an object from an empty map of key-value pairs." ).append( Constants.NEW_LINE );
+			message.append( "  Class: " ).append( clazz.getName() );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+
+		// the typed values are kept by the builders that understand them, and the others only read strings
+		final InfoNode rootNode;
+		if( builder instanceof AbstractKeyValueBuilder )
+		{
+			rootNode = ( (AbstractKeyValueBuilder)builder ).buildTypedInfoNode( clazz, keyValues );
+		}
+		else
+		{
+			rootNode = builder.buildInfoNode( clazz, KeyValueUtils.asStringValues( keyValues ) );
+		}
+		if( LOGGER.isTraceEnabled() )
+		{
+			LOGGER.trace( rootNode.treeToString() );
+		}
+		return rootNode;
+	}
+
+	/*
+	 * Builds the object from its semantic model, and casts it to the specified class
+	 */
+	private < T > T buildObject( final Class< T > clazz, final InfoNode rootNode )
+	{
+		return ReflectionUtils.cast( clazz, getPersistenceEngine().parseSemanticModel( clazz, rootNode ) );
+	}
+}
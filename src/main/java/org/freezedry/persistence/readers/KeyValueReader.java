@@ -21,27 +21,51 @@ import org.freezedry.persistence.keyvalue.BasicKeyValueBuilder;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
 import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.writers.KeyValueWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileNotFoundException;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-public class KeyValueReader implements PersistenceReader {
+public class KeyValueReader implements RecordPersistenceReader, ProjectingPersistenceReader {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueReader.class );
 	private static final String KEY_VALUE_SEPARATOR = KeyValueWriter.KEY_VALUE_SEPARATOR;
+
+	/**
+	 * The default size, in bytes, of the chunks into which files are cut when they are read in parallel
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	// the number of bytes read at a time when looking for the start of the next chunk
+	private static final int BOUNDARY_WINDOW_SIZE = 4096;
 	
 	private KeyValueBuilder builder;
 	private String keyValueSeparator = KEY_VALUE_SEPARATOR;
+	private boolean isFrontCoded = false;
+	private boolean isTypeDirected = false;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private final ConcurrentMap< Class< ? >, JsonSchema > schemas = new ConcurrentHashMap<>();
 
 	/**
 	 * Constructs a key-value reader with that uses the specified key-value separator and key-element
@@ -125,6 +149,73 @@ public class KeyValueReader implements PersistenceReader {
 		return keyValueSeparator;
 	}
 	
+	/**
+	 * @param isFrontCoded true if the keys were written front coded (see {@link KeyValueWriter#setFrontCoded(boolean)});
+	 * false (the default) otherwise
+	 */
+	public void setFrontCoded( final boolean isFrontCoded )
+	{
+		this.isFrontCoded = isFrontCoded;
+	}
+
+	/**
+	 * @return true if the keys are read as front coded; false otherwise
+	 */
+	public boolean isFrontCoded()
+	{
+		return isFrontCoded;
+	}
+	
+	/**
+	 * Sets whether the reader uses the field types of the target class to decode the values of the leaf nodes.
+	 * In the type-directed mode, the reader uses the types of the target class' fields, their
+	 * {@code @Persist( instantiateAs = ... )} annotations, and their generic parameter types, to decode each
+	 * value into the type of the field it is read for, and reports a value that doesn't fit the field's type
+	 * when the key-value pairs are read. The renderers still remove the values' decorations as in the default
+	 * mode, and the undecorated values are then decoded in a pass over the semantic model, so the mode checks
+	 * the values against the fields rather than saving work. Values whose type can't be determined, such as
+	 * those of fields with custom node builders, and dates, are left as strings for the node builders, as in
+	 * the default mode.
+	 * @param isTypeDirected set to true to decode the values into the types of the fields they are read for
+	 */
+	public void setTypeDirected( final boolean isTypeDirected )
+	{
+		this.isTypeDirected = isTypeDirected;
+	}
+
+	/**
+	 * @return true if the reader uses the field types of the target class to decode the values
+	 */
+	public boolean isTypeDirected()
+	{
+		return isTypeDirected;
+	}
+	
+	/**
+	 * @param chunkSize The size, in bytes, of the chunks into which files are cut when they are read in parallel
+	 * (see {@link #readParallel(Class, Path, Charset, ForkJoinPool)}). The default is {@link #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize( final int chunkSize )
+	{
+		if( chunkSize < 1 )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The chunk size must be at least one byte." ).append( Constants.NEW_LINE );
+			message.append( "  Specified Chunk Size: " ).append( chunkSize );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return The size, in bytes, of the chunks into which files are cut when they are read in parallel
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
 	/**
 	 * @param separator The separator between the key and the value. The default value is given by the
 	 * {@link AbstractKeyValueBuilder#KEY_ELEMENT_SEPARATOR}.
@@ -150,62 +241,447 @@ public class KeyValueReader implements PersistenceReader {
 	public InfoNode read( final Class< ? > clazz, final Reader input )
 	{
 		// read the file into a list of key-value pairs
-		final List< Pair< String, String > > keyValues = readKeyValuePairs( input, keyValueSeparator );
+		final List< Pair< String, String > > keyValues = readKeyValuePairs( clazz, input, Projection.ALL );
 		
-		return builder.buildInfoNode( clazz, keyValues );
+		return buildInfoNode( clazz, keyValues );
+	}
+
+	/**
+	 * Reads the key-value pairs whose keys the projection selects into the semantic model. The pairs that
+	 * aren't selected are dropped as they are read, so that the builder never groups them or renders their
+	 * values. The key elements are matched against the projection's persist names, with the collection
+	 * and map decorations (i.e. {@code [i]} and <code>{"key"}</code>) matched against its {@code [*]} and
+	 * <code>{*}</code> selectors. The persist name of a compound collection element, which follows its index,
+	 * is skipped.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param input The input stream from which to read the persisted object.
+	 * @param projection The {@link Projection} that selects the parts of the persisted object to read
+	 * @return The root {@link InfoNode} representing the selected parts of the semantic model.
+	 */
+	@Override
+	public InfoNode read( final Class< ? > clazz, final Reader input, final Projection projection )
+	{
+		final List< Pair< String, String > > keyValues = readKeyValuePairs( clazz, input, projection );
+
+		// when nothing is selected, the root node has no children
+		if( keyValues.isEmpty() )
+		{
+			return InfoNode.createRootNode( clazz.getSimpleName(), clazz );
+		}
+		return buildInfoNode( clazz, keyValues );
+	}
+
+	/**
+	 * Reads the key-value file in parallel. The file is cut into chunks of about the chunk size (see
+	 * {@link #setChunkSize(int)}), at line boundaries, and for front-coded keys, at lines that hold full keys.
+	 * Each chunk is memory-mapped, decoded, and tokenized into key-value pairs on its own fork/join task.
+	 * The chunks' pairs are then joined in the order of the chunks, so that the builder sees the same pairs,
+	 * in the same order, as it does when the file is read by {@link #read(Class, Reader)}, and so groups
+	 * them, and builds the semantic model, the same way.<p>
+	 * 
+	 * Files can only be cut at their newline bytes when the charset encodes characters in single bytes, or
+	 * is UTF-8. Files in other charsets are read by the calling thread.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param file The path of the key-value file
+	 * @param charset The {@link Charset} in which the file was written
+	 * @param pool The {@link ForkJoinPool} on which the chunks are tokenized
+	 * @return The root {@link InfoNode} representing the semantic model.
+	 * @throws IOException if the file can't be opened, or read
+	 */
+	public InfoNode readParallel( final Class< ? > clazz, final Path file, final Charset charset, final ForkJoinPool pool ) throws IOException
+	{
+		try( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			if( !isSplittable( charset ) )
+			{
+				return read( clazz, new InputStreamReader( Channels.newInputStream( channel ), charset ) );
+			}
+
+			// cut the file into chunks that start at lines that can be read on their own
+			final long size = channel.size();
+			final List< ChunkTask > tasks = new ArrayList<>();
+			long start = 0;
+			while( start < size )
+			{
+				final long end = nextChunkStart( channel, start + chunkSize - 1, size );
+				tasks.add( new ChunkTask( clazz, channel, start, end, charset ) );
+				start = end;
+			}
+
+			// tokenize the chunks in parallel, and join their key-value pairs in the order of the chunks
+			for( final ChunkTask task : tasks )
+			{
+				pool.execute( task );
+			}
+			int numPairs = 0;
+			for( final ChunkTask task : tasks )
+			{
+				numPairs += task.join().size();
+			}
+			final List< Pair< String, String > > keyValues = new ArrayList<>( numPairs );
+			for( final ChunkTask task : tasks )
+			{
+				keyValues.addAll( task.join() );
+			}
+			return buildInfoNode( clazz, keyValues );
+		}
+	}
+
+	/**
+	 * Creates a {@link RecordReader} that reads the records written by the {@link KeyValueWriter#createRecordWriter(java.io.Writer)},
+	 * whose key-value pairs are separated from those of the next record by one or more empty lines. The lines
+	 * are read one at a time, and only the key-value pairs of the current record are held in memory.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model of each record.
+	 * @param input The input stream from which to read the persisted objects.
+	 * @return The {@link RecordReader} for the input stream
+	 */
+	@Override
+	public RecordReader createRecordReader( final Class< ? > clazz, final Reader input )
+	{
+		final KeyValueScanner scanner = new KeyValueScanner( input, keyValueSeparator, isFrontCoded );
+		return new RecordReader() {
+
+			@Override
+			public InfoNode read()
+			{
+				final List< Pair< String, String > > pairs = new ArrayList<>();
+				try
+				{
+					while( !scanner.isEnd() )
+					{
+						final Pair< String, String > pair = scanner.next();
+						if( pair != null )
+						{
+							pairs.add( pair );
+						}
+						else if( !pairs.isEmpty() )
+						{
+							break;
+						}
+					}
+				}
+				catch( IOException e )
+				{
+					final StringBuilder message = new StringBuilder();
+					message.append( "Failed to read the next record from the input stream." ).append( Constants.NEW_LINE );
+					message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+					message.append( "  Key-Value Pairs Read: " ).append( pairs.size() );
+					LOGGER.error( message.toString(), e );
+					throw new IllegalStateException( message.toString(), e );
+				}
+				return pairs.isEmpty() ? null : buildInfoNode( clazz, pairs );
+			}
+		};
 	}
 	
 	/*
-	 * Reads the input stream into a {@link List} of key-value {@link Pair}s, where the first element in the
-	 * {@link Pair} is the key, and the second element is the value.
+	 * Returns true if the characters encoded in the charset can't contain a newline byte, so that the files
+	 * written in the charset can be cut at their newline bytes
+	 */
+	private static boolean isSplittable( final Charset charset )
+	{
+		final ByteBuffer newline = charset.encode( "\n" );
+		return newline.remaining() == 1 && newline.get( 0 ) == '\n' &&
+			   ( charset.equals( StandardCharsets.UTF_8 ) || charset.newEncoder().maxBytesPerChar() == 1 );
+	}
+
+	/*
+	 * Returns the position of the start of the first line that begins after the specified position, or the
+	 * end of the file if there isn't one. For front-coded keys, the line must hold a full key, and so its
+	 * shared key length must be zero.
+	 * @param channel The channel of the file
+	 * @param position The position at or after which the newline must be
+	 * @param size The size of the file
+	 * @return The position at which the next chunk starts
+	 */
+	private long nextChunkStart( final FileChannel channel, final long position, final long size ) throws IOException
+	{
+		// front-coded lines are checked for the "0 " that follows the newline, and so the windows
+		// overlap by the two bytes that the last newline checked may need
+		final int lookAhead = isFrontCoded ? 2 : 0;
+		final ByteBuffer window = ByteBuffer.allocate( BOUNDARY_WINDOW_SIZE );
+		long windowStart = position;
+		while( windowStart < size )
+		{
+			window.clear();
+			final int read = channel.read( window, windowStart );
+			if( read <= lookAhead )
+			{
+				break;
+			}
+			for( int i = 0; i < read - lookAhead; ++i )
+			{
+				if( window.get( i ) == '\n' && ( !isFrontCoded || ( window.get( i + 1 ) == '0' && window.get( i + 2 ) == ' ' ) ) )
+				{
+					return windowStart + i + 1;
+				}
+			}
+			windowStart += read - lookAhead;
+		}
+		return size;
+	}
+
+	/*
+	 * Builds the semantic model from the key-value pairs, and in the type-directed mode, decodes the values of
+	 * its leaf nodes into the types of their fields
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param keyValues The key-value pairs
+	 * @return The root {@link InfoNode} of the semantic model
+	 */
+	private InfoNode buildInfoNode( final Class< ? > clazz, final List< Pair< String, String > > keyValues )
+	{
+		final InfoNode rootNode = builder.buildInfoNode( clazz, keyValues );
+		if( isTypeDirected )
+		{
+			decodeLeafValues( rootNode, getSchema( clazz ) );
+		}
+		return rootNode;
+	}
+
+	/*
+	 * Decodes the values of the leaf nodes in the subtree into the types described by their schemas. The leaf
+	 * values are the undecorated strings, and so are decoded as JSON strings would be.
+	 * @param node The root of the subtree
+	 * @param schema The {@link JsonSchema} of the node, or null if its type isn't known
+	 */
+	private static void decodeLeafValues( final InfoNode node, final JsonSchema schema )
+	{
+		if( schema == null )
+		{
+			return;
+		}
+		if( node.isLeafNode() )
+		{
+			if( schema.getLeafClass() != null && node.getValue() instanceof String )
+			{
+				try
+				{
+					node.setValue( schema.decodeString( (String)node.getValue() ) );
+				}
+				catch( IllegalArgumentException e )
+				{
+					final StringBuilder message = new StringBuilder();
+					message.append( "The value doesn't fit the type of the field it is read for." ).append( Constants.NEW_LINE );
+					message.append( "  Persist Name: " ).append( node.getPersistName() ).append( Constants.NEW_LINE );
+					message.append( "  Value: " ).append( node.getValue() ).append( Constants.NEW_LINE );
+					message.append( "  Error: " ).append( e.getMessage() );
+					LOGGER.error( message.toString() );
+					throw new IllegalArgumentException( message.toString(), e );
+				}
+			}
+			return;
+		}
+		for( int i = 0; i < node.getChildCount(); ++i )
+		{
+			final InfoNode child = node.getChild( i );
+			decodeLeafValues( child, schema.getMember( child.getPersistName() ) );
+		}
+	}
+
+	/*
+	 * Returns the {@link JsonSchema} for the specified root {@link Class}, creating it if needed
+	 * @param clazz The {@link Class} of the object to ultimately build.
+	 * @return The {@link JsonSchema} of the root node
+	 */
+	private JsonSchema getSchema( final Class< ? > clazz )
+	{
+		JsonSchema schema = schemas.get( clazz );
+		if( schema == null )
+		{
+			schema = JsonSchema.forClass( clazz );
+			final JsonSchema previous = schemas.putIfAbsent( clazz, schema );
+			if( previous != null )
+			{
+				schema = previous;
+			}
+		}
+		return schema;
+	}
+
+	/*
+	 * Reads the input stream, one line at a time, into a {@link List} of the key-value {@link Pair}s selected
+	 * by the projection, where the first element in the {@link Pair} is the key, and the second element is the
+	 * value. Blank lines are ignored.
+	 * @param clazz The {@link Class} being read, for error messages
 	 * @param input The input stream
-	 * @param keyValueSeparator The separator between the key and the value.
+	 * @param projection The {@link Projection} that selects the keys to keep
 	 * @return a {@link List} of key-value {@link Pair}s, where the first element in the {@link Pair} is the 
 	 * key, and the second element is the value.
 	 */
-	private static List< Pair< String, String > > readKeyValuePairs( final Reader input, final String keyValueSeparator )
+	private List< Pair< String, String > > readKeyValuePairs( final Class< ? > clazz, final Reader input, final Projection projection )
 	{
-		// read the stream into a string buffer, which we'll process into key-value pairs
-		final StringBuffer buffer = new StringBuffer();
-		char[] charBuffer = null;
+		final KeyValueScanner scanner = new KeyValueScanner( input, keyValueSeparator, isFrontCoded );
+		final List< Pair< String, String > > pairs = new ArrayList<>();
 		try
 		{
-			int charsRead;
-			do
+			while( !scanner.isEnd() )
 			{
-				charBuffer = new char[ 1024 ];
-				charsRead = input.read( charBuffer );
-				buffer.append( charBuffer );
+				final Pair< String, String > pair = scanner.next();
+				if( pair != null && ( projection.isAll() || isSelected( pair.getFirst(), projection, builder.getSeparator() ) ) )
+				{
+					pairs.add( pair );
+				}
 			}
-			while( charsRead != -1 );
 		}
 		catch( IOException e )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Failed to read from input stream." + Constants.NEW_LINE );
-			message.append( "  Characters read before failure:" + Constants.NEW_LINE );
-			message.append( buffer.toString() + Constants.NEW_LINE );
-			message.append( "  Characters in char buffer before failure:" + Constants.NEW_LINE );
-			message.append( charBuffer );
+			final StringBuilder message = new StringBuilder();
+			message.append( "Failed to read from input stream." ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+			message.append( "  Key-Value Pairs Read: " ).append( pairs.size() );
 			LOGGER.error( message.toString(), e );
 			throw new IllegalStateException( message.toString(), e );
 		}
-		
-		// create a list of lines
-		final List< String > lines = Arrays.asList( buffer.toString().split( "\\n" ) );
-		
-		// separate the lines into keys and values
-		final List< Pair< String, String > > pairs = new ArrayList<>();
-		for( String line : lines )
+		return pairs;
+	}
+
+	/*
+	 * Returns true if the projection selects the key. The first key element is the root key, and
+	 * isn't matched.
+	 * @param key The key of the key-value pair
+	 * @param projection The {@link Projection} of the root node
+	 * @param separator The separator between the key elements
+	 * @return true if the projection selects the key; false otherwise
+	 */
+	private static boolean isSelected( final String key, final Projection projection, final String separator )
+	{
+		Projection current = projection;
+		boolean isElementName = false;
+		int start = nextKeyElement( key, 0, separator );
+		while( start < key.length() )
+		{
+			final int end = nextKeyElement( key, start, separator );
+			final int length = end < key.length() ? end - separator.length() : end;
+
+			// the persist name of a compound element of a collection follows its index, and
+			// has already been matched by the "[*]" selector
+			if( isElementName )
+			{
+				isElementName = false;
+				start = end;
+				continue;
+			}
+
+			// the persist name is followed by the decorations for collections and maps
+			int decoration = start;
+			while( decoration < length && key.charAt( decoration ) != '[' && key.charAt( decoration ) != '{' )
+			{
+				++decoration;
+			}
+			current = current.select( key.substring( start, decoration ) );
+			while( current != null && !current.isAll() && decoration < length )
+			{
+				final char open = key.charAt( decoration );
+				current = open == '[' ? current.selectElement() : current.selectEntryValue();
+				isElementName = open == '[';
+				decoration = skipDecoration( key, decoration, length );
+			}
+			if( current == null || current.isAll() )
+			{
+				return current != null;
+			}
+			start = end;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the index of the start of the key element following the one that starts at the specified
+	 * index, or the length of the key for the last element. Separators within quoted map keys are ignored.
+	 */
+	private static int nextKeyElement( final String key, final int start, final String separator )
+	{
+		boolean isQuoted = false;
+		for( int i = start; i < key.length(); ++i )
 		{
-			// if the line is empty, or full of only spaces, then we disregard it.
-			if( !line.trim().isEmpty() )
+			final char c = key.charAt( i );
+			if( c == '"' )
+			{
+				isQuoted = !isQuoted;
+			}
+			else if( isQuoted && c == '\\' )
 			{
-				final String[] keyValue = line.split( Pattern.quote( keyValueSeparator ) );
-				pairs.add( new Pair<>( keyValue[ 0 ].trim(), keyValue[ 1 ].trim() ) );
+				++i;
+			}
+			else if( !isQuoted && key.startsWith( separator, i ) )
+			{
+				return i + separator.length();
+			}
+		}
+		return key.length();
+	}
+
+	/*
+	 * Returns the index following the collection or map decoration that starts at the specified index
+	 */
+	private static int skipDecoration( final String key, final int start, final int end )
+	{
+		final char close = key.charAt( start ) == '[' ? ']' : '}';
+		boolean isQuoted = false;
+		for( int i = start + 1; i < end; ++i )
+		{
+			final char c = key.charAt( i );
+			if( c == '"' )
+			{
+				isQuoted = !isQuoted;
+			}
+			else if( isQuoted && c == '\\' )
+			{
+				++i;
+			}
+			else if( !isQuoted && c == close )
+			{
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	/*
+	 * Memory-maps, decodes, and tokenizes one chunk of a key-value file into its key-value pairs
+	 */
+	private final class ChunkTask extends RecursiveTask< List< Pair< String, String > > > {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Class< ? > clazz;
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final Charset charset;
+
+		ChunkTask( final Class< ? > clazz, final FileChannel channel, final long start, final long end, final Charset charset )
+		{
+			this.clazz = clazz;
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.charset = charset;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected List< Pair< String, String > > compute()
+		{
+			try
+			{
+				final CharBuffer chunk = charset.decode( channel.map( FileChannel.MapMode.READ_ONLY, start, end - start ) );
+				final Reader input = new CharArrayReader( chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining() );
+				return readKeyValuePairs( clazz, input, Projection.ALL );
+			}
+			catch( IOException e )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Failed to map a chunk of the key-value file." ).append( Constants.NEW_LINE );
+				message.append( "  Class Name: " ).append( clazz.getName() ).append( Constants.NEW_LINE );
+				message.append( "  Chunk Start: " ).append( start ).append( Constants.NEW_LINE );
+				message.append( "  Chunk End: " ).append( end );
+				LOGGER.error( message.toString(), e );
+				throw new IllegalStateException( message.toString(), e );
 			}
 		}
-		
-		return pairs;
 	}
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the lines of key-value pairs from a {@link Reader}, one pair at a time, for the {@link KeyValueReader}
+ * and the {@link org.freezedry.persistence.keyvalue.KeyValueIndex}.
+ * The input is read into a buffer that is reused for every line, and the key and the value are located and
+ * trimmed within the buffer, so that the only strings created for a line are its key and its value. The buffer
+ * only grows when a line doesn't fit into it, so the memory used is bounded by the longest line, rather than
+ * by the size of the input.<p>
+ * 
+ * The key ends at the first occurrence of the separator, so values may contain the separator. Blank lines
+ * (those with nothing but white space) are reported, so that the records of a stream can be told apart.<p>
+ * 
+ * When the keys are front coded (see {@link org.freezedry.persistence.writers.KeyValueWriter#setFrontCoded(boolean)}),
+ * each key is rebuilt from the previous key in a reused buffer. The previous key is forgotten at a blank line, so
+ * the first key of each record must be written in full.<p>
+ * 
+ * The scanner is not thread safe.
+ * 
+ * @author Robert Philipp
+ */
+public final class KeyValueScanner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueScanner.class );
+	
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader input;
+	private final char[] separator;
+	private final StringBuilder frontCodedKey;
+	
+	private char[] buffer = new char[ BUFFER_SIZE ];
+	private int position;
+	private int limit;
+	private boolean isEnd;
+	private long lineNumber;
+	
+	/**
+	 * Constructs a scanner for the key-value pairs in the specified {@link Reader}, whose keys aren't front coded
+	 * @param input The {@link Reader} holding the lines of key-value pairs
+	 * @param keyValueSeparator The separator between the key and the value
+	 */
+	public KeyValueScanner( final Reader input, final String keyValueSeparator )
+	{
+		this( input, keyValueSeparator, false );
+	}
+	
+	/**
+	 * Constructs a scanner for the key-value pairs in the specified {@link Reader}
+	 * @param input The {@link Reader} holding the lines of key-value pairs
+	 * @param keyValueSeparator The separator between the key and the value
+	 * @param isFrontCoded true if the keys are front coded; false otherwise
+	 */
+	public KeyValueScanner( final Reader input, final String keyValueSeparator, final boolean isFrontCoded )
+	{
+		this.input = input;
+		this.separator = keyValueSeparator.toCharArray();
+		this.frontCodedKey = isFrontCoded ? new StringBuilder() : null;
+	}
+	
+	/**
+	 * Reads the next line, and returns its key-value pair
+	 * @return The key-value pair on the next line, or null if the next line is blank, or there are no
+	 * more lines (see {@link #isEnd()})
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the line isn't blank, but doesn't hold the separator, or if the keys are
+	 * front coded and the line doesn't start with a valid length of the prefix shared with the previous key
+	 */
+	public Pair< String, String > next() throws IOException
+	{
+		// find the end of the line, refilling the buffer as needed
+		int end = position;
+		while( true )
+		{
+			while( end < limit && buffer[ end ] != '\n' )
+			{
+				++end;
+			}
+			if( end < limit || isEnd )
+			{
+				break;
+			}
+			end -= position;
+			fill();
+			end += position;
+		}
+		if( isEnd && position == limit )
+		{
+			return null;
+		}
+		
+		final int start = position;
+		position = end < limit ? end + 1 : end;
+		++lineNumber;
+		return parse( start, end );
+	}
+	
+	/**
+	 * @return true when all the lines have been read
+	 */
+	public boolean isEnd()
+	{
+		return isEnd && position == limit;
+	}
+	
+	/*
+	 * Splits the line at the first separator, and trims the key and value
+	 */
+	private Pair< String, String > parse( final int start, final int end )
+	{
+		int lineStart = start;
+		int lineEnd = end;
+		while( lineStart < lineEnd && buffer[ lineStart ] <= ' ' )
+		{
+			++lineStart;
+		}
+		while( lineEnd > lineStart && buffer[ lineEnd - 1 ] <= ' ' )
+		{
+			--lineEnd;
+		}
+		if( lineStart == lineEnd )
+		{
+			if( frontCodedKey != null )
+			{
+				frontCodedKey.setLength( 0 );
+			}
+			return null;
+		}
+		
+		final int split = indexOfSeparator( lineStart, lineEnd );
+		if( split < 0 )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The line doesn't hold a key-value separator" ).append( Constants.NEW_LINE );
+			message.append( "  Line Number: " ).append( lineNumber ).append( Constants.NEW_LINE );
+			message.append( "  Separator: " ).append( separator ).append( Constants.NEW_LINE );
+			message.append( "  Line: " ).append( buffer, lineStart, lineEnd - lineStart );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		
+		int keyEnd = split;
+		while( keyEnd > lineStart && buffer[ keyEnd - 1 ] <= ' ' )
+		{
+			--keyEnd;
+		}
+		int valueStart = split + separator.length;
+		while( valueStart < lineEnd && buffer[ valueStart ] <= ' ' )
+		{
+			++valueStart;
+		}
+		final String key = frontCodedKey == null ? new String( buffer, lineStart, keyEnd - lineStart ) : decodeKey( lineStart, keyEnd );
+		return new Pair<>( key, new String( buffer, valueStart, lineEnd - valueStart ) );
+	}
+	
+	/*
+	 * Rebuilds the front-coded key, which is the number of characters shared with the previous key,
+	 * followed by a space and the rest of the key
+	 */
+	private String decodeKey( final int start, final int end )
+	{
+		int shared = 0;
+		int suffixStart = start;
+		while( suffixStart < end && buffer[ suffixStart ] >= '0' && buffer[ suffixStart ] <= '9' && shared <= frontCodedKey.length() )
+		{
+			shared = shared * 10 + buffer[ suffixStart ] - '0';
+			++suffixStart;
+		}
+		if( suffixStart == start || shared > frontCodedKey.length() || (suffixStart < end && buffer[ suffixStart ] != ' ') )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The line doesn't start with the length of the prefix shared with the previous key" ).append( Constants.NEW_LINE );
+			message.append( "  Line Number: " ).append( lineNumber ).append( Constants.NEW_LINE );
+			message.append( "  Previous Key: " ).append( frontCodedKey ).append( Constants.NEW_LINE );
+			message.append( "  Key: " ).append( buffer, start, end - start );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		if( suffixStart < end )
+		{
+			++suffixStart;
+		}
+		frontCodedKey.setLength( shared );
+		frontCodedKey.append( buffer, suffixStart, end - suffixStart );
+		return frontCodedKey.toString();
+	}
+	
+	/*
+	 * @return The index of the first separator in the specified range of the buffer, or -1 if there is none
+	 */
+	private int indexOfSeparator( final int start, final int end )
+	{
+		final char first = separator[ 0 ];
+		final int last = end - separator.length;
+		for( int i = start; i <= last; ++i )
+		{
+			if( buffer[ i ] != first )
+			{
+				continue;
+			}
+			int j = 1;
+			while( j < separator.length && buffer[ i + j ] == separator[ j ] )
+			{
+				++j;
+			}
+			if( j == separator.length )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/*
+	 * Moves the unread characters to the front of the buffer, growing it if they fill it, and reads
+	 * more characters after them
+	 */
+	private void fill() throws IOException
+	{
+		final int remaining = limit - position;
+		if( remaining == buffer.length )
+		{
+			buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+		}
+		else
+		{
+			System.arraycopy( buffer, position, buffer, 0, remaining );
+		}
+		position = 0;
+		limit = remaining;
+		
+		final int read = input.read( buffer, limit, buffer.length - limit );
+		if( read < 0 )
+		{
+			isEnd = true;
+		}
+		else
+		{
+			limit += read;
+		}
+	}
+}
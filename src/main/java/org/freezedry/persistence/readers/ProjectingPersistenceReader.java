@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.Reader;
+
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
+
+/**
+ * A {@link PersistenceReader} that can also read only the parts of the input stream selected by a
+ * {@link Projection}. Kept apart from the {@link PersistenceReader} interface so that the readers that
+ * always read the whole input stream don't have to implement it.
+ *
+ * @author Robert Philipp
+ */
+public interface ProjectingPersistenceReader extends PersistenceReader {
+
+	/**
+	 * Reads the parts of the input stream selected by the specified {@link Projection} into a semantic model
+	 * represented by the returned root {@link InfoNode}. The parts of the input stream that aren't selected are
+	 * skipped without creating {@link InfoNode}s for them.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model. This is
+	 * effectively the "target" class.
+	 * @param input The input stream from which to read the persisted object.
+	 * @param projection The {@link Projection} that selects the parts of the persisted object to read
+	 * @return The root {@link InfoNode} representing the selected parts of the semantic model.
+	 */
+	InfoNode read( final Class< ? > clazz, final Reader input, final Projection projection );
+}
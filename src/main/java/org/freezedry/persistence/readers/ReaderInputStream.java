@@ -42,23 +42,42 @@ package org.freezedry.persistence.readers;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 /**
  * This class converts {@link PersistenceReader} to {@link InputStream}. It works by converting the
- * characters to the encoding specified in constructor parameter.
+ * characters to the encoding specified in constructor parameter.<p>
  * 
- * @author Petr Hamernik, David Strupl
+ * The characters are read from the {@link Reader} in chunks, and encoded by a {@link CharsetEncoder} 
+ * from one reusable {@link CharBuffer} into one reusable {@link ByteBuffer}, from which the bytes are
+ * read. A surrogate pair split across two chunks is held back until its second half has been read. 
+ * Malformed and unmappable characters are replaced by the encoding's replacement bytes.
+ * 
+ * @author Petr Hamernik, David Strupl, Robert Philipp
  */
 public class ReaderInputStream extends InputStream {
 
-	private Reader reader;
-	private PipedOutputStream pos;
-	private PipedInputStream pis;
-	private OutputStreamWriter osw;
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final Reader reader;
+	private final CharsetEncoder encoder;
+	
+	// the characters read from the reader, but not yet encoded, and the bytes encoded,
+	// but not yet read. both buffers are kept ready for reading (i.e. flipped).
+	private final CharBuffer chars;
+	private final ByteBuffer bytes;
+	
+	private boolean isEndOfInput = false;
+	private boolean isEncoded = false;
+	private boolean isFlushed = false;
 
 	/**
 	 * Creates new input stream from the given reader. Uses the platform default
@@ -68,24 +87,101 @@ public class ReaderInputStream extends InputStream {
 	 */
 	public ReaderInputStream( final Reader reader ) throws IOException
 	{
-		this.reader = reader;
-		pos = new PipedOutputStream();
-		pis = new PipedInputStream( pos );
-		osw = new OutputStreamWriter( pos );
+		this( reader, Charset.defaultCharset() );
 	}
 
 	/**
 	 * Creates new input stream from the given reader and encoding.
 	 * 
 	 * @param reader Input reader
-	 * @param encoding
+	 * @param encoding The name of the encoding
+	 * @throws UnsupportedEncodingException if the named encoding isn't supported
 	 */
 	public ReaderInputStream( final Reader reader, final String encoding ) throws IOException
+	{
+		this( reader, forName( encoding ) );
+	}
+	
+	/**
+	 * Creates new input stream from the given reader and character set.
+	 * 
+	 * @param reader Input reader
+	 * @param charset The {@link Charset} into which to encode the characters
+	 */
+	public ReaderInputStream( final Reader reader, final Charset charset )
 	{
 		this.reader = reader;
-		pos = new PipedOutputStream();
-		pis = new PipedInputStream( pos );
-		osw = new OutputStreamWriter( pos, encoding );
+		this.encoder = charset.newEncoder()
+							  .onMalformedInput( CodingErrorAction.REPLACE )
+							  .onUnmappableCharacter( CodingErrorAction.REPLACE );
+		
+		this.chars = CharBuffer.allocate( BUFFER_SIZE );
+		this.chars.flip();
+		this.bytes = ByteBuffer.allocate( (int)Math.ceil( BUFFER_SIZE * encoder.maxBytesPerChar() ) );
+		this.bytes.flip();
+	}
+	
+	/*
+	 * Returns the {@link Charset} for the specified name, converting the exceptions to those thrown 
+	 * by the original, {@link java.io.OutputStreamWriter}-based, implementation.
+	 */
+	private static Charset forName( final String encoding ) throws UnsupportedEncodingException
+	{
+		try
+		{
+			return Charset.forName( encoding );
+		}
+		catch( IllegalCharsetNameException | UnsupportedCharsetException e )
+		{
+			throw new UnsupportedEncodingException( encoding );
+		}
+	}
+	
+	/*
+	 * Encodes the next chunk of characters into the byte buffer, reading characters from the 
+	 * reader as needed, until at least one byte is available or the input has been consumed
+	 * @return true if bytes are available; false if the end of the stream has been reached
+	 */
+	private boolean fill() throws IOException
+	{
+		bytes.compact();
+		try
+		{
+			while( bytes.position() == 0 && !isFlushed )
+			{
+				if( !isEndOfInput )
+				{
+					// read directly into the backing array to avoid the copy made by Reader.read(CharBuffer)
+					chars.compact();
+					final int numRead = reader.read( chars.array(), chars.arrayOffset() + chars.position(), chars.remaining() );
+					if( numRead < 0 )
+					{
+						isEndOfInput = true;
+					}
+					else
+					{
+						chars.position( chars.position() + numRead );
+					}
+					chars.flip();
+				}
+				
+				// once the encoder has consumed all the input, with the end-of-input set, it
+				// must be flushed
+				if( !isEncoded && encoder.encode( chars, bytes, isEndOfInput ).isUnderflow() && isEndOfInput )
+				{
+					isEncoded = true;
+				}
+				if( isEncoded && encoder.flush( bytes ).isUnderflow() )
+				{
+					isFlushed = true;
+				}
+			}
+		}
+		finally
+		{
+			bytes.flip();
+		}
+		return bytes.hasRemaining();
 	}
 
 	/*
@@ -95,17 +191,11 @@ public class ReaderInputStream extends InputStream {
 	@Override
 	public int read() throws IOException
 	{
-		if( pis.available() > 0 ) { return pis.read(); }
-
-		int c = reader.read();
-
-		if( c == -1 ) { return c; }
-
-		osw.write( c );
-		osw.flush();
-		pos.flush();
-
-		return pis.read();
+		if( !bytes.hasRemaining() && !fill() )
+		{
+			return -1;
+		}
+		return bytes.get() & 0xff;
 	}
 
 	/*
@@ -113,29 +203,27 @@ public class ReaderInputStream extends InputStream {
 	 * @see java.io.InputStream#read(byte[], int, int)
 	 */
 	@Override
-	public int read( byte[] b, int off, int len ) throws IOException
+	public int read( final byte[] b, final int off, final int len ) throws IOException
 	{
+		if( off < 0 || len < 0 || len > b.length - off )
+		{
+			throw new IndexOutOfBoundsException();
+		}
 		if( len == 0 ) { return 0; }
 
-		int c = read();
-
-		if( c == -1 ) { return -1; }
-
-		b[ off ] = (byte) c;
-
-		int i = 1;
-
-		// Don't try to fill up the buffer if the reader is waiting.
-		for( ; (i < len) && reader.ready(); i++ )
+		int total = 0;
+		while( total < len )
 		{
-			c = read();
-
-			if( c == -1 ) { return i; }
-
-			b[ off + i ] = (byte) c;
+			// don't try to fill up the buffer if the reader is waiting
+			if( !bytes.hasRemaining() && ( ( total > 0 && !reader.ready() ) || !fill() ) )
+			{
+				break;
+			}
+			final int count = Math.min( bytes.remaining(), len - total );
+			bytes.get( b, off + total, count );
+			total += count;
 		}
-
-		return i;
+		return total == 0 ? -1 : total;
 	}
 
 	/*
@@ -145,19 +233,7 @@ public class ReaderInputStream extends InputStream {
 	@Override
 	public int available() throws IOException
 	{
-		int i = pis.available();
-
-		if( i > 0 ) { return i; }
-
-		if( reader.ready() )
-		{
-			// Char must produce at least one byte.
-			return 1;
-		}
-		else
-		{
-			return 0;
-		}
+		return bytes.remaining();
 	}
 
 	/*
@@ -168,7 +244,5 @@ public class ReaderInputStream extends InputStream {
 	public void close() throws IOException
 	{
 		reader.close();
-		osw.close();
-		pis.close();
 	}
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.Reader;
+
+import org.freezedry.persistence.writers.RecordPersistenceWriter;
+import org.freezedry.persistence.writers.RecordWriter;
+
+/**
+ * A {@link PersistenceReader} that can also read a stream of records, one record at a time. Kept apart from
+ * the {@link PersistenceReader} interface so that the readers that only read one object at a time don't have
+ * to implement it.
+ *
+ * @author Robert Philipp
+ */
+public interface RecordPersistenceReader extends PersistenceReader {
+
+	/**
+	 * Creates a {@link RecordReader} that reads a stream of records, written by the {@link RecordWriter} of
+	 * the equivalent {@link RecordPersistenceWriter}, one record at a time from the input stream.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model of each record.
+	 * @param input The input stream from which to read the persisted objects.
+	 * @return The {@link RecordReader} for the input stream
+	 */
+	RecordReader createRecordReader( final Class< ? > clazz, final Reader input );
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.Reader;
+
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.writers.RecordWriter;
+
+/**
+ * Reads a stream of records, written by the equivalent {@link RecordWriter}, one record at a time from the
+ * {@link Reader} for which it was created by {@link RecordPersistenceReader#createRecordReader(Class, Reader)}.
+ * Only the current record is held in memory.
+ *
+ * @author Robert Philipp
+ */
+public interface RecordReader {
+
+	/**
+	 * Reads the next record into a semantic model represented by the returned root {@link InfoNode}.
+	 * @return The root {@link InfoNode} of the next record's semantic model, or null when there are no more records
+	 */
+	InfoNode read();
+}
@@ -15,50 +15,66 @@
  */
 package org.freezedry.persistence.readers;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.PersistenceEngine;
 import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
 import org.freezedry.persistence.utils.Constants;
-import org.freezedry.persistence.utils.DomUtils;
 import org.freezedry.persistence.writers.XmlWriter;
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 
 /**
  * Reads the specified XML input stream into an {@link InfoNode} tree. The {@link InfoNode} tree
  * is populated with content and type information specified in the XML, but no more. Use the 
- * {@link PersistenceEngine} to convert the {@link InfoNode} to an object. 
+ * {@link PersistenceEngine} to convert the {@link InfoNode} to an object.<p>
+ * 
+ * The XML is read through an {@link XMLStreamReader}, building the {@link InfoNode}s as the elements
+ * are parsed, without an intermediate DOM tree. The parser doesn't support DTDs or external entities.
  * 
  * @author Robert Philipp
  */
-public class XmlReader implements PersistenceReader {
+public class XmlReader implements RecordPersistenceReader, ProjectingPersistenceReader {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( XmlReader.class );
 	
 	private boolean isRemoveEmptyTextNodes;
 	
+	private final XMLInputFactory factory;
+	private final Map< String, Class< ? > > classes = new ConcurrentHashMap<>();
+	
 	/**
 	 * Default no-arg constructor
 	 */
 	public XmlReader()
 	{
 		isRemoveEmptyTextNodes = true;
+		
+		// the persisted objects never need DTDs or external entities, so we turn them off. and
+		// persist names may contain colons (e.g. "key:java.lang.String"), which must not be taken
+		// as namespace prefixes.
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, false );
+		factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+		factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+		factory.setProperty( XMLInputFactory.IS_COALESCING, true );
 	}
 	
 	/**
@@ -86,51 +102,374 @@ public class XmlReader implements PersistenceReader {
 	@Override
 	public InfoNode read( final Class< ? > clazz, final Reader input )
 	{
-		// load the xml file into a DOM document node
-		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		Document document = null;
+		return read( clazz, input, Projection.ALL );
+	}
+
+	/**
+	 * Reads the parts of the XML selected by the projection into the semantic model. The elements that aren't
+	 * selected are skipped by counting their start and end tags, without collecting their text or creating
+	 * {@link InfoNode}s for them.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model.
+	 * @param input The input stream from which to read the persisted object.
+	 * @param projection The {@link Projection} that selects the parts of the persisted object to read
+	 * @return The root {@link InfoNode} representing the selected parts of the semantic model.
+	 */
+	@Override
+	public InfoNode read( final Class< ? > clazz, final Reader input, final Projection projection )
+	{
+		XMLStreamReader reader = null;
 		try
 		{
-			// create the document builder that creates the DOM tree
-			final DocumentBuilder builder = factory.newDocumentBuilder();
-			
-			// parse the input stream into a DOM tree and remove the empty text nodes
-			// that may have been in the XML due to formatting (we have to do this unless
-			// we use a validating builder, for which we need an XML schema).
-			final ReaderInputStream inputStream = new ReaderInputStream( input );
-			document = builder.parse( inputStream );
-			if( isRemoveEmptyTextNodes )
+			reader = factory.createXMLStreamReader( input );
+			return buildInfoNode( clazz, reader, projection.resolve( clazz ) );
+		}
+		catch( XMLStreamException e )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to parse the input stream into a semantic model:" ).append( Constants.NEW_LINE );
+			message.append( "  Class Name: " ).append( clazz.getName() );
+			LOGGER.error( message.toString(), e );
+			throw new IllegalStateException( message.toString(), e );
+		}
+		finally
+		{
+			close( reader );
+		}
+	}
+
+	/*
+	 * Closes the XML stream reader, if there is one, logging rather than throwing the errors
+	 */
+	private static void close( final XMLStreamReader reader )
+	{
+		if( reader != null )
+		{
+			try
+			{
+				reader.close();
+			}
+			catch( XMLStreamException e )
 			{
-				document = DomUtils.removeFormattingTextNodes( document );
+				LOGGER.warn( "Unable to close the XML stream reader", e );
 			}
 		}
-		catch( ParserConfigurationException e )
+	}
+
+	/**
+	 * Creates a {@link RecordReader} that reads the records written by the {@link XmlWriter#createRecordWriter(java.io.Writer)},
+	 * which are the child elements of the document's root element, whatever its name, one element at a time.
+	 * The {@link XMLStreamReader} is closed once the records run out, or when a record can't be parsed. As with the
+	 * other readers, the {@link Reader} input stream is left open.
+	 * @param clazz The {@link Class} to use as a template for creating the semantic model of each record.
+	 * @param input The input stream from which to read the persisted objects.
+	 * @return The {@link RecordReader} for the input stream
+	 */
+	@Override
+	public RecordReader createRecordReader( final Class< ? > clazz, final Reader input )
+	{
+		return new RecordReader() {
+
+			private XMLStreamReader reader;
+			private boolean isFinished = false;
+
+			@Override
+			public InfoNode read()
+			{
+				if( isFinished )
+				{
+					return null;
+				}
+				try
+				{
+					if( reader == null )
+					{
+						// move past the start tag of the element that encloses the records
+						reader = factory.createXMLStreamReader( input );
+						while( reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT )
+						{
+							/* skips the prolog */
+						}
+					}
+					final InfoNode rootNode = buildInfoNode( clazz, reader, Projection.ALL );
+					if( rootNode == null )
+					{
+						finish();
+					}
+					return rootNode;
+				}
+				catch( XMLStreamException e )
+				{
+					finish();
+					final StringBuilder message = new StringBuilder();
+					message.append( "Unable to parse the next record from the input stream into a semantic model:" ).append( Constants.NEW_LINE );
+					message.append( "  Class Name: " ).append( clazz.getName() );
+					LOGGER.error( message.toString(), e );
+					throw new IllegalStateException( message.toString(), e );
+				}
+			}
+
+			/*
+			 * Closes the XML stream reader, after which there are no more records
+			 */
+			private void finish()
+			{
+				isFinished = true;
+				close( reader );
+				reader = null;
+			}
+		};
+	}
+
+	/*
+	 * Builds the {@link InfoNode} tree from the events of the XML stream. The nodes are the same as those
+	 * built from the DOM tree by the {@link #buildInfoNode(Class, Document)} method, except that comments
+	 * and processing instructions are ignored, and CDATA sections are treated as text. Because we don't
+	 * know whether an element is a leaf or a compound node until we reach its end, the child nodes and the
+	 * text of each open element are held in an {@link Element} on a stack until its end tag. The reading stops
+	 * at the end tag of the root element, so that the records in a stream of records can be read one at a time.
+	 * The elements that the projection doesn't select are skipped.
+	 * @param rootClass The root {@link Class} represented by the XML
+	 * @param reader The {@link XMLStreamReader} positioned before the start tag of the root element
+	 * @param projection The {@link Projection} of the root element
+	 * @return The root {@link InfoNode} of the semantic model, or null if the end tag of an enclosing element
+	 * or the end of the document is reached before a root element
+	 */
+	private InfoNode buildInfoNode( final Class< ? > rootClass, final XMLStreamReader reader, final Projection projection ) throws XMLStreamException
+	{
+		final Deque< Element > elements = new ArrayDeque<>();
+		while( reader.hasNext() )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to create the DOM document builder:" + Constants.NEW_LINE );
-			message.append( "  Class Name: " + clazz.getName() );
-			LOGGER.error( message.toString() );
-			throw new IllegalStateException( message.toString(), e );
+			switch( reader.next() )
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					final String persistName = reader.getLocalName();
+					final String typeName = reader.getAttributeValue( null, XmlWriter.TYPE_ATTRIBUTE );
+					if( elements.isEmpty() )
+					{
+						// take the rootClass as the class for which to create the root node, unless the
+						// xml "type" attribute has a different value.
+						final Class< ? > clazz = typeName == null ? rootClass : getClass( typeName, persistName );
+						elements.push( new Element( InfoNode.createRootNode( persistName, clazz ), projection ) );
+					}
+					else
+					{
+						final Element parent = elements.peek();
+						parent.endText( isRemoveEmptyTextNodes );
+						final Projection elementProjection = parent.projection.select( persistName );
+						if( elementProjection == null )
+						{
+							skipElement( reader );
+							parent.hasSkippedChildren = true;
+						}
+						else
+						{
+							final Class< ? > type = typeName == null ? null : getClass( typeName, persistName );
+							elements.push( new Element( persistName, type, elementProjection ) );
+						}
+					}
+					break;
+
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if( !elements.isEmpty() )
+					{
+						elements.peek().appendText( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+					}
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					// the end of the element that encloses the records
+					if( elements.isEmpty() )
+					{
+						return null;
+					}
+					final Element element = elements.pop();
+					element.endText( isRemoveEmptyTextNodes );
+					final InfoNode node = element.createInfoNode();
+					if( elements.isEmpty() )
+					{
+						return node;
+					}
+					elements.peek().children.add( node );
+					break;
+
+				default:
+					break;
+			}
 		}
-		catch( SAXException | IOException e )
+		return null;
+	}
+
+	/*
+	 * Skips the element whose start tag is the reader's current event, up to and including its end tag
+	 * @param reader The {@link XMLStreamReader} positioned at the start tag of the element to skip
+	 */
+	private static void skipElement( final XMLStreamReader reader ) throws XMLStreamException
+	{
+		int depth = 1;
+		while( depth > 0 )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to parse the input stream into a DOM document (root node):" + Constants.NEW_LINE );
-			message.append( "  Class Name: " + clazz.getName() );
-			LOGGER.error( message.toString(), e );
-			throw new IllegalStateException( message.toString(), e );
+			final int event = reader.next();
+			if( event == XMLStreamConstants.START_ELEMENT )
+			{
+				++depth;
+			}
+			else if( event == XMLStreamConstants.END_ELEMENT )
+			{
+				--depth;
+			}
 		}
-		
-		// log the DOM tree
-		if( LOGGER.isInfoEnabled() )
+	}
+
+	/*
+	 * Returns the class for the specified type name, resolving each type name only once
+	 * @param typeName The name of the type (can be primitives)
+	 * @param persistName The name of the element holding the type attribute
+	 * @return the class (including for primitives) for the specified name
+	 */
+	private Class< ? > getClass( final String typeName, final String persistName )
+	{
+		Class< ? > clazz = classes.get( typeName );
+		if( clazz == null )
+		{
+			try
+			{
+				clazz = getClassForName( typeName );
+			}
+			catch( ClassNotFoundException e )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Unable to instantiate class." ).append( Constants.NEW_LINE );
+				message.append( "  Type Name: " ).append( typeName ).append( Constants.NEW_LINE );
+				message.append( "  Persist Name: " ).append( persistName ).append( Constants.NEW_LINE );
+				LOGGER.error( message.toString() );
+				throw new IllegalStateException( message.toString(), e );
+			}
+			classes.put( typeName, clazz );
+		}
+		return clazz;
+	}
+
+	/*
+	 * Returns true if the text consists only of whitespace, and is therefore used for formatting
+	 * @param text The text to check
+	 * @return true if the text consists only of whitespace; false otherwise
+	 */
+	private static boolean isFormatting( final CharSequence text )
+	{
+		for( int i = 0; i < text.length(); ++i )
 		{
-			LOGGER.info( DomUtils.toString( document ) );
+			final char c = text.charAt( i );
+			if( c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != '\u000B' )
+			{
+				return false;
+			}
 		}
+		return true;
+	}
 
-		// convert the DOM tree to an InfoNode tree (from which we can build the object)
-		final InfoNode node = buildInfoNode( clazz, document );
-		
-		return node;
+	/*
+	 * An element that has been started, but not yet ended, holding its child nodes and text
+	 */
+	private static final class Element {
+
+		private final String persistName;
+		private final Class< ? > type;
+		private final InfoNode rootNode;
+		private final Projection projection;
+		private final List< InfoNode > children = new ArrayList<>();
+
+		// an element whose child elements were all skipped is still a compound node
+		private boolean hasSkippedChildren;
+
+		// the text since the last start or end tag, the first text of the element, and the number of texts
+		private final StringBuilder run = new StringBuilder();
+		private String text;
+		private int numTexts;
+
+		Element( final String persistName, final Class< ? > type, final Projection projection )
+		{
+			this.persistName = persistName;
+			this.type = type;
+			this.rootNode = null;
+			this.projection = projection;
+		}
+
+		Element( final InfoNode rootNode, final Projection projection )
+		{
+			this.persistName = rootNode.getPersistName();
+			this.type = rootNode.getClazz();
+			this.rootNode = rootNode;
+			this.projection = projection;
+		}
+
+		void appendText( final char[] chars, final int start, final int length )
+		{
+			run.append( chars, start, length );
+		}
+
+		/*
+		 * Ends the current run of text (at a start or end tag), which becomes one text of the element,
+		 * unless it is empty, or it is only whitespace that is to be removed
+		 */
+		void endText( final boolean isRemoveFormatting )
+		{
+			if( run.length() > 0 && !( isRemoveFormatting && isFormatting( run ) ) )
+			{
+				// the DOM-based reader converts the text nodes of the root element into nodes
+				// named after the DOM text node, so we do the same
+				if( rootNode != null )
+				{
+					children.add( InfoNode.createLeafNode( null, "", "#text", null ) );
+				}
+				if( text == null )
+				{
+					text = run.toString();
+				}
+				++numTexts;
+			}
+			run.setLength( 0 );
+		}
+
+		InfoNode createInfoNode()
+		{
+			// the root node holds only the child elements
+			if( rootNode != null )
+			{
+				for( final InfoNode child : children )
+				{
+					rootNode.addChild( child );
+				}
+				return rootNode;
+			}
+
+			// we assume that the node either contains an element or text. nodes that contain
+			// elements are compound nodes, and nodes that contain text are leaf nodes.
+			if( text != null && children.size() + numTexts > 1 )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Nodes can either have elements or one text element." ).append( Constants.NEW_LINE );
+				message.append( "  Persist Name: " ).append( persistName );
+				LOGGER.error( message.toString() );
+				throw new IllegalStateException( message.toString() );
+			}
+
+			final InfoNode infoNode;
+			if( !children.isEmpty() || ( hasSkippedChildren && text == null ) )
+			{
+				infoNode = InfoNode.createCompoundNode( null, persistName, type );
+				for( final InfoNode child : children )
+				{
+					infoNode.addChild( child );
+				}
+			}
+			else
+			{
+				infoNode = InfoNode.createLeafNode( null, text == null ? "" : text, persistName, type );
+			}
+			return infoNode;
+		}
 	}
 	
 	/**
@@ -63,10 +63,7 @@ public class InfoNode implements Copyable< InfoNode > {
 	 */
 	public static InfoNode createRootNode( final String persistName, final Class< ? > clazz )
 	{
-		synchronized( InfoNode.class )
-		{
-			return new InfoNode( NodeType.ROOT_NODE, null, null, persistName, clazz, null, null, null );
-		}
+		return new InfoNode( NodeType.ROOT_NODE, null, null, persistName, clazz, null, null, null );
 	}
 	
 	/**
@@ -78,10 +75,7 @@ public class InfoNode implements Copyable< InfoNode > {
 	 */
 	public static InfoNode createCompoundNode( final String fieldName, final String persistName, final Class< ? > clazz )
 	{
-		synchronized( InfoNode.class )
-		{
-			return new InfoNode( NodeType.COMPOUND_NODE, fieldName, null, persistName, clazz, null, null, null );
-		}
+		return new InfoNode( NodeType.COMPOUND_NODE, fieldName, null, persistName, clazz, null, null, null );
 	}
 	
 	/**
@@ -94,10 +88,7 @@ public class InfoNode implements Copyable< InfoNode > {
 	 */
 	public static InfoNode createLeafNode( final String fieldName, final Object value, final String persistName, final Class< ? > clazz )
 	{
-		synchronized( InfoNode.class )
-		{
-			return new InfoNode( NodeType.LEAF_NODE, fieldName, value, persistName, clazz, null, null, null );
-		}
+		return new InfoNode( NodeType.LEAF_NODE, fieldName, value, persistName, clazz, null, null, null );
 	}
 	
 	/*
@@ -745,6 +736,22 @@ public class InfoNode implements Copyable< InfoNode > {
 		return getCopy( this );
 	}
 
+	/**
+	 * Creates a node that holds this node's data and children, but with the specified persistence name. Unlike
+	 * {@link #getCopy()}, the children aren't copied, and they remain the children of this node (their parent
+	 * isn't changed). The returned node is meant for code that reads the tree, for example, to override a persist
+	 * name while flattening, without modifying the tree. This node isn't modified.
+	 * @param persistName The persistence name of the returned node
+	 * @return a node that holds this node's data and children, but with the specified persistence name
+	 */
+	public InfoNode getRenamedView( final String persistName )
+	{
+		final InfoNode view = new InfoNode( nodeType, fieldName, value, persistName, clazz, constructor, setFieldMap, getFieldMap );
+		view.children.addAll( children );
+		view.genericParameterTypes.addAll( genericParameterTypes );
+		return view;
+	}
+
 	/**
 	 * Represents the types of nodes
 	 */
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.tree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.freezedry.persistence.annotations.PersistMap;
+import org.freezedry.persistence.utils.Constants;
+import org.freezedry.persistence.utils.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the parts of the semantic model that a reader materializes. A projection is created from a set of
+ * paths of persist names, relative to the root node. The elements of a path are separated by a "{@code .}", and
+ * each element is a persist name, optionally followed by any number of "{@code [*]}", which select all the
+ * elements of a collection or array, and "{@code {*}}", which select the values of all the entries of a map.
+ * For example, for a {@code Division} that holds a list of people and a map of people,
+ * <pre>
+ * people[*].givenName
+ * personMap{*}.age
+ * </pre>
+ * selects the given name of each person in the list, and the age of each person in the map. A path that ends at
+ * a node selects that node's whole subtree. The keys of the map entries are always selected.<p>
+ *
+ * Within a map entry, the value is found by its persist name, which a field's {@link PersistMap} annotation may
+ * change. The readers therefore {@link #resolve(Class)} the projection against the class they read, so that the
+ * projection knows the value persist name of each map field it selects.<p>
+ *
+ * The readers skip the parts of the persisted form that aren't selected, so that they are never materialized, and
+ * the {@link org.freezedry.persistence.PersistenceEngine} leaves the fields for which there are no nodes at their
+ * defaults.<p>
+ *
+ * A {@link Projection} is immutable, and therefore thread safe, so it can be created once and shared by any number
+ * of reads.
+ *
+ * @author Robert Philipp
+ */
+public final class Projection {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( Projection.class );
+
+	/**
+	 * The projection that selects the whole subtree
+	 */
+	public static final Projection ALL = new Projection( Kind.ALL, Collections.< String, Projection >emptyMap(), null );
+
+	private static final String ELEMENTS_SELECTOR = "[*]";
+	private static final String ENTRIES_SELECTOR = "{*}";
+
+	private enum Kind { ALL, FIELDS, ELEMENTS, ENTRIES, ENTRY }
+
+	private final Kind kind;
+	private final Map< String, Projection > fields;
+	private final Projection next;
+
+	// the persist name of the map values within an entry (for ENTRIES and ENTRY)
+	private final String valuePersistName;
+
+	// the projection for each of the map's entries (for ENTRIES)
+	private final Projection entry;
+
+	/*
+	 * @param kind The kind of node the projection applies to
+	 * @param fields The projections of the selected child nodes, by their persist names (for FIELDS)
+	 * @param next The projection of the elements (for ELEMENTS) or of the map values (for ENTRIES and ENTRY)
+	 */
+	private Projection( final Kind kind, final Map< String, Projection > fields, final Projection next )
+	{
+		this( kind, fields, next, PersistMap.VALUE_PERSIST_NAME );
+	}
+
+	/*
+	 * @param kind The kind of node the projection applies to
+	 * @param fields The projections of the selected child nodes, by their persist names (for FIELDS)
+	 * @param next The projection of the elements (for ELEMENTS) or of the map values (for ENTRIES and ENTRY)
+	 * @param valuePersistName The persist name of the map values within an entry (for ENTRIES and ENTRY)
+	 */
+	private Projection( final Kind kind, final Map< String, Projection > fields, final Projection next, final String valuePersistName )
+	{
+		this.kind = kind;
+		this.fields = fields;
+		this.next = next;
+		this.valuePersistName = valuePersistName;
+		this.entry = kind == Kind.ENTRIES ? new Projection( Kind.ENTRY, fields, next, valuePersistName ) : null;
+	}
+
+	/**
+	 * Creates the projection that selects the specified paths (see the class documentation for their format)
+	 * @param paths The paths of the persist names to select, relative to the root node
+	 * @return The {@link Projection} that selects the paths
+	 * @throws IllegalArgumentException if a path isn't valid, or if two paths select the same node differently,
+	 * for example, as a collection and as an object
+	 */
+	public static Projection of( final String... paths )
+	{
+		return of( Arrays.asList( paths ) );
+	}
+
+	/**
+	 * Creates the projection that selects the specified paths (see the class documentation for their format)
+	 * @param paths The paths of the persist names to select, relative to the root node
+	 * @return The {@link Projection} that selects the paths
+	 * @throws IllegalArgumentException if a path isn't valid, or if two paths select the same node differently,
+	 * for example, as a collection and as an object
+	 */
+	public static Projection of( final Collection< String > paths )
+	{
+		Projection projection = null;
+		for( final String path : paths )
+		{
+			final Projection pathProjection = parse( path, 0 );
+			projection = projection == null ? pathProjection : merge( projection, pathProjection, path );
+		}
+		if( projection == null )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "A projection must select at least one path" ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		return projection;
+	}
+
+	/**
+	 * @return true if the projection selects the whole subtree of the node to which it applies
+	 */
+	public boolean isAll()
+	{
+		return kind == Kind.ALL;
+	}
+
+	/**
+	 * Returns the projection for the child node with the specified persist name, of the node to which this
+	 * projection applies. The elements of a collection and the entries of a map are selected whatever their
+	 * persist names, and within a map entry, all nodes other than the value are selected whole.
+	 * @param persistName The persist name of the child node
+	 * @return The {@link Projection} for the child node, or null if the child node isn't selected
+	 */
+	public Projection select( final String persistName )
+	{
+		switch( kind )
+		{
+			case ALL:
+				return ALL;
+
+			case FIELDS:
+				return fields.get( persistName );
+
+			case ELEMENTS:
+				return next;
+
+			case ENTRIES:
+				return entry;
+
+			default:
+				return valuePersistName.equals( persistName ) ? next : ALL;
+		}
+	}
+
+	/**
+	 * Returns the projection resolved against the fields of the specified class, whose map entries select
+	 * the values by the value persist names given by the {@link PersistMap} annotations of their fields. The
+	 * types of the selected fields, and of their elements and values, are found from the fields' generic types.
+	 * Where a type can't be found, the map entries select their values by the default value persist name.
+	 * @param clazz The {@link Class} of the root node to which the projection applies
+	 * @return The resolved {@link Projection}
+	 */
+	public Projection resolve( final Class< ? > clazz )
+	{
+		return resolve( this, clazz, null );
+	}
+
+	/**
+	 * Returns the projection for the elements of the collection or array to which this projection applies.
+	 * This is used by readers whose persisted form doesn't hold the persist names of the elements.
+	 * @return The {@link Projection} for the elements, or null if this projection doesn't select elements
+	 */
+	public Projection selectElement()
+	{
+		return kind == Kind.ALL ? ALL : ( kind == Kind.ELEMENTS ? next : null );
+	}
+
+	/**
+	 * Returns the projection for the values of the map to which this projection applies. This is used by
+	 * readers whose persisted form doesn't hold the map entries' or values' persist names.
+	 * @return The {@link Projection} for the values, or null if this projection doesn't select map values
+	 */
+	public Projection selectEntryValue()
+	{
+		return kind == Kind.ALL ? ALL : ( kind == Kind.ENTRIES ? next : null );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		switch( kind )
+		{
+			case ALL:
+				return "*";
+
+			case FIELDS:
+				return fields.toString();
+
+			case ELEMENTS:
+				return ELEMENTS_SELECTOR + next;
+
+			default:
+				return ENTRIES_SELECTOR + next;
+		}
+	}
+
+	/*
+	 * Parses the remainder of the path, starting at the specified index, into a chain of projections
+	 * @param path The path
+	 * @param index The index in the path at which the parsing starts
+	 * @return The {@link Projection} for the remainder of the path
+	 */
+	private static Projection parse( final String path, final int index )
+	{
+		// the persist name ends at the first selector or separator
+		int end = index;
+		while( end < path.length() && "[]{}.".indexOf( path.charAt( end ) ) < 0 )
+		{
+			++end;
+		}
+		final String persistName = path.substring( index, end ).trim();
+		if( persistName.isEmpty() )
+		{
+			throw invalidPath( path, "Missing persist name at character " + index );
+		}
+
+		// count the selectors that follow the persist name
+		int selectors = end;
+		while( path.startsWith( ELEMENTS_SELECTOR, selectors ) || path.startsWith( ENTRIES_SELECTOR, selectors ) )
+		{
+			selectors += ELEMENTS_SELECTOR.length();
+		}
+
+		Projection projection;
+		if( selectors == path.length() )
+		{
+			projection = ALL;
+		}
+		else if( path.charAt( selectors ) == '.' )
+		{
+			projection = parse( path, selectors + 1 );
+		}
+		else
+		{
+			throw invalidPath( path, "Expected \"" + ELEMENTS_SELECTOR + "\", \"" + ENTRIES_SELECTOR + "\", or \".\" at character " + selectors );
+		}
+
+		// wrap the projection of the remainder with the selectors, innermost first
+		for( int i = selectors - ELEMENTS_SELECTOR.length(); i >= end; i -= ELEMENTS_SELECTOR.length() )
+		{
+			final Kind kind = path.charAt( i ) == '[' ? Kind.ELEMENTS : Kind.ENTRIES;
+			projection = new Projection( kind, Collections.< String, Projection >emptyMap(), projection );
+		}
+		return new Projection( Kind.FIELDS, Collections.singletonMap( persistName, projection ), null );
+	}
+
+	/*
+	 * Resolves the projection against the specified type, held by the specified field
+	 * @param projection The projection to resolve
+	 * @param type The type of the node to which the projection applies; null if it isn't known
+	 * @param field The field that holds the node; null for elements, values, and the root node
+	 * @return The resolved {@link Projection}
+	 */
+	private static Projection resolve( final Projection projection, final Type type, final Field field )
+	{
+		Class< ? > clazz = null;
+		Type[] arguments = null;
+		if( type instanceof Class )
+		{
+			clazz = (Class< ? >)type;
+		}
+		else if( type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() instanceof Class )
+		{
+			clazz = (Class< ? >)((ParameterizedType)type).getRawType();
+			arguments = ((ParameterizedType)type).getActualTypeArguments();
+		}
+
+		switch( projection.kind )
+		{
+			case FIELDS:
+				final Map< String, Projection > fields = new LinkedHashMap<>();
+				for( final Map.Entry< String, Projection > entry : projection.fields.entrySet() )
+				{
+					final Field child = clazz == null ? null : getField( clazz, entry.getKey() );
+					final Type childType = child == null ? null : child.getGenericType();
+					fields.put( entry.getKey(), resolve( entry.getValue(), childType, child ) );
+				}
+				return new Projection( Kind.FIELDS, Collections.unmodifiableMap( fields ), null );
+
+			case ELEMENTS:
+				Type elementType = null;
+				if( type instanceof GenericArrayType )
+				{
+					elementType = ((GenericArrayType)type).getGenericComponentType();
+				}
+				else if( clazz != null && clazz.isArray() )
+				{
+					elementType = clazz.getComponentType();
+				}
+				else if( arguments != null && arguments.length == 1 )
+				{
+					elementType = arguments[ 0 ];
+				}
+				return new Projection( Kind.ELEMENTS, projection.fields, resolve( projection.next, elementType, null ) );
+
+			case ENTRIES:
+				String valuePersistName = PersistMap.VALUE_PERSIST_NAME;
+				final PersistMap annotation = field == null ? null : field.getAnnotation( PersistMap.class );
+				if( annotation != null && !annotation.valuePersistName().isEmpty() )
+				{
+					valuePersistName = annotation.valuePersistName();
+				}
+				final Type valueType = arguments != null && arguments.length == 2 ? arguments[ 1 ] : null;
+				return new Projection( Kind.ENTRIES, projection.fields, resolve( projection.next, valueType, null ), valuePersistName );
+
+			default:
+				return projection;
+		}
+	}
+
+	/*
+	 * @return The field of the class that has the persist name, either as its name or as its annotated
+	 * persistence name; null if the class has no such field
+	 */
+	private static Field getField( final Class< ? > clazz, final String persistName )
+	{
+		try
+		{
+			return ReflectionUtils.getDeclaredField( clazz, persistName );
+		}
+		catch( NoSuchFieldException e )
+		{
+			return ReflectionUtils.getFieldForPersistenceName( clazz, persistName );
+		}
+	}
+
+	/*
+	 * Merges the two projections into one that selects the nodes selected by either
+	 * @param first The first projection
+	 * @param second The second projection
+	 * @param path The path from which the second projection was parsed, for error messages
+	 * @return The merged {@link Projection}
+	 */
+	private static Projection merge( final Projection first, final Projection second, final String path )
+	{
+		if( first.kind == Kind.ALL || second.kind == Kind.ALL )
+		{
+			return ALL;
+		}
+		if( first.kind != second.kind )
+		{
+			throw invalidPath( path, "Selects a node as both " + first.kind.name().toLowerCase() + " and " + second.kind.name().toLowerCase() );
+		}
+		if( first.kind != Kind.FIELDS )
+		{
+			return new Projection( first.kind, first.fields, merge( first.next, second.next, path ), first.valuePersistName );
+		}
+
+		final Map< String, Projection > fields = new LinkedHashMap<>( first.fields );
+		for( final Map.Entry< String, Projection > entry : second.fields.entrySet() )
+		{
+			final Projection existing = fields.get( entry.getKey() );
+			fields.put( entry.getKey(), existing == null ? entry.getValue() : merge( existing, entry.getValue(), path ) );
+		}
+		return new Projection( Kind.FIELDS, Collections.unmodifiableMap( fields ), null );
+	}
+
+	/*
+	 * Creates the exception for an invalid path
+	 */
+	private static IllegalArgumentException invalidPath( final String path, final String error )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( "Invalid projection path" ).append( Constants.NEW_LINE );
+		message.append( "  Path: " ).append( path ).append( Constants.NEW_LINE );
+		message.append( "  Error: " ).append( error );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString() );
+	}
+}
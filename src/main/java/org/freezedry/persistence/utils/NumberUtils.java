@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.utils;
+
+/**
+ * Checks whether text holds a number literal, one character at a time, without parsing it, so that the checks
+ * neither allocate nor throw. A value that passes a check can be handed to {@link Long#parseLong(String)},
+ * {@link Integer#parseInt(String)}, or {@link Double#parseDouble(String)}, which will then not fail.
+ * 
+ * @author Robert Philipp
+ */
+public class NumberUtils {
+
+	private static final String NAN = "NaN";
+	private static final String INFINITY = "Infinity";
+
+	/**
+	 * Returns true if the value is a decimal integer, an optional minus sign followed by one or more digits,
+	 * that lies between the specified minimum and maximum values (inclusive); false otherwise
+	 * @param value The value to check
+	 * @param min The smallest integer accepted (for example, {@link Integer#MIN_VALUE})
+	 * @param max The largest integer accepted (for example, {@link Integer#MAX_VALUE})
+	 * @return true if the value is an integer between the minimum and maximum values; false otherwise
+	 */
+	public static boolean isInteger( final String value, final long min, final long max )
+	{
+		final int length = value.length();
+		final boolean isNegative = length > 0 && value.charAt( 0 ) == '-';
+		int index = isNegative ? 1 : 0;
+		if( index == length )
+		{
+			return false;
+		}
+
+		// accumulates the negated value, because the negative range is the larger one, and checks
+		// against the limit before each step so that the accumulator never overflows
+		final long limit = isNegative ? min : -max;
+		long result = 0;
+		for( ; index < length; ++index )
+		{
+			final int digit = value.charAt( index ) - '0';
+			if( digit < 0 || digit > 9 || result < limit / 10 )
+			{
+				return false;
+			}
+			result *= 10;
+			if( result < limit + digit )
+			{
+				return false;
+			}
+			result -= digit;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the value is a decimal number: an optional minus sign, followed by digits with an optional
+	 * fractional part, and an optional exponent (for example, {@code -12}, {@code 3.14}, or {@code 1.0E-7});
+	 * or {@code NaN}, {@code Infinity}, or {@code -Infinity}, as written by {@link Double#toString(double)}.
+	 * @param value The value to check
+	 * @return true if the value is a decimal number; false otherwise
+	 */
+	public static boolean isDecimal( final String value )
+	{
+		final int length = value.length();
+		int index = length > 0 && value.charAt( 0 ) == '-' ? 1 : 0;
+		if( value.equals( NAN ) || ( length == index + INFINITY.length() && value.startsWith( INFINITY, index ) ) )
+		{
+			return true;
+		}
+
+		// the integer and fractional parts need at least one digit between them
+		final int integerStart = index;
+		index = skipDigits( value, index );
+		int digits = index - integerStart;
+		if( index < length && value.charAt( index ) == '.' )
+		{
+			final int fractionStart = index + 1;
+			index = skipDigits( value, fractionStart );
+			digits += index - fractionStart;
+		}
+		if( digits == 0 )
+		{
+			return false;
+		}
+
+		if( index < length && ( value.charAt( index ) == 'e' || value.charAt( index ) == 'E' ) )
+		{
+			++index;
+			if( index < length && ( value.charAt( index ) == '-' || value.charAt( index ) == '+' ) )
+			{
+				++index;
+			}
+			final int exponentStart = index;
+			index = skipDigits( value, index );
+			if( index == exponentStart )
+			{
+				return false;
+			}
+		}
+		return index == length;
+	}
+
+	/*
+	 * @return The index of the first character, at or after the start index, that isn't a digit
+	 */
+	private static int skipDigits( final String value, final int start )
+	{
+		int index = start;
+		while( index < value.length() && value.charAt( index ) >= '0' && value.charAt( index ) <= '9' )
+		{
+			++index;
+		}
+		return index;
+	}
+}
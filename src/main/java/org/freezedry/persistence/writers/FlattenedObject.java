@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact, read-only, representation of a flattened object, as created by the {@link KeyValueMapWriter}. Rather
+ * than an entry and a key for each of the object's key-value pairs, the flattened object holds the ids of its
+ * keys, from a {@link KeyDictionary} that may be shared with other flattened objects, and their values, in
+ * parallel arrays, in the order in which they were flattened. The flattened object is also a read-only
+ * {@link Map} of the keys to their values, so it can be used where the map of the flattened object was used.<p>
+ *
+ * The values are those created by the renderers, which for most leaf nodes is their decorated text.
+ *
+ * @author Robert Philipp
+ */
+public final class FlattenedObject extends AbstractMap< String, Object > {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final KeyDictionary dictionary;
+	private int[] keyIds;
+	private Object[] values;
+	private int size = 0;
+
+	// the index of each key's value, plus one, indexed by the key's id. the keys that aren't in
+	// this flattened object have a 0, so that the array can be sized to the dictionary
+	private int[] indexes;
+
+	/**
+	 * Constructs an empty flattened object, to which the {@link KeyValueMapWriter} adds the key-value pairs
+	 * @param dictionary The dictionary of the keys
+	 */
+	FlattenedObject( final KeyDictionary dictionary )
+	{
+		this.dictionary = dictionary;
+		this.keyIds = new int[ INITIAL_CAPACITY ];
+		this.values = new Object[ INITIAL_CAPACITY ];
+		this.indexes = new int[ Math.max( INITIAL_CAPACITY, dictionary.size() ) ];
+	}
+
+	/**
+	 * Adds the key-value pair. A key that was already added keeps its place, and its value is replaced.
+	 * @param key The flattened key
+	 * @param value The value
+	 */
+	void add( final String key, final Object value )
+	{
+		final int keyId = dictionary.getOrAddId( key );
+		final int index = indexOf( keyId );
+		if( index >= 0 )
+		{
+			values[ index ] = value;
+			return;
+		}
+
+		if( size == keyIds.length )
+		{
+			keyIds = Arrays.copyOf( keyIds, size * 2 );
+			values = Arrays.copyOf( values, size * 2 );
+		}
+		if( keyId >= indexes.length )
+		{
+			indexes = Arrays.copyOf( indexes, Math.max( keyId + 1, indexes.length * 2 ) );
+		}
+		keyIds[ size ] = keyId;
+		values[ size ] = value;
+		indexes[ keyId ] = ++size;
+	}
+
+	/**
+	 * @return The dictionary that holds the keys of this flattened object
+	 */
+	public KeyDictionary getKeyDictionary()
+	{
+		return dictionary;
+	}
+
+	/**
+	 * Returns the index of the value of the key with the specified id
+	 * @param keyId The id of the key in the {@link KeyDictionary}
+	 * @return The index of the key's value, or -1 if this flattened object doesn't hold the key
+	 */
+	public int indexOf( final int keyId )
+	{
+		return keyId >= 0 && keyId < indexes.length ? indexes[ keyId ] - 1 : -1;
+	}
+
+	/**
+	 * @param index The index of the key-value pair, in the order in which they were flattened
+	 * @return The id of the key, in the {@link KeyDictionary}, of the key-value pair with the specified index
+	 */
+	public int getKeyId( final int index )
+	{
+		checkIndex( index );
+		return keyIds[ index ];
+	}
+
+	/**
+	 * @param index The index of the key-value pair, in the order in which they were flattened
+	 * @return The key of the key-value pair with the specified index
+	 */
+	public String getKey( final int index )
+	{
+		return dictionary.getKey( getKeyId( index ) );
+	}
+
+	/**
+	 * @param index The index of the key-value pair, in the order in which they were flattened
+	 * @return The value of the key-value pair with the specified index
+	 */
+	public Object getValue( final int index )
+	{
+		checkIndex( index );
+		return values[ index ];
+	}
+
+	/*
+	 * Ensures that the index is that of a key-value pair
+	 */
+	private void checkIndex( final int index )
+	{
+		if( index < 0 || index >= size )
+		{
+			throw new IndexOutOfBoundsException( "Index: " + index + "; Size: " + size );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey( final Object key )
+	{
+		return key instanceof String && indexOf( dictionary.getId( (String)key ) ) >= 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public Object get( final Object key )
+	{
+		final int index = key instanceof String ? indexOf( dictionary.getId( (String)key ) ) : -1;
+		return index < 0 ? null : values[ index ];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set< Map.Entry< String, Object > > entrySet()
+	{
+		return new AbstractSet< Map.Entry< String, Object > >() {
+
+			@Override
+			public Iterator< Map.Entry< String, Object > > iterator()
+			{
+				return new Iterator< Map.Entry< String, Object > >() {
+
+					private int index = 0;
+
+					@Override
+					public boolean hasNext()
+					{
+						return index < size;
+					}
+
+					@Override
+					public Map.Entry< String, Object > next()
+					{
+						if( index >= size )
+						{
+							throw new NoSuchElementException();
+						}
+						final Map.Entry< String, Object > entry = new SimpleImmutableEntry<>( getKey( index ), values[ index ] );
+						++index;
+						return entry;
+					}
+
+					@Override
+					public void remove()
+					{
+						throw new UnsupportedOperationException( "A flattened object is read-only" );
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+}
@@ -17,26 +17,41 @@ package org.freezedry.persistence.writers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONWriter;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Writes the semantic model, specified by the root {@link InfoNode} to the specified {@link PrintWriter}
- * as a JSON string.
+ * as a JSON string.<p>
+ * 
+ * The JSON is written directly from the {@link InfoNode} tree, through a buffer, to the output. The output
+ * is the JSON that would be produced by building {@code org.json.JSONObject}s with {@code accumulate(...)}:
+ * sibling nodes that share a persist name are written as an array; a name whose first values are null is
+ * written from its first non-null value, and omitted if all its values are null; numbers are written without
+ * trailing zeros in the fraction; and strings are escaped in the same way. The names of an object are written 
+ * in the order in which they first appear in the semantic model.
  * 
  * @author Robert Philipp
  */
-public class JsonWriter implements PersistenceWriter {
+public class JsonWriter implements RecordPersistenceWriter {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( JsonWriter.class );
 	
+	private static final int BUFFER_SIZE = 8192;
+	
+	// the output buffer, while no write is using it. a write takes it, or allocates its own when another
+	// write is using it, and puts it back when it is done, so that the buffer is reused across the writes
+	private final AtomicReference< char[] > idleBuffer = new AtomicReference<>();
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.freezedry.persistence.writers.PersistenceWriter#write(org.freezedry.persistence.tree.InfoNode, java.io.PrintWriter)
@@ -44,112 +59,385 @@ public class JsonWriter implements PersistenceWriter {
 	@Override
 	public void write( final InfoNode rootNode, final Writer output )
 	{
-		Pair< String, JSONObject > keyValue = null;
+		final BufferedOutput buffer = new BufferedOutput( output, acquireBuffer() );
 		try
 		{
-			// build (recursively) the JSON object contained by the the class represented in the root node
-			keyValue = buildJsonObject( rootNode );
-			
-			// write the JSON string to the output stream. the JSON string has uses the 
-			// persistence name of the root node as the key, and the value is the JSON object
-			// that we just created
-			new JSONWriter( output )
-				.object()
-					.key( keyValue.getFirst() )
-					.value( keyValue.getSecond() )
-				.endObject();
-		}
-		catch( JSONException e )
-		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to write the JSON object to the output stream." + Constants.NEW_LINE );
-			if( keyValue == null )
+			writeRoot( rootNode, buffer );
+			buffer.flush();
+		}
+		catch( IOException e )
+		{
+			throw writeError( rootNode, e );
+		}
+		finally
+		{
+			idleBuffer.set( buffer.buffer );
+		}
+	}
+
+	/**
+	 * Creates a {@link RecordWriter} that writes the records as JSON Lines: each record is the JSON
+	 * object that {@link #write(InfoNode, Writer)} would write, followed by a new line. The records share
+	 * the writer's buffer, which is returned to the writer when the stream of records is finished, and the
+	 * output is only flushed when the buffer fills, and when the stream of records is finished.
+	 * @param output The {@link Writer} output stream to which to write the records.
+	 * @return The {@link RecordWriter} for the output stream
+	 */
+	@Override
+	public RecordWriter createRecordWriter( final Writer output )
+	{
+		final BufferedOutput buffer = new BufferedOutput( output, acquireBuffer() );
+		return new RecordWriter() {
+
+			@Override
+			public void write( final InfoNode rootNode )
 			{
-				message.append( "** Failed to construct the JSON object from the semantic model **" + Constants.NEW_LINE );
-				message.append( "  Semantic Model: " + Constants.NEW_LINE );
-				message.append( rootNode.treeToString() );
+				try
+				{
+					writeRoot( rootNode, buffer );
+					buffer.append( '\n' );
+				}
+				catch( IOException e )
+				{
+					throw writeError( rootNode, e );
+				}
 			}
-			else
+
+			@Override
+			public void finish()
 			{
-				message.append( "  Key Name: " + keyValue.getFirst() + Constants.NEW_LINE );
-				message.append( "  JSON Object: " + Constants.NEW_LINE );
-				message.append( keyValue.getSecond().toString() );
+				try
+				{
+					buffer.flush();
+				}
+				catch( IOException e )
+				{
+					final String message = "Unable to flush the JSON records to the output stream.";
+					LOGGER.error( message );
+					throw new IllegalArgumentException( message, e );
+				}
+				finally
+				{
+					idleBuffer.set( buffer.buffer );
+				}
 			}
-			LOGGER.error( message.toString() );
-			throw new IllegalArgumentException( message.toString(), e );
-		}
+		};
 	}
-	
+
 	/*
-	 * Builds the JSON object and returns the key name and {@link JSONObject} body representation
-	 * of the semantic model. Calls the recursive method {@link #buildJsonObject(InfoNode, JSONObject)}.
-	 * @param rootNode The root {@link InfoNode} of the semantic model.
-	 * @return The (key, value) pair representing the JSON key and the JSON body
+	 * @return The writer's output buffer, or a new buffer if another write is using it
 	 */
-	private Pair< String, JSONObject >  buildJsonObject( final InfoNode rootNode )
+	private char[] acquireBuffer()
 	{
-		// grab the root key
-		final String rootKey = rootNode.getPersistName();
-		
-		// create the JSON object representation of the semantic model
-		final JSONObject jsonObject = new JSONObject();
-			
-		// recursively build the JSON object form the semantic model
-		buildJsonObject( rootNode, jsonObject );
+		final char[] buffer = idleBuffer.getAndSet( null );
+		return buffer == null ? new char[ BUFFER_SIZE ] : buffer;
+	}
 
-		// return the key and json object as a pair
-		return new Pair< String, JSONObject >( rootKey, jsonObject );
+	/*
+	 * Writes the JSON object for the semantic model. The JSON object uses the persistence name of the
+	 * root node as the key, and the value is the JSON object represented by the root node
+	 * @param rootNode The root {@link InfoNode} representing the semantic model of the object to be written.
+	 * @param output The buffer to which to write the JSON
+	 */
+	private void writeRoot( final InfoNode rootNode, final BufferedOutput output ) throws IOException
+	{
+		output.append( '{' );
+		writeString( rootNode.getPersistName(), output );
+		output.append( ':' );
+		writeObject( rootNode, output );
+		output.append( '}' );
+	}
+
+	/*
+	 * Creates the exception for a failure to write the semantic model
+	 * @param rootNode The root {@link InfoNode} of the semantic model that couldn't be written
+	 * @param e The cause of the failure
+	 * @return The exception to throw
+	 */
+	private static IllegalArgumentException writeError( final InfoNode rootNode, final IOException e )
+	{
+		final StringBuilder message = new StringBuilder();
+		message.append( "Unable to write the JSON object to the output stream." ).append( Constants.NEW_LINE );
+		message.append( "  Key Name: " ).append( rootNode.getPersistName() ).append( Constants.NEW_LINE );
+		LOGGER.error( message.toString() );
+		return new IllegalArgumentException( message.toString(), e );
 	}
 	
 	/*
-	 * Recursive method that builds up the {@link JSONObject} from the {@link InfoNode} tree (the
-	 * semantic model).
+	 * Recursive method that writes the JSON object representing the children of the specified node.
+	 * The children are grouped by their persist name, and each group becomes a value or an array.
 	 * @param node The current {@link InfoNode} in the semantic model tree.
-	 * @param jsonObject The {@link JSONObject} currently being worked on. This could be the root
-	 * object or one that has been created during the recursion.
+	 * @param output The buffer to which to write the JSON
 	 */
-	private void buildJsonObject( final InfoNode node, final JSONObject jsonObject )
+	private void writeObject( final InfoNode node, final BufferedOutput output ) throws IOException
 	{
-		// loop through the children of the current info node, building up the json object,
-		// and building new ones for compound or root nodes.
-		for( InfoNode currentNode : node.getChildren() )
+		final Map< String, List< InfoNode > > groups = groupByPersistName( node.getChildren() );
+		
+		output.append( '{' );
+		boolean isFirst = true;
+		for( final Map.Entry< String, List< InfoNode > > group : groups.entrySet() )
 		{
-			try
+			final List< InfoNode > values = group.getValue();
+			if( !isFirst )
 			{
-				// for leaf nodes we just add to the current json object.
-				if( currentNode.isLeafNode() )
+				output.append( ',' );
+			}
+			isFirst = false;
+			
+			writeString( group.getKey(), output );
+			output.append( ':' );
+			if( values.size() == 1 )
+			{
+				writeValue( values.get( 0 ), output );
+			}
+			else
+			{
+				output.append( '[' );
+				for( int i = 0; i < values.size(); ++i )
 				{
-					jsonObject.accumulate( currentNode.getPersistName(), currentNode.getValue() );
+					if( i > 0 )
+					{
+						output.append( ',' );
+					}
+					writeValue( values.get( i ), output );
 				}
-				// for compound or root nodes we add a newly created json object (which recursively
-				// calls this method again)
-				else if( currentNode.isCompoundfNode() || currentNode.isRootNode() )
+				output.append( ']' );
+			}
+		}
+		output.append( '}' );
+	}
+	
+	/*
+	 * Groups the nodes by persist name, in the order in which each name first appears. A leaf node with
+	 * a null value that would be the first value of its group is dropped, and a group of only such nodes
+	 * doesn't appear, because that's what {@code JSONObject.accumulate(...)} did. Nodes that aren't leaf, 
+	 * compound, or root nodes are ignored.
+	 * @param children The child nodes to group
+	 * @return The nodes grouped by their persist name
+	 */
+	private Map< String, List< InfoNode > > groupByPersistName( final List< InfoNode > children )
+	{
+		final Map< String, List< InfoNode > > groups = new LinkedHashMap<>();
+		for( final InfoNode child : children )
+		{
+			if( child.isLeafNode() )
+			{
+				validateNumber( child );
+			}
+			else if( !child.isCompoundfNode() && !child.isRootNode() )
+			{
+				continue;
+			}
+			
+			List< InfoNode > group = groups.get( child.getPersistName() );
+			if( group == null )
+			{
+				if( child.isLeafNode() && child.getValue() == null )
 				{
-					jsonObject.accumulate( currentNode.getPersistName(), createJsonObject( currentNode ) );
+					continue;
 				}
+				group = new ArrayList<>( 1 );
+				groups.put( child.getPersistName(), group );
+			}
+			group.add( child );
+		}
+		return groups;
+	}
+	
+	/*
+	 * JSON doesn't allow non-finite numbers
+	 * @param node The leaf node whose value to check
+	 */
+	private static void validateNumber( final InfoNode node )
+	{
+		final Object value = node.getValue();
+		if( ( value instanceof Double && ( ((Double)value).isInfinite() || ((Double)value).isNaN() ) ) ||
+			( value instanceof Float && ( ((Float)value).isInfinite() || ((Float)value).isNaN() ) ) )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "Problem constructing node:" ).append( Constants.NEW_LINE );
+			message.append( "  Node Persistence Name: " ).append( node.getPersistName() ).append( Constants.NEW_LINE );
+			message.append( "  Node Type: " ).append( node.getNodeType().toString() ).append( Constants.NEW_LINE );
+			message.append( "  Value: " ).append( value ).append( " (JSON does not allow non-finite numbers)" );
+			LOGGER.error( message.toString() );
+			throw new IllegalStateException( message.toString() );
+		}
+	}
+	
+	/*
+	 * Writes the value of a leaf node, or the object of a compound or root node
+	 * @param node The node whose value to write
+	 * @param output The buffer to which to write the JSON
+	 */
+	private void writeValue( final InfoNode node, final BufferedOutput output ) throws IOException
+	{
+		if( !node.isLeafNode() )
+		{
+			writeObject( node, output );
+			return;
+		}
+		
+		final Object value = node.getValue();
+		if( value == null )
+		{
+			output.append( "null" );
+		}
+		else if( value instanceof Number )
+		{
+			output.append( numberToString( (Number)value ) );
+		}
+		else if( value instanceof Boolean )
+		{
+			output.append( value.toString() );
+		}
+		else
+		{
+			writeString( value.toString(), output );
+		}
+	}
+	
+	/*
+	 * @return the string representation of the number, with the trailing zeros of the fraction removed
+	 */
+	private static String numberToString( final Number number )
+	{
+		String string = number.toString();
+		if( string.indexOf( '.' ) > 0 && string.indexOf( 'e' ) < 0 && string.indexOf( 'E' ) < 0 )
+		{
+			int end = string.length();
+			while( string.charAt( end - 1 ) == '0' )
+			{
+				--end;
 			}
-			catch( JSONException e )
+			if( string.charAt( end - 1 ) == '.' )
 			{
-				final StringBuffer message = new StringBuffer();
-				message.append( "Problem constructing node:" + Constants.NEW_LINE );
-				message.append( "  Node Persistence Name: " + currentNode.getPersistName() + Constants.NEW_LINE );
-				message.append( "  Node Type: " + currentNode.getNodeType().toString() + Constants.NEW_LINE );
-				LOGGER.error( message.toString() );
-				throw new IllegalStateException( message.toString(), e );
+				--end;
 			}
+			string = string.substring( 0, end );
 		}
+		return string;
 	}
 	
 	/*
-	 * Recursive method that is called from, and then calls, {@link #buildJsonObject(InfoNode, JSONObject)} to
-	 * build the {@link JSONObject} from the specified {@link InfoNode}.
-	 * @param node The {@link InfoNode} from which to create the {@link JSONObject}
-	 * @return the {@link JSONObject} representation of the specified {@link InfoNode}
+	 * Writes the quoted and escaped string. Runs of characters that don't need escaping are copied
+	 * to the buffer as a whole.
+	 * @param string The string to write
+	 * @param output The buffer to which to write the JSON
 	 */
-	private JSONObject createJsonObject( final InfoNode node )
+	private static void writeString( final String string, final BufferedOutput output ) throws IOException
 	{
-		final JSONObject jsonObject = new JSONObject();
-		buildJsonObject( node, jsonObject );
-		return jsonObject;
+		output.append( '"' );
+		final int length = string.length();
+		int start = 0;
+		char previous = 0;
+		for( int i = 0; i < length; ++i )
+		{
+			final char c = string.charAt( i );
+			final String escape = escape( c, previous );
+			previous = c;
+			if( escape != null )
+			{
+				output.append( string, start, i );
+				output.append( escape );
+				start = i + 1;
+			}
+		}
+		output.append( string, start, length );
+		output.append( '"' );
+	}
+	
+	/*
+	 * Returns the escape sequence for the specified character, or null if it doesn't need escaping. 
+	 * A '/' is only escaped after a '<' so that "</" can't appear in the JSON.
+	 * @param c The character to escape
+	 * @param previous The character before it
+	 * @return the escape sequence for the specified character, or null if it doesn't need escaping
+	 */
+	private static String escape( final char c, final char previous )
+	{
+		switch( c )
+		{
+			case '\\':
+				return "\\\\";
+			case '"':
+				return "\\\"";
+			case '/':
+				return previous == '<' ? "\\/" : null;
+			case '\b':
+				return "\\b";
+			case '\t':
+				return "\\t";
+			case '\n':
+				return "\\n";
+			case '\f':
+				return "\\f";
+			case '\r':
+				return "\\r";
+			default:
+				if( c < ' ' || ( c >= '\u0080' && c < '\u00a0' ) || ( c >= '\u2000' && c < '\u2100' ) )
+				{
+					final String hex = "000" + Integer.toHexString( c );
+					return "\\u" + hex.substring( hex.length() - 4 );
+				}
+				return null;
+		}
+	}
+	
+	/*
+	 * Buffers the characters written to the output, so that the output is written in large chunks
+	 */
+	private static final class BufferedOutput {
+		
+		private final Writer output;
+		private final char[] buffer;
+		private int size = 0;
+		
+		BufferedOutput( final Writer output, final char[] buffer )
+		{
+			this.output = output;
+			this.buffer = buffer;
+		}
+		
+		void append( final char c ) throws IOException
+		{
+			if( size == buffer.length )
+			{
+				flushBuffer();
+			}
+			buffer[ size++ ] = c;
+		}
+		
+		void append( final String string ) throws IOException
+		{
+			append( string, 0, string.length() );
+		}
+		
+		void append( final String string, final int start, final int end ) throws IOException
+		{
+			int position = start;
+			while( position < end )
+			{
+				if( size == buffer.length )
+				{
+					flushBuffer();
+				}
+				final int count = Math.min( end - position, buffer.length - size );
+				string.getChars( position, position + count, buffer, size );
+				size += count;
+				position += count;
+			}
+		}
+		
+		private void flushBuffer() throws IOException
+		{
+			output.write( buffer, 0, size );
+			size = 0;
+		}
+		
+		void flush() throws IOException
+		{
+			flushBuffer();
+			output.flush();
+		}
 	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary of the flattened keys, which assigns each distinct key a small integer id, in the order in which
+ * the keys are first added. The {@link FlattenedObject}s that share a dictionary hold only the ids of their
+ * keys, so that objects of the same type, which have mostly the same keys, share one copy of each key, and
+ * can be compared key by key through their ids.<p>
+ *
+ * The dictionary only grows, so it should be shared by the flattened objects that are compared with each other,
+ * rather than by every object flattened by a long-lived writer whose objects have unbounded sets of keys.<p>
+ *
+ * The dictionary is thread safe. Looking up a key doesn't lock, and only adding a key does.
+ *
+ * @author Robert Philipp
+ */
+public final class KeyDictionary {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final ConcurrentMap< String, Integer > ids = new ConcurrentHashMap<>();
+
+	// the keys, indexed by their ids. the array is replaced when it grows, and only the
+	// entries whose ids have been handed out are ever read.
+	private volatile String[] keys = new String[ INITIAL_CAPACITY ];
+	private int size = 0;
+
+	/**
+	 * Returns the id of the specified key, adding the key to the dictionary if it isn't already in it
+	 * @param key The flattened key
+	 * @return The id of the key
+	 */
+	public int getOrAddId( final String key )
+	{
+		final Integer id = ids.get( key );
+		return id == null ? addId( key ) : id;
+	}
+
+	/*
+	 * Adds the key to the dictionary, unless another thread added it first, and returns its id
+	 */
+	private synchronized int addId( final String key )
+	{
+		Integer id = ids.get( key );
+		if( id == null )
+		{
+			if( size == keys.length )
+			{
+				keys = Arrays.copyOf( keys, size * 2 );
+			}
+			keys[ size ] = key;
+			id = size++;
+
+			// the id is published after the key, so that whoever finds the id also finds the key
+			ids.put( key, id );
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of the specified key
+	 * @param key The flattened key
+	 * @return The id of the key, or -1 if the key isn't in the dictionary
+	 */
+	public int getId( final String key )
+	{
+		final Integer id = ids.get( key );
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the key with the specified id
+	 * @param id The id of the key, as returned by {@link #getOrAddId(String)}
+	 * @return The flattened key
+	 */
+	public String getKey( final int id )
+	{
+		return keys[ id ];
+	}
+
+	/**
+	 * @return The number of keys in the dictionary
+	 */
+	public int size()
+	{
+		return ids.size();
+	}
+}
@@ -3,8 +3,11 @@ package org.freezedry.persistence.writers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.AbstractKeyValueBuilder;
 import org.freezedry.persistence.keyvalue.BasicKeyValueBuilder;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueListSink;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
 import org.freezedry.persistence.tree.InfoNode;
 
@@ -118,6 +121,25 @@ public class KeyValueFlattener {
 		return builder.buildKeyValuePairs( root );
 	}
 
+	/**
+	 * Flattens the semantic model, handing each key-value pair, in order, to the specified sink, which may, for
+	 * example, write it out. The {@link AbstractKeyValueBuilder}s hand over the pairs as they create them, with
+	 * the keys as views of one key buffer. Other builders flatten the whole model into a list first.
+	 * @param root The root {@link InfoNode} of the semantic model
+	 * @param sink The {@link KeyValueSink} that receives the key-value pairs
+	 */
+	public void buildKeyValuePairs( final InfoNode root, final KeyValueSink sink )
+	{
+		if( builder instanceof AbstractKeyValueBuilder )
+		{
+			((AbstractKeyValueBuilder)builder).buildKeyValuePairs( root, sink );
+		}
+		else
+		{
+			KeyValueListSink.addAll( builder.buildKeyValuePairs( root ), sink );
+		}
+	}
+
 	/**
 	 * When set to true, the full key is persisted. So for example, normally, if there is a {@link java.util.List}
 	 * of {@link String} called {@code names}, then the key will have the form {@code names[i]}. When this is
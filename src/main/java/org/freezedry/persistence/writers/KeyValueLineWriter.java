@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.freezedry.persistence.keyvalue.KeyValueSink;
+import org.freezedry.persistence.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sink that writes each key-value pair it receives to the output as a line, in the form read by the
+ * {@link org.freezedry.persistence.readers.KeyValueReader}, so that the key-value pairs are never held in a list.
+ * The {@link KeyValueWriter} and the {@link org.freezedry.persistence.keyvalue.KeyValueIndex} write their lines
+ * through it.<p>
+ *
+ * The key is copied into a buffer that is reused for every line, and that holds the previous key against which
+ * the next key is front coded (see {@link KeyValueWriter#setFrontCoded(boolean)}). The shared prefix never ends
+ * between the two halves of a surrogate pair.<p>
+ *
+ * The line writer is not thread safe.
+ *
+ * @author Robert Philipp
+ */
+public final class KeyValueLineWriter implements KeyValueSink {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueLineWriter.class );
+
+	private final Writer output;
+	private final String separator;
+	private final int restartInterval;
+	private final StringBuilder message;
+	private int numLines = 0;
+	private int restartLine = 0;
+	private char[] key = new char[ 128 ];
+	private int keyLength = 0;
+
+	/**
+	 * Constructs a line writer for the specified output
+	 * @param output The {@link Writer} to which to write the key-value pairs
+	 * @param separator The separator, with its surrounding spaces, written between the key and the value
+	 * @param restartInterval The number of lines between full keys; 0 if the keys aren't front coded
+	 * @param message The buffer to which to also append the lines; null if the lines aren't logged
+	 */
+	public KeyValueLineWriter( final Writer output, final String separator, final int restartInterval, final StringBuilder message )
+	{
+		this.output = output;
+		this.separator = separator;
+		this.restartInterval = restartInterval;
+		this.message = message;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.freezedry.persistence.keyvalue.KeyValueSink#add(java.lang.CharSequence, java.lang.Object)
+	 */
+	@Override
+	public void add( final CharSequence nextKey, final Object nextValue )
+	{
+		// the shared length is measured against the previous key, before the key is copied over it
+		final int shared = restartInterval > 0 && restartLine % restartInterval != 0 ? sharedLength( nextKey ) : 0;
+		copyKey( nextKey );
+		final String value = nextValue.toString();
+		try
+		{
+			if( restartInterval > 0 )
+			{
+				output.write( Integer.toString( shared ) );
+				output.write( ' ' );
+			}
+			output.write( key, shared, keyLength - shared );
+			output.write( separator );
+			output.write( value );
+			output.write( Constants.NEW_LINE );
+		}
+		catch( IOException e )
+		{
+			final StringBuilder error = new StringBuilder();
+			error.append( "Unable to write the key-value pair to the output stream." ).append( Constants.NEW_LINE );
+			error.append( "  Key: " ).append( key, 0, keyLength ).append( Constants.NEW_LINE );
+			error.append( "  Line: " ).append( numLines + 1 );
+			LOGGER.error( error.toString() );
+			throw new IllegalStateException( error.toString(), e );
+		}
+		if( message != null )
+		{
+			message.append( key, 0, keyLength ).append( separator ).append( value ).append( Constants.NEW_LINE );
+		}
+		++numLines;
+		++restartLine;
+	}
+
+	/**
+	 * Makes the next line a restart point, at which a front-coded key is written in full, so that the lines
+	 * can be decoded starting at that line. The restart interval is counted from that line.
+	 */
+	public void restart()
+	{
+		restartLine = 0;
+	}
+
+	/**
+	 * @return The number of key-value pairs written
+	 */
+	public int getNumLines()
+	{
+		return numLines;
+	}
+
+	/*
+	 * Copies the key into the key buffer, which is grown when the key doesn't fit
+	 * @param nextKey The key to copy
+	 */
+	private void copyKey( final CharSequence nextKey )
+	{
+		final int length = nextKey.length();
+		if( length > key.length )
+		{
+			key = new char[ Math.max( length, 2 * key.length ) ];
+		}
+		if( nextKey instanceof StringBuilder )
+		{
+			((StringBuilder)nextKey).getChars( 0, length, key, 0 );
+		}
+		else
+		{
+			nextKey.toString().getChars( 0, length, key, 0 );
+		}
+		keyLength = length;
+	}
+
+	/*
+	 * @return The number of leading characters that the key shares with the previous key, which never
+	 * ends between the two halves of a surrogate pair
+	 */
+	private int sharedLength( final CharSequence nextKey )
+	{
+		final int length = Math.min( keyLength, nextKey.length() );
+		int shared = 0;
+		while( shared < length && key[ shared ] == nextKey.charAt( shared ) )
+		{
+			++shared;
+		}
+		if( shared > 0 && Character.isHighSurrogate( key[ shared - 1 ] ) )
+		{
+			--shared;
+		}
+		return shared;
+	}
+}
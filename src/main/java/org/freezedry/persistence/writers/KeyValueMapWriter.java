@@ -15,16 +15,14 @@
  */
 package org.freezedry.persistence.writers;
 
-import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.KeyValueSink;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -124,27 +122,45 @@ public class KeyValueMapWriter {
 
 	/**
 	 * Creates a {@link Map} that contains the flattened object. The key into the map is the flattened field name, and
-	 * the value is the string representation of that value.
+	 * the value is the string representation of that value. The map is a read-only {@link FlattenedObject}, whose
+	 * keys are held in a new {@link KeyDictionary}.
 	 * @param rootNode The root {@link InfoNode} of the semantic model
 	 * @return a {@link Map} that contains the flattened object. The key into the map is the flattened field name, and
 	 * the value is the string representation of that value.
 	 */
-	public Map< String, Object > createMap( final InfoNode rootNode )
+	public FlattenedObject createMap( final InfoNode rootNode )
 	{
-		final List< Pair< String, Object > > keyValuePairs = keyValueFlattener.buildKeyValuePairs( rootNode );
+		return createMap( rootNode, new KeyDictionary() );
+	}
 
-		final Map< String, Object > flattenedObject = new LinkedHashMap<>();
-		for( final Pair< String, Object > pair : keyValuePairs )
-		{
-			flattenedObject.put( pair.getFirst(), pair.getSecond() );
-		}
+	/**
+	 * Creates the flattened object, whose keys are held in the specified dictionary. Flattened objects that are
+	 * compared with each other should share a dictionary, so that they share their keys, and can be compared
+	 * through the ids of their keys.
+	 * @param rootNode The root {@link InfoNode} of the semantic model
+	 * @param dictionary The {@link KeyDictionary} that holds the flattened keys
+	 * @return a read-only {@link FlattenedObject}, which is a {@link Map} of the flattened field names to the
+	 * string representations of their values.
+	 */
+	public FlattenedObject createMap( final InfoNode rootNode, final KeyDictionary dictionary )
+	{
+		// the key-value pairs are added to the flattened object as they are created, so that they aren't held twice
+		final FlattenedObject flattenedObject = new FlattenedObject( dictionary );
+		keyValueFlattener.buildKeyValuePairs( rootNode, new KeyValueSink() {
+
+			@Override
+			public void add( final CharSequence key, final Object value )
+			{
+				flattenedObject.add( key.toString(), value );
+			}
+		} );
 
 		if( LOGGER.isTraceEnabled() )
 		{
 			final StringBuilder message = new StringBuilder();
-			for( final Pair< String, Object > pair : keyValuePairs )
+			for( int i = 0; i < flattenedObject.size(); ++i )
 			{
-				message.append( pair.getFirst() ).append( " = " ).append( pair.getSecond().toString() ).append( Constants.NEW_LINE );
+				message.append( flattenedObject.getKey( i ) ).append( " = " ).append( flattenedObject.getValue( i ) ).append( Constants.NEW_LINE );
 			}
 			LOGGER.trace( message.toString() );
 		}
@@ -17,7 +17,6 @@ package org.freezedry.persistence.writers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.freezedry.persistence.containers.Pair;
 import org.freezedry.persistence.keyvalue.AbstractKeyValueBuilder;
 import org.freezedry.persistence.keyvalue.KeyValueBuilder;
 import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
@@ -28,7 +27,6 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.Writer;
 import java.text.ParseException;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,15 +37,23 @@ import java.util.Map;
  * 
  * @author Robert Philipp
  */
-public class KeyValueWriter implements PersistenceWriter {
+public class KeyValueWriter implements RecordPersistenceWriter {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( KeyValueWriter.class );
 
 	public static final String KEY_VALUE_SEPARATOR = "=";
 
+	/**
+	 * The default number of lines between the restart points of front-coded keys
+	 */
+	public static final int DEFAULT_RESTART_INTERVAL = 16;
+
 	private final KeyValueFlattener keyValueFlattener;
 
-	private String keyValueSeparator;
+	private String keyValueSeparator = KEY_VALUE_SEPARATOR;
+
+	private boolean isFrontCoded = false;
+	private int restartInterval = DEFAULT_RESTART_INTERVAL;
 
 	/**
 	 * Constructs a basic key-value writer that uses the specified renderers and separator.
@@ -136,6 +142,57 @@ public class KeyValueWriter implements PersistenceWriter {
 		return keyValueSeparator;
 	}
 
+	/**
+	 * When set to true, the keys are front coded. Each line then starts with the number of characters that the key
+	 * shares with the key on the previous line, followed by a space and the rest of the key. For example,
+	 * <pre>
+	 * 0 Division:people[0]:Person:givenName = "Johnny"
+	 * 26 familyName = "Hernandez"
+	 * </pre>
+	 * Every {@link #getRestartInterval()} lines, and on the first line of each record, the full key is written
+	 * (with a shared length of 0), so that the lines can be decoded starting at any of these restart points.
+	 * The files must be read by a {@link org.freezedry.persistence.readers.KeyValueReader} whose keys are also
+	 * front coded.
+	 * @param isFrontCoded true if the keys are front coded; false (the default) otherwise
+	 */
+	public void setFrontCoded( final boolean isFrontCoded )
+	{
+		this.isFrontCoded = isFrontCoded;
+	}
+
+	/**
+	 * @return true if the keys are front coded; false otherwise
+	 */
+	public boolean isFrontCoded()
+	{
+		return isFrontCoded;
+	}
+
+	/**
+	 * @param interval The number of lines between the restart points, at which front-coded keys are written in
+	 * full. The default is {@link #DEFAULT_RESTART_INTERVAL}.
+	 */
+	public void setRestartInterval( final int interval )
+	{
+		if( interval < 1 )
+		{
+			final StringBuilder message = new StringBuilder();
+			message.append( "The restart interval of front-coded keys must be positive" ).append( Constants.NEW_LINE );
+			message.append( "  Restart Interval: " ).append( interval ).append( Constants.NEW_LINE );
+			LOGGER.error( message.toString() );
+			throw new IllegalArgumentException( message.toString() );
+		}
+		this.restartInterval = interval;
+	}
+
+	/**
+	 * @return The number of lines between the restart points, at which front-coded keys are written in full
+	 */
+	public int getRestartInterval()
+	{
+		return restartInterval;
+	}
+
 	/**
 	 * Sets the builder responsible for creating the key-value pairs from the semantic model,
 	 * and that is responsible for parsing the key-value pairs into a semantic model.
@@ -165,28 +222,84 @@ public class KeyValueWriter implements PersistenceWriter {
 	@Override
 	public void write( final InfoNode rootNode, final Writer output )
 	{
-		final List< Pair< String, Object > > keyValuePairs = keyValueFlattener.buildKeyValuePairs( rootNode );
-		try
+		final StringBuilder message = LOGGER.isInfoEnabled() ? new StringBuilder() : null;
+		writeKeyValuePairs( rootNode, output, message );
+		
+		if( message != null )
 		{
-			for( final Pair< String, Object > pair : keyValuePairs )
+			LOGGER.info( message.toString() );
+		}
+	}
+
+	/**
+	 * Creates a {@link RecordWriter} that writes the key-value pairs of each record, as {@link #write(InfoNode, Writer)}
+	 * would write them, followed by an empty line that separates the record from the next one. A record that has no
+	 * key-value pairs would be written as an empty line only, which the reader skips, and so it is rejected.
+	 * @param output The {@link Writer} output stream to which to write the records.
+	 * @return The {@link RecordWriter} for the output stream
+	 */
+	@Override
+	public RecordWriter createRecordWriter( final Writer output )
+	{
+		return new RecordWriter() {
+
+			@Override
+			public void write( final InfoNode rootNode )
 			{
-				final String str = pair.getFirst() + " = " + pair.getSecond().toString() + Constants.NEW_LINE;
-				output.write( str );
+				if( writeKeyValuePairs( rootNode, output, null ) == 0 )
+				{
+					final StringBuilder message = new StringBuilder();
+					message.append( "The record has no key-value pairs, and so couldn't be read back from the stream of records." ).append( Constants.NEW_LINE );
+					message.append( "  Persist Name: " ).append( rootNode.getPersistName() ).append( Constants.NEW_LINE );
+					message.append( "  Class: " ).append( rootNode.getClazz() == null ? "[null]" : rootNode.getClazz().getName() );
+					LOGGER.error( message.toString() );
+					throw new IllegalArgumentException( message.toString() );
+				}
+				try
+				{
+					output.write( Constants.NEW_LINE );
+				}
+				catch( IOException e )
+				{
+					final StringBuilder message = new StringBuilder();
+					message.append( "Unable to write the end of the key-value record to the output stream." ).append( Constants.NEW_LINE );
+					message.append( "  Persist Name: " ).append( rootNode.getPersistName() );
+					LOGGER.error( message.toString() );
+					throw new IllegalStateException( message.toString(), e );
+				}
 			}
-		}
-		catch( IOException e )
-		{
-			throw new IllegalStateException( e );
-		}
-		
-		if( LOGGER.isInfoEnabled() )
-		{
-			final StringBuilder message = new StringBuilder();
-			for( final Pair< String, Object > pair : keyValuePairs )
+
+			@Override
+			public void finish()
 			{
-				message.append( pair.getFirst() ).append( " = " ).append( pair.getSecond().toString() ).append( Constants.NEW_LINE );
+				try
+				{
+					output.flush();
+				}
+				catch( IOException e )
+				{
+					final String message = "Unable to flush the key-value records to the output stream.";
+					LOGGER.error( message );
+					throw new IllegalStateException( message, e );
+				}
 			}
-			LOGGER.info( message.toString() );
-		}
+		};
+	}
+
+	/*
+	 * Flattens the semantic model and writes each key-value pair to the output, one pair per line, as
+	 * the flattening creates it, so that the key-value pairs are never held in a list
+	 * @param rootNode The root {@link InfoNode} of the semantic model
+	 * @param output The {@link Writer} to which to write the key-value pairs
+	 * @param message The buffer to which to also append the lines, for logging; null if the lines aren't logged
+	 * @return The number of key-value pairs written
+	 */
+	private int writeKeyValuePairs( final InfoNode rootNode, final Writer output, final StringBuilder message )
+	{
+		final String separator = " " + (keyValueSeparator == null ? KEY_VALUE_SEPARATOR : keyValueSeparator) + " ";
+		final int interval = isFrontCoded ? restartInterval : 0;
+		final KeyValueLineWriter lines = new KeyValueLineWriter( output, separator, interval, message );
+		keyValueFlattener.buildKeyValuePairs( rootNode, lines );
+		return lines.getNumLines();
 	}
 }
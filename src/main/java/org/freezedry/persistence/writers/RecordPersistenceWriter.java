@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import java.io.Writer;
+
+import org.freezedry.persistence.readers.RecordPersistenceReader;
+
+/**
+ * A {@link PersistenceWriter} that can also write the semantic models of any number of objects as a stream
+ * of records. Kept apart from the {@link PersistenceWriter} interface so that the writers that only write
+ * one object at a time don't have to implement it.
+ *
+ * @author Robert Philipp
+ */
+public interface RecordPersistenceWriter extends PersistenceWriter {
+
+	/**
+	 * Creates a {@link RecordWriter} that writes the semantic models of any number of objects, one record
+	 * at a time, to the specified {@link Writer} output stream. The implementing class determines the format
+	 * of the stream of records, and its {@link RecordPersistenceReader} can read them back one at a time.
+	 * @param output The {@link Writer} output stream to which to write the records.
+	 * @return The {@link RecordWriter} for the output stream
+	 */
+	RecordWriter createRecordWriter( final Writer output );
+}
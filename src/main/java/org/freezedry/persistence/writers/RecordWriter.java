@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import java.io.Writer;
+
+import org.freezedry.persistence.readers.RecordReader;
+import org.freezedry.persistence.tree.InfoNode;
+
+/**
+ * Writes a stream of records, each the semantic model of one object, to the {@link Writer} for which
+ * it was created by {@link RecordPersistenceWriter#createRecordWriter(Writer)}. The format of the stream is
+ * determined by the {@link RecordPersistenceWriter}, and there should be an equivalent {@link RecordReader}
+ * that can read the records back one at a time.
+ *
+ * @author Robert Philipp
+ */
+public interface RecordWriter {
+
+	/**
+	 * Writes the semantic model, as represented by the root {@link InfoNode}, as the next record
+	 * @param rootNode The root {@link InfoNode} representing the semantic model of the object to be written.
+	 */
+	void write( final InfoNode rootNode );
+
+	/**
+	 * Completes the stream of records, writing anything that must follow the last record, and flushes
+	 * the output. The underlying {@link Writer} is not closed.
+	 */
+	void finish();
+}
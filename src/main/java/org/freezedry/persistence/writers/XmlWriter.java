@@ -15,43 +15,42 @@
  */
 package org.freezedry.persistence.writers;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Writer;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.freezedry.persistence.PersistenceEngine;
 import org.freezedry.persistence.tree.InfoNode;
 import org.freezedry.persistence.utils.Constants;
-import org.freezedry.persistence.utils.DomUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 /**
- * Writes an the semantic model (starting at the {@link InfoNode} root node) to an XML file through
- * the use of the DOM tree. 
+ * Writes an the semantic model (starting at the {@link InfoNode} root node) to XML by walking the
+ * {@link InfoNode} tree and streaming the elements to the output through an {@link XMLStreamWriter}.<p>
+ * 
+ * The output is the same as that of the identity transform of the equivalent DOM tree (which is how
+ * this writer used to work): the XML declaration is written with {@code standalone="no"}, elements without
+ * content are written as empty elements, and carriage returns, control characters, and characters outside
+ * the basic multilingual plane are written as numeric character references.
  * 
  * @author Robert Philipp
  */
-public class XmlWriter implements PersistenceWriter {
+public class XmlWriter implements RecordPersistenceWriter {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger( XmlWriter.class );
 	
 	public static final String TYPE_ATTRIBUTE = "type";
 	
+	public static final String RECORDS_ELEMENT = "Records";
+	
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+	
+	private final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+	
 	private boolean isDisplayTypeInfo = false;
 		
 	/**
@@ -72,118 +71,195 @@ public class XmlWriter implements PersistenceWriter {
 	}
 	
 	/**
-	 * Writes the DOM tree to XML
+	 * Writes the semantic model to XML
 	 * @param rootNode The root {@link InfoNode} of the semantic model
-	 * @throws ParserConfigurationException
+	 * @param output The {@link Writer} to which to write the XML
 	 */
 	public void write( final InfoNode rootNode, final Writer output )
 	{
-		final Document document = buildDom( rootNode );
-		if( LOGGER.isInfoEnabled() )
-		{
-			LOGGER.info( DomUtils.toString( document ) );
-		}
-		
-		// use a Transformer to write the output xml
-		final TransformerFactory factory = TransformerFactory.newInstance();
 		try
 		{
-			final DOMSource source = new DOMSource( document );
-			final StreamResult result = new StreamResult( output );
+			output.write( XML_DECLARATION );
 			
-			final Transformer transformer = factory.newTransformer();
-			transformer.transform( source, result );
+			final XMLStreamWriter writer = factory.createXMLStreamWriter( output );
+			writeElement( rootNode, writer );
+			writer.writeEndDocument();
+			writer.flush();
+			writer.close();
 		}
-		catch( TransformerException e )
+		catch( XMLStreamException | IOException e )
 		{
-			throw new IllegalStateException( "Unable to transform the DOM tree to XML.", e );
+			final StringBuilder message = new StringBuilder();
+			message.append( "Unable to write the semantic model to XML:" ).append( Constants.NEW_LINE );
+			message.append( "  Root Persistence Name: " ).append( rootNode.getPersistName() );
+			LOGGER.error( message.toString() );
+			throw new IllegalStateException( message.toString(), e );
 		}
 	}
 	
 	/**
-	 * Builds the DOM tree from the info node tree through recursive algorithm.
-	 * @param rootInfoNode The root {@link InfoNode}
-	 * @return The DOM tree as a {@link Document}
+	 * Creates a {@link RecordWriter} that writes the records as the child elements of a wrapper root element,
+	 * named {@link #RECORDS_ELEMENT}, in one XML document. Each record's element is the same as the root element
+	 * that {@link #write(InfoNode, Writer)} would write. The XML declaration and the start of the wrapper element
+	 * are written when the first record is written (or when the stream is finished, if there are no records).
+	 * @param output The {@link Writer} output stream to which to write the records.
+	 * @return The {@link RecordWriter} for the output stream
 	 */
-	private Document buildDom( final InfoNode rootInfoNode )
+	@Override
+	public RecordWriter createRecordWriter( final Writer output )
 	{
-		// create the document-builder factory, from which to create the document-builder,
-		// from which to create the document, which is the root node into which the new
-		// DOM tree will be built.
-		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = null;
-		try
+		return new RecordWriter() {
+
+			private XMLStreamWriter writer;
+
+			@Override
+			public void write( final InfoNode rootNode )
+			{
+				try
+				{
+					writeElement( rootNode, getWriter() );
+				}
+				catch( XMLStreamException | IOException e )
+				{
+					final StringBuilder message = new StringBuilder();
+					message.append( "Unable to write the semantic model to XML:" ).append( Constants.NEW_LINE );
+					message.append( "  Root Persistence Name: " ).append( rootNode.getPersistName() );
+					LOGGER.error( message.toString() );
+					throw new IllegalStateException( message.toString(), e );
+				}
+			}
+
+			@Override
+			public void finish()
+			{
+				try
+				{
+					final XMLStreamWriter writer = getWriter();
+					writer.writeEndDocument();
+					writer.flush();
+					writer.close();
+				}
+				catch( XMLStreamException | IOException e )
+				{
+					final String message = "Unable to finish writing the XML records.";
+					LOGGER.error( message );
+					throw new IllegalStateException( message, e );
+				}
+			}
+
+			/*
+			 * Creates the stream writer, and starts the document, the first time it is called
+			 */
+			private XMLStreamWriter getWriter() throws XMLStreamException, IOException
+			{
+				if( writer == null )
+				{
+					output.write( XML_DECLARATION );
+					writer = factory.createXMLStreamWriter( output );
+					writer.writeStartElement( RECORDS_ELEMENT );
+				}
+				return writer;
+			}
+		};
+	}
+	
+	/*
+	 * Recurses through the {@link InfoNode} tree and writes an element for each node.
+	 * @param infoNode The {@link InfoNode} from which to write the element
+	 * @param writer The {@link XMLStreamWriter} to which to write the element
+	 */
+	private void writeElement( final InfoNode infoNode, final XMLStreamWriter writer ) throws XMLStreamException
+	{
+		// if the node is a leaf node, then it has a value, which is the text of the element
+		final String text = infoNode.isLeafNode() ? infoNode.getValue().toString() : null;
+		
+		final List< InfoNode > children = infoNode.getChildren();
+		if( children.isEmpty() && ( text == null || text.isEmpty() ) )
 		{
-			builder = factory.newDocumentBuilder();
+			writer.writeEmptyElement( infoNode.getPersistName() );
+			writeTypeAttribute( infoNode, writer );
+			return;
 		}
-		catch( ParserConfigurationException e )
+		
+		writer.writeStartElement( infoNode.getPersistName() );
+		writeTypeAttribute( infoNode, writer );
+		if( text != null )
 		{
-			final StringBuffer message = new StringBuffer();
-			message.append( "Unable to create the DOM document builder:" + Constants.NEW_LINE );
-			message.append( "  Root Persistence Name: " + rootInfoNode.getPersistName() );
-			LOGGER.error( message.toString() );
-			throw new IllegalStateException( message.toString(), e );
+			writeText( text, writer );
 		}
-		final Document document = builder.newDocument();
-		
-		// create the first DOM node from the info-node and add it to the document
-		final Node domNode = createDomNode( rootInfoNode, document, document );
-		
-		// recursively build the DOM tree from the info-node tree
-		buildDom( rootInfoNode, domNode, document );
-		
-		// once complete, then return the document (root node of the DOM tree)
-		return document;
+		for( final InfoNode child : children )
+		{
+			writeElement( child, writer );
+		}
+		writer.writeEndElement();
 	}
-
+	
 	/*
-	 * Recurses through the {@link InfoNode} tree and builds the DOM {@link Node} tree.
-	 * @param infoNode The {@link InfoNode} from which to build the domNode
-	 * @param domNode The DOM {@link Node} to which to add the new DOM {@link Node}s
-	 * @param document The root node of the DOM tree (which is a {@link Document})
+	 * Writes the type attribute for the element, if type information is to be displayed
+	 * @param infoNode The {@link InfoNode} holding the type
+	 * @param writer The {@link XMLStreamWriter} to which to write the attribute
 	 */
-	private void buildDom( final InfoNode infoNode, final Node domNode, final Document document )
+	private void writeTypeAttribute( final InfoNode infoNode, final XMLStreamWriter writer ) throws XMLStreamException
 	{
-		final List< InfoNode > children = infoNode.getChildren();
-		for( InfoNode child : children )
+		if( isDisplayTypeInfo )
 		{
-			final Node newDomNode = createDomNode( child, domNode, document );
-			domNode.appendChild( newDomNode );
-			
-			buildDom( child, newDomNode, document );
+			writer.writeAttribute( TYPE_ATTRIBUTE, infoNode.getClazz().getName() );
 		}
 	}
-
+	
 	/*
-	 * Creates a DOM node from the {@link InfoNode}.
-	 * @param infoNode The {@link InfoNode} from which to build the domNode
-	 * @param domNode The DOM {@link Node} to which to add the new DOM {@link Node}s
-	 * @param document The root node of the DOM tree (which is a {@link Document})
-	 * @return The DOM node representation of the {@link InfoNode}
+	 * Writes the text, replacing the characters that the DOM serializer writes as numeric character
+	 * references with those references. The runs between those characters are written as characters,
+	 * which the {@link XMLStreamWriter} escapes.
+	 * @param text The text of the element
+	 * @param writer The {@link XMLStreamWriter} to which to write the text
 	 */
-	private Node createDomNode( final InfoNode infoNode, final Node domNode, final Document document )
+	private static void writeText( final String text, final XMLStreamWriter writer ) throws XMLStreamException
 	{
-		final Element newDomNode = document.createElement( infoNode.getPersistName() );
-		
-		// set the type of the node
-		if( isDisplayTypeInfo )
+		final char[] chars = text.toCharArray();
+		int start = 0;
+		int i = 0;
+		while( i < chars.length )
 		{
-			newDomNode.setAttribute( TYPE_ATTRIBUTE, infoNode.getClazz().getName() );
+			final char c = chars[ i ];
+			final int length;
+			final int codePoint;
+			if( Character.isHighSurrogate( c ) && i + 1 < chars.length && Character.isLowSurrogate( chars[ i + 1 ] ) )
+			{
+				codePoint = Character.toCodePoint( c, chars[ i + 1 ] );
+				length = 2;
+			}
+			else if( Character.isSurrogate( c ) )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Invalid UTF-16 surrogate in the text of an element." ).append( Constants.NEW_LINE );
+				message.append( "  Index: " ).append( i ).append( Constants.NEW_LINE );
+				message.append( "  Text: " ).append( text );
+				LOGGER.error( message.toString() );
+				throw new IllegalStateException( message.toString() );
+			}
+			else if( ( c < 0x20 && c != '\t' && c != '\n' ) || ( c >= 0x7f && c <= 0x9f ) )
+			{
+				codePoint = c;
+				length = 1;
+			}
+			else
+			{
+				++i;
+				continue;
+			}
+			
+			if( i > start )
+			{
+				writer.writeCharacters( chars, start, i - start );
+			}
+			writer.writeEntityRef( "#" + codePoint );
+			i += length;
+			start = i;
 		}
-
-		// add the node the parent
-		domNode.appendChild( newDomNode );
-
-		// if the node is a leaf node, then it has a value, and we need to
-		// add a DOM text node that holds the value
-		if( infoNode.isLeafNode() )
+		if( start < chars.length )
 		{
-			final Object value = infoNode.getValue();
-			final Node textNode = document.createTextNode( value.toString() );
-			newDomNode.appendChild( textNode );
+			writer.writeCharacters( chars, start, chars.length - start );
 		}
-		
-		return newDomNode;
 	}
 }
- 
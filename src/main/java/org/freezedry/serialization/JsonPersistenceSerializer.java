@@ -16,6 +16,7 @@
 package org.freezedry.serialization;
 
 import org.freezedry.persistence.JsonPersistence;
+import org.freezedry.persistence.Persistence;
 
 /**
  * Serializes objects into JSON and deserializes JSON back into objects using the
@@ -27,11 +28,19 @@ public class JsonPersistenceSerializer extends PersistenceSerializer {
 
 	/**
 	 * Constructs an object serializer that uses the FreezeDry persistence framework to 
-	 * serialize the objects into and out of JSON
+	 * serialize the objects into and out of JSON. Each call uses a
+	 * {@link JsonPersistence} from the pool, so that calls from different threads don't wait for each other.
 	 */
 	public JsonPersistenceSerializer()
 	{
-		super( new JsonPersistence() );
+		super( new PersistenceFactory() {
+
+			@Override
+			public Persistence create()
+			{
+				return new JsonPersistence();
+			}
+		} );
 	}
 	
 }
@@ -16,6 +16,7 @@
 package org.freezedry.serialization;
 
 import org.freezedry.persistence.KeyValuePersistence;
+import org.freezedry.persistence.Persistence;
 
 /**
  * Serializes objects into a list of key-value pairs and deserializes key-value pairs back into objects using the
@@ -27,11 +28,19 @@ public class KeyValuePersistenceSerializer extends PersistenceSerializer {
 
 	/**
 	 * Constructs an object serializer that uses the FreezeDry persistence framework to 
-	 * serialize the objects into and out of JSON
+	 * serialize the objects into and out of key-value pairs. Each call uses a
+	 * {@link KeyValuePersistence} from the pool, so that calls from different threads don't wait for each other.
 	 */
 	public KeyValuePersistenceSerializer()
 	{
-		super( new KeyValuePersistence() );
+		super( new PersistenceFactory() {
+
+			@Override
+			public Persistence create()
+			{
+				return new KeyValuePersistence();
+			}
+		} );
 	}
 	
 }
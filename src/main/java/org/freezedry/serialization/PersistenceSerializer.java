@@ -20,6 +20,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +30,13 @@ import org.freezedry.persistence.utils.Constants;
 
 /**
  * Serializes objects into a serializes for specified by the {@link Persistence} engine, and deserializes
- * that form back into objects using the same {@link Persistence} engine.
+ * that form back into objects using the same {@link Persistence} engine.<p>
+ *
+ * A {@link Persistence} isn't thread safe, so a serializer created from a {@link Persistence} handles one call
+ * at a time. A serializer created from a {@link PersistenceFactory} instead keeps a pool of {@link Persistence}s.
+ * Each call takes an idle {@link Persistence} from the pool, or creates one when none is idle, and returns it to
+ * the pool when it is done. Calls from different threads never wait for each other, and the caches a
+ * {@link Persistence} has warmed serve the later calls from any thread.
  * 
  * @author Robert Philipp
  */
@@ -36,16 +44,74 @@ public class PersistenceSerializer implements Serializer {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger( PersistenceSerializer.class );
 
-	private Persistence persistence;
-	
+	// the persistence shared by all the threads, or null when the serializer has a pool
+	private final Persistence persistence;
+
+	// the idle persistences of the pool, and the factory that creates them, or null when the threads
+	// share one persistence
+	private final Queue< Persistence > idlePersistences;
+	private final PersistenceFactory factory;
+
+	/**
+	 * Creates the {@link Persistence} instances of a serializer that has a pool of them
+	 */
+	public interface PersistenceFactory {
+
+		/**
+		 * @return A new, configured, {@link Persistence}
+		 */
+		Persistence create();
+	}
+
 	/**
 	 * Constructs an object serializer that uses the FreezeDry persistence framework to 
-	 * serialize the objects
+	 * serialize the objects. The calls to the serializer share the {@link Persistence}, and so are
+	 * handled one at a time.
 	 * @param persistence The {@link Persistence} used to serialize and deserialize objects
 	 */
 	public PersistenceSerializer( final Persistence persistence )
 	{
 		this.persistence = persistence;
+		this.idlePersistences = null;
+		this.factory = null;
+	}
+
+	/**
+	 * Constructs an object serializer that uses the FreezeDry persistence framework to serialize the objects,
+	 * and that has a pool of {@link Persistence}s, so that the calls from different threads run concurrently,
+	 * without locking.
+	 * @param factory The {@link PersistenceFactory} that creates the {@link Persistence}s of the pool
+	 */
+	public PersistenceSerializer( final PersistenceFactory factory )
+	{
+		this.persistence = null;
+		this.idlePersistences = new ConcurrentLinkedQueue<>();
+		this.factory = factory;
+	}
+
+	/**
+	 * @return true if the serializer has a pool of {@link Persistence}s; false if the threads share one
+	 */
+	public boolean isConcurrent()
+	{
+		return idlePersistences != null;
+	}
+
+	/*
+	 * @return An idle persistence from the pool, or a new one when none is idle
+	 */
+	private Persistence acquirePersistence()
+	{
+		final Persistence idle = idlePersistences.poll();
+		return idle != null ? idle : factory.create();
+	}
+
+	/*
+	 * Returns the persistence to the pool, along with the caches it has warmed
+	 */
+	private void releasePersistence( final Persistence persistence )
+	{
+		idlePersistences.offer( persistence );
 	}
 
 	/*
@@ -53,7 +119,33 @@ public class PersistenceSerializer implements Serializer {
 	 * @see org.microtitan.diffusive.diffuser.serializer.Serializer#serialize(java.lang.Object, java.io.OutputStream)
 	 */
 	@Override
-	public synchronized void serialize( final Object object, final OutputStream output )
+	public void serialize( final Object object, final OutputStream output )
+	{
+		if( idlePersistences != null )
+		{
+			final Persistence pooled = acquirePersistence();
+			try
+			{
+				serialize( pooled, object, output );
+			}
+			finally
+			{
+				releasePersistence( pooled );
+			}
+		}
+		else
+		{
+			synchronized( persistence )
+			{
+				serialize( persistence, object, output );
+			}
+		}
+	}
+
+	/*
+	 * Serializes the object to the output stream with the specified persistence
+	 */
+	private static void serialize( final Persistence persistence, final Object object, final OutputStream output )
 	{
 		// convert the OutputStream to a Writer
 		try( final OutputStreamWriter out = new OutputStreamWriter( output ) )
@@ -83,7 +175,30 @@ public class PersistenceSerializer implements Serializer {
 	 * @see org.microtitan.diffusive.diffuser.serializer.Serializer#deserialize(java.io.InputStream, java.lang.Class)
 	 */
 	@Override
-	public synchronized < T > T deserialize( final InputStream input, final Class< T > clazz )
+	public < T > T deserialize( final InputStream input, final Class< T > clazz )
+	{
+		if( idlePersistences != null )
+		{
+			final Persistence pooled = acquirePersistence();
+			try
+			{
+				return deserialize( pooled, input, clazz );
+			}
+			finally
+			{
+				releasePersistence( pooled );
+			}
+		}
+		synchronized( persistence )
+		{
+			return deserialize( persistence, input, clazz );
+		}
+	}
+
+	/*
+	 * Deserializes the object from the input stream with the specified persistence
+	 */
+	private static < T > T deserialize( final Persistence persistence, final InputStream input, final Class< T > clazz )
 	{
 		T object;
 		// convert the InputStream to a Reader
@@ -15,14 +15,29 @@
  */
 package org.freezedry.serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.freezedry.persistence.utils.Constants;
 
+/**
+ * Factory for the {@link Serializer}s, by their names. The factory creates new serializers, and also hands out
+ * one shared serializer per name, which, since serializers are thread safe, can be used by any number of threads.
+ * The shared serializers keep their warmed caches, and the classes that will be serialized can be registered at
+ * startup, so that the warm-up doesn't happen on the first calls. Looking up the serializers and their classes
+ * doesn't lock.
+ *
+ * @author Robert Philipp
+ */
 public class SerializerFactory {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger( SerializerFactory.class );
@@ -45,7 +60,12 @@ public class SerializerFactory {
 		return SerializerFactoryHolder.INSTANCE;
 	}
 
-	private Map< String, Class< ? extends Serializer > > serializerClasses;
+	// the mapping between the serializer names and their classes. the map isn't modified once it is
+	// published, but rather replaced, so that it can be read without locking
+	private volatile Map< String, Class< ? extends Serializer > > serializerClasses;
+
+	// the shared serializers, by their names, created on first use
+	private final ConcurrentMap< String, Serializer > serializers = new ConcurrentHashMap<>();
 	
 	/**
 	 * Private constructor prevents instantiation from other classes
@@ -66,7 +86,7 @@ public class SerializerFactory {
 		{
 			serializerClasses.put( type.getName(), type.getSerialzierClass() );
 		}
-		return serializerClasses;
+		return Collections.unmodifiableMap( serializerClasses );
 	}
 	
 	/**
@@ -75,7 +95,7 @@ public class SerializerFactory {
 	 * @return the {@link Class} of the {@link Serializer} associated with the serializer name
 	 * @see SerializerType
 	 */
-	public synchronized static Class< ? extends Serializer > getSerializerClass( final String name )
+	public static Class< ? extends Serializer > getSerializerClass( final String name )
 	{
 		return getInstance().serializerClasses.get( name );
 	}
@@ -85,7 +105,7 @@ public class SerializerFactory {
 	 * @param clazz The {@link Class} of the {@link Serializer} for which to return the name
 	 * @return the serializer name associated with the {@link Serializer} {@link Class}
 	 */
-	public synchronized static String getSerializerName( final Class< ? extends Serializer > clazz )
+	public static String getSerializerName( final Class< ? extends Serializer > clazz )
 	{
 		String name = null;
 		for( Map.Entry< String, Class< ? extends Serializer > > entry : getInstance().serializerClasses.entrySet() )
@@ -102,7 +122,7 @@ public class SerializerFactory {
 	/**
 	 * @return The names of the {@link Serializer}s as represented by this factory
 	 */
-	public synchronized static Set< String > getSerializerNames()
+	public static Set< String > getSerializerNames()
 	{
 		return getInstance().serializerClasses.keySet();
 	}
@@ -117,7 +137,13 @@ public class SerializerFactory {
 	 */
 	public synchronized Class< ? extends Serializer > putSerializer( final String name, final Class< ? extends Serializer > clazz )
 	{
-		return serializerClasses.put( name, clazz );
+		final Map< String, Class< ? extends Serializer > > classes = new LinkedHashMap<>( serializerClasses );
+		final Class< ? extends Serializer > previous = classes.put( name, clazz );
+		serializerClasses = Collections.unmodifiableMap( classes );
+
+		// the shared serializer, if there is one, is of the previous class
+		serializers.remove( name );
+		return previous;
 	}
 	
 	/**
@@ -126,9 +152,10 @@ public class SerializerFactory {
 	 * @return The newly created {@link Serializer} whose {@link Class} is associated with the 
 	 * specified name
 	 */
-	public synchronized Serializer createSerializer( final String name )
+	public Serializer createSerializer( final String name )
 	{
 		// grab the class from the mapping
+		final Map< String, Class< ? extends Serializer > > serializerClasses = this.serializerClasses;
 		final Class< ? extends Serializer > clazz = serializerClasses.get( name );
 		if( clazz == null )
 		{
@@ -162,6 +189,98 @@ public class SerializerFactory {
 		return serializer;
 			
 	}
+
+	/**
+	 * Returns the shared {@link Serializer} whose {@link Class} is associated with the specified name, creating
+	 * it on first use. Serializers are thread safe, so the shared serializer can be used by any number of threads,
+	 * and it keeps its warmed caches from one call to the next.
+	 * @param name The name of the {@link Serializer}
+	 * @return The shared {@link Serializer} whose {@link Class} is associated with the specified name
+	 * @throws IllegalArgumentException if no {@link Class} is associated with the name
+	 */
+	public Serializer getSerializer( final String name )
+	{
+		while( true )
+		{
+			final Serializer current = serializers.get( name );
+			if( current != null && current.getClass().equals( serializerClasses.get( name ) ) )
+			{
+				return current;
+			}
+
+			// when two threads create the serializer at the same time, the one whose serializer is
+			// stored first wins, and the other thread uses the winner's serializer
+			final Serializer created = createSerializer( name );
+			final boolean isStored = current == null ?
+									 serializers.putIfAbsent( name, created ) == null :
+									 serializers.replace( name, current, created );
+			if( isStored )
+			{
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Registers the classes whose objects will be serialized by the shared {@link Serializer} associated with
+	 * the specified name, so that the serializer is warmed up now, rather than on its first calls. Each class must
+	 * have a constructor without parameters, from which an object is created and round tripped through the
+	 * serializer. Objects whose fields are set warm up more of the serializer (see {@link #warmUp(String, Object...)}).
+	 * @param name The name of the {@link Serializer}
+	 * @param classes The classes whose objects will be serialized
+	 * @return The shared {@link Serializer} whose {@link Class} is associated with the specified name
+	 * @throws IllegalArgumentException if a class doesn't have a constructor without parameters, or if its object
+	 * can't be serialized
+	 */
+	public Serializer registerClasses( final String name, final Class< ? >... classes )
+	{
+		final Object[] samples = new Object[ classes.length ];
+		for( int i = 0; i < classes.length; ++i )
+		{
+			try
+			{
+				final Constructor< ? > constructor = classes[ i ].getDeclaredConstructor();
+				constructor.setAccessible( true );
+				samples[ i ] = constructor.newInstance();
+			}
+			catch( ReflectiveOperationException e )
+			{
+				final StringBuilder message = new StringBuilder();
+				message.append( "Unable to create an object of the registered class from a constructor without parameters." ).append( Constants.NEW_LINE );
+				message.append( "  Serializer Name: " ).append( name ).append( Constants.NEW_LINE );
+				message.append( "  Class: " ).append( classes[ i ].getName() ).append( Constants.NEW_LINE );
+				LOGGER.error( message.toString(), e );
+				throw new IllegalArgumentException( message.toString(), e );
+			}
+		}
+		return warmUp( name, samples );
+	}
+
+	/**
+	 * Warms up the shared {@link Serializer} associated with the specified name by round tripping each of the
+	 * specified sample objects through it. The classes and reflection data that are loaded along the way are
+	 * shared by all threads. The {@link PersistenceSerializer}s return the {@link org.freezedry.persistence.Persistence}
+	 * they warmed to their pool, so that the next call, from any thread, uses its warmed caches.
+	 * @param name The name of the {@link Serializer}
+	 * @param samples The objects, like those that will be serialized, to round trip through the serializer
+	 * @return The shared {@link Serializer} whose {@link Class} is associated with the specified name
+	 */
+	public Serializer warmUp( final String name, final Object... samples )
+	{
+		final Serializer serializer = getSerializer( name );
+		for( Object sample : samples )
+		{
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			serializer.serialize( sample, output );
+
+			// an object whose fields are all unset may have nothing to persist, and then nothing to read back
+			if( output.size() > 0 )
+			{
+				serializer.deserialize( new ByteArrayInputStream( output.toByteArray() ), sample.getClass() );
+			}
+		}
+		return serializer;
+	}
 	
 	public enum SerializerType {
 		
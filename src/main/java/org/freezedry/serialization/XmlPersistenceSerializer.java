@@ -16,6 +16,7 @@
 package org.freezedry.serialization;
 
 import org.freezedry.persistence.XmlPersistence;
+import org.freezedry.persistence.Persistence;
 
 /**
  * Serializes objects into XML and deserializes XML back into objects using the
@@ -27,11 +28,19 @@ public class XmlPersistenceSerializer extends PersistenceSerializer {
 
 	/**
 	 * Constructs an object serializer that uses the FreezeDry persistence framework to 
-	 * serialize the objects into and out of XML
+	 * serialize the objects into and out of XML. Each call uses a
+	 * {@link XmlPersistence} from the pool, so that calls from different threads don't wait for each other.
 	 */
 	public XmlPersistenceSerializer()
 	{
-		super( new XmlPersistence() );
+		super( new PersistenceFactory() {
+
+			@Override
+			public Persistence create()
+			{
+				return new XmlPersistence();
+			}
+		} );
 	}
 	
 }
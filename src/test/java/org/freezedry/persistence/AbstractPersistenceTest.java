@@ -15,8 +15,10 @@
  */
 package org.freezedry.persistence;
 
+import org.freezedry.difference.ObjectDifferenceCalculator;
 import org.freezedry.persistence.tests.Division;
 import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tree.Projection;
 import org.freezedry.persistence.utils.Constants;
 import org.freezedry.persistence.utils.DateUtils;
 import org.junit.Before;
@@ -25,8 +27,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.*;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
 /**
  * [Description]
  *
@@ -116,4 +124,62 @@ public abstract class AbstractPersistenceTest {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Writes several divisions as a stream of records, reads them back, and checks that each one
+	 * matches the original
+	 * @param persistence The persistence used to write and read the records
+	 */
+	protected void assertRecordsRoundTrip( final AbstractPersistence persistence )
+	{
+		final Division other = new Division();
+		other.addPerson( new Person( "Booker", "Bertha", 51 ) );
+		other.addPerson( new Person( "Quint", "Quincy", 33 ) );
+		other.setCarNames( new String[] { "mustang" } );
+		final List< Division > divisions = Arrays.asList( division, other, division );
+
+		final StringWriter writer = new StringWriter();
+		persistence.writeAll( divisions, writer );
+
+		final Iterator< Division > records = persistence.readAll( Division.class, new StringReader( writer.toString() ) );
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		for( final Division original : divisions )
+		{
+			assertTrue( records.hasNext() );
+			final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( records.next(), original );
+			assertTrue( differences == null || differences.isEmpty() );
+		}
+		assertFalse( records.hasNext() );
+
+		// an empty stream has no records
+		final StringWriter empty = new StringWriter();
+		persistence.writeAll( Collections.emptyList(), empty );
+		assertFalse( persistence.readAll( Division.class, new StringReader( empty.toString() ) ).hasNext() );
+	}
+
+	/**
+	 * Reads the names of the people in the list, and the ages of the people in the map, and checks that
+	 * those are the only fields that match the original
+	 * @param persistence The persistence used to write and read the division
+	 */
+	protected void assertProjectionRead( final AbstractPersistence persistence )
+	{
+		final StringWriter writer = new StringWriter();
+		persistence.write( division, writer );
+
+		final Projection projection = Projection.of( "people[*].givenName", "people[*].familyName", "personMap{*}.age" );
+		final Division redivision = persistence.read( Division.class, new StringReader( writer.toString() ), projection );
+		assertEquals( 0, redivision.getPerson( "Hernandez", "Johnny" ).getAge() );
+
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		final Set< String > differences = calculator.calculateDifference( redivision, division ).keySet();
+		assertTrue( differences.contains( "Division:people[1]:Person:age" ) );
+		assertTrue( differences.contains( "Division:personMap{\"sad\"}:givenName" ) );
+		assertTrue( differences.contains( "Division:carNames[0]" ) );
+		for( final String difference : differences )
+		{
+			assertFalse( difference, difference.matches( ".*:people\\[\\d+\\]:Person:(givenName|familyName)" ) );
+			assertFalse( difference, difference.matches( ".*:personMap\\{.*\\}:age" ) );
+		}
+	}
 }
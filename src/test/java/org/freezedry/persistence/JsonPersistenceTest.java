@@ -40,6 +40,21 @@ public class JsonPersistenceTest extends AbstractPersistenceTest {
 		assertTrue( differences == null || differences.isEmpty() );
 	}
 
+	@Test
+	public void testTypeDirectedPersistence() throws Exception
+	{
+		final String output = OUTPUT_DIR + "division-typed.json";
+
+		final JsonPersistence typedPersistence = new JsonPersistence();
+		typedPersistence.setTypeDirected( true );
+		typedPersistence.write( division, output );
+
+		final Division redivision = typedPersistence.read( Division.class, output );
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( redivision, division );
+		assertTrue( differences == null || differences.isEmpty() );
+	}
+
 	@Test
 	public void testEmptyList()
 	{
@@ -81,4 +96,16 @@ public class JsonPersistenceTest extends AbstractPersistenceTest {
 		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( reMySubclass, mySubclass );
 		assertTrue( differences == null || differences.isEmpty() );
 	}
+
+	@Test
+	public void testRecords()
+	{
+		assertRecordsRoundTrip( persistence );
+	}
+
+	@Test
+	public void testProjection()
+	{
+		assertProjectionRead( persistence );
+	}
 }
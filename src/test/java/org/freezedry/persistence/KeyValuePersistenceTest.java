@@ -16,14 +16,33 @@
 package org.freezedry.persistence;
 
 import org.freezedry.difference.ObjectDifferenceCalculator;
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.KeyValueIndex;
+import org.freezedry.persistence.writers.KeyValueWriter;
 import org.freezedry.persistence.tests.BadPerson;
 import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tests.Roster;
 import org.freezedry.persistence.tests.ThingWithEnum;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class KeyValuePersistenceTest extends AbstractPersistenceTest {
 
@@ -43,6 +62,53 @@ public class KeyValuePersistenceTest extends AbstractPersistenceTest {
 		assertTrue( differences == null || differences.isEmpty() );
 	}
 
+	@Test
+	public void testTypeDirected()
+	{
+		// the quotes within the name are kept, and only the outer ones are removed
+		division.getPerson( "Prosky", "Julie" ).setGivenName( "Julie \"Jules\"" );
+
+		final String output = OUTPUT_DIR + "division-type-directed.txt";
+		final KeyValuePersistence typed = new KeyValuePersistence();
+		typed.setTypeDirected( true );
+		typed.write( division, output );
+
+		final Division redivision = typed.read( Division.class, output );
+		assertEquals( "Julie \"Jules\"", redivision.getPerson( "Prosky", "Julie \"Jules\"" ).getGivenName() );
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		assertTrue( calculator.calculateDifference( redivision, division ).isEmpty() );
+		assertEquals( division, persistence.read( Division.class, output ) );
+	}
+
+	@Test
+	public void testParallelRead()
+	{
+		final ForkJoinPool pool = new ForkJoinPool( 4 );
+		try
+		{
+			for( final boolean isFrontCoded : new boolean[] { false, true } )
+			{
+				final String output = OUTPUT_DIR + "division-parallel.txt";
+				final KeyValuePersistence sequential = new KeyValuePersistence();
+				sequential.setFrontCoded( isFrontCoded );
+				sequential.write( division, output );
+
+				// the small chunks cut the file at most of its lines
+				final KeyValuePersistence parallel = new KeyValuePersistence();
+				parallel.setFrontCoded( isFrontCoded );
+				parallel.setParallelReadPool( pool );
+				parallel.setParallelReadChunkSize( 64 );
+				assertEquals( sequential.readSemanticModel( Division.class, output ).treeToString(),
+							  parallel.readSemanticModel( Division.class, output ).treeToString() );
+				assertEquals( division, parallel.read( Division.class, output ) );
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
 	@Test
 	public void testEmptyList()
 	{
@@ -69,4 +135,183 @@ public class KeyValuePersistenceTest extends AbstractPersistenceTest {
 		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( rething, thing );
 		assertTrue( differences == null || differences.isEmpty() );
 	}
+
+	@Test
+	public void testRecords()
+	{
+		assertRecordsRoundTrip( persistence );
+	}
+
+	@Test
+	public void testEmptyRecordRejected()
+	{
+		// a division with no fields set has no key-value pairs, and would be read back as no record at all
+		final StringWriter writer = new StringWriter();
+		try
+		{
+			persistence.writeAll( Arrays.asList( division, new Division() ), writer );
+			fail( "Expected the record without key-value pairs to be rejected" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "no key-value pairs" ) );
+		}
+	}
+
+	@Test
+	public void testProjection()
+	{
+		assertProjectionRead( persistence );
+	}
+
+	@Test
+	public void testIndexed() throws IOException
+	{
+		final String unsortedOutput = OUTPUT_DIR + "division-unsorted.txt";
+		persistence.write( division, unsortedOutput );
+
+		final String output = OUTPUT_DIR + "division-indexed.txt";
+		final KeyValuePersistence indexed = new KeyValuePersistence();
+		indexed.setIndexed( true );
+		indexed.setIndexBlockSize( 256 );
+		indexed.write( division, output );
+
+		// the sorted file still reads back as the division
+		final Division redivision = indexed.read( Division.class, output );
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( redivision, division );
+		assertTrue( differences == null || differences.isEmpty() );
+
+		// every key is found with the value it has in the unsorted file
+		final KeyValueIndex index = indexed.openIndex( output );
+		assertTrue( index.getBlockCount() > 1 );
+		final List< String > keys = new ArrayList<>();
+		try( final BufferedReader reader = new BufferedReader( new FileReader( unsortedOutput ) ) )
+		{
+			String line;
+			while( (line = reader.readLine()) != null )
+			{
+				final String[] keyValue = line.split( " = ", 2 );
+				assertEquals( keyValue[ 1 ], index.lookup( keyValue[ 0 ] ) );
+				keys.add( keyValue[ 0 ] );
+			}
+		}
+		assertNull( indexed.lookup( output, "Division:people[0]:Person:nickName" ) );
+		assertNull( indexed.lookup( output, "AAA" ) );
+
+		// the prefix scans return the keys in the order of the elements' indexes
+		final List< Pair< String, String > > moods = indexed.scanPrefix( output, "Division:people[0]:Person:Mood[" );
+		assertEquals( 10, moods.size() );
+		for( int i = 0; i < moods.size(); ++i )
+		{
+			assertEquals( "Division:people[0]:Person:Mood[" + i + "]", moods.get( i ).getFirst() );
+		}
+		final List< Pair< String, String > > mood1 = indexed.scanPrefix( output, "Division:people[0]:Person:Mood[1" );
+		assertEquals( 1, mood1.size() );
+		assertEquals( keys.size(), indexed.scanPrefix( output, "" ).size() );
+
+		// writing the file without the index removes the stale index
+		persistence.write( division, output );
+		assertTrue( !new java.io.File( KeyValueIndex.getIndexFileName( output ) ).exists() );
+	}
+
+	@Test
+	public void testIndexedMapOrder()
+	{
+		final Roster roster = new Roster();
+		roster.addCaptain( "zulu", new Person( "Zachary", "Zed", 31 ) );
+		roster.addCaptain( "alpha", new Person( "Adams", "Amy", 42 ) );
+		roster.addCaptain( "mike", new Person( "Morse", "Mo", 27 ) );
+
+		final String output = OUTPUT_DIR + "roster-indexed.txt";
+		final KeyValuePersistence indexed = new KeyValuePersistence();
+		indexed.setIndexed( true );
+		indexed.write( roster, output );
+
+		// the unindexed file keeps the order of the ordered map
+		final String unsortedOutput = OUTPUT_DIR + "roster-unsorted.txt";
+		persistence.write( roster, unsortedOutput );
+		assertEquals( Arrays.asList( "zulu", "alpha", "mike" ),
+					  new ArrayList<>( persistence.read( Roster.class, unsortedOutput ).getCaptains().keySet() ) );
+
+		// the indexed file holds every entry, but in the order of the map's keys
+		final Roster reroster = indexed.read( Roster.class, output );
+		assertEquals( Arrays.asList( "alpha", "mike", "zulu" ), new ArrayList<>( reroster.getCaptains().keySet() ) );
+		for( final Map.Entry< String, Person > entry : roster.getCaptains().entrySet() )
+		{
+			assertEquals( entry.getValue(), reroster.getCaptains().get( entry.getKey() ) );
+		}
+
+		// the elements of the collections keep their order
+		assertEquals( Arrays.asList( "zulu", "alpha", "mike" ), new ArrayList<>( reroster.getTeams() ) );
+	}
+
+	@Test
+	public void testFrontCoded() throws IOException
+	{
+		final String plainOutput = OUTPUT_DIR + "division-plain.txt";
+		persistence.write( division, plainOutput );
+
+		final String output = OUTPUT_DIR + "division-front-coded.txt";
+		final KeyValuePersistence frontCoded = new KeyValuePersistence();
+		frontCoded.setFrontCoded( true );
+		frontCoded.write( division, output );
+		assertTrue( new java.io.File( output ).length() < new java.io.File( plainOutput ).length() );
+
+		// every restart point holds the full key
+		try( final BufferedReader reader = new BufferedReader( new FileReader( output ) ) )
+		{
+			String line;
+			int lineNumber = 0;
+			while( (line = reader.readLine()) != null )
+			{
+				if( lineNumber++ % KeyValueWriter.DEFAULT_RESTART_INTERVAL == 0 )
+				{
+					assertTrue( line.startsWith( "0 Division:" ) );
+				}
+			}
+		}
+
+		final Division redivision = frontCoded.read( Division.class, output );
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( redivision, division );
+		assertTrue( differences == null || differences.isEmpty() );
+
+		assertRecordsRoundTrip( frontCoded );
+
+		// the blocks of an indexed file start at restart points
+		final String indexedOutput = OUTPUT_DIR + "division-front-coded-indexed.txt";
+		frontCoded.setIndexed( true );
+		frontCoded.setIndexBlockSize( 128 );
+		frontCoded.write( division, indexedOutput );
+		assertEquals( "\"Johnny\"", frontCoded.lookup( indexedOutput, "Division:people[0]:Person:givenName" ) );
+		assertEquals( 10, frontCoded.scanPrefix( indexedOutput, "Division:people[0]:Person:Mood" ).size() );
+		final Division indexedDivision = frontCoded.read( Division.class, indexedOutput );
+		assertTrue( calculator.calculateDifference( indexedDivision, division ).isEmpty() );
+	}
+
+	@Test
+	public void testFrontCodedSupplementaryCharacters()
+	{
+		// the names of the two friends share the high surrogate of their only character, and the front
+		// coding mustn't split the surrogate pair, which would leave a lone low surrogate in the output
+		final Person person = new Person( "Smith", "Sam", 33 );
+		person.addFriend( "\ud83d\ude00", "grinning" );
+		person.addFriend( "\ud83d\ude01", "beaming" );
+
+		final KeyValuePersistence frontCoded = new KeyValuePersistence();
+		frontCoded.setFrontCoded( true );
+		final StringWriter writer = new StringWriter();
+		frontCoded.write( person, writer );
+		assertTrue( writer.toString().contains( " \ud83d\ude01\"} = \"beaming\"" ) );
+		assertEquals( person, frontCoded.read( Person.class, new StringReader( writer.toString() ) ) );
+
+		// the files are written in the platform's default charset, which must be able to encode the names
+		assumeTrue( Charset.defaultCharset().newEncoder().canEncode( "\ud83d\ude00" ) );
+		final String indexedOutput = OUTPUT_DIR + "person-front-coded-surrogates-indexed.txt";
+		frontCoded.setIndexed( true );
+		frontCoded.write( person, indexedOutput );
+		assertEquals( person, frontCoded.read( Person.class, indexedOutput ) );
+		assertEquals( "\"beaming\"", frontCoded.lookup( indexedOutput, "Person:friends{\"\ud83d\ude01\"}" ) );
+	}
 }
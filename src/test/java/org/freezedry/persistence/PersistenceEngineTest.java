@@ -17,9 +17,14 @@ package org.freezedry.persistence;
 
 import junit.framework.Assert;
 import org.freezedry.persistence.builders.StringNodeBuilder;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tree.InfoNode;
 import org.junit.Before;
 import org.junit.Test;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -42,4 +47,35 @@ public class PersistenceEngineTest {
 		engine.addNodeBuilder( String.class, new StringNodeBuilder() );
 		assertTrue( engine.containsNodeBuilder( String.class ) );
 	}
+
+	@Test
+	public void testImmutableClass() throws Exception
+	{
+		final PersistenceEngine engine = new PersistenceEngine();
+		engine.addImmutableClass( Person.class );
+		assertTrue( engine.isImmutableClass( Person.class ) );
+
+		final Person person = new Person( "Prosky", "Julie", 15 );
+		final InfoNode first = engine.createSemanticModel( person );
+		assertEquals( 1, engine.getSemanticModelCache().getSize() );
+
+		// modifying the returned semantic model must not change the cached one
+		first.setPersistName( "changed" );
+		final InfoNode second = engine.createSemanticModel( person );
+		assertNotSame( first, second );
+		assertEquals( first.getChildCount(), second.getChildCount() );
+		assertEquals( Person.class.getSimpleName(), second.getPersistName() );
+
+		// neither may modifying the semantic models handed out from the cache, as the builders do when
+		// they set the class of the nodes, or attaching their nodes to another tree
+		second.getChild( 0 ).setClazz( Object.class );
+		InfoNode.createRootNode( "other", Object.class ).addChild( second.getChild( 1 ) );
+		final InfoNode third = engine.createSemanticModel( person );
+		assertNotSame( second, third );
+		assertEquals( first.getChild( 0 ).getClazz(), third.getChild( 0 ).getClazz() );
+		assertSame( third, third.getChild( 1 ).getParent() );
+
+		assertTrue( engine.removeImmutableClass( Person.class ) );
+		assertEquals( 0, engine.getSemanticModelCache().getSize() );
+	}
 }
@@ -16,6 +16,7 @@
 package org.freezedry.persistence;
 
 import org.freezedry.difference.ObjectDifferenceCalculator;
+import org.freezedry.persistence.cache.FileReadCache;
 import org.freezedry.persistence.tests.BadPerson;
 import org.freezedry.persistence.tests.Division;
 import org.freezedry.persistence.tests.ThingWithEnum;
@@ -23,6 +24,9 @@ import org.junit.Test;
 
 import java.util.Map;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 public class XmlPersistenceTest  extends AbstractPersistenceTest {
@@ -68,4 +72,55 @@ public class XmlPersistenceTest  extends AbstractPersistenceTest {
 		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( rething, thing );
 		assertTrue( differences == null || differences.isEmpty() );
 	}
+
+	@Test
+	public void testReadCache()
+	{
+		final String output = OUTPUT_DIR + "division-cached.xml";
+		persistence.write( division, output );
+
+		final ObjectDifferenceCalculator calculator = new ObjectDifferenceCalculator();
+
+		// shared instances
+		final XmlPersistence sharedPersistence = new XmlPersistence();
+		final FileReadCache sharedCache = new FileReadCache( 10 * 1024 * 1024, FileReadCache.Mode.SHARED );
+		sharedPersistence.setReadCache( sharedCache );
+		final Division first = sharedPersistence.read( Division.class, output );
+		final Division second = sharedPersistence.read( Division.class, output );
+		assertSame( first, second );
+		assertEquals( 1, sharedCache.getHitCount() );
+		assertEquals( 1, sharedCache.getMissCount() );
+
+		// copies
+		final XmlPersistence copyPersistence = new XmlPersistence();
+		final FileReadCache copyCache = new FileReadCache( 10 * 1024 * 1024, FileReadCache.Mode.COPY );
+		copyPersistence.setReadCache( copyCache );
+		final Division copy1 = copyPersistence.read( Division.class, output );
+		final Division copy2 = copyPersistence.read( Division.class, output );
+		assertNotSame( copy1, copy2 );
+		assertEquals( 1, copyCache.getHitCount() );
+		final Map< String, ObjectDifferenceCalculator.Difference > differences = calculator.calculateDifference( copy2, division );
+		assertTrue( differences == null || differences.isEmpty() );
+
+		// an entry heavier than the maximum weight isn't cached
+		final XmlPersistence tinyPersistence = new XmlPersistence();
+		final FileReadCache tinyCache = new FileReadCache( 1, FileReadCache.Mode.SHARED );
+		tinyPersistence.setReadCache( tinyCache );
+		tinyPersistence.read( Division.class, output );
+		tinyPersistence.read( Division.class, output );
+		assertEquals( 0, tinyCache.getHitCount() );
+		assertEquals( 0, tinyCache.getSize() );
+	}
+
+	@Test
+	public void testRecords()
+	{
+		assertRecordsRoundTrip( persistence );
+	}
+
+	@Test
+	public void testProjection()
+	{
+		assertProjectionRead( persistence );
+	}
 }
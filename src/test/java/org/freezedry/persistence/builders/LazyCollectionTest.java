@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.builders;
+
+import org.freezedry.persistence.JsonPersistence;
+import org.freezedry.persistence.Persistence;
+import org.freezedry.persistence.XmlPersistence;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tests.Roster;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class LazyCollectionTest {
+
+	private Roster roster;
+
+	@Before
+	public void setUp()
+	{
+		roster = new Roster();
+		for( int i = 0; i < 100; ++i )
+		{
+			roster.addPerson( new Person( "Family" + i, "Given" + i, i ) );
+		}
+		roster.addCaptain( "red", new Person( "Prosky", "Julie", 15 ) );
+		roster.addCaptain( "blue", new Person( "Jones", "Janet", 13 ) );
+		roster.addNote( "eager" );
+	}
+
+	@Test
+	public void testLazyFields()
+	{
+		final JsonPersistence persistence = new JsonPersistence();
+		final Roster reroster = roundTrip( persistence, roster );
+
+		assertTrue( reroster.getPeople() instanceof LazyList );
+		assertTrue( reroster.getTeams() instanceof LazySet );
+		assertTrue( reroster.getCaptains() instanceof LazyMap );
+		assertTrue( reroster.getNotes() instanceof ArrayList );
+
+		assertEquals( roster.getPeople(), reroster.getPeople() );
+		assertSame( reroster.getPeople().get( 42 ), reroster.getPeople().get( 42 ) );
+		assertEquals( roster.getTeams(), reroster.getTeams() );
+		assertEquals( roster.getCaptains(), reroster.getCaptains() );
+		assertEquals( "Julie", reroster.getCaptains().get( "red" ).getGivenName() );
+
+		try
+		{
+			reroster.getPeople().add( new Person( "Ghad", "Booda", 17 ) );
+			fail( "Expected the lazy list to be read-only" );
+		}
+		catch( UnsupportedOperationException e )
+		{
+			// expected
+		}
+
+		// the lazy collections are written like the eager ones
+		final StringWriter original = new StringWriter();
+		persistence.write( roster, original );
+		final StringWriter rewritten = new StringWriter();
+		persistence.write( reroster, rewritten );
+		assertEquals( original.toString(), rewritten.toString() );
+	}
+
+	@Test
+	public void testTypeInfoRoundTrip()
+	{
+		final XmlPersistence persistence = new XmlPersistence();
+		persistence.setDisplayTypeInfo( true );
+		final Roster reroster = roundTrip( persistence, roster );
+		assertEquals( roster.getCaptains(), roundTrip( persistence, reroster ).getCaptains() );
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception
+	{
+		final Roster reroster = roundTrip( new JsonPersistence(), roster );
+		final List< Person > people = reroster.getPeople();
+
+		// every thread must see the same instance of each element
+		final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+		try
+		{
+			final List< Future< List< Person > > > futures = new ArrayList<>();
+			for( int i = 0; i < 8; ++i )
+			{
+				futures.add( executor.submit( new Callable< List< Person > >() {
+
+					@Override
+					public List< Person > call()
+					{
+						return new ArrayList<>( people );
+					}
+				} ) );
+			}
+			final List< Person > first = futures.get( 0 ).get();
+			for( final Future< List< Person > > future : futures )
+			{
+				final List< Person > elements = future.get();
+				for( int i = 0; i < elements.size(); ++i )
+				{
+					assertSame( first.get( i ), elements.get( i ) );
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentBuildsThroughEngine() throws Exception
+	{
+		// the elements of the list, set, and map are built on the worker threads, while the
+		// engine that read them writes the original roster on this thread
+		final JsonPersistence persistence = new JsonPersistence();
+		final Roster reroster = roundTrip( persistence, roster );
+
+		final int numThreads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final List< Future< Boolean > > futures = new ArrayList<>();
+			for( int i = 0; i < numThreads; ++i )
+			{
+				final int offset = i;
+				futures.add( executor.submit( new Callable< Boolean >() {
+
+					@Override
+					public Boolean call()
+					{
+						final List< Person > people = reroster.getPeople();
+						for( int j = 0; j < people.size(); ++j )
+						{
+							final int index = ( j + offset * 13 ) % people.size();
+							assertEquals( roster.getPeople().get( index ), people.get( index ) );
+						}
+						return roster.getTeams().equals( reroster.getTeams() ) &&
+							   roster.getCaptains().equals( reroster.getCaptains() );
+					}
+				} ) );
+			}
+			final String expected = write( persistence, roster );
+			for( int i = 0; i < 10; ++i )
+			{
+				assertEquals( expected, write( persistence, roster ) );
+			}
+			for( final Future< Boolean > future : futures )
+			{
+				assertTrue( future.get() );
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private static String write( final Persistence persistence, final Object object )
+	{
+		final StringWriter writer = new StringWriter();
+		persistence.write( object, writer );
+		return writer.toString();
+	}
+
+	private static Roster roundTrip( final Persistence persistence, final Roster roster )
+	{
+		final StringWriter writer = new StringWriter();
+		persistence.write( roster, writer );
+		return persistence.read( Roster.class, new StringReader( writer.toString() ) );
+	}
+}
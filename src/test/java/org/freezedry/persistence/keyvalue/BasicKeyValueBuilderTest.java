@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import org.freezedry.persistence.AbstractPersistenceTest;
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.renderers.FlatteningCollectionRenderer;
+import org.freezedry.persistence.tree.InfoNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+public class BasicKeyValueBuilderTest extends AbstractPersistenceTest {
+
+	@Test
+	public void testModelIsNotModified()
+	{
+		final InfoNode model = new PersistenceEngine().createSemanticModel( division );
+		final String tree = model.treeToString();
+
+		final BasicKeyValueBuilder builder = new BasicKeyValueBuilder();
+		final List< Pair< String, Object > > keyValues = builder.buildKeyValuePairs( model );
+		assertEquals( tree, model.treeToString() );
+
+		// the collection elements that are collections are still flattened without their persist names
+		assertEquals( keyValues.toString(), builder.buildKeyValuePairs( model ).toString() );
+		assertEquals( true, keyValues.toString().contains( "collectionMatrix[0][1]" ) );
+
+		final BasicKeyValueBuilder flattening = new BasicKeyValueBuilder();
+		flattening.putRenderer( Collection.class, new FlatteningCollectionRenderer( flattening ) );
+		final List< Pair< String, Object > > flattened = flattening.buildKeyValuePairs( model );
+		assertEquals( flattened.toString(), flattening.buildKeyValuePairs( model ).toString() );
+		assertEquals( tree, model.treeToString() );
+	}
+
+	@Test
+	public void testSinkReceivesPairsInOrder()
+	{
+		final InfoNode model = new PersistenceEngine().createSemanticModel( division );
+		final BasicKeyValueBuilder builder = new BasicKeyValueBuilder();
+
+		// the sink sees the same pairs, in the same order, as the list, and every key is a view of the same key buffer
+		final List< Pair< String, Object > > received = new ArrayList<>();
+		final List< CharSequence > keys = new ArrayList<>();
+		builder.buildKeyValuePairs( model, new KeyValueSink() {
+
+			@Override
+			public void add( final CharSequence key, final Object value )
+			{
+				received.add( new Pair< String, Object >( key.toString(), value ) );
+				keys.add( key );
+			}
+		} );
+		assertEquals( builder.buildKeyValuePairs( model ).toString(), received.toString() );
+		for( final CharSequence key : keys )
+		{
+			assertSame( keys.get( 0 ), key );
+		}
+	}
+
+	@Test
+	public void testConcurrentFlattening() throws Exception
+	{
+		final InfoNode model = new PersistenceEngine().createSemanticModel( division );
+		final BasicKeyValueBuilder builder = new BasicKeyValueBuilder();
+		final String expected = builder.buildKeyValuePairs( model ).toString();
+
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< String > > results = new ArrayList<>();
+			for( int i = 0; i < 16; ++i )
+			{
+				results.add( executor.submit( new Callable< String >() {
+					@Override
+					public String call()
+					{
+						return builder.buildKeyValuePairs( model ).toString();
+					}
+				} ) );
+			}
+			for( final Future< String > result : results )
+			{
+				assertEquals( expected, result.get() );
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import org.freezedry.persistence.containers.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class KeyElementTrieTest {
+
+	@Test
+	public void testSharedPrefixes()
+	{
+		final List< Pair< String, String > > keyValues = Arrays.asList(
+				new Pair<>( "Division.people[0].Person.givenName", "\"Johnny\"" ),
+				new Pair<>( "Division.carNames[0]", "\"civic\"" ),
+				new Pair<>( "Division.people[0].Person.age", "13" ) );
+		final KeyElementTrie root = KeyElementTrie.create( keyValues, "." );
+
+		assertEquals( 1, root.getChildren().size() );
+		final KeyElementTrie division = root.getChildren().iterator().next();
+		assertEquals( "Division", division.getElement() );
+		assertTrue( division.getValues().isEmpty() );
+
+		// the children are in the order in which they were first inserted
+		final Iterator< KeyElementTrie > children = division.getChildren().iterator();
+		final KeyElementTrie people = children.next();
+		assertEquals( "people[0]", people.getElement() );
+		final KeyElementTrie carNames = children.next();
+		assertEquals( "carNames[0]", carNames.getElement() );
+		assertFalse( carNames.hasChildren() );
+		assertEquals( Arrays.asList( "\"civic\"" ), carNames.getValues() );
+
+		// the keys are reassembled relative to the node at which the collection starts
+		final List< Pair< String, ? > > collected = new ArrayList<>();
+		people.collectKeyValues( new StringBuilder(), ".", collected );
+		assertEquals( 2, collected.size() );
+		assertEquals( "people[0].Person.givenName", collected.get( 0 ).getFirst() );
+		assertEquals( "people[0].Person.age", collected.get( 1 ).getFirst() );
+		assertEquals( "13", collected.get( 1 ).getSecond() );
+	}
+
+	@Test
+	public void testMultiCharacterSeparator()
+	{
+		final List< Pair< String, String > > keyValues = Arrays.asList( new Pair<>( "Person::friends{\"Polly\"}", "\"bird\"" ) );
+		final KeyElementTrie person = KeyElementTrie.create( keyValues, "::" ).getChildren().iterator().next();
+
+		assertEquals( "Person", person.getElement() );
+		final List< Pair< String, ? > > collected = new ArrayList<>();
+		person.collectKeyValues( new StringBuilder(), "::", collected );
+		assertEquals( "Person::friends{\"Polly\"}", collected.get( 0 ).getFirst() );
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class KeyValueIndexTest {
+
+	@Test
+	public void testKeyOrder()
+	{
+		final List< String > keys = Arrays.asList( "people[10]:age", "people[2]:age", "people[1]:name", "people[1]:age",
+												   "people", "people[02]:age", "peoplez", "mood[9]" );
+		Collections.sort( keys, KeyValueIndex.KEY_ORDER );
+		assertEquals( Arrays.asList( "mood[9]", "people", "people[1]:age", "people[1]:name", "people[2]:age",
+									 "people[02]:age", "people[10]:age", "peoplez" ), keys );
+
+		// equal only when the strings are equal
+		assertEquals( 0, KeyValueIndex.KEY_ORDER.compare( "a[12]", "a[12]" ) );
+		assertTrue( KeyValueIndex.KEY_ORDER.compare( "a[012]", "a[12]" ) != 0 );
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue;
+
+import org.freezedry.persistence.keyvalue.renderers.CollectionRenderer;
+import org.freezedry.persistence.keyvalue.renderers.LeafNodeRenderer;
+import org.freezedry.persistence.keyvalue.renderers.MapRenderer;
+import org.freezedry.persistence.keyvalue.renderers.PersistenceRenderer;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+public class RendererDispatcherTest {
+
+	@Test
+	public void testFirstClaimingRenderer()
+	{
+		final BasicKeyValueBuilder builder = new BasicKeyValueBuilder();
+		final LeafNodeRenderer stringRenderer = new LeafNodeRenderer( builder );
+		final CollectionRenderer collectionRenderer = new CollectionRenderer( builder );
+		final MapRenderer mapRenderer = new MapRenderer( builder );
+
+		final Map< Class< ? >, PersistenceRenderer > renderers = new LinkedHashMap<>();
+		renderers.put( String.class, stringRenderer );
+		renderers.put( Integer.class, new LeafNodeRenderer( builder ) );
+		renderers.put( Collection.class, collectionRenderer );
+		renderers.put( Map.class, mapRenderer );
+		final RendererDispatcher dispatcher = new RendererDispatcher( renderers );
+
+		assertSame( stringRenderer, dispatcher.getRenderer( "givenName" ) );
+		assertSame( collectionRenderer, dispatcher.getRenderer( "people[0]" ) );
+		assertSame( mapRenderer, dispatcher.getRenderer( "friends{\"Polly\"}" ) );
+		assertNull( dispatcher.getRenderer( "given name" ) );
+	}
+
+	@Test
+	public void testChangedRenderers()
+	{
+		final BasicKeyValueBuilder builder = new BasicKeyValueBuilder();
+		final Map< Class< ? >, PersistenceRenderer > renderers = new LinkedHashMap<>();
+		renderers.put( String.class, new LeafNodeRenderer( builder ) );
+		final RendererDispatcher dispatcher = new RendererDispatcher( renderers );
+		assertNull( dispatcher.getRenderer( "people[0]" ) );
+
+		// the builder's renderers are replaced through the builder, which creates a new dispatcher
+		builder.setRenderers( renderers );
+		assertNull( builder.getRenderer( "people[0]" ) );
+		final CollectionRenderer collectionRenderer = new CollectionRenderer( builder );
+		builder.putRenderer( Collection.class, collectionRenderer );
+		assertSame( collectionRenderer, builder.getRenderer( "people[0]" ) );
+	}
+}
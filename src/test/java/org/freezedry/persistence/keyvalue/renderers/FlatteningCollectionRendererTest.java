@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.keyvalue.renderers;
+
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.readers.KeyValueReader;
+import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.writers.KeyValueWriter;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class FlatteningCollectionRendererTest {
+
+	private final PersistenceEngine engine = new PersistenceEngine();
+
+	@Test
+	public void testRoundTrip()
+	{
+		final Division division = new Division();
+		final Person person = new Person( "Hernandez", "Johnny", 13 );
+		for( int i = 0; i < 100000; ++i )
+		{
+			person.addMood( Math.sin( i ) );
+		}
+		division.addPerson( person );
+		division.addToCrazySet( "tesla model 3" );
+		division.addToCrazySet( "a, \"b\" [c]" );
+		division.addToCrazySet( "back\\slash" );
+		division.setCollectionMatrix( Arrays.asList( Arrays.asList( 1, 2 ), Arrays.asList( 3 ) ) );
+
+		final String output = write( division );
+		assertTrue( output.contains( "\"a, \\\"b\\\" [c]\"" ) && output.contains( "\"back\\\\slash\"" ) );
+		assertTrue( output.contains( "collectionMatrix[0][] = [1, 2]" ) && output.contains( "collectionMatrix[1][] = [3]" ) );
+
+		assertEquals( division, read( output ) );
+	}
+
+	@Test
+	public void testInvalidList()
+	{
+		for( final String list : new String[] { "1, 2]", "[1, 2", "[1 2]", "[1,, 2]", "[\"a]", "[1] 2" } )
+		{
+			try
+			{
+				read( "Division:people[0]:Person:Mood[] = " + list );
+				fail( "Expected the list to be invalid: " + list );
+			}
+			catch( IllegalArgumentException e )
+			{
+				assertTrue( e.getMessage().contains( "isn't a valid list" ) );
+			}
+		}
+
+		final String empty = "Division:people[0]:Person:givenName = \"Johnny\"\nDivision:people[0]:Person:familyName = \"Hernandez\"\n"
+				+ "Division:people[0]:Person:Mood[] = [ ]";
+		assertEquals( 0, read( empty ).getPerson( "Hernandez", "Johnny" ).getMood().size() );
+	}
+
+	private String write( final Division division )
+	{
+		final KeyValueWriter writer = new KeyValueWriter();
+		writer.getBuilder().putRenderer( Collection.class, new FlatteningCollectionRenderer( writer.getBuilder() ) );
+		final StringWriter output = new StringWriter();
+		writer.write( engine.createSemanticModel( division ), output );
+		return output.toString();
+	}
+
+	private Division read( final String input )
+	{
+		final KeyValueReader reader = new KeyValueReader();
+		reader.getBuilder().putRenderer( Collection.class, new FlatteningCollectionRenderer( reader.getBuilder() ) );
+		final InfoNode rootNode = reader.read( Division.class, new StringReader( input ) );
+		return (Division)engine.parseSemanticModel( Division.class, rootNode );
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tests.ThingWithEnum;
+import org.freezedry.persistence.tests.Things;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.tree.Projection;
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class JsonReaderTest {
+
+	private static final String JSON = "{ \"Division\" : { \"zebra\" : \"z\", \"apple\" : [ 1, 3000000000, 2.50, true, null ], "
+			+ "\"people\" : { \"name\" : \"a \\\"quoted\\\" \\u00e9\\n\" }, \"huge\" : 123456789012345678901234567890 } }";
+
+	private final JsonReader reader = new JsonReader();
+
+	@Test
+	public void testKeyOrderAndValues()
+	{
+		// the reader hands out one character at a time, so that every token crosses a buffer boundary
+		final InfoNode root = reader.read( Division.class, new OneCharReader( new StringReader( JSON ) ) );
+
+		assertEquals( "Division", root.getPersistName() );
+		assertEquals( 8, root.getChildCount() );
+		assertEquals( "zebra", root.getChild( 0 ).getPersistName() );
+		assertEquals( "z", root.getChild( 0 ).getValue() );
+		for( int i = 1; i <= 5; ++i )
+		{
+			assertEquals( "apple", root.getChild( i ).getPersistName() );
+		}
+		assertEquals( 1, root.getChild( 1 ).getValue() );
+		assertEquals( 3000000000L, root.getChild( 2 ).getValue() );
+		assertEquals( 2.5, root.getChild( 3 ).getValue() );
+		assertEquals( Boolean.TRUE, root.getChild( 4 ).getValue() );
+		assertNull( root.getChild( 5 ).getValue() );
+
+		final InfoNode people = root.getChild( 6 );
+		assertTrue( people.isCompoundfNode() );
+		assertEquals( "a \"quoted\" é\n", people.getChild( 0 ).getValue() );
+
+		assertEquals( "123456789012345678901234567890", root.getChild( 7 ).getValue() );
+	}
+
+	@Test
+	public void testErrorMessageShowsRegion()
+	{
+		try
+		{
+			reader.read( Division.class, new StringReader( "{ \"Division\" : { \"name\" : \"johnny\" \"age\" : 13 } }" ) );
+			fail( "Expected the missing comma to fail the read" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "\"johnny\"" ) && e.getMessage().contains( ">> \"age\" : 13 } }" ) );
+		}
+	}
+
+	@Test
+	public void testRootMustHaveOneElement()
+	{
+		try
+		{
+			reader.read( Division.class, new StringReader( "{ \"Division\" : { }, \"Other\" : { } }" ) );
+			fail( "Expected the second root element to fail the read" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "exactly one element" ) );
+		}
+	}
+
+	@Test
+	public void testTypeDirectedValues()
+	{
+		final JsonReader typedReader = new JsonReader();
+		typedReader.setTypeDirected( true );
+
+		final String json = "{ \"Person\" : { \"age\" : 13, \"Mood\" : { \"Volatility\" : [ 0, 0.5 ] }, "
+				+ "\"friends\" : { \"MapEntry\" : [ { \"Key\" : \"Sparky\", \"Value\" : \"dog\" } ] } } }";
+		final InfoNode person = typedReader.read( Person.class, new StringReader( json ) );
+		assertEquals( 13, person.getChild( 0 ).getValue() );
+
+		// the mood is a List< Double >, so the integer literal is decoded as a double
+		final InfoNode mood = person.getChild( 1 );
+		assertEquals( 0.0, mood.getChild( 0 ).getValue() );
+		assertEquals( 0.5, mood.getChild( 1 ).getValue() );
+
+		final InfoNode entry = person.getChild( 2 ).getChild( 0 );
+		assertEquals( "Sparky", entry.getChild( 0 ).getValue() );
+
+		final InfoNode thing = typedReader.read( ThingWithEnum.class, new StringReader( "{ \"ThingWithEnum\" : { \"otherThing\" : \"THING_TWO\" } }" ) );
+		assertEquals( Things.THING_TWO, thing.getChild( 0 ).getValue() );
+	}
+
+	@Test
+	public void testTypeDirectedMismatch()
+	{
+		final JsonReader typedReader = new JsonReader();
+		typedReader.setTypeDirected( true );
+		try
+		{
+			typedReader.read( Person.class, new StringReader( "{ \"Person\" : { \"givenName\" : \"Johnny\", \"age\" : \"thirteen\" } }" ) );
+			fail( "Expected the string age to fail the read" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Integer" ) && e.getMessage().contains( "\"age\"" ) );
+		}
+	}
+
+	@Test
+	public void testProjectionSkipsValues()
+	{
+		// the skipped values hold brackets and escaped quotes in their strings
+		final String json = "{ \"Division\" : { \"carNames\" : { \"String\" : [ \"a ] \\\" }\", \"b\" ] }, "
+				+ "\"people\" : { \"Person\" : [ { \"givenName\" : \"Johnny\", \"Mood\" : { \"Volatility\" : [ 1, [ 2 ] ] }, \"age\" : 13 } ] } } }";
+		final InfoNode root = reader.read( Division.class, new OneCharReader( new StringReader( json ) ), Projection.of( "people[*].age" ) );
+
+		assertEquals( 1, root.getChildCount() );
+		final InfoNode person = root.getChild( 0 ).getChild( 0 );
+		assertEquals( 1, person.getChildCount() );
+		assertEquals( "age", person.getChild( 0 ).getPersistName() );
+		assertEquals( 13, person.getChild( 0 ).getValue() );
+
+		// single-quoted strings are skipped in the same way, with the double quotes in them taken as text
+		final String singleQuoted = "{ 'Division' : { 'carNames' : { 'String' : [ 'a,b} \\' ]\"', 'c' ] }, "
+				+ "'people' : { 'Person' : { 'givenName' : 'x,y]', 'age' : 13 } } } }";
+		final InfoNode singleRoot = reader.read( Division.class, new OneCharReader( new StringReader( singleQuoted ) ), Projection.of( "people[*].age" ) );
+		assertEquals( 1, singleRoot.getChildCount() );
+		final InfoNode singlePerson = singleRoot.getChild( 0 ).getChild( 0 );
+		assertEquals( 1, singlePerson.getChildCount() );
+		assertEquals( 13, singlePerson.getChild( 0 ).getValue() );
+
+		try
+		{
+			reader.read( Division.class, new StringReader( "{ \"Division\" : { \"carNames\" : } }" ), Projection.of( "people" ) );
+			fail( "Expected the missing value to fail the read" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Missing value" ) );
+		}
+	}
+
+	/*
+	 * Reader that returns at most one character from each call to read
+	 */
+	private static class OneCharReader extends FilterReader {
+
+		OneCharReader( final Reader reader )
+		{
+			super( reader );
+		}
+
+		@Override
+		public int read( final char[] buffer, final int offset, final int length ) throws IOException
+		{
+			return super.read( buffer, offset, Math.min( 1, length ) );
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.freezedry.persistence.AbstractPersistenceTest;
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.containers.Pair;
+import org.freezedry.persistence.keyvalue.KeyValueBuilder;
+import org.freezedry.persistence.keyvalue.renderers.FlatteningCollectionRenderer;
+import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.writers.KeyValueMapWriter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class KeyValueMapReaderTest extends AbstractPersistenceTest {
+
+	@Test
+	public void testRoundTrip()
+	{
+		final Map< String, Object > flattened = new KeyValueMapWriter().createMap( new PersistenceEngine().createSemanticModel( division ) );
+		assertEquals( division, new KeyValueMapReader().read( Division.class, flattened ) );
+	}
+
+	@Test
+	public void testTypedValues()
+	{
+		// the strings aren't quoted, and the numbers aren't text, so they are used as they are
+		final Map< String, Object > flattened = new LinkedHashMap<>();
+		flattened.put( "Person:givenName", "Johnny" );
+		flattened.put( "Person:familyName", "Hernandez" );
+		flattened.put( "Person:age", 13 );
+		flattened.put( "Person:Mood[0]", 0.5 );
+		flattened.put( "Person:Mood[1]", 1.0 );
+		flattened.put( "Person:friends{\"Polly\"}", "bird" );
+
+		final Person johnny = new Person( "Hernandez", "Johnny", 13 );
+		johnny.addMood( 0.5 );
+		johnny.addMood( 1.0 );
+		johnny.addFriend( "Polly", "bird" );
+		assertEquals( johnny, new KeyValueMapReader().read( Person.class, flattened ) );
+
+		// a flattened collection may be held as a typed list
+		final KeyValueMapReader reader = new KeyValueMapReader( "." );
+		final KeyValueBuilder builder = reader.getBuilder();
+		builder.putRenderer( Collection.class, new FlatteningCollectionRenderer( builder ) );
+		final List< Pair< String, ? > > keyValues = Arrays.< Pair< String, ? > >asList(
+				new Pair<>( "Person.givenName", "Julie" ),
+				new Pair<>( "Person.age", 15 ),
+				new Pair<>( "Person.Mood[]", Arrays.asList( 0.25, 0.75 ) ) );
+		final Person julie = reader.read( Person.class, keyValues );
+		assertEquals( "Julie", julie.getGivenName() );
+		assertEquals( Arrays.asList( 0.25, 0.75 ), julie.getMood() );
+	}
+
+	@Test
+	public void testEmptyMap()
+	{
+		try
+		{
+			new KeyValueMapReader().read( Person.class, new LinkedHashMap< String, Object >() );
+			fail( "Expected the empty map to fail the read" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "empty map" ) );
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.freezedry.persistence.containers.Pair;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class KeyValueScannerTest {
+
+	@Test
+	public void testLines() throws IOException
+	{
+		final KeyValueScanner scanner = new KeyValueScanner( new StringReader( "  a.b = 1  \r\n\r\n  \nc = x = y\nd=" ), "=" );
+
+		assertPair( "a.b", "1", scanner.next() );
+		assertNull( scanner.next() );
+		assertNull( scanner.next() );
+		assertFalse( scanner.isEnd() );
+
+		// the key ends at the first separator
+		assertPair( "c", "x = y", scanner.next() );
+
+		// the last line doesn't need a line feed
+		assertPair( "d", "", scanner.next() );
+		assertNull( scanner.next() );
+		assertTrue( scanner.isEnd() );
+	}
+
+	@Test
+	public void testLongLines() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+		for( int i = 0; i < 20000; ++i )
+		{
+			value.append( (char)( 'a' + i % 26 ) );
+		}
+		final StringBuilder input = new StringBuilder();
+		for( int i = 0; i < 1000; ++i )
+		{
+			input.append( "key" ).append( i ).append( " := " ).append( i % 100 == 0 ? value : "v" ).append( '\n' );
+		}
+
+		final KeyValueScanner scanner = new KeyValueScanner( new StringReader( input.toString() ), ":=" );
+		for( int i = 0; i < 1000; ++i )
+		{
+			assertPair( "key" + i, i % 100 == 0 ? value.toString() : "v", scanner.next() );
+		}
+		assertNull( scanner.next() );
+		assertTrue( scanner.isEnd() );
+	}
+
+	@Test
+	public void testMissingSeparator() throws IOException
+	{
+		final KeyValueScanner scanner = new KeyValueScanner( new StringReader( "a = 1\nb 2\n" ), " = " );
+		scanner.next();
+		try
+		{
+			scanner.next();
+			fail( "Expected the line without a separator to fail" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Line Number: 2" ) );
+		}
+	}
+
+	@Test
+	public void testFrontCodedKeys() throws IOException
+	{
+		final String input = "0 a:b:c = 1\n4 d = 2\n2 e:f = 3\n3 = 4\n\n0 g = 5\n2 h = 6\n";
+		final KeyValueScanner scanner = new KeyValueScanner( new StringReader( input ), "=", true );
+		assertPair( "a:b:c", "1", scanner.next() );
+		assertPair( "a:b:d", "2", scanner.next() );
+		assertPair( "a:e:f", "3", scanner.next() );
+		assertPair( "a:e", "4", scanner.next() );
+
+		// the previous key is forgotten at the end of the record
+		assertNull( scanner.next() );
+		assertPair( "g", "5", scanner.next() );
+		try
+		{
+			scanner.next();
+			fail( "Expected the key sharing more than the previous key to fail" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Line Number: 7" ) );
+		}
+	}
+
+	private static void assertPair( final String key, final String value, final Pair< String, String > pair )
+	{
+		assertEquals( key, pair.getFirst() );
+		assertEquals( value, pair.getSecond() );
+	}
+}
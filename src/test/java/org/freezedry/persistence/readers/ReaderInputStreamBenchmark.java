@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Reader;
+
+/**
+ * Compares the throughput of the {@link ReaderInputStream} with that of the original implementation,
+ * which pushed each character through a pair of piped streams. Not run as part of the tests; run the
+ * {@link #main(String[])} method directly. The optional argument is the size of the input in megabytes
+ * (100 by default).
+ */
+public class ReaderInputStreamBenchmark {
+
+	public static void main( final String[] args ) throws IOException
+	{
+		final int megabytes = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 100;
+
+		// mostly ASCII XML-like text, with some multi-byte characters. no surrogate pairs, because
+		// the original implementation blocks forever on the first high surrogate: the writer holds it
+		// back waiting for the low surrogate, so no byte reaches the pipe that it then reads.
+		final String line = "<person><name>Johnny é中</name><age>13</age></person>\n";
+		final char[] input = new char[ megabytes * 1024 * 1024 ];
+		for( int i = 0; i < input.length; ++i )
+		{
+			input[ i ] = line.charAt( i % line.length() );
+		}
+
+		for( int run = 0; run < 3; ++run )
+		{
+			System.out.println( "Run " + run );
+			time( "  CharsetEncoder", new ReaderInputStream( new CharArrayReader( input ), "UTF-8" ), input.length );
+			time( "  Piped streams ", new PipedReaderInputStream( new CharArrayReader( input ), "UTF-8" ), input.length );
+		}
+	}
+
+	private static void time( final String name, final InputStream stream, final int numChars ) throws IOException
+	{
+		final byte[] buffer = new byte[ 8192 ];
+		final long start = System.nanoTime();
+		long numBytes = 0;
+		int count;
+		while( ( count = stream.read( buffer, 0, buffer.length ) ) != -1 )
+		{
+			numBytes += count;
+		}
+		stream.close();
+		final double seconds = ( System.nanoTime() - start ) / 1e9;
+		System.out.println( String.format( "%s: %,d chars -> %,d bytes in %.2f s (%.1f MB/s of input)",
+				name, numChars, numBytes, seconds, numChars / seconds / 1024 / 1024 ) );
+	}
+
+	/*
+	 * The original implementation of the ReaderInputStream
+	 */
+	private static class PipedReaderInputStream extends InputStream {
+
+		private final Reader reader;
+		private final PipedOutputStream pos;
+		private final PipedInputStream pis;
+		private final OutputStreamWriter osw;
+
+		PipedReaderInputStream( final Reader reader, final String encoding ) throws IOException
+		{
+			this.reader = reader;
+			pos = new PipedOutputStream();
+			pis = new PipedInputStream( pos );
+			osw = new OutputStreamWriter( pos, encoding );
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if( pis.available() > 0 ) { return pis.read(); }
+			int c = reader.read();
+			if( c == -1 ) { return c; }
+			osw.write( c );
+			osw.flush();
+			pos.flush();
+			return pis.read();
+		}
+
+		@Override
+		public int read( byte[] b, int off, int len ) throws IOException
+		{
+			if( len == 0 ) { return 0; }
+			int c = read();
+			if( c == -1 ) { return -1; }
+			b[ off ] = (byte) c;
+			int i = 1;
+			for( ; (i < len) && reader.ready(); i++ )
+			{
+				c = read();
+				if( c == -1 ) { return i; }
+				b[ off + i ] = (byte) c;
+			}
+			return i;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			reader.close();
+			osw.close();
+			pis.close();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+public class ReaderInputStreamTest {
+
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+	@Test
+	public void testEncodesAcrossBufferBoundaries() throws IOException
+	{
+		// a surrogate pair every 4095 characters forces some pairs to be split across reads
+		final StringBuilder builder = new StringBuilder();
+		for( int i = 0; i < 100000; ++i )
+		{
+			builder.append( i % 4095 == 0 ? "😀" : "aé中" );
+		}
+		final String text = builder.toString();
+
+		assertArrayEquals( text.getBytes( UTF_8 ), readAll( new ReaderInputStream( new StringReader( text ), UTF_8 ), 1000 ) );
+		assertArrayEquals( text.getBytes( UTF_8 ), readAll( new ReaderInputStream( new StringReader( text ), "UTF-8" ), 1 ) );
+	}
+
+	@Test
+	public void testReplacesMalformedInput() throws IOException
+	{
+		final String text = "ab\ud800cd";
+		assertArrayEquals( text.getBytes( UTF_8 ), readAll( new ReaderInputStream( new StringReader( text ), UTF_8 ), 16 ) );
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException
+	{
+		final InputStream input = new ReaderInputStream( new StringReader( "" ), UTF_8 );
+		assertEquals( -1, input.read() );
+		assertEquals( -1, input.read( new byte[ 10 ], 0, 10 ) );
+	}
+
+	private static byte[] readAll( final InputStream input, final int chunkSize ) throws IOException
+	{
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[ chunkSize ];
+		if( chunkSize == 1 )
+		{
+			int b;
+			while( ( b = input.read() ) != -1 )
+			{
+				output.write( b );
+			}
+		}
+		else
+		{
+			int count;
+			while( ( count = input.read( buffer, 0, chunkSize ) ) != -1 )
+			{
+				output.write( buffer, 0, count );
+			}
+		}
+		input.close();
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.readers;
+
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.DomUtils;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class XmlReaderTest {
+
+	private final XmlReader reader = new XmlReader();
+
+	@Test
+	public void testEscapedText()
+	{
+		final String xml = "<Person><givenName>&lt;b&gt; &amp; &quot;q&quot; &apos;a&apos;</givenName>"
+				+ "<familyName><![CDATA[<i>Tom & Jerry</i>]]></familyName></Person>";
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+
+		assertEquals( 2, person.getChildCount() );
+		assertEquals( "<b> & \"q\" 'a'", person.getChild( 0 ).getValue() );
+
+		// the CDATA section is read as text
+		assertTrue( person.getChild( 1 ).isLeafNode() );
+		assertEquals( "<i>Tom & Jerry</i>", person.getChild( 1 ).getValue() );
+	}
+
+	@Test
+	public void testCharacterReferences()
+	{
+		// the tab, newline, and carriage return references survive, and the supplementary character
+		// is read as a surrogate pair, whether it is referenced or written out
+		final String xml = "<Person><givenName>a&#9;b&#10;c&#13;d</givenName>"
+				+ "<familyName>&#233;&#x1F600;\ud83d\ude00</familyName></Person>";
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+
+		assertEquals( "a\tb\nc\rd", person.getChild( 0 ).getValue() );
+		assertEquals( "\u00e9\ud83d\ude00\ud83d\ude00", person.getChild( 1 ).getValue() );
+	}
+
+	@Test
+	public void testControlCharacterRejected()
+	{
+		try
+		{
+			reader.read( Person.class, new StringReader( "<Person><givenName>a&#1;b</givenName></Person>" ) );
+			fail( "Expected the control character, which XML 1.0 doesn't allow, to fail the read" );
+		}
+		catch( IllegalStateException e )
+		{
+			assertTrue( e.getMessage().contains( Person.class.getName() ) );
+		}
+	}
+
+	@Test
+	public void testTextAroundComments()
+	{
+		// comments and processing instructions don't end the text of an element
+		final String xml = "<Person><givenName>Jo<!-- nick -->h<?pi data?>n</givenName></Person>";
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+		assertEquals( "John", person.getChild( 0 ).getValue() );
+	}
+
+	@Test
+	public void testFormattingText()
+	{
+		final String xml = "<Person>\n\t<givenName>  </givenName>\n\t<Mood>\n\t\t<Volatility>0.5</Volatility>\n\t</Mood>\n</Person>";
+
+		// whitespace-only text is removed, so the empty element is an empty leaf
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+		assertEquals( 2, person.getChildCount() );
+		assertEquals( "", person.getChild( 0 ).getValue() );
+		assertTrue( person.getChild( 1 ).isCompoundfNode() );
+		assertEquals( "0.5", person.getChild( 1 ).getChild( 0 ).getValue() );
+
+		// kept, the whitespace of a leaf is its value, and the formatting of the element
+		// with child elements makes it mixed content
+		final XmlReader keepingReader = new XmlReader();
+		keepingReader.setRemoveEmptyTextNodes( false );
+		final InfoNode leaf = keepingReader.read( Person.class, new StringReader( "<Person><givenName>  </givenName></Person>" ) );
+		assertEquals( "  ", leaf.getChild( 0 ).getValue() );
+		try
+		{
+			keepingReader.read( Person.class, new StringReader( xml ) );
+			fail( "Expected the formatted element to be read as mixed content" );
+		}
+		catch( IllegalStateException e )
+		{
+			assertTrue( e.getMessage().contains( "Mood" ) );
+		}
+	}
+
+	@Test
+	public void testMixedContent()
+	{
+		// an element can't hold both text and elements
+		try
+		{
+			reader.read( Person.class, new StringReader( "<Person><Mood>calm<Volatility>0.5</Volatility></Mood></Person>" ) );
+			fail( "Expected the mixed content to fail the read" );
+		}
+		catch( IllegalStateException e )
+		{
+			assertTrue( e.getMessage().contains( "  Persist Name: Mood" ) );
+		}
+
+		// except for the root element, whose text becomes "#text" nodes, as the DOM-based reader does
+		final String xml = "<Person>before<givenName>John</givenName>after</Person>";
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+		assertEquals( 3, person.getChildCount() );
+		assertEquals( "#text", person.getChild( 0 ).getPersistName() );
+		assertEquals( "John", person.getChild( 1 ).getValue() );
+		assertEquals( "#text", person.getChild( 2 ).getPersistName() );
+		assertEquals( XmlReader.buildInfoNode( Person.class, parse( xml ) ).treeToString(), person.treeToString() );
+	}
+
+	@Test
+	public void testSameTreeAsDomReader()
+	{
+		final String xml = "<Person>\n\t<givenName>&lt;&#x1F600;&gt;</givenName>\n\t<familyName><![CDATA[a&b]]></familyName>\n"
+				+ "\t<Mood>\n\t\t<Volatility>0.5</Volatility>\n\t\t<Volatility>1</Volatility>\n\t</Mood>\n\t<nickName/>\n</Person>";
+		final InfoNode person = reader.read( Person.class, new StringReader( xml ) );
+		final InfoNode domPerson = XmlReader.buildInfoNode( Person.class, DomUtils.removeFormattingTextNodes( parse( xml ) ) );
+		assertEquals( domPerson.treeToString(), person.treeToString() );
+	}
+
+	/*
+	 * @return The DOM of the specified XML, with CDATA sections read as text
+	 */
+	private static Document parse( final String xml )
+	{
+		try
+		{
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setCoalescing( true );
+			return factory.newDocumentBuilder().parse( new InputSource( new StringReader( xml ) ) );
+		}
+		catch( Exception e )
+		{
+			throw new IllegalStateException( e );
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.tests;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.freezedry.persistence.annotations.PersistMap;
+
+public class Club {
+
+	@PersistMap(entryPersistName="membership",keyPersistName="memberId",valuePersistName="member")
+	private Map< String, Person > members = new LinkedHashMap<>();
+
+	private String name;
+
+	public Club()
+	{
+	}
+
+	public Club( final String name )
+	{
+		this.name = name;
+	}
+
+	public void addMember( final String memberId, final Person person )
+	{
+		members.put( memberId, person );
+	}
+
+	public Map< String, Person > getMembers()
+	{
+		return members;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+}
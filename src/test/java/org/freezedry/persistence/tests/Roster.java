@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.tests;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.freezedry.persistence.annotations.PersistLazy;
+
+public class Roster {
+
+	@PersistLazy
+	private List< Person > people = new ArrayList<>();
+
+	@PersistLazy
+	private Set< String > teams = new LinkedHashSet<>();
+
+	@PersistLazy
+	private Map< String, Person > captains = new LinkedHashMap<>();
+
+	private List< String > notes = new ArrayList<>();
+
+	public void addPerson( final Person person )
+	{
+		people.add( person );
+	}
+
+	public void addCaptain( final String team, final Person person )
+	{
+		teams.add( team );
+		captains.put( team, person );
+	}
+
+	public void addNote( final String note )
+	{
+		notes.add( note );
+	}
+
+	public List< Person > getPeople()
+	{
+		return people;
+	}
+
+	public Set< String > getTeams()
+	{
+		return teams;
+	}
+
+	public Map< String, Person > getCaptains()
+	{
+		return captains;
+	}
+
+	public List< String > getNotes()
+	{
+		return notes;
+	}
+}
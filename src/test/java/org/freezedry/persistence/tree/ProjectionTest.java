@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.tree;
+
+import org.freezedry.persistence.AbstractPersistence;
+import org.freezedry.persistence.JsonPersistence;
+import org.freezedry.persistence.XmlPersistence;
+import org.freezedry.persistence.tests.Club;
+import org.freezedry.persistence.tests.Person;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class ProjectionTest {
+
+	@Test
+	public void testSelect()
+	{
+		final Projection projection = Projection.of( "people[*].givenName", "people[*].age", "personMap{*}.age", "carNames" );
+
+		assertNull( projection.select( "months" ) );
+		assertSame( Projection.ALL, projection.select( "carNames" ) );
+
+		// the elements are selected whatever their persist names
+		final Projection person = projection.select( "people" ).select( "Person" );
+		assertSame( Projection.ALL, person.select( "givenName" ) );
+		assertSame( Projection.ALL, person.select( "age" ) );
+		assertNull( person.select( "familyName" ) );
+		assertSame( person, projection.select( "people" ).selectElement() );
+
+		// the keys of the map entries are selected whole, and the values are projected
+		final Projection entry = projection.select( "personMap" ).select( "MapEntry" );
+		assertSame( Projection.ALL, entry.select( "Key" ) );
+		assertSame( Projection.ALL, entry.select( "Value" ).select( "age" ) );
+		assertNull( entry.select( "Value" ).select( "givenName" ) );
+		assertSame( entry.select( "Value" ), projection.select( "personMap" ).selectEntryValue() );
+		assertNull( projection.select( "people" ).selectEntryValue() );
+	}
+
+	@Test
+	public void testResolveValuePersistName()
+	{
+		// the club's map field renames its values to "member", which, unresolved, is selected whole, like the key
+		final Projection projection = Projection.of( "members{*}.age" );
+		assertTrue( projection.select( "members" ).select( "membership" ).select( "member" ).isAll() );
+
+		final Projection entry = projection.resolve( Club.class ).select( "members" ).select( "membership" );
+		assertSame( Projection.ALL, entry.select( "memberId" ) );
+		assertSame( Projection.ALL, entry.select( "member" ).select( "age" ) );
+		assertNull( entry.select( "member" ).select( "givenName" ) );
+	}
+
+	@Test
+	public void testProjectionReadOfRenamedValues()
+	{
+		final Club club = new Club( "chess" );
+		club.addMember( "m1", new Person( "Prosky", "Julie", 15 ) );
+		club.addMember( "m2", new Person( "Jones", "Janet", 13 ) );
+
+		final Projection projection = Projection.of( "members{*}.age" );
+		for( final AbstractPersistence persistence : new AbstractPersistence[] { new XmlPersistence(), new JsonPersistence() } )
+		{
+			final StringWriter writer = new StringWriter();
+			persistence.write( club, writer );
+			final Club reclub = persistence.read( Club.class, new StringReader( writer.toString() ), projection );
+
+			assertNull( reclub.getName() );
+			assertEquals( 2, reclub.getMembers().size() );
+			assertEquals( 15, reclub.getMembers().get( "m1" ).getAge() );
+			assertEquals( 13, reclub.getMembers().get( "m2" ).getAge() );
+			assertNull( reclub.getMembers().get( "m1" ).getGivenName() );
+		}
+	}
+
+	@Test
+	public void testWholeSubtreeWins()
+	{
+		final Projection projection = Projection.of( "people[*].givenName", "people" );
+		assertTrue( projection.select( "people" ).isAll() );
+	}
+
+	@Test
+	public void testInvalidPaths()
+	{
+		for( final String path : new String[] { "", "people[0].givenName", "people..age", "people[*]age" } )
+		{
+			try
+			{
+				Projection.of( path );
+				fail( "Expected the path to be invalid: " + path );
+			}
+			catch( IllegalArgumentException e )
+			{
+				assertTrue( e.getMessage().contains( "Invalid projection path" ) );
+			}
+		}
+
+		try
+		{
+			Projection.of( "people[*].age", "people{*}.age" );
+			fail( "Expected the conflicting paths to be invalid" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Invalid projection path" ) );
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.utils;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class NumberUtilsTest {
+
+	@Test
+	public void testIsInteger()
+	{
+		assertTrue( NumberUtils.isInteger( "0", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertTrue( NumberUtils.isInteger( "-13", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertTrue( NumberUtils.isInteger( "2147483647", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertTrue( NumberUtils.isInteger( "-2147483648", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertTrue( NumberUtils.isInteger( "-9223372036854775808", Long.MIN_VALUE, Long.MAX_VALUE ) );
+		assertTrue( NumberUtils.isInteger( "9223372036854775807", Long.MIN_VALUE, Long.MAX_VALUE ) );
+
+		assertFalse( NumberUtils.isInteger( "2147483648", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertFalse( NumberUtils.isInteger( "-2147483649", Integer.MIN_VALUE, Integer.MAX_VALUE ) );
+		assertFalse( NumberUtils.isInteger( "9223372036854775808", Long.MIN_VALUE, Long.MAX_VALUE ) );
+		assertFalse( NumberUtils.isInteger( "128", Byte.MIN_VALUE, Byte.MAX_VALUE ) );
+		for( final String value : new String[] { "", "-", "+1", "1.0", "1963-04-22", "\"13\"", "1e3" } )
+		{
+			assertFalse( value, NumberUtils.isInteger( value, Long.MIN_VALUE, Long.MAX_VALUE ) );
+		}
+	}
+
+	@Test
+	public void testIsDecimal()
+	{
+		for( final String value : new String[] { "13", "-0.5", "3.14", ".5", "5.", "1.0E10", "-1.5E-7", "2e+3", "NaN", "Infinity", "-Infinity" } )
+		{
+			assertTrue( value, NumberUtils.isDecimal( value ) );
+		}
+		for( final String value : new String[] { "", "-", ".", "1.2.3", "1e", "1E-", "e5", "1963-04-22", "-NaN", "true" } )
+		{
+			assertFalse( value, NumberUtils.isDecimal( value ) );
+		}
+	}
+}
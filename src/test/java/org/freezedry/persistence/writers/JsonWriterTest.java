@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import org.freezedry.persistence.tree.InfoNode;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class JsonWriterTest {
+
+	private final JsonWriter writer = new JsonWriter();
+
+	@Test
+	public void testEscapedStrings()
+	{
+		assertEquals( "\"a \\\"quoted\\\" back\\\\slash\"", writeValue( "a \"quoted\" back\\slash" ) );
+
+		// a slash is only escaped after a '<', so that "</" can't end a script block
+		assertEquals( "\"a/b <\\/script>\"", writeValue( "a/b </script>" ) );
+
+		// the names are escaped as the values are
+		final InfoNode root = InfoNode.createRootNode( "Root", Object.class );
+		root.addChild( InfoNode.createLeafNode( null, 1, "\"name\"", Integer.class ) );
+		assertEquals( "{\"Root\":{\"\\\"name\\\"\":1}}", write( root ) );
+	}
+
+	@Test
+	public void testControlCharacters()
+	{
+		assertEquals( "\"\\b\\t\\n\\f\\r\"", writeValue( "\b\t\n\f\r" ) );
+		assertEquals( "\"\\u0000\\u0001\\u001f \"", writeValue( "\u0000\u0001\u001f " ) );
+
+		// the C1 controls and the general punctuation block (e.g. the line separator) are escaped as well,
+		// but the no-break space that follows the C1 controls isn't
+		assertEquals( "\"\\u0080\\u009f\u00a0\\u2028\\u20ac\"", writeValue( "\u0080\u009f\u00a0\u2028\u20ac" ) );
+	}
+
+	@Test
+	public void testSurrogatePairs()
+	{
+		// the surrogates of a supplementary character are written as they are, and so are lone surrogates
+		assertEquals( "\"\ud83d\ude00 \u00e9\"", writeValue( "\ud83d\ude00 \u00e9" ) );
+		assertEquals( "\"\ud83d\"", writeValue( "\ud83d" ) );
+	}
+
+	@Test
+	public void testNumbers()
+	{
+		// the trailing zeros of the fraction are trimmed, along with a trailing decimal point
+		assertEquals( "2.5", writeValue( 2.50 ) );
+		assertEquals( "3", writeValue( 3.0 ) );
+		assertEquals( "0.125", writeValue( 0.125f ) );
+		assertEquals( "1.23", writeValue( new BigDecimal( "1.2300" ) ) );
+
+		// integers, and numbers with exponents, are written as they are
+		assertEquals( "100", writeValue( 100 ) );
+		assertEquals( "3000000000", writeValue( 3000000000L ) );
+		assertEquals( "1.0E10", writeValue( 1.0e10 ) );
+		assertEquals( "1.0E-5", writeValue( 1.0e-5 ) );
+		assertEquals( "-0", writeValue( -0.0 ) );
+
+		// booleans aren't quoted, but other values are written as strings
+		assertEquals( "true", writeValue( true ) );
+		assertEquals( "\"c\"", writeValue( 'c' ) );
+	}
+
+	@Test
+	public void testNonFiniteNumbersRejected()
+	{
+		for( final Object value : new Object[] { Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY } )
+		{
+			try
+			{
+				writeValue( value );
+				fail( "Expected the non-finite number to fail the write: " + value );
+			}
+			catch( IllegalStateException e )
+			{
+				assertTrue( e.getMessage().contains( "non-finite" ) );
+			}
+		}
+	}
+
+	@Test
+	public void testGroupsAndNulls()
+	{
+		// siblings that share a name become an array, in the order in which the names first appear;
+		// leading null values are dropped, later ones stay in the array, and a name with only null
+		// values is omitted
+		final InfoNode root = InfoNode.createRootNode( "Root", Object.class );
+		root.addChild( InfoNode.createLeafNode( null, "z", "zebra", String.class ) );
+		root.addChild( InfoNode.createLeafNode( null, null, "apple", Integer.class ) );
+		root.addChild( InfoNode.createLeafNode( null, 1, "apple", Integer.class ) );
+		root.addChild( InfoNode.createLeafNode( null, null, "apple", Integer.class ) );
+		root.addChild( InfoNode.createLeafNode( null, null, "missing", Integer.class ) );
+		final InfoNode compound = InfoNode.createCompoundNode( null, "people", Object.class );
+		compound.addChild( InfoNode.createLeafNode( null, "Jo", "name", String.class ) );
+		root.addChild( compound );
+		root.addChild( InfoNode.createCompoundNode( null, "people", Object.class ) );
+		root.addChild( InfoNode.createLeafNode( null, 2, "apple", Integer.class ) );
+
+		assertEquals( "{\"Root\":{\"zebra\":\"z\",\"apple\":[1,null,2],\"people\":[{\"name\":\"Jo\"},{}]}}", write( root ) );
+	}
+
+	@Test
+	public void testRecords()
+	{
+		final StringWriter output = new StringWriter();
+		final RecordWriter records = writer.createRecordWriter( output );
+		records.write( createRoot( "first\n" ) );
+		records.write( createRoot( 1.50 ) );
+		records.finish();
+		// one record per line, the newlines inside the records being escaped
+		assertEquals( "{\"Root\":{\"value\":\"first\\n\"}}\n{\"Root\":{\"value\":1.5}}\n", output.toString() );
+	}
+
+	@Test
+	public void testReusedBuffer()
+	{
+		// the writes reuse the writer's buffer, and a write while a stream of records holds the buffer uses its own
+		final StringBuilder longValue = new StringBuilder();
+		for( int i = 0; i < 3000; ++i )
+		{
+			longValue.append( "\"" ).append( i );
+		}
+		final String longJson = write( createRoot( longValue.toString() ) );
+		assertEquals( longValue.length() + 3000 + "{\"Root\":{\"value\":\"\"}}".length(), longJson.length() );
+
+		final StringWriter output = new StringWriter();
+		final RecordWriter records = writer.createRecordWriter( output );
+		records.write( createRoot( "first" ) );
+		assertEquals( longJson, write( createRoot( longValue.toString() ) ) );
+		records.write( createRoot( "second" ) );
+		records.finish();
+		assertEquals( "{\"Root\":{\"value\":\"first\"}}\n{\"Root\":{\"value\":\"second\"}}\n", output.toString() );
+		assertEquals( "2.5", writeValue( 2.5 ) );
+	}
+
+	/*
+	 * @return The JSON of a root node holding the specified value, with the enclosing object removed
+	 */
+	private String writeValue( final Object value )
+	{
+		final String json = write( createRoot( value ) );
+		final String prefix = "{\"Root\":{\"value\":";
+		assertTrue( json.startsWith( prefix ) && json.endsWith( "}}" ) );
+		return json.substring( prefix.length(), json.length() - 2 );
+	}
+
+	/*
+	 * @return The root node holding the specified value in its one leaf node
+	 */
+	private static InfoNode createRoot( final Object value )
+	{
+		final InfoNode root = InfoNode.createRootNode( "Root", Object.class );
+		root.addChild( InfoNode.createLeafNode( null, value, "value", value == null ? null : value.getClass() ) );
+		return root;
+	}
+
+	/*
+	 * @return The JSON written for the semantic model with the specified root
+	 */
+	private String write( final InfoNode root )
+	{
+		final StringWriter output = new StringWriter();
+		writer.write( root, output );
+		return output.toString();
+	}
+}
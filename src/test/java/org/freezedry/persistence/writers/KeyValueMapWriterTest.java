@@ -14,7 +14,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 /**
  * Created with IntelliJ IDEA.
@@ -156,6 +160,36 @@ public class KeyValueMapWriterTest {
 	@Test
 	public void testCreateMap() throws Exception
 	{
+		final PersistenceEngine engine = new PersistenceEngine();
+		final KeyValueMapWriter writer = new KeyValueMapWriter();
+		final KeyDictionary dictionary = new KeyDictionary();
+		final FlattenedObject johnny = writer.createMap( engine.createSemanticModel( new Person( "Hernandez", "Johnny", 13 ) ), dictionary );
+		final FlattenedObject julie = writer.createMap( engine.createSemanticModel( new Person( "Prosky", "Julie", 15 ) ), dictionary );
+
+		// the map view holds the decorated values, in the order they were flattened
+		assertEquals( "\"Johnny\"", johnny.get( "Person:givenName" ) );
+		assertEquals( "13", johnny.get( "Person:age" ) );
+		assertNull( johnny.get( "Person:nickName" ) );
+		assertFalse( johnny.containsKey( "Person:nickName" ) );
+		final Map< String, Object > copy = new LinkedHashMap<>( johnny );
+		assertEquals( copy, johnny );
+		assertEquals( new ArrayList<>( copy.keySet() ).get( 0 ), johnny.getKey( 0 ) );
+
+		// the people share their keys, and so are compared through the keys' ids
+		assertEquals( johnny.size(), dictionary.size() );
+		for( int i = 0; i < johnny.size(); ++i )
+		{
+			assertEquals( i, julie.indexOf( johnny.getKeyId( i ) ) );
+		}
 
+		try
+		{
+			johnny.put( "Person:age", "14" );
+			fail( "Expected the flattened object to be read-only" );
+		}
+		catch( UnsupportedOperationException e )
+		{
+			assertEquals( "13", johnny.get( "Person:age" ) );
+		}
 	}
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import org.freezedry.persistence.AbstractPersistenceTest;
+import org.freezedry.persistence.PersistenceEngine;
+import org.freezedry.persistence.readers.KeyValueReader;
+import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tree.InfoNode;
+import org.freezedry.persistence.utils.Constants;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class KeyValueWriterTest extends AbstractPersistenceTest {
+
+	@Test
+	public void testDefaultSeparator()
+	{
+		final InfoNode model = new PersistenceEngine().createSemanticModel( division );
+		final StringWriter output = new StringWriter();
+		new KeyValueWriter().write( model, output );
+
+		assertTrue( output.toString().startsWith( "Division:people[0]:Person:givenName = \"Johnny\"" + Constants.NEW_LINE ) );
+	}
+
+	@Test
+	public void testKeyValueSeparator()
+	{
+		final PersistenceEngine engine = new PersistenceEngine();
+		final InfoNode model = engine.createSemanticModel( division );
+
+		final KeyValueWriter writer = new KeyValueWriter();
+		writer.setKeyValueSeparator( "=>" );
+		final StringWriter output = new StringWriter();
+		writer.write( model, output );
+		assertTrue( output.toString().startsWith( "Division:people[0]:Person:givenName => \"Johnny\"" + Constants.NEW_LINE ) );
+
+		// the division read back with the same separator is written as the same pairs
+		final KeyValueReader reader = new KeyValueReader();
+		reader.setKeyValueSeparator( "=>" );
+		final InfoNode readModel = reader.read( Division.class, new StringReader( output.toString() ) );
+		final Division readDivision = (Division)engine.parseSemanticModel( Division.class, readModel );
+		final StringWriter rewritten = new StringWriter();
+		writer.write( engine.createSemanticModel( readDivision ), rewritten );
+		assertEquals( output.toString(), rewritten.toString() );
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.persistence.writers;
+
+import org.freezedry.persistence.tests.Person;
+import org.freezedry.persistence.tree.InfoNode;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * The expected XML is the output of the DOM-based writer that the {@link XmlWriter} replaced, which serialized
+ * the document through the identity transform.
+ */
+public class XmlWriterTest {
+
+	private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+	@Test
+	public void testWrite()
+	{
+		final String expected = DECLARATION + "<Person>"
+				+ "<givenName>a &lt; b &amp; c &gt; d \"q\" 'a'</givenName>"
+				+ "<familyName>line&#13;\nnext\ttab</familyName>"
+				+ "<controls>c0 &#1;&#31; c1 &#128;&#133;&#159; del &#127;</controls>"
+				+ "<symbols>&#128512; \u00e9 \u20ac</symbols>"
+				+ "<age>13</age>"
+				+ "<nickName/>"
+				+ "<friends/>"
+				+ "<Mood><Volatility>0.5</Volatility><Volatility>1.0</Volatility></Mood>"
+				+ "</Person>";
+		assertEquals( expected, write( new XmlWriter() ) );
+	}
+
+	@Test
+	public void testWriteWithTypeInfo()
+	{
+		final String expected = DECLARATION + "<Person type=\"org.freezedry.persistence.tests.Person\">"
+				+ "<givenName type=\"java.lang.String\">a &lt; b &amp; c &gt; d \"q\" 'a'</givenName>"
+				+ "<familyName type=\"java.lang.String\">line&#13;\nnext\ttab</familyName>"
+				+ "<controls type=\"java.lang.String\">c0 &#1;&#31; c1 &#128;&#133;&#159; del &#127;</controls>"
+				+ "<symbols type=\"java.lang.String\">&#128512; \u00e9 \u20ac</symbols>"
+				+ "<age type=\"java.lang.Integer\">13</age>"
+				+ "<nickName type=\"java.lang.String\"/>"
+				+ "<friends type=\"java.util.LinkedHashMap\"/>"
+				+ "<Mood type=\"java.util.ArrayList\">"
+				+ "<Volatility type=\"java.lang.Double\">0.5</Volatility><Volatility type=\"java.lang.Double\">1.0</Volatility>"
+				+ "</Mood>"
+				+ "</Person>";
+		final XmlWriter writer = new XmlWriter();
+		writer.setDisplayTypeInfo( true );
+		assertEquals( expected, write( writer ) );
+	}
+
+	/*
+	 * @return The XML written by the specified writer for a semantic model holding the characters that need escaping,
+	 * and empty elements
+	 */
+	private static String write( final XmlWriter writer )
+	{
+		final InfoNode root = InfoNode.createRootNode( "Person", Person.class );
+		root.addChild( InfoNode.createLeafNode( "givenName", "a < b & c > d \"q\" 'a'", "givenName", String.class ) );
+		root.addChild( InfoNode.createLeafNode( "familyName", "line\r\nnext\ttab", "familyName", String.class ) );
+		root.addChild( InfoNode.createLeafNode( null, "c0 \u0001\u001f c1 \u0080\u0085\u009f del \u007f", "controls", String.class ) );
+		root.addChild( InfoNode.createLeafNode( null, "\ud83d\ude00 \u00e9 \u20ac", "symbols", String.class ) );
+		root.addChild( InfoNode.createLeafNode( "age", 13, "age", Integer.class ) );
+		root.addChild( InfoNode.createLeafNode( null, "", "nickName", String.class ) );
+		root.addChild( InfoNode.createCompoundNode( null, "friends", LinkedHashMap.class ) );
+		final InfoNode mood = InfoNode.createCompoundNode( "mood", "Mood", ArrayList.class );
+		mood.addChild( InfoNode.createLeafNode( null, 0.5, "Volatility", Double.class ) );
+		mood.addChild( InfoNode.createLeafNode( null, 1.0, "Volatility", Double.class ) );
+		root.addChild( mood );
+
+		final StringWriter output = new StringWriter();
+		writer.write( root, output );
+		return output.toString();
+	}
+}
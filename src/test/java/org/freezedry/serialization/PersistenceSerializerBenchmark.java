@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.serialization;
+
+import org.freezedry.persistence.JsonPersistence;
+import org.freezedry.persistence.tests.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the throughput, under contention, of a serializer whose threads share one persistence, and so take
+ * turns, with that of a serializer that has a pool of persistences. Each of 1 to 64 threads round trips
+ * a person through the same serializer. Not run as part of the tests; run the {@link #main(String[])} method
+ * directly. The optional argument is the number of round trips per thread (2000 by default).
+ */
+public class PersistenceSerializerBenchmark {
+
+	private static final int[] NUM_THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	public static void main( final String[] args ) throws Exception
+	{
+		final int roundTrips = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2000;
+
+		final Person person = new Person( "Hernandez", "Johnny", 13 );
+		person.addFriend( "Polly", "bird" );
+		person.addFriend( "Sparky", "dog" );
+		for( int i = 0; i < 10; ++i )
+		{
+			person.addMood( Math.sin( Math.PI / 4 * i ) );
+		}
+
+		final Serializer shared = new PersistenceSerializer( new JsonPersistence() );
+		final Serializer pooled = new JsonPersistenceSerializer();
+
+		System.out.println( "Available processors: " + Runtime.getRuntime().availableProcessors() );
+		for( int run = 0; run < 2; ++run )
+		{
+			System.out.println( "Run " + run );
+			for( final int numThreads : NUM_THREADS )
+			{
+				final double sharedRate = time( shared, person, numThreads, roundTrips );
+				final double pooledRate = time( pooled, person, numThreads, roundTrips );
+				System.out.println( String.format( "  %2d threads: shared %,10.0f/s; pooled %,10.0f/s (%.2fx)",
+						numThreads, sharedRate, pooledRate, pooledRate / sharedRate ) );
+			}
+		}
+	}
+
+	/*
+	 * Returns the number of round trips per second when each of the threads makes the specified number of round trips
+	 */
+	private static double time( final Serializer serializer, final Person person, final int numThreads, final int roundTrips ) throws Exception
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final CountDownLatch start = new CountDownLatch( 1 );
+			final List< Future< Void > > results = new ArrayList<>();
+			for( int i = 0; i < numThreads; ++i )
+			{
+				results.add( executor.submit( new Callable< Void >() {
+
+					@Override
+					public Void call() throws Exception
+					{
+						start.await();
+						for( int j = 0; j < roundTrips; ++j )
+						{
+							final ByteArrayOutputStream output = new ByteArrayOutputStream();
+							serializer.serialize( person, output );
+							serializer.deserialize( new ByteArrayInputStream( output.toByteArray() ), Person.class );
+						}
+						return null;
+					}
+				} ) );
+			}
+
+			final long begin = System.nanoTime();
+			start.countDown();
+			for( Future< Void > result : results )
+			{
+				result.get();
+			}
+			return (double)numThreads * roundTrips / ( ( System.nanoTime() - begin ) / 1e9 );
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+}
@@ -2,6 +2,8 @@ package org.freezedry.serialization;
 
 import junit.framework.Assert;
 import org.freezedry.difference.ObjectDifferenceCalculator;
+import org.freezedry.persistence.JsonPersistence;
+import org.freezedry.persistence.Persistence;
 import org.freezedry.persistence.tests.BadPerson;
 import org.freezedry.persistence.tests.Division;
 import org.freezedry.persistence.tests.Person;
@@ -14,6 +16,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * [Description]
@@ -132,6 +140,86 @@ public class PersistenceSerializerTest {
 		serializeDeserialize( keyValueSerializer, division, Division.class );
 	}
 
+	@Test
+	public void testConcurrentSerializeDeserialize() throws Exception
+	{
+		Assert.assertTrue( ( (PersistenceSerializer)jsonSerializer ).isConcurrent() );
+
+		// each thread round trips the objects through the same serializers at the same time
+		final int numThreads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final CountDownLatch start = new CountDownLatch( 1 );
+			final List< Future< Void > > results = new ArrayList<>();
+			for( int i = 0; i < numThreads; ++i )
+			{
+				results.add( executor.submit( new Callable< Void >() {
+
+					@Override
+					public Void call() throws Exception
+					{
+						start.await();
+						for( int j = 0; j < 10; ++j )
+						{
+							serializeDeserialize( jsonSerializer, division, Division.class );
+							serializeDeserialize( keyValueSerializer, person, Person.class );
+						}
+						return null;
+					}
+				} ) );
+			}
+			start.countDown();
+			for( Future< Void > result : results )
+			{
+				result.get();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWarmedPersistenceSharedAcrossThreads() throws Exception
+	{
+		final AtomicInteger created = new AtomicInteger();
+		final PersistenceSerializer serializer = new PersistenceSerializer( new PersistenceSerializer.PersistenceFactory() {
+
+			@Override
+			public Persistence create()
+			{
+				created.incrementAndGet();
+				return new JsonPersistence();
+			}
+		} );
+
+		// warm up on this thread, and then the calls made one at a time from other threads use the warmed persistence
+		serializeDeserialize( serializer, division, Division.class );
+		for( int i = 0; i < 4; ++i )
+		{
+			final ExecutorService executor = Executors.newSingleThreadExecutor();
+			try
+			{
+				executor.submit( new Callable< Void >() {
+
+					@Override
+					public Void call() throws Exception
+					{
+						serializeDeserialize( serializer, division, Division.class );
+						return null;
+					}
+				} ).get();
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
+		Assert.assertEquals( 1, created.get() );
+	}
+
 	/**
 	 * Serializes the object into a byte[] and then reconstructes that object and compares it
 	 * @param serializer The serializer to use for serializing and deserializing
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 Robert Philipp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.freezedry.serialization;
+
+import org.freezedry.persistence.tests.Division;
+import org.freezedry.persistence.tests.Person;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class SerializerFactoryTest {
+
+	private final SerializerFactory factory = SerializerFactory.getInstance();
+
+	@Test
+	public void testSharedSerializers()
+	{
+		final String name = SerializerFactory.SerializerType.PERSISTENCE_JSON.getName();
+		final Serializer serializer = factory.getSerializer( name );
+		assertSame( serializer, factory.getSerializer( name ) );
+		assertNotSame( serializer, factory.createSerializer( name ) );
+		assertEquals( JsonPersistenceSerializer.class, serializer.getClass() );
+
+		// replacing the class replaces the shared serializer
+		final String testName = "test_serializer";
+		factory.putSerializer( testName, JsonPersistenceSerializer.class );
+		assertEquals( JsonPersistenceSerializer.class, factory.getSerializer( testName ).getClass() );
+		factory.putSerializer( testName, XmlPersistenceSerializer.class );
+		assertEquals( XmlPersistenceSerializer.class, factory.getSerializer( testName ).getClass() );
+		assertTrue( SerializerFactory.getSerializerNames().contains( testName ) );
+	}
+
+	@Test
+	public void testConcurrentSharedSerializer() throws Exception
+	{
+		final String name = "concurrent_test_serializer";
+		factory.putSerializer( name, XmlPersistenceSerializer.class );
+
+		// the threads that race to create the shared serializer all get the one that was stored
+		final int numThreads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+		try
+		{
+			final CountDownLatch start = new CountDownLatch( 1 );
+			final List< Future< Serializer > > futures = new ArrayList<>();
+			for( int i = 0; i < numThreads; ++i )
+			{
+				futures.add( executor.submit( new Callable< Serializer >() {
+
+					@Override
+					public Serializer call() throws Exception
+					{
+						start.await();
+						return factory.getSerializer( name );
+					}
+				} ) );
+			}
+			start.countDown();
+			for( Future< Serializer > future : futures )
+			{
+				assertSame( factory.getSerializer( name ), future.get() );
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRegisterClasses()
+	{
+		final String name = SerializerFactory.SerializerType.PERSISTENCE_KEY_VALUE.getName();
+		assertSame( factory.getSerializer( name ), factory.registerClasses( name, Division.class ) );
+
+		// a person can only be created from its fields
+		try
+		{
+			factory.registerClasses( name, Person.class );
+			fail( "Expected the class without a default constructor to fail the registration" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( Person.class.getName() ) );
+		}
+	}
+}